@@ -38,6 +38,13 @@ public class KafkaTestHelper {
         return new KafkaProducer<>(createKafkaProperties());
     }
 
+    public KafkaProducer<byte[], byte[]> createBinaryProducer() {
+        final Properties props = createKafkaProperties();
+        props.put("value.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
+        props.put("key.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
+        return new KafkaProducer<>(props);
+    }
+
     protected static Properties createKafkaProperties() {
         final Properties props = new Properties();
         props.put("bootstrap.servers", "localhost:29092");
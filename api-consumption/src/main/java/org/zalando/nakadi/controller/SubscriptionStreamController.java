@@ -9,7 +9,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -64,6 +67,8 @@ import static org.zalando.problem.Status.UNPROCESSABLE_ENTITY;
 @RestController
 public class SubscriptionStreamController {
     public static final String CONSUMERS_COUNT_METRIC_NAME = "consumers";
+    public static final String AVRO_BINARY = "application/avro-binary";
+    private static final MediaType AVRO_BINARY_TYPE = MediaType.valueOf(AVRO_BINARY);
     private static final Logger LOG = LoggerFactory.getLogger(SubscriptionStreamController.class);
 
     private final SubscriptionStreamerFactory subscriptionStreamerFactory;
@@ -98,11 +103,14 @@ public class SubscriptionStreamController {
         private boolean headersSent;
         private final HttpServletResponse response;
         private final OutputStream out;
+        private final String contentType;
         private final Map<Class, Function<Exception, Problem>> exceptionProblem;
 
-        SubscriptionOutputImpl(final HttpServletResponse response, final OutputStream out) {
+        SubscriptionOutputImpl(final HttpServletResponse response, final OutputStream out,
+                               final String contentType) {
             this.response = response;
             this.out = out;
+            this.contentType = contentType;
             this.headersSent = false;
             this.exceptionProblem = new HashMap<>();
             assignExceptionProblem();
@@ -132,7 +140,7 @@ public class SubscriptionStreamController {
             if (!headersSent) {
                 headersSent = true;
                 response.setStatus(HttpStatus.OK.value());
-                response.setContentType("application/x-json-stream");
+                response.setContentType(contentType);
                 response.setHeader("X-Nakadi-StreamId", sessionId);
                 out.flush();
             }
@@ -208,6 +216,7 @@ public class SubscriptionStreamController {
                                          final StreamParameters streamParameters,
                                          final Span parentSubscriptionSpan) {
         final String flowId = FlowIdUtils.peek();
+        final boolean avro = isAvroAccepted(request);
 
         return outputStream -> {
             FlowIdUtils.push(flowId);
@@ -218,7 +227,8 @@ public class SubscriptionStreamController {
             final AtomicBoolean connectionReady = new AtomicBoolean(true);
             // closedConnectionsCrutch.listenForConnectionClose(request);
             SubscriptionStreamer streamer = null;
-            final SubscriptionOutputImpl output = new SubscriptionOutputImpl(response, outputStream);
+            final SubscriptionOutputImpl output = new SubscriptionOutputImpl(response, outputStream,
+                    avro ? AVRO_BINARY : "application/x-json-stream");
             try {
                 if (eventStreamChecks.isSubscriptionConsumptionBlocked(subscriptionId, client.getClientId())) {
                     writeProblemResponse(response, outputStream,
@@ -229,7 +239,7 @@ public class SubscriptionStreamController {
                 subscriptionValidationService.validatePartitionsToStream(subscription,
                         streamParameters.getPartitions());
                 streamer = subscriptionStreamerFactory.build(subscription, streamParameters, output,
-                        connectionReady, parentSubscriptionSpan, client.getClientId());
+                        connectionReady, parentSubscriptionSpan, client.getClientId(), avro);
                 streamer.stream();
             } catch (final InterruptedException ex) {
                 LOG.warn("Interrupted while streaming with " + streamer, ex);
@@ -243,6 +253,21 @@ public class SubscriptionStreamController {
         };
     }
 
+    /**
+     * Events are streamed in avro only if it is explicitly asked for, wildcards mean json.
+     */
+    private static boolean isAvroAccepted(final HttpServletRequest request) {
+        final String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (null == accept) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(AVRO_BINARY_TYPE::equalsTypeAndSubtype);
+        } catch (final InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
     private void writeProblemResponse(final HttpServletResponse response,
                                       final OutputStream outputStream,
                                       final Problem problem) throws IOException {
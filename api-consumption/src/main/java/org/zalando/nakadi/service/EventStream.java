@@ -70,7 +70,7 @@ public class EventStream {
             int messagesRead = 0;
             final Map<String, Integer> keepAliveInARow = createMapWithPartitionKeys(partition -> 0);
 
-            final Map<String, List<byte[]>> currentBatches =
+            final Map<String, List<ConsumedEvent>> currentBatches =
                     createMapWithPartitionKeys(partition -> Lists.newArrayList());
             // Partition to NakadiCursor.
             final Map<String, NakadiCursor> latestOffsets = config.getCursors().stream().collect(
@@ -111,7 +111,7 @@ public class EventStream {
                     latestOffsets.put(event.getPosition().getPartition(), event.getPosition());
 
                     // put message to batch
-                    currentBatches.get(event.getPosition().getPartition()).add(event.getEvent());
+                    currentBatches.get(event.getPosition().getPartition()).add(event);
                     messagesRead++;
                     bytesInMemory += event.getEvent().length;
 
@@ -124,11 +124,11 @@ public class EventStream {
                     final long timeSinceBatchStart = currentTimeMillis() - batchStartTimes.get(partition);
                     if (config.getBatchTimeout() * 1000 <= timeSinceBatchStart
                             || currentBatches.get(partition).size() >= config.getBatchLimit()) {
-                        final List<byte[]> eventsToSend = currentBatches.get(partition);
+                        final List<ConsumedEvent> eventsToSend = currentBatches.get(partition);
                         sendBatch(latestOffsets.get(partition), eventsToSend);
 
                         if (!eventsToSend.isEmpty()) {
-                            bytesInMemory -= eventsToSend.stream().mapToLong(v -> v.length).sum();
+                            bytesInMemory -= eventsToSend.stream().mapToLong(v -> v.getEvent().length).sum();
                             eventsToSend.clear();
                         } else {
                             // if we hit keep alive count limit - close the stream
@@ -140,12 +140,13 @@ public class EventStream {
                 }
                 // Dump some data that is exceeding memory limits
                 while (isMemoryLimitReached(bytesInMemory)) {
-                    final Map.Entry<String, List<byte[]>> heaviestPartition = currentBatches.entrySet().stream()
-                            .max(Comparator.comparing(
-                                    entry -> entry.getValue().stream().mapToLong(event -> event.length).sum()))
+                    final Map.Entry<String, List<ConsumedEvent>> heaviestPartition = currentBatches.entrySet().stream()
+                            .max(Comparator.comparing(entry -> entry.getValue().stream()
+                                    .mapToLong(event -> event.getEvent().length).sum()))
                             .get();
                     sendBatch(latestOffsets.get(heaviestPartition.getKey()), heaviestPartition.getValue());
-                    final long freed = heaviestPartition.getValue().stream().mapToLong(v -> v.length).sum();
+                    final long freed = heaviestPartition.getValue().stream()
+                            .mapToLong(v -> v.getEvent().length).sum();
                     LOG.info("Memory limit reached for event type {}: {} bytes. Freed: {} bytes, {} messages",
                             config.getEtName(), bytesInMemory, freed, heaviestPartition.getValue().size());
                     bytesInMemory -= freed;
@@ -232,7 +233,7 @@ public class EventStream {
                 .collect(Collectors.toMap(identity(), valueFunction));
     }
 
-    private void sendBatch(final NakadiCursor topicPosition, final List<byte[]> currentBatch)
+    private void sendBatch(final NakadiCursor topicPosition, final List<ConsumedEvent> currentBatch)
             throws IOException {
         final int bytesWritten = eventStreamWriter
                 .writeBatch(outputStream, cursorConverter.convert(topicPosition), currentBatch);
@@ -18,10 +18,10 @@ public interface EventStreamWriter {
      *
      * @param os     Stream to write to
      * @param cursor Cursor associated with this branch
-     * @param events Events in batch
+     * @param events Events in batch, as they are stored
      * @return count of bytes written
      */
-    int writeBatch(OutputStream os, Cursor cursor, List<byte[]> events) throws IOException;
+    int writeBatch(OutputStream os, Cursor cursor, List<ConsumedEvent> events) throws IOException;
 
     int writeSubscriptionBatch(OutputStream os, SubscriptionCursor cursor, List<ConsumedEvent> events,
                                Optional<String> metadata) throws IOException;
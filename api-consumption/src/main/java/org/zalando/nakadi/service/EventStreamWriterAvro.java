@@ -0,0 +1,114 @@
+package org.zalando.nakadi.service;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.zalando.nakadi.avro.AvroEventCodec;
+import org.zalando.nakadi.cache.AvroEventCodecCache;
+import org.zalando.nakadi.domain.ConsumedEvent;
+import org.zalando.nakadi.exceptions.runtime.NakadiBaseException;
+import org.zalando.nakadi.view.Cursor;
+import org.zalando.nakadi.view.SubscriptionCursor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes subscription batches of event types with avro schema in avro binary encoding. The stream is a sequence of
+ * {@link #BATCH_SCHEMA} records, events of the batch are sent as they are stored, together with the version of the
+ * schema they are encoded with (see {@link AvroEventCodec} for the schema of the event of the version). Events stored
+ * as json are encoded with the current version of the schema.
+ */
+public class EventStreamWriterAvro implements EventStreamWriter {
+
+    private static final String NAMESPACE = "org.zalando.nakadi";
+
+    public static final Schema BATCH_SCHEMA = SchemaBuilder.record("SubscriptionBatch").namespace(NAMESPACE).fields()
+            .name("cursor").type(SchemaBuilder.record("SubscriptionCursor").namespace(NAMESPACE).fields()
+                    .requiredString("partition")
+                    .requiredString("offset")
+                    .requiredString("event_type")
+                    .requiredString("cursor_token")
+                    .endRecord()).noDefault()
+            .name("events").type().array().items(SchemaBuilder.record("Event").namespace(NAMESPACE).fields()
+                    .requiredString("schema_version")
+                    .requiredBytes("event")
+                    .endRecord()).noDefault()
+            .optionalString("debug")
+            .endRecord();
+
+    private final AvroEventCodecCache avroEventCodecCache;
+
+    public EventStreamWriterAvro(final AvroEventCodecCache avroEventCodecCache) {
+        this.avroEventCodecCache = avroEventCodecCache;
+    }
+
+    @Override
+    public int writeBatch(final OutputStream os, final Cursor cursor, final List<ConsumedEvent> events) {
+        throw new UnsupportedOperationException("Events are streamed in avro only to subscriptions");
+    }
+
+    @Override
+    public int writeSubscriptionBatch(final OutputStream os, final SubscriptionCursor cursor,
+                                      final List<ConsumedEvent> events,
+                                      final Optional<String> metadata) throws IOException {
+        final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(batch, null);
+        encoder.writeString(cursor.getPartition());
+        encoder.writeString(cursor.getOffset());
+        encoder.writeString(cursor.getEventType());
+        encoder.writeString(cursor.getCursorToken());
+
+        encoder.writeArrayStart();
+        encoder.setItemCount(events.size());
+        for (final ConsumedEvent event : events) {
+            encoder.startItem();
+            if (null != event.getAvroSchemaVersion()) {
+                encoder.writeString(event.getAvroSchemaVersion());
+                encoder.writeBytes(event.getEvent());
+            } else {
+                final AvroEventCodec codec = getCurrentCodec(event);
+                encoder.writeString(codec.getVersion());
+                encoder.writeBytes(toAvro(codec, event));
+            }
+        }
+        encoder.writeArrayEnd();
+
+        if (metadata.isPresent()) {
+            encoder.writeIndex(1);
+            encoder.writeString(metadata.get());
+        } else {
+            encoder.writeIndex(0);
+        }
+        encoder.flush();
+
+        batch.writeTo(os);
+        os.flush();
+        return batch.size();
+    }
+
+    private AvroEventCodec getCurrentCodec(final ConsumedEvent event) throws IOException {
+        try {
+            return avroEventCodecCache.getCurrent(event.getPosition().getEventType());
+        } catch (final NakadiBaseException e) {
+            throw new IOException("Failed to convert event at " + event.getPosition() + " to avro", e);
+        }
+    }
+
+    private static byte[] toAvro(final AvroEventCodec codec, final ConsumedEvent event) throws IOException {
+        try {
+            return codec.toAvro(new JSONObject(new String(event.getEvent(), UTF_8)));
+        } catch (final JSONException | AvroRuntimeException e) {
+            throw new IOException("Failed to convert event at " + event.getPosition() + " to avro", e);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package org.zalando.nakadi.service;
 
+import org.apache.avro.AvroRuntimeException;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.zalando.nakadi.cache.AvroEventCodecCache;
 import org.zalando.nakadi.domain.ConsumedEvent;
+import org.zalando.nakadi.exceptions.runtime.NakadiBaseException;
 import org.zalando.nakadi.view.Cursor;
 import org.zalando.nakadi.view.SubscriptionCursor;
 
@@ -12,6 +16,10 @@ import java.util.Optional;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+/**
+ * Writes batches in json. Events stored in avro are converted to json with the version of the schema they were
+ * published with.
+ */
 @Component
 class EventStreamWriterBinary implements EventStreamWriter {
     private static final byte[] B_BATCH_SEPARATOR = BATCH_SEPARATOR.getBytes(UTF_8);
@@ -48,8 +56,16 @@ class EventStreamWriterBinary implements EventStreamWriter {
             + B_CLOSE_CURLY_BRACKET.length
             + 1; //B_BATCH_SEPARATOR
 
+    private final AvroEventCodecCache avroEventCodecCache;
+
+    @Autowired
+    EventStreamWriterBinary(final AvroEventCodecCache avroEventCodecCache) {
+        this.avroEventCodecCache = avroEventCodecCache;
+    }
+
     @Override
-    public int writeBatch(final OutputStream os, final Cursor cursor, final List<byte[]> events) throws IOException {
+    public int writeBatch(final OutputStream os, final Cursor cursor, final List<ConsumedEvent> events)
+            throws IOException {
         int byteCount = B_FIXED_BYTE_COUNT;
 
         os.write(B_CURSOR_PARTITION_BEGIN);
@@ -65,7 +81,7 @@ class EventStreamWriterBinary implements EventStreamWriter {
         if (!events.isEmpty()) {
             os.write(B_EVENTS_ARRAY_BEGIN);
             for (int i = 0; i < events.size(); i++) {
-                final byte[] event = events.get(i);
+                final byte[] event = toJson(events.get(i));
                 os.write(event);
                 byteCount += event.length;
                 if (i < (events.size() - 1)) {
@@ -112,7 +128,7 @@ class EventStreamWriterBinary implements EventStreamWriter {
         if (!events.isEmpty()) {
             os.write(B_EVENTS_ARRAY_BEGIN);
             for (int i = 0; i < events.size(); i++) {
-                final byte[] event = events.get(i).getEvent();
+                final byte[] event = toJson(events.get(i));
                 os.write(event);
                 byteCount += event.length;
                 if (i < (events.size() - 1)) {
@@ -140,4 +156,16 @@ class EventStreamWriterBinary implements EventStreamWriter {
 
         return byteCount;
     }
+
+    private byte[] toJson(final ConsumedEvent event) throws IOException {
+        if (null == event.getAvroSchemaVersion()) {
+            return event.getEvent();
+        }
+        try {
+            return avroEventCodecCache.get(event.getPosition().getEventType(), event.getAvroSchemaVersion())
+                    .toJson(event.getEvent());
+        } catch (final NakadiBaseException | AvroRuntimeException e) {
+            throw new IOException("Failed to convert event at " + event.getPosition() + " to json", e);
+        }
+    }
 }
@@ -7,16 +7,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.zalando.nakadi.cache.AvroEventCodecCache;
 import org.zalando.nakadi.cache.EventTypeCache;
 import org.zalando.nakadi.domain.Subscription;
 import org.zalando.nakadi.exceptions.runtime.InternalNakadiException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchEventTypeException;
+import org.zalando.nakadi.exceptions.runtime.WrongStreamParametersException;
 import org.zalando.nakadi.service.AuthorizationValidator;
 import org.zalando.nakadi.service.CursorConverter;
 import org.zalando.nakadi.service.CursorOperationsService;
 import org.zalando.nakadi.service.CursorTokenService;
 import org.zalando.nakadi.service.EventStreamChecks;
 import org.zalando.nakadi.service.EventStreamWriter;
+import org.zalando.nakadi.service.EventStreamWriterAvro;
 import org.zalando.nakadi.service.EventTypeChangeListener;
 import org.zalando.nakadi.service.NakadiCursorComparator;
 import org.zalando.nakadi.service.TracingService;
@@ -42,6 +45,7 @@ public class SubscriptionStreamerFactory {
     private final MetricRegistry metricRegistry;
     private final SubscriptionClientFactory zkClientFactory;
     private final EventStreamWriter eventStreamWriter;
+    private final EventStreamWriter avroStreamWriter;
     private final AuthorizationValidator authorizationValidator;
     private final EventTypeChangeListener eventTypeChangeListener;
     private final EventTypeCache eventTypeCache;
@@ -67,6 +71,7 @@ public class SubscriptionStreamerFactory {
             final NakadiKpiPublisher nakadiKpiPublisher,
             final CursorOperationsService cursorOperationsService,
             final EventStreamChecks eventStreamChecks,
+            final AvroEventCodecCache avroEventCodecCache,
             @Value("${nakadi.kpi.event-types.nakadiDataStreamed}") final String kpiDataStreamedEventType,
             @Value("${nakadi.kpi.config.stream-data-collection-frequency-ms}") final long kpiCollectionFrequencyMs,
             @Value("${nakadi.subscription.maxStreamMemoryBytes}") final long streamMemoryLimitBytes) {
@@ -77,6 +82,7 @@ public class SubscriptionStreamerFactory {
         this.metricRegistry = metricRegistry;
         this.zkClientFactory = zkClientFactory;
         this.eventStreamWriter = eventStreamWriter;
+        this.avroStreamWriter = new EventStreamWriterAvro(avroEventCodecCache);
         this.authorizationValidator = authorizationValidator;
         this.eventTypeChangeListener = eventTypeChangeListener;
         this.eventTypeCache = eventTypeCache;
@@ -88,13 +94,26 @@ public class SubscriptionStreamerFactory {
         this.streamMemoryLimitBytes = streamMemoryLimitBytes;
     }
 
+    /**
+     * @param avro whether events are streamed in avro binary encoding, allowed only if all the event types of the
+     *             subscription have avro schema
+     */
     public SubscriptionStreamer build(
             final Subscription subscription,
             final StreamParameters streamParameters,
             final SubscriptionOutput output,
             final AtomicBoolean connectionReady,
-            final Span parentSpan, final String clientId)
-            throws InternalNakadiException, NoSuchEventTypeException {
+            final Span parentSpan, final String clientId,
+            final boolean avro)
+            throws InternalNakadiException, NoSuchEventTypeException, WrongStreamParametersException {
+        if (avro) {
+            for (final String eventType : subscription.getEventTypes()) {
+                if (null == eventTypeCache.getAvroEventCodec(eventType)) {
+                    throw new WrongStreamParametersException("Event type " + eventType
+                            + " does not have avro schema, events can not be streamed in avro");
+                }
+            }
+        }
         final Session session = Session.generate(1, streamParameters.getPartitions());
         final ZkSubscriptionClient zkClient = zkClientFactory.createClient(
                 subscription,
@@ -127,7 +146,7 @@ public class SubscriptionStreamerFactory {
                 .setSubscription(subscription)
                 .setMetricRegistry(metricRegistry)
                 .setTimelineService(timelineService)
-                .setWriter(eventStreamWriter)
+                .setWriter(avro ? avroStreamWriter : eventStreamWriter)
                 .setAuthorizationValidator(authorizationValidator)
                 .setEventTypeChangeListener(eventTypeChangeListener)
                 .setCursorComparator(new NakadiCursorComparator(eventTypeCache))
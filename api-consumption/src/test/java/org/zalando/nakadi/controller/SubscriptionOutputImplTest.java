@@ -30,7 +30,8 @@ public class SubscriptionOutputImplTest {
                             public void write(final int b) throws IOException {
                                 // skip
                             }
-                        });
+                        },
+                        "application/x-json-stream");
 
         impl.onException(new ConflictException("conflict during reset"));
     }
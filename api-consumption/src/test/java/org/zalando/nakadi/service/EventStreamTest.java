@@ -10,6 +10,8 @@ import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.zalando.nakadi.avro.AvroEventCodec;
+import org.zalando.nakadi.cache.AvroEventCodecCache;
 import org.zalando.nakadi.cache.EventTypeCache;
 import org.zalando.nakadi.domain.ConsumedEvent;
 import org.zalando.nakadi.domain.NakadiCursor;
@@ -69,7 +71,7 @@ public class EventStreamTest {
 
     private static final Timeline TIMELINE = buildTimelineWithTopic(TOPIC);
     private static CursorConverter cursorConverter;
-    private static EventStreamWriter eventStreamWriter = new EventStreamWriterBinary();
+    private static EventStreamWriter eventStreamWriter = new EventStreamWriterBinary(mock(AvroEventCodecCache.class));
 
     private final NakadiKpiPublisher kpiPublisher = mock(NakadiKpiPublisher.class);
     private final String kpiEventType = "nakadi.data.streamed";
@@ -448,10 +450,10 @@ public class EventStreamTest {
 
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
         final Cursor cursor = new Cursor("22", "000000000000000023");
-        final ArrayList<byte[]> events = Lists.newArrayList(
-                "{\"a\":\"b\"}".getBytes(),
-                "{\"c\":\"d\"}".getBytes(),
-                "{\"e\":\"f\"}".getBytes());
+        final ArrayList<ConsumedEvent> events = Lists.newArrayList(
+                new ConsumedEvent("{\"a\":\"b\"}".getBytes(), mock(NakadiCursor.class), 0, null),
+                new ConsumedEvent("{\"c\":\"d\"}".getBytes(), mock(NakadiCursor.class), 0, null),
+                new ConsumedEvent("{\"e\":\"f\"}".getBytes(), mock(NakadiCursor.class), 0, null));
 
         try {
             eventStreamWriter.writeBatch(baos, cursor, events);
@@ -482,7 +484,7 @@ public class EventStreamTest {
 
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
         final Cursor cursor = new Cursor("11", "000000000000000012");
-        final ArrayList<byte[]> events = Lists.newArrayList();
+        final ArrayList<ConsumedEvent> events = Lists.newArrayList();
 
         try {
             eventStreamWriter.writeBatch(baos, cursor, events);
@@ -507,6 +509,28 @@ public class EventStreamTest {
         }
     }
 
+    @Test
+    public void whenEventIsStoredInAvroThenItIsWrittenInJson() throws IOException {
+        final AvroEventCodecCache avroEventCodecCache = mock(AvroEventCodecCache.class);
+        final AvroEventCodec codec = mock(AvroEventCodec.class);
+        when(avroEventCodecCache.get("orders", "1.0.0")).thenReturn(codec);
+        when(codec.toJson(new byte[]{1, 2})).thenReturn("{\"c\":\"d\"}".getBytes(UTF_8));
+        final NakadiCursor position = mock(NakadiCursor.class);
+        when(position.getEventType()).thenReturn("orders");
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        new EventStreamWriterBinary(avroEventCodecCache).writeSubscriptionBatch(baos,
+                new SubscriptionCursor("0", "000000000000000001", "orders", "token-id"),
+                Lists.newArrayList(
+                        new ConsumedEvent("{\"a\":\"b\"}".getBytes(UTF_8), position, 0, null),
+                        new ConsumedEvent(new byte[]{1, 2}, position, 0, null, "1.0.0")),
+                empty());
+
+        final JSONArray events = new JSONObject(baos.toString()).getJSONArray("events");
+        assertEquals("b", events.getJSONObject(0).getString("a"));
+        assertEquals("d", events.getJSONObject(1).getString("c"));
+    }
+
     @Test
     public void testWriteStreamInfoWhenPresent() {
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
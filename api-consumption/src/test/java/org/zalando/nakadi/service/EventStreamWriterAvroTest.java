@@ -0,0 +1,119 @@
+package org.zalando.nakadi.service;
+
+import com.google.common.collect.Lists;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.joda.time.DateTime;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.nakadi.avro.AvroEventCodec;
+import org.zalando.nakadi.cache.AvroEventCodecCache;
+import org.zalando.nakadi.domain.ConsumedEvent;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventTypeSchema;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+import org.zalando.nakadi.domain.NakadiCursor;
+import org.zalando.nakadi.exceptions.runtime.UnprocessableEntityException;
+import org.zalando.nakadi.view.SubscriptionCursor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EventStreamWriterAvroTest {
+
+    private static final String SCHEMA = "{\"type\":\"record\",\"name\":\"Order\",\"fields\":[" +
+            "{\"name\":\"id\",\"type\":\"string\"}]}";
+
+    private final AvroEventCodecCache avroEventCodecCache = mock(AvroEventCodecCache.class);
+    private final EventStreamWriterAvro writer = new EventStreamWriterAvro(avroEventCodecCache);
+    private final SubscriptionCursor cursor = new SubscriptionCursor("0", "000000000000000002", "orders", "token-id");
+    private final NakadiCursor position = mock(NakadiCursor.class);
+    private AvroEventCodec codec;
+
+    @Before
+    public void setUp() {
+        codec = AvroEventCodec.create(EventCategory.UNDEFINED, new EventTypeSchema(
+                new EventTypeSchemaBase(EventTypeSchemaBase.Type.AVRO_SCHEMA, SCHEMA), "1.1.0", new DateTime()));
+        when(avroEventCodecCache.getCurrent("orders")).thenReturn(codec);
+        when(position.getEventType()).thenReturn("orders");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void whenBatchIsWrittenThenItIsDecodedWithBatchSchema() throws IOException {
+        final byte[] stored = codec.toAvro(new JSONObject("{\"id\":\"A-1\"}"));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        final int size = writer.writeSubscriptionBatch(out, cursor, Lists.newArrayList(
+                new ConsumedEvent(stored, position, 0, null, "1.0.0"),
+                new ConsumedEvent("{\"id\":\"A-2\"}".getBytes(UTF_8), position, 0, null)),
+                Optional.of("debug info"));
+
+        assertThat(size, equalTo(out.size()));
+        final GenericRecord batch = decode(out.toByteArray());
+        final GenericRecord batchCursor = (GenericRecord) batch.get("cursor");
+        assertThat(batchCursor.get("partition").toString(), equalTo("0"));
+        assertThat(batchCursor.get("offset").toString(), equalTo("000000000000000002"));
+        assertThat(batchCursor.get("event_type").toString(), equalTo("orders"));
+        assertThat(batchCursor.get("cursor_token").toString(), equalTo("token-id"));
+        assertThat(batch.get("debug").toString(), equalTo("debug info"));
+
+        final List<GenericRecord> events = (List<GenericRecord>) batch.get("events");
+        assertThat(events.size(), equalTo(2));
+        // events stored in avro are sent as they are, with the version they were published with
+        assertThat(events.get(0).get("schema_version").toString(), equalTo("1.0.0"));
+        assertThat(toJson(events.get(0)), equalTo("{\"id\":\"A-1\"}"));
+        // events stored in json are encoded with the current version
+        assertThat(events.get(1).get("schema_version").toString(), equalTo("1.1.0"));
+        assertThat(toJson(events.get(1)), equalTo("{\"id\":\"A-2\"}"));
+    }
+
+    @Test
+    public void whenBatchIsEmptyThenOnlyCursorIsWritten() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.writeSubscriptionBatch(out, cursor, Lists.newArrayList(), Optional.empty());
+
+        final GenericRecord batch = decode(out.toByteArray());
+        assertThat(((List<?>) batch.get("events")).size(), equalTo(0));
+        assertThat(batch.get("debug"), nullValue());
+    }
+
+    @Test(expected = IOException.class)
+    public void whenEventStoredInJsonCanNotBeEncodedThenBatchIsNotWritten() throws IOException {
+        writer.writeSubscriptionBatch(new ByteArrayOutputStream(), cursor, Lists.newArrayList(
+                new ConsumedEvent("{\"name\":\"A-3\"}".getBytes(UTF_8), position, 0, null)), Optional.empty());
+    }
+
+    @Test(expected = IOException.class)
+    public void whenEventTypeDoesNotHaveAvroSchemaThenBatchIsNotWritten() throws IOException {
+        when(avroEventCodecCache.getCurrent("orders")).thenThrow(new UnprocessableEntityException("no avro schema"));
+
+        writer.writeSubscriptionBatch(new ByteArrayOutputStream(), cursor, Lists.newArrayList(
+                new ConsumedEvent("{\"id\":\"A-4\"}".getBytes(UTF_8), position, 0, null)), Optional.empty());
+    }
+
+    private String toJson(final GenericRecord event) {
+        final ByteBuffer bytes = (ByteBuffer) event.get("event");
+        final byte[] avro = new byte[bytes.remaining()];
+        bytes.get(avro);
+        return new String(codec.toJson(avro), UTF_8);
+    }
+
+    private static GenericRecord decode(final byte[] batch) throws IOException {
+        return new GenericDatumReader<GenericRecord>(EventStreamWriterAvro.BATCH_SCHEMA)
+                .read(null, DecoderFactory.get().binaryDecoder(batch, null));
+    }
+}
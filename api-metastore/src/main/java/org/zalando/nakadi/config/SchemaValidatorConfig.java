@@ -19,6 +19,7 @@ import org.zalando.nakadi.validation.schema.EnrichmentStrategyConstraint;
 import org.zalando.nakadi.validation.schema.PartitionKeyFieldsConstraint;
 import org.zalando.nakadi.validation.schema.PartitionStrategyConstraint;
 import org.zalando.nakadi.validation.schema.SchemaEvolutionConstraint;
+import org.zalando.nakadi.validation.schema.SchemaTypeChangeConstraint;
 import org.zalando.nakadi.validation.schema.diff.SchemaDiff;
 
 import java.io.IOException;
@@ -67,7 +68,8 @@ public class SchemaValidatorConfig {
                 new CompatibilityModeChangeConstraint(adminService, authorizationService),
                 new PartitionKeyFieldsConstraint(),
                 new PartitionStrategyConstraint(),
-                new EnrichmentStrategyConstraint()
+                new EnrichmentStrategyConstraint(),
+                new SchemaTypeChangeConstraint()
         );
 
         final Map<SchemaChange.Type, String> errorMessage = new HashMap<>();
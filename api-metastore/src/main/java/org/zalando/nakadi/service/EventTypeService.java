@@ -487,8 +487,11 @@ public class EventTypeService {
     }
 
     private void updateRetentionTime(final EventType original, final EventType eventType) {
-        if (eventType.getOptions() == null || eventType.getOptions().getRetentionTime() == null) {
+        // options sent without retention time still update the other options, but keep the stored retention time
+        if (eventType.getOptions() == null) {
             eventType.setOptions(original.getOptions());
+        } else if (eventType.getOptions().getRetentionTime() == null && original.getOptions() != null) {
+            eventType.getOptions().setRetentionTime(original.getOptions().getRetentionTime());
         }
         setDefaultEventTypeOptions(original); // fixes a problem where the event type has no explicit retention time
         setDefaultEventTypeOptions(eventType);
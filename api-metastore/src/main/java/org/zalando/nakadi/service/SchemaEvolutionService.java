@@ -8,6 +8,7 @@ import org.everit.json.schema.loader.SchemaLoader;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.json.JSONObject;
+import org.zalando.nakadi.avro.AvroSchemaConverter;
 import org.zalando.nakadi.domain.CompatibilityMode;
 import org.zalando.nakadi.domain.EnrichmentStrategyDescriptor;
 import org.zalando.nakadi.domain.EventCategory;
@@ -209,7 +210,7 @@ public class SchemaEvolutionService {
     }
 
     private Schema schema(final EventTypeBase eventType) {
-        final JSONObject schemaAsJson = new JSONObject(eventType.getSchema().getSchema());
+        final JSONObject schemaAsJson = AvroSchemaConverter.toJsonSchema(eventType.getSchema());
 
         return SchemaLoader.load(schemaAsJson);
     }
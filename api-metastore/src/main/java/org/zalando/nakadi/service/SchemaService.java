@@ -1,5 +1,6 @@
 package org.zalando.nakadi.service;
 
+import org.apache.avro.SchemaParseException;
 import org.everit.json.schema.Schema;
 import org.everit.json.schema.SchemaException;
 import org.everit.json.schema.loader.SchemaClient;
@@ -11,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.zalando.nakadi.avro.AvroSchemaConverter;
 import org.zalando.nakadi.cache.EventTypeCache;
 import org.zalando.nakadi.config.NakadiSettings;
 import org.zalando.nakadi.domain.CompatibilityMode;
@@ -178,7 +180,9 @@ public class SchemaService {
 
             isStrictlyValidJson(eventTypeSchema);
 
-            final JSONObject schemaAsJson = new JSONObject(eventTypeSchema);
+            final boolean avro = eventType.getSchema().getType() == EventTypeSchemaBase.Type.AVRO_SCHEMA;
+            final JSONObject schemaAsJson = avro ?
+                    avroToJsonSchema(eventTypeSchema) : new JSONObject(eventTypeSchema);
 
             if (schemaAsJson.has("type") && !Objects.equals("object", schemaAsJson.getString("type"))) {
                 throw new SchemaValidationException("\"type\" of root element in schema can only be \"object\"");
@@ -207,7 +211,8 @@ public class SchemaService {
             validateFieldsInSchema("ordering_key_fields", orderingKeyFields, effectiveSchema);
             validateFieldsInSchema("ordering_instance_ids", orderingInstanceIds, effectiveSchema);
 
-            if (eventType.getCompatibilityMode() == CompatibilityMode.COMPATIBLE) {
+            // json-schema derived from avro schema is always closed, so it doesn't need the constraints
+            if (eventType.getCompatibilityMode() == CompatibilityMode.COMPATIBLE && !avro) {
                 validateJsonSchemaConstraints(schemaAsJson);
             }
         } catch (final com.google.re2j.PatternSyntaxException e) {
@@ -220,6 +225,19 @@ public class SchemaService {
         }
     }
 
+    private static JSONObject avroToJsonSchema(final String avroSchema) throws SchemaValidationException {
+        final org.apache.avro.Schema schema;
+        try {
+            schema = new org.apache.avro.Schema.Parser().parse(avroSchema);
+        } catch (final SchemaParseException e) {
+            throw new SchemaValidationException("schema must be a valid avro schema: " + e.getMessage());
+        }
+        if (schema.getType() != org.apache.avro.Schema.Type.RECORD) {
+            throw new SchemaValidationException("root element of avro schema can only be \"record\"");
+        }
+        return AvroSchemaConverter.toJsonSchema(schema);
+    }
+
     private void validateJsonSchemaConstraints(final JSONObject schema) throws SchemaValidationException {
         final List<SchemaIncompatibility> incompatibilities = schemaEvolutionService.collectIncompatibilities(schema);
 
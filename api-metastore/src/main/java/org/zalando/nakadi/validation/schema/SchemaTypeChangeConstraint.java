@@ -0,0 +1,17 @@
+package org.zalando.nakadi.validation.schema;
+
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeBase;
+
+import java.util.Optional;
+
+public class SchemaTypeChangeConstraint implements SchemaEvolutionConstraint {
+    @Override
+    public Optional<SchemaEvolutionIncompatibility> validate(final EventType original, final EventTypeBase eventType) {
+        if (eventType.getSchema().getType() != original.getSchema().getType()) {
+            return Optional.of(new SchemaEvolutionIncompatibility("changing schema type is not allowed"));
+        } else {
+            return Optional.empty();
+        }
+    }
+}
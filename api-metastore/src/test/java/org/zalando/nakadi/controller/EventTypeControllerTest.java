@@ -24,6 +24,7 @@ import org.zalando.nakadi.domain.ResourceAuthorization;
 import org.zalando.nakadi.domain.ResourceAuthorizationAttribute;
 import org.zalando.nakadi.domain.Subscription;
 import org.zalando.nakadi.domain.Timeline;
+import org.zalando.nakadi.domain.ValidationEngine;
 import org.zalando.nakadi.exceptions.runtime.AccessDeniedException;
 import org.zalando.nakadi.exceptions.runtime.InternalNakadiException;
 import org.zalando.nakadi.exceptions.runtime.InvalidEventTypeException;
@@ -858,6 +859,31 @@ public class EventTypeControllerTest extends EventTypeControllerTestCase {
                 .andExpect(content().string(matchesProblem(expectedProblem)));
     }
 
+    @Test
+    public void whenUpdateOptionsWithoutRetentionTimeThenRetentionTimeIsKept() throws Exception {
+        final EventType eventType = EventTypeTestBuilder.builder().build();
+        final EventTypeOptions eventTypeOptions = new EventTypeOptions();
+        eventTypeOptions.setRetentionTime(TOPIC_RETENTION_TIME_MS);
+        eventType.setOptions(eventTypeOptions);
+        doReturn(eventType).when(eventTypeRepository).findByName(eventType.getName());
+        when(timelineService.getActiveTimelinesOrdered(any()))
+                .thenReturn(Collections.singletonList(
+                        Timeline.createTimeline(eventType.getName(), 0, null, "topic", new Date())));
+
+        final EventType eventType2 = EventTypeTestBuilder.builder().name(eventType.getName()).build();
+        final EventTypeOptions eventTypeOptions2 = new EventTypeOptions();
+        eventTypeOptions2.setValidationEngine(ValidationEngine.COMPILED);
+        eventType2.setOptions(eventTypeOptions2);
+
+        putEventType(eventType2, eventType2.getName(), "org/zalando/nakadi")
+                .andExpect(status().isOk());
+
+        final ArgumentCaptor<EventType> argument = ArgumentCaptor.forClass(EventType.class);
+        verify(eventTypeRepository).update(argument.capture());
+        assertEquals(TOPIC_RETENTION_TIME_MS, argument.getValue().getOptions().getRetentionTime().longValue());
+        assertEquals(ValidationEngine.COMPILED, argument.getValue().getOptions().getValidationEngine());
+    }
+
     @Test
     public void whenUpdateRetentionTimeAndKafkaFails() throws Exception {
         final EventType eventType = EventTypeTestBuilder.builder().build();
@@ -0,0 +1,28 @@
+package org.zalando.nakadi.validation.schema;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeSchema;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+import org.zalando.nakadi.utils.EventTypeTestBuilder;
+
+import static org.junit.Assert.assertThat;
+import static org.zalando.nakadi.utils.IsOptional.isAbsent;
+import static org.zalando.nakadi.utils.IsOptional.isPresent;
+
+public class SchemaTypeChangeConstraintTest {
+    private static final String AVRO_SCHEMA = "{\"type\":\"record\",\"name\":\"Order\",\"fields\":[]}";
+
+    @Test
+    public void cannotChangeSchemaType() {
+        final EventType oldET = new EventTypeTestBuilder().schema("{}").build();
+        final EventType newET = new EventTypeTestBuilder().schema(new EventTypeSchema(
+                new EventTypeSchemaBase(EventTypeSchemaBase.Type.AVRO_SCHEMA, AVRO_SCHEMA),
+                "1.0.0", new DateTime())).build();
+        final SchemaEvolutionConstraint constraint = new SchemaTypeChangeConstraint();
+
+        assertThat(constraint.validate(oldET, newET), isPresent());
+        assertThat(constraint.validate(oldET, oldET), isAbsent());
+    }
+}
@@ -1,6 +1,6 @@
 package org.zalando.nakadi;
 
-import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
 import io.opentracing.Span;
 import io.opentracing.tag.Tags;
 import org.json.JSONObject;
@@ -9,132 +9,229 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.zalando.nakadi.domain.EventPublishResult;
 import org.zalando.nakadi.domain.EventPublishingStatus;
+import org.zalando.nakadi.domain.Feature;
 import org.zalando.nakadi.exceptions.runtime.AccessDeniedException;
 import org.zalando.nakadi.exceptions.runtime.BlockedException;
 import org.zalando.nakadi.exceptions.runtime.EventTypeTimeoutException;
 import org.zalando.nakadi.exceptions.runtime.InternalNakadiException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchEventTypeException;
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
 import org.zalando.nakadi.exceptions.runtime.ServiceTemporarilyUnavailableException;
 import org.zalando.nakadi.metrics.EventTypeMetricRegistry;
 import org.zalando.nakadi.metrics.EventTypeMetrics;
 import org.zalando.nakadi.security.Client;
 import org.zalando.nakadi.service.BlacklistService;
+import org.zalando.nakadi.service.FeatureToggleService;
 import org.zalando.nakadi.service.publishing.EventPublisher;
 import org.zalando.nakadi.service.publishing.NakadiKpiPublisher;
+import org.zalando.nakadi.service.publishing.PublishingQuotaService;
 import org.zalando.nakadi.service.TracingService;
+import org.zalando.nakadi.util.SizeLimitingInputStream;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.springframework.http.ResponseEntity.status;
 import static org.springframework.web.bind.annotation.RequestMethod.POST;
+import static org.zalando.problem.Status.BAD_REQUEST;
 import static org.zalando.problem.Status.INTERNAL_SERVER_ERROR;
 import static org.zalando.problem.Status.NOT_FOUND;
+import static org.zalando.problem.Status.REQUEST_ENTITY_TOO_LARGE;
 
 @RestController
 public class EventPublishingController {
 
+    public static final String AVRO_BINARY = "application/avro-binary";
+
     private final EventPublisher publisher;
     private final EventTypeMetricRegistry eventTypeMetricRegistry;
     private final BlacklistService blacklistService;
+    private final PublishingQuotaService publishingQuotaService;
     private final NakadiKpiPublisher nakadiKpiPublisher;
     private final String kpiBatchPublishedEventType;
+    private final FeatureToggleService featureToggleService;
+    private final long streamingMinBodyBytes;
+    private final long maxBodyBytes;
 
     @Autowired
     public EventPublishingController(final EventPublisher publisher,
                                      final EventTypeMetricRegistry eventTypeMetricRegistry,
                                      final BlacklistService blacklistService,
+                                     final PublishingQuotaService publishingQuotaService,
                                      final NakadiKpiPublisher nakadiKpiPublisher,
                                      @Value("${nakadi.kpi.event-types.nakadiBatchPublished}") final
-                                     String kpiBatchPublishedEventType) {
+                                     String kpiBatchPublishedEventType,
+                                     final FeatureToggleService featureToggleService,
+                                     @Value("${nakadi.publishing.streaming.minBodyBytes:1048576}") final
+                                     long streamingMinBodyBytes,
+                                     @Value("${nakadi.publishing.maxBodyBytes:104857600}") final
+                                     long maxBodyBytes) {
         this.publisher = publisher;
         this.eventTypeMetricRegistry = eventTypeMetricRegistry;
         this.blacklistService = blacklistService;
+        this.publishingQuotaService = publishingQuotaService;
         this.nakadiKpiPublisher = nakadiKpiPublisher;
         this.kpiBatchPublishedEventType = kpiBatchPublishedEventType;
+        this.featureToggleService = featureToggleService;
+        this.streamingMinBodyBytes = streamingMinBodyBytes;
+        this.maxBodyBytes = maxBodyBytes;
     }
 
+    /**
+     * Returns {@link CompletableFuture} of the response, so that in case of asynchronous publishing the request thread
+     * is released while waiting for kafka to acknowledge the batch.
+     */
     @RequestMapping(value = "/event-types/{eventTypeName}/events", method = POST)
-    public ResponseEntity postEvents(@PathVariable final String eventTypeName,
-                                     @RequestBody final String eventsAsString,
-                                     final HttpServletRequest request,
-                                     final Client client)
+    public CompletableFuture<ResponseEntity<?>> postEvents(@PathVariable final String eventTypeName,
+                                                           final InputStream events,
+                                                           final HttpServletRequest request,
+                                                           final Client client)
             throws AccessDeniedException, BlockedException, ServiceTemporarilyUnavailableException,
-            InternalNakadiException, EventTypeTimeoutException, NoSuchEventTypeException {
-        return postEventsWithMetrics(eventTypeName, eventsAsString, request, client, false);
+            InternalNakadiException, EventTypeTimeoutException, NoSuchEventTypeException, IOException {
+        return postEventsWithMetrics(eventTypeName, events, request, client, false, false);
+
+    }
 
+    /**
+     * Accepts batch of events encoded in avro binary format with the schema of the event type. The batch is converted
+     * to json, validated and enriched the same way as json batches, and encoded back to avro for storage, as all
+     * events of event types with avro schema are.
+     */
+    @RequestMapping(value = "/event-types/{eventTypeName}/events", method = POST, consumes = AVRO_BINARY)
+    public CompletableFuture<ResponseEntity<?>> postBinaryEvents(@PathVariable final String eventTypeName,
+                                                                 final InputStream events,
+                                                                 final HttpServletRequest request,
+                                                                 final Client client)
+            throws AccessDeniedException, BlockedException, ServiceTemporarilyUnavailableException,
+            InternalNakadiException, EventTypeTimeoutException, NoSuchEventTypeException, IOException {
+        return postEventsWithMetrics(eventTypeName, events, request, client, false, true);
     }
 
     @RequestMapping(value = "/event-types/{eventTypeName}/deleted-events", method = POST)
-    public ResponseEntity deleteEvents(@PathVariable final String eventTypeName,
-                                       @RequestBody final String eventsAsString,
-                                       final HttpServletRequest request,
-                                       final Client client) {
-        return postEventsWithMetrics(eventTypeName, eventsAsString, request, client, true);
+    public CompletableFuture<ResponseEntity<?>> deleteEvents(@PathVariable final String eventTypeName,
+                                                             final InputStream events,
+                                                             final HttpServletRequest request,
+                                                             final Client client) throws IOException {
+        return postEventsWithMetrics(eventTypeName, events, request, client, true, false);
 
     }
 
-    private ResponseEntity postEventsWithMetrics(final String eventTypeName,
-                                                 final String eventsAsString,
-                                                 final HttpServletRequest request,
-                                                 final Client client,
-                                                 final boolean delete) {
+    private CompletableFuture<ResponseEntity<?>> postEventsWithMetrics(final String eventTypeName,
+                                                                       final InputStream events,
+                                                                       final HttpServletRequest request,
+                                                                       final Client client,
+                                                                       final boolean delete,
+                                                                       final boolean avro) throws IOException {
         if (blacklistService.isProductionBlocked(eventTypeName, client.getClientId())) {
             throw new BlockedException("Application or event type is blocked");
         }
+        publishingQuotaService.checkQuota(client.getClientId(), eventTypeName);
         final EventTypeMetrics eventTypeMetrics = eventTypeMetricRegistry.metricsFor(eventTypeName);
         try {
-            final ResponseEntity response = postEventInternal(
-                    eventTypeName, eventsAsString, eventTypeMetrics, client, request, delete);
-            eventTypeMetrics.incrementResponseCount(response.getStatusCode().value());
-            return response;
+            return postEventInternal(eventTypeName, events, eventTypeMetrics, client, request, delete, avro)
+                    .whenComplete((result, ex) -> eventTypeMetrics.incrementResponseCount(null != result ?
+                            result.getStatusCode().value() : INTERNAL_SERVER_ERROR.getStatusCode()));
         } catch (final NoSuchEventTypeException exception) {
             eventTypeMetrics.incrementResponseCount(NOT_FOUND.getStatusCode());
             throw exception;
+        } catch (final PayloadTooLargeException exception) {
+            eventTypeMetrics.incrementResponseCount(REQUEST_ENTITY_TOO_LARGE.getStatusCode());
+            throw exception;
+        } catch (final IOException exception) {
+            eventTypeMetrics.incrementResponseCount(BAD_REQUEST.getStatusCode());
+            throw exception;
         } catch (final RuntimeException ex) {
             eventTypeMetrics.incrementResponseCount(INTERNAL_SERVER_ERROR.getStatusCode());
             throw ex;
         }
     }
 
-    private ResponseEntity postEventInternal(final String eventTypeName,
-                                             final String eventsAsString,
-                                             final EventTypeMetrics eventTypeMetrics,
-                                             final Client client,
-                                             final HttpServletRequest request,
-                                             final boolean delete)
+    private CompletableFuture<ResponseEntity<?>> postEventInternal(final String eventTypeName,
+                                                                   final InputStream events,
+                                                                   final EventTypeMetrics eventTypeMetrics,
+                                                                   final Client client,
+                                                                   final HttpServletRequest request,
+                                                                   final boolean delete,
+                                                                   final boolean avro)
             throws AccessDeniedException, ServiceTemporarilyUnavailableException, InternalNakadiException,
-            EventTypeTimeoutException, NoSuchEventTypeException {
+            EventTypeTimeoutException, NoSuchEventTypeException, IOException {
         final long startingNanos = System.nanoTime();
+        final CompletableFuture<EventPublishResult> published;
+        final int totalSizeBytes;
         try {
-            final int totalSizeBytes = eventsAsString.getBytes(Charsets.UTF_8).length;
             final Span publishingSpan = TracingService.extractSpan(request, "publish_events")
                     .setTag("event_type", eventTypeName)
-                    .setTag("slo_bucket", TracingService.getSLOBucket(totalSizeBytes))
                     .setTag(Tags.SPAN_KIND_PRODUCER, client.getClientId());
 
-            final EventPublishResult result;
-            if (delete) {
-                result = publisher.delete(eventsAsString, eventTypeName, publishingSpan);
+            if (request.getContentLengthLong() > maxBodyBytes) {
+                throw new PayloadTooLargeException("Request body is larger than " + maxBodyBytes + " bytes");
+            }
+            // decoded bodies and bodies of unknown length are checked while they are read
+            final SizeLimitingInputStream limitedEvents = new SizeLimitingInputStream(events, maxBodyBytes);
+            if (!avro && isStreamingRequest(request)) {
+                if (delete) {
+                    published = completedFuture(publisher.deleteStream(limitedEvents, eventTypeName, publishingSpan));
+                } else {
+                    published = completedFuture(publisher.publishStream(limitedEvents, eventTypeName,
+                            publishingSpan));
+                }
+                totalSizeBytes = (int) limitedEvents.getCount();
             } else {
-                result = publisher.publish(eventsAsString, eventTypeName, publishingSpan);
+                final byte[] eventsBytes = ByteStreams.toByteArray(limitedEvents);
+                totalSizeBytes = eventsBytes.length;
+                final boolean async = featureToggleService.isFeatureEnabled(Feature.ASYNC_PUBLISHING);
+                if (avro) {
+                    published = async ?
+                            publisher.publishAvroAsync(eventsBytes, eventTypeName, publishingSpan) :
+                            completedFuture(publisher.publishAvro(eventsBytes, eventTypeName, publishingSpan));
+                } else if (async) {
+                    published = delete ?
+                            publisher.deleteAsync(eventsBytes, eventTypeName, publishingSpan) :
+                            publisher.publishAsync(eventsBytes, eventTypeName, publishingSpan);
+                } else if (delete) {
+                    published = completedFuture(publisher.delete(eventsBytes, eventTypeName, publishingSpan));
+                } else {
+                    published = completedFuture(publisher.publish(eventsBytes, eventTypeName, publishingSpan));
+                }
             }
+            publishingSpan.setTag("slo_bucket", TracingService.getSLOBucket(totalSizeBytes));
+        } catch (final RuntimeException | IOException e) {
+            eventTypeMetrics.updateTiming(startingNanos, System.nanoTime());
+            throw e;
+        }
 
-            final int eventCount = result.getResponses().size();
+        return published
+                .<ResponseEntity<?>>thenApply(result -> {
+                    final int eventCount = result.getResponses().size();
 
-            reportMetrics(eventTypeMetrics, result, totalSizeBytes, eventCount);
-            reportSLOs(startingNanos, totalSizeBytes, eventCount, result, eventTypeName, client);
+                    publishingQuotaService.charge(client.getClientId(), eventTypeName, eventCount, totalSizeBytes);
+                    reportMetrics(eventTypeMetrics, result, totalSizeBytes, eventCount);
+                    reportSLOs(startingNanos, totalSizeBytes, eventCount, result, eventTypeName, client);
 
-            return response(result);
-        } finally {
-            eventTypeMetrics.updateTiming(startingNanos, System.nanoTime());
+                    return response(result);
+                })
+                .whenComplete((response, ex) -> eventTypeMetrics.updateTiming(startingNanos, System.nanoTime()));
+    }
+
+    /**
+     * Large batches (or batches of unknown size) are processed while they are being read, when streaming
+     * publishing is enabled.
+     */
+    private boolean isStreamingRequest(final HttpServletRequest request) {
+        if (!featureToggleService.isFeatureEnabled(Feature.STREAMING_PUBLISHING)) {
+            return false;
         }
+        final long contentLength = request.getContentLengthLong();
+        return contentLength < 0 || contentLength >= streamingMinBodyBytes;
     }
 
     private void reportSLOs(final long startingNanos, final int totalSizeBytes, final int eventCount,
@@ -170,7 +267,7 @@ public class EventPublishingController {
         }
     }
 
-    private ResponseEntity response(final EventPublishResult result) {
+    private ResponseEntity<?> response(final EventPublishResult result) {
         switch (result.getStatus()) {
             case SUBMITTED:
                 return status(HttpStatus.OK).build();
@@ -1,21 +1,25 @@
 package org.zalando.nakadi;
 
 import org.json.JSONException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.zalando.nakadi.exceptions.runtime.EnrichmentException;
 import org.zalando.nakadi.exceptions.runtime.EventTypeTimeoutException;
+import org.zalando.nakadi.exceptions.runtime.InvalidAvroBatchException;
 import org.zalando.nakadi.exceptions.runtime.InvalidPartitionKeyFieldsException;
 import org.zalando.nakadi.exceptions.runtime.NakadiBaseException;
 import org.zalando.nakadi.exceptions.runtime.PartitioningException;
 import org.zalando.nakadi.exceptions.runtime.PublishEventOwnershipException;
+import org.zalando.nakadi.exceptions.runtime.PublishingQuotaExceededException;
 import org.zalando.problem.Problem;
 import org.zalando.problem.Status;
 import org.zalando.problem.spring.web.advice.AdviceTrait;
 
 import javax.annotation.Priority;
+import java.io.IOException;
 
 @Priority(10)
 @ControllerAdvice(assignableTypes = EventPublishingController.class)
@@ -38,6 +42,21 @@ public class EventPublishingExceptionHandler implements AdviceTrait {
         return create(Problem.valueOf(Status.BAD_REQUEST), request);
     }
 
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<Problem> handleIOException(final IOException exception,
+                                                     final NativeWebRequest request) {
+        AdviceTrait.LOG.debug("Failed to read events", exception);
+        return create(Problem.valueOf(Status.BAD_REQUEST,
+                "Failed to read request body. " + exception.getMessage()), request);
+    }
+
+    @ExceptionHandler(InvalidAvroBatchException.class)
+    public ResponseEntity<Problem> handleInvalidAvroBatchException(final InvalidAvroBatchException exception,
+                                                                   final NativeWebRequest request) {
+        AdviceTrait.LOG.debug(exception.getMessage());
+        return create(Problem.valueOf(Status.BAD_REQUEST, exception.getMessage()), request);
+    }
+
     @ExceptionHandler({EnrichmentException.class,
             PartitioningException.class,
             InvalidPartitionKeyFieldsException.class})
@@ -53,5 +72,13 @@ public class EventPublishingExceptionHandler implements AdviceTrait {
         AdviceTrait.LOG.debug(exception.getMessage());
         return create(Problem.valueOf(Status.FORBIDDEN, exception.getMessage()), request);
     }
-}
 
+    @ExceptionHandler(PublishingQuotaExceededException.class)
+    public ResponseEntity<Problem> handlePublishingQuotaExceededException(
+            final PublishingQuotaExceededException exception, final NativeWebRequest request) {
+        AdviceTrait.LOG.debug(exception.getMessage());
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()));
+        return create(Problem.valueOf(Status.TOO_MANY_REQUESTS, exception.getMessage()), request, headers);
+    }
+}
@@ -8,10 +8,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.StringHttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 import org.zalando.nakadi.EventPublishingController;
 import org.zalando.nakadi.EventPublishingExceptionHandler;
 import org.zalando.nakadi.config.SecuritySettings;
@@ -20,30 +23,42 @@ import org.zalando.nakadi.domain.BatchItemResponse;
 import org.zalando.nakadi.domain.EventPublishResult;
 import org.zalando.nakadi.domain.EventPublishingStatus;
 import org.zalando.nakadi.domain.EventPublishingStep;
+import org.zalando.nakadi.domain.Feature;
 import org.zalando.nakadi.exceptions.runtime.EventTypeTimeoutException;
 import org.zalando.nakadi.exceptions.runtime.InternalNakadiException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchEventTypeException;
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
+import org.zalando.nakadi.exceptions.runtime.PublishingQuotaExceededException;
 import org.zalando.nakadi.metrics.EventTypeMetricRegistry;
 import org.zalando.nakadi.metrics.EventTypeMetrics;
 import org.zalando.nakadi.plugin.api.authz.AuthorizationService;
 import org.zalando.nakadi.security.ClientResolver;
 import org.zalando.nakadi.service.BlacklistService;
+import org.zalando.nakadi.service.FeatureToggleService;
 import org.zalando.nakadi.service.publishing.EventPublisher;
 import org.zalando.nakadi.service.publishing.NakadiKpiPublisher;
+import org.zalando.nakadi.service.publishing.PublishingQuotaService;
 import org.zalando.nakadi.utils.TestUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
 import static org.zalando.nakadi.config.SecuritySettings.AuthMode.OFF;
@@ -59,6 +74,7 @@ public class EventPublishingControllerTest {
 
     public static final String TOPIC = "my-topic";
     private static final String EVENT_BATCH = "[{\"payload\": \"My Event Payload\"}]";
+    private static final long MAX_BODY_BYTES = 1000;
 
     private MetricRegistry metricRegistry;
     private EventPublisher publisher;
@@ -68,7 +84,9 @@ public class EventPublishingControllerTest {
     private EventTypeMetricRegistry eventTypeMetricRegistry;
     private NakadiKpiPublisher kpiPublisher;
     private BlacklistService blacklistService;
+    private PublishingQuotaService publishingQuotaService;
     private AuthorizationService authorizationService;
+    private FeatureToggleService featureToggleService;
 
     @Before
     public void setUp() {
@@ -85,12 +103,17 @@ public class EventPublishingControllerTest {
         blacklistService = Mockito.mock(BlacklistService.class);
         Mockito.when(blacklistService.isProductionBlocked(any(), any())).thenReturn(false);
 
+        featureToggleService = Mockito.mock(FeatureToggleService.class);
+        publishingQuotaService = Mockito.mock(PublishingQuotaService.class);
+
         final EventPublishingController controller =
-                new EventPublishingController(publisher, eventTypeMetricRegistry, blacklistService, kpiPublisher,
-                        "kpiEventTypeName");
+                new EventPublishingController(publisher, eventTypeMetricRegistry, blacklistService,
+                        publishingQuotaService, kpiPublisher,
+                        "kpiEventTypeName", featureToggleService, 10, MAX_BODY_BYTES);
 
         mockMvc = standaloneSetup(controller)
-                .setMessageConverters(new StringHttpMessageConverter(), TestUtils.JACKSON_2_HTTP_MESSAGE_CONVERTER)
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new StringHttpMessageConverter(),
+                        TestUtils.JACKSON_2_HTTP_MESSAGE_CONVERTER)
                 .setCustomArgumentResolvers(new ClientResolver(settings, authorizationService))
                 .setControllerAdvice(new NakadiProblemExceptionHandler(), new EventPublishingExceptionHandler())
                 .build();
@@ -103,23 +126,128 @@ public class EventPublishingControllerTest {
         Mockito
                 .doReturn(result)
                 .when(publisher)
-                .publish(any(String.class), eq(TOPIC), any());
+                .publish(any(byte[].class), eq(TOPIC), any());
 
         postBatch(TOPIC, EVENT_BATCH)
                 .andExpect(status().isOk())
                 .andExpect(content().string(""));
     }
 
+    @Test
+    public void whenStreamingEnabledAndBatchIsLargeThenItIsStreamed() throws Exception {
+        final EventPublishResult result = new EventPublishResult(SUBMITTED, null, submittedResponses(1));
+        Mockito.when(featureToggleService.isFeatureEnabled(Feature.STREAMING_PUBLISHING)).thenReturn(true);
+        Mockito
+                .doReturn(result)
+                .when(publisher)
+                .publishStream(any(InputStream.class), eq(TOPIC), any());
+
+        postBatch(TOPIC, EVENT_BATCH)
+                .andExpect(status().isOk());
+
+        Mockito.verify(publisher, Mockito.never()).publish(any(), any(), any());
+    }
+
+    @Test
+    public void whenStreamingEnabledAndBatchIsSmallThenItIsBuffered() throws Exception {
+        final EventPublishResult result = new EventPublishResult(SUBMITTED, null, submittedResponses(1));
+        Mockito.when(featureToggleService.isFeatureEnabled(Feature.STREAMING_PUBLISHING)).thenReturn(true);
+        Mockito
+                .doReturn(result)
+                .when(publisher)
+                .publish(any(byte[].class), eq(TOPIC), any());
+
+        postBatch(TOPIC, "[]")
+                .andExpect(status().isOk());
+
+        Mockito.verify(publisher, Mockito.never()).publishStream(any(), any(), any());
+    }
+
+    @Test
+    public void whenReadingOfStreamedBatchFailsThen400() throws Exception {
+        Mockito.when(featureToggleService.isFeatureEnabled(Feature.STREAMING_PUBLISHING)).thenReturn(true);
+        Mockito
+                .doThrow(new IOException("Connection reset by peer"))
+                .when(publisher)
+                .publishStream(any(InputStream.class), eq(TOPIC), any());
+
+        postBatch(TOPIC, EVENT_BATCH)
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Failed to read request body")));
+    }
+
+    @Test
+    public void whenAsyncPublishingEnabledThenResponseIsSentAfterBatchIsPublished() throws Exception {
+        final CompletableFuture<EventPublishResult> result = new CompletableFuture<>();
+        Mockito.when(featureToggleService.isFeatureEnabled(Feature.ASYNC_PUBLISHING)).thenReturn(true);
+        Mockito
+                .doReturn(result)
+                .when(publisher)
+                .publishAsync(any(byte[].class), eq(TOPIC), any());
+
+        final MvcResult mvcResult = postBatch(TOPIC, EVENT_BATCH)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.complete(new EventPublishResult(FAILED, PUBLISHING, responses()));
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isMultiStatus())
+                .andExpect(content().string(TestUtils.JSON_TEST_HELPER.matchesObject(responses())));
+        assertThat(eventTypeMetricRegistry.metricsFor(TOPIC).getResponseCount(207), equalTo(1L));
+        Mockito.verify(publisher, Mockito.never()).publish(any(), any(), any());
+    }
+
     @Test
     public void whenInvalidPostBodyThen400() throws Exception {
 
         Mockito.doThrow(new JSONException("Error"))
                 .when(publisher)
-                .publish(any(String.class), eq(TOPIC), any());
+                .publish(any(byte[].class), eq(TOPIC), any());
 
         postBatch(TOPIC, "invalid json array").andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void whenBodyIsTooLargeThen413() throws Exception {
+        final StringBuilder batch = new StringBuilder("[");
+        while (batch.length() <= MAX_BODY_BYTES) {
+            batch.append(EVENT_BATCH, 1, EVENT_BATCH.length() - 1).append(',');
+        }
+        batch.setCharAt(batch.length() - 1, ']');
+
+        postBatch(TOPIC, batch.toString())
+                .andExpect(content().contentType("application/problem+json"))
+                .andExpect(status().isPayloadTooLarge());
+        assertThat(eventTypeMetricRegistry.metricsFor(TOPIC).getResponseCount(413), equalTo(1L));
+        Mockito.verify(publisher, Mockito.never()).publish(any(), any(), any());
+    }
+
+    @Test
+    public void whenPublishingQuotaIsExceededThen429() throws Exception {
+        Mockito.doThrow(new PublishingQuotaExceededException("quota exceeded", 3))
+                .when(publishingQuotaService)
+                .checkQuota(any(), eq(TOPIC));
+
+        postBatch(TOPIC, EVENT_BATCH)
+                .andExpect(content().contentType("application/problem+json"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"));
+        Mockito.verify(publisher, Mockito.never()).publish(any(), any(), any());
+    }
+
+    @Test
+    public void publishedBatchIsChargedToQuota() throws Exception {
+        final EventPublishResult result = new EventPublishResult(SUBMITTED, null, submittedResponses(1));
+        Mockito
+                .doReturn(result)
+                .when(publisher)
+                .publish(any(byte[].class), eq(TOPIC), any());
+
+        postBatch(TOPIC, EVENT_BATCH)
+                .andExpect(status().isOk());
+        Mockito.verify(publishingQuotaService).charge(any(), eq(TOPIC), eq(1), eq((long) EVENT_BATCH.length()));
+    }
+
     @Test
     public void whenEventPublishTimeoutThen503() throws Exception {
         Mockito.when(publisher.publish(any(), any(), any())).thenThrow(new EventTypeTimeoutException(""));
@@ -136,7 +264,7 @@ public class EventPublishingControllerTest {
         Mockito
                 .doReturn(result)
                 .when(publisher)
-                .publish(any(String.class), eq(TOPIC), any());
+                .publish(any(byte[].class), eq(TOPIC), any());
 
         postBatch(TOPIC, EVENT_BATCH)
                 .andExpect(status().isUnprocessableEntity())
@@ -150,19 +278,50 @@ public class EventPublishingControllerTest {
         Mockito
                 .doReturn(result)
                 .when(publisher)
-                .publish(any(String.class), eq(TOPIC), any());
+                .publish(any(byte[].class), eq(TOPIC), any());
 
         postBatch(TOPIC, EVENT_BATCH)
                 .andExpect(status().isMultiStatus())
                 .andExpect(content().string(TestUtils.JSON_TEST_HELPER.matchesObject(responses())));
     }
 
+    @Test
+    public void whenAvroBatchIsPostedThenItIsPublishedAsItIs() throws Exception {
+        final EventPublishResult result = new EventPublishResult(SUBMITTED, null, submittedResponses(1));
+        final byte[] avroBatch = new byte[]{2, 6, 65, 45, 49, 0};
+        Mockito
+                .doReturn(result)
+                .when(publisher)
+                .publishAvro(eq(avroBatch), eq(TOPIC), any());
+
+        mockMvc.perform(post("/event-types/" + TOPIC + "/events")
+                .contentType(EventPublishingController.AVRO_BINARY)
+                .content(avroBatch))
+                .andExpect(status().isOk());
+
+        Mockito.verify(publisher, Mockito.never()).publish(any(), any(), any());
+    }
+
+    @Test
+    public void whenConvertedAvroBatchIsTooLargeThen413() throws Exception {
+        Mockito
+                .doThrow(new PayloadTooLargeException("Batch converted to json is larger than 1000 bytes"))
+                .when(publisher)
+                .publishAvro(any(), eq(TOPIC), any());
+
+        mockMvc.perform(post("/event-types/" + TOPIC + "/events")
+                .contentType(EventPublishingController.AVRO_BINARY)
+                .content(new byte[]{2, 0}))
+                .andExpect(status().isPayloadTooLarge());
+        assertThat(eventTypeMetricRegistry.metricsFor(TOPIC).getResponseCount(413), equalTo(1L));
+    }
+
     @Test
     public void whenEventTypeNotFoundThen404() throws Exception {
         Mockito
                 .doThrow(new NoSuchEventTypeException("topic not found"))
                 .when(publisher)
-                .publish(any(String.class), eq(TOPIC), any());
+                .publish(any(byte[].class), eq(TOPIC), any());
 
         postBatch(TOPIC, EVENT_BATCH)
                 .andExpect(content().contentType("application/problem+json"))
@@ -255,6 +414,17 @@ public class EventPublishingControllerTest {
                 .contentType(APPLICATION_JSON)
                 .content(batch);
 
-        return mockMvc.perform(requestBuilder);
+        return dispatch(mockMvc.perform(requestBuilder));
+    }
+
+    /**
+     * Responses of batches that are already published are dispatched right away, the others are left to the test.
+     */
+    private ResultActions dispatch(final ResultActions resultActions) throws Exception {
+        final MvcResult mvcResult = resultActions.andReturn();
+        if (!WebAsyncUtils.getAsyncManager(mvcResult.getRequest()).hasConcurrentResult()) {
+            return resultActions;
+        }
+        return mockMvc.perform(asyncDispatch(mvcResult));
     }
 }
@@ -22,8 +22,8 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupp
 import org.zalando.nakadi.filters.TracingFilter;
 import org.zalando.nakadi.plugin.api.authz.AuthorizationService;
 import org.zalando.nakadi.security.ClientResolver;
+import org.zalando.nakadi.util.ContentEncodingRequestFilter;
 import org.zalando.nakadi.util.FlowIdRequestFilter;
-import org.zalando.nakadi.util.GzipBodyRequestFilter;
 
 import javax.servlet.Filter;
 import java.util.List;
@@ -34,6 +34,9 @@ public class WebConfig extends WebMvcConfigurationSupport {
     @Value("${nakadi.stream.timeoutMs}")
     private long nakadiStreamTimeout;
 
+    @Value("${nakadi.http.max-decoded-body-bytes:104857600}")
+    private long maxDecodedBodyBytes;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -64,9 +67,9 @@ public class WebConfig extends WebMvcConfigurationSupport {
     }
 
     @Bean
-    public FilterRegistrationBean gzipBodyRequestFilter(final ObjectMapper mapper) {
+    public FilterRegistrationBean contentEncodingRequestFilter(final ObjectMapper mapper) {
         return createFilterRegistrationBean(
-                new GzipBodyRequestFilter(mapper), Ordered.HIGHEST_PRECEDENCE + 2);
+                new ContentEncodingRequestFilter(mapper, maxDecodedBodyBytes), Ordered.HIGHEST_PRECEDENCE + 2);
     }
 
     @Bean
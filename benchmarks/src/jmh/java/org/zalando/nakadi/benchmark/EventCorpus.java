@@ -0,0 +1,128 @@
+package org.zalando.nakadi.benchmark;
+
+import org.joda.time.DateTime;
+import org.zalando.nakadi.domain.CleanupPolicy;
+import org.zalando.nakadi.domain.CompatibilityMode;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeOptions;
+import org.zalando.nakadi.domain.EventTypeSchema;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+import org.zalando.nakadi.domain.ValidationEngine;
+import org.zalando.nakadi.partitioning.PartitionStrategy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates business events of the given size and nesting depth, together with the event type and the schema they
+ * match, so that every suite measures the same shapes of events. Events are generated from a fixed seed, so runs
+ * of the suites are reproducible.
+ *
+ * <p>Event has {@code depth} levels of objects nested into each other, every level has a number, a string and an
+ * array of strings. Top level has a partition key {@code id} and {@code data} array of strings, that is filled up
+ * to make the event {@code size} bytes long.
+ */
+public final class EventCorpus {
+
+    public static final String EVENT_TYPE_NAME = "nakadi.benchmark-event";
+    private static final long SEED = 42;
+    private static final int STRING_LENGTH = 16;
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+    private EventCorpus() {
+    }
+
+    public static String batch(final int events, final int size, final int depth) {
+        final Random random = new Random(SEED);
+        final StringBuilder batch = new StringBuilder(events * (size + 1) + 2).append('[');
+        for (int i = 0; i < events; ++i) {
+            if (i > 0) {
+                batch.append(',');
+            }
+            batch.append(event(size, depth, random));
+        }
+        return batch.append(']').toString();
+    }
+
+    public static String event(final int size, final int depth) {
+        return event(size, depth, new Random(SEED));
+    }
+
+    private static String event(final int size, final int depth, final Random random) {
+        final StringBuilder event = new StringBuilder(size + STRING_LENGTH * 2)
+                .append("{\"metadata\":{\"eid\":\"")
+                .append(UUID.nameUUIDFromBytes(Long.toString(random.nextLong()).getBytes(StandardCharsets.UTF_8)))
+                .append("\",\"occurred_at\":\"2021-08-03T10:00:00.000Z\",\"flow_id\":\"benchmark\"},")
+                .append("\"id\":\"").append(string(random)).append("\",");
+        appendLevel(event, depth, random);
+        event.append(",\"data\":[");
+        // data has at least one string, so small events with deep nesting are longer than requested
+        boolean first = true;
+        while (event.length() + STRING_LENGTH + 5 <= size || first) {
+            if (!first) {
+                event.append(',');
+            }
+            event.append('"').append(string(random)).append('"');
+            first = false;
+        }
+        return event.append("]}").toString();
+    }
+
+    private static void appendLevel(final StringBuilder event, final int depth, final Random random) {
+        event.append("\"level\":{\"number\":").append(random.nextInt(1000))
+                .append(",\"name\":\"").append(string(random))
+                .append("\",\"tags\":[\"").append(string(random)).append("\",\"").append(string(random)).append("\"]");
+        if (depth > 1) {
+            event.append(',');
+            appendLevel(event, depth - 1, random);
+        }
+        event.append('}');
+    }
+
+    private static String string(final Random random) {
+        final char[] chars = new char[STRING_LENGTH];
+        for (int i = 0; i < chars.length; ++i) {
+            chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns JSON schema, that is matched by events of the given depth and restricts every field of them.
+     */
+    public static String schema(final int depth) {
+        return "{\"type\":\"object\",\"required\":[\"id\",\"level\",\"data\"],\"properties\":{" +
+                "\"id\":{\"type\":\"string\",\"minLength\":1}," +
+                "\"level\":" + levelSchema(depth) + "," +
+                "\"data\":{\"type\":\"array\",\"items\":{\"type\":\"string\",\"maxLength\":64}}}}";
+    }
+
+    private static String levelSchema(final int depth) {
+        return "{\"type\":\"object\",\"required\":[\"number\",\"name\"],\"properties\":{" +
+                "\"number\":{\"type\":\"integer\",\"minimum\":0}," +
+                "\"name\":{\"type\":\"string\",\"pattern\":\"^[a-z0-9]+$\"}," +
+                "\"tags\":{\"type\":\"array\",\"items\":{\"type\":\"string\"}}" +
+                (depth > 1 ? ",\"level\":" + levelSchema(depth - 1) : "") + "}}";
+    }
+
+    public static EventType eventType(final int depth, final ValidationEngine validationEngine) {
+        final EventTypeOptions options = new EventTypeOptions();
+        options.setValidationEngine(validationEngine);
+
+        final EventType eventType = new EventType();
+        eventType.setName(EVENT_TYPE_NAME);
+        eventType.setCategory(EventCategory.BUSINESS);
+        eventType.setCompatibilityMode(CompatibilityMode.COMPATIBLE);
+        eventType.setCleanupPolicy(CleanupPolicy.DELETE);
+        eventType.setPartitionStrategy(PartitionStrategy.HASH_STRATEGY);
+        eventType.setPartitionKeyFields(Collections.singletonList("id"));
+        eventType.setSchema(new EventTypeSchema(
+                new EventTypeSchemaBase(EventTypeSchemaBase.Type.JSON_SCHEMA, schema(depth)), "1.0.0",
+                new DateTime(0)));
+        eventType.setOptions(options);
+        return eventType;
+    }
+}
@@ -0,0 +1,60 @@
+package org.zalando.nakadi.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zalando.nakadi.benchmark.EventCorpus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures splitting of published batch to events, for buffered and streamed publishing. Run with
+ * {@code ./gradlew :benchmarks:jmh -PjmhIncludes=BatchFactoryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchFactoryBenchmark {
+
+    @Param({"100"})
+    private int batchSize;
+
+    @Param({"256", "4096", "32768"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int depth;
+
+    private byte[] batch;
+
+    @Setup
+    public void setUp() {
+        batch = EventCorpus.batch(batchSize, size, depth).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<BatchItem> fromBytes() {
+        return BatchFactory.from(batch);
+    }
+
+    @Benchmark
+    public void fromStream(final Blackhole blackhole) throws IOException {
+        BatchFactory.from(new ByteArrayInputStream(batch), blackhole::consume);
+    }
+}
@@ -0,0 +1,62 @@
+package org.zalando.nakadi.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zalando.nakadi.benchmark.EventCorpus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialization of events, as they were received ({@code raw}) and with metadata injected by enrichment
+ * ({@code enriched}). Run with {@code ./gradlew :benchmarks:jmh -PjmhIncludes=BatchItemBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchItemBenchmark {
+
+    private static final String ENRICHED_METADATA = "{\"eid\":\"329ed3d2-8366-11e8-adc0-fa7ae01bbebc\"," +
+            "\"occurred_at\":\"2021-08-03T10:00:00.000Z\",\"flow_id\":\"benchmark\"," +
+            "\"event_type\":\"" + EventCorpus.EVENT_TYPE_NAME + "\",\"partition\":\"0\"," +
+            "\"received_at\":\"2021-08-03T10:00:01.000Z\",\"schema_version\":\"1.0.0\"," +
+            "\"published_by\":\"benchmark\"}";
+
+    @Param({"256", "4096", "32768"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int depth;
+
+    private BatchItem raw;
+    private BatchItem enriched;
+
+    @Setup
+    public void setUp() {
+        final String batch = "[" + EventCorpus.event(size, depth) + "]";
+        raw = BatchFactory.from(batch).get(0);
+        enriched = BatchFactory.from(batch).get(0);
+        enriched.inject(BatchItem.Injection.METADATA, ENRICHED_METADATA);
+    }
+
+    @Benchmark
+    public String dumpRawEventToString() {
+        return raw.dumpEventToString();
+    }
+
+    @Benchmark
+    public String dumpEnrichedEventToString() {
+        return enriched.dumpEventToString();
+    }
+}
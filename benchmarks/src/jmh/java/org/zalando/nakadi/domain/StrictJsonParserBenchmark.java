@@ -0,0 +1,48 @@
+package org.zalando.nakadi.domain;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zalando.nakadi.benchmark.EventCorpus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of a single event to {@link JSONObject}, the way events are parsed for validation. Run with
+ * {@code ./gradlew :benchmarks:jmh -PjmhIncludes=StrictJsonParserBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrictJsonParserBenchmark {
+
+    @Param({"256", "4096", "32768"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int depth;
+
+    private String event;
+
+    @Setup
+    public void setUp() {
+        event = EventCorpus.event(size, depth);
+    }
+
+    @Benchmark
+    public JSONObject parseObject() {
+        return StrictJsonParser.parseObject(event);
+    }
+}
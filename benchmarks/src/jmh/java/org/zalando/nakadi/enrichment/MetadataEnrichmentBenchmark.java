@@ -0,0 +1,59 @@
+package org.zalando.nakadi.enrichment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zalando.nakadi.benchmark.EventCorpus;
+import org.zalando.nakadi.domain.BatchFactory;
+import org.zalando.nakadi.domain.BatchItem;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.ValidationEngine;
+import org.zalando.nakadi.plugin.auth.DefaultAuthorizationService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures enrichment of metadata of an event. The same event is enriched again and again, every enrichment
+ * replaces the metadata injected by the previous one. Run with
+ * {@code ./gradlew :benchmarks:jmh -PjmhIncludes=MetadataEnrichmentBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataEnrichmentBenchmark {
+
+    @Param({"256", "4096", "32768"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int depth;
+
+    private MetadataEnrichmentStrategy strategy;
+    private EventType eventType;
+    private BatchItem item;
+
+    @Setup
+    public void setUp() {
+        strategy = new MetadataEnrichmentStrategy(new DefaultAuthorizationService());
+        eventType = EventCorpus.eventType(depth, ValidationEngine.STANDARD);
+        item = BatchFactory.from("[" + EventCorpus.event(size, depth) + "]").get(0);
+        item.setPartition("0");
+    }
+
+    @Benchmark
+    public BatchItem enrich() {
+        strategy.enrich(item, eventType);
+        return item;
+    }
+}
@@ -0,0 +1,74 @@
+package org.zalando.nakadi.partitioning;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+import org.zalando.nakadi.benchmark.EventCorpus;
+import org.zalando.nakadi.domain.BatchFactory;
+import org.zalando.nakadi.domain.BatchItem;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.ValidationEngine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures hash partitioning of an event, with partition keys extracted beforehand the way publisher does it
+ * ({@code calculatePartition}) and with extraction of the keys from the event. Run with
+ * {@code ./gradlew :benchmarks:jmh -PjmhIncludes=HashPartitionStrategyBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashPartitionStrategyBenchmark {
+
+    private static final List<String> PARTITIONS = IntStream.range(0, 8)
+            .mapToObj(String::valueOf)
+            .collect(Collectors.toList());
+
+    @Param({"256", "4096", "32768"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int depth;
+
+    private HashPartitionStrategy strategy;
+    private EventType eventType;
+    private BatchItem extracted;
+    private BatchItem notExtracted;
+
+    @Setup
+    public void setUp() {
+        strategy = new HashPartitionStrategy(
+                new HashPartitionStrategyCrutch(new StandardEnvironment(), 0), new StringHash());
+        eventType = EventCorpus.eventType(depth, ValidationEngine.STANDARD);
+        final String batch = "[" + EventCorpus.event(size, depth) + "]";
+        extracted = BatchFactory.from(batch).get(0);
+        extracted.setPartitionKeys(PartitionKeyExtractor.create(eventType).extract(extracted));
+        notExtracted = BatchFactory.from(batch).get(0);
+    }
+
+    @Benchmark
+    public String calculatePartition() {
+        return strategy.calculatePartition(eventType, extracted, PARTITIONS);
+    }
+
+    @Benchmark
+    public String extractKeysAndCalculatePartition() {
+        return strategy.calculatePartition(eventType, notExtracted, PARTITIONS);
+    }
+}
@@ -0,0 +1,131 @@
+package org.zalando.nakadi.service.publishing;
+
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.record.TimestampType;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.zalando.nakadi.domain.PublishingCompression;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures CPU cost of compressing (publishing) and decompressing (consumption) batches of events with every
+ * {@link PublishingCompression}, together with the number of bytes that are sent to kafka. Batches are built the
+ * same way kafka producer builds them.
+ *
+ * <p>Events are taken from {@code compression-samples.jsonl}, or from the file set with {@code -p samples=<path>},
+ * that should contain one recorded event per line. Run with
+ * {@code ./gradlew :benchmarks:jmh -PjmhIncludes=CompressionBenchmark}. Ratio of {@code compressedBytes} to
+ * {@code uncompressedBytes} counters is the share of bytes left after compression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"NONE", "GZIP", "LZ4", "ZSTD"})
+    private PublishingCompression compression;
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    @Param({""})
+    private String samples;
+
+    private byte[][] events;
+    private int uncompressedSize;
+    private MemoryRecords compressedBatch;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+        public long uncompressedBytes;
+        public long compressedBytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        final List<String> lines = readSamples();
+        events = new byte[batchSize][];
+        for (int i = 0; i < batchSize; ++i) {
+            // events of a batch are never the same, at least their ids differ
+            final JSONObject event = new JSONObject(lines.get(i % lines.size()));
+            event.getJSONObject("metadata").put("eid", UUID.randomUUID().toString());
+            events[i] = event.toString().getBytes(StandardCharsets.UTF_8);
+            uncompressedSize += events[i].length;
+        }
+        compressedBatch = buildBatch();
+    }
+
+    private List<String> readSamples() throws IOException {
+        if (!samples.isEmpty()) {
+            return Files.readAllLines(Paths.get(samples), StandardCharsets.UTF_8).stream()
+                    .filter(line -> !line.isBlank())
+                    .collect(Collectors.toList());
+        }
+        try (InputStream in = CompressionBenchmark.class.getResourceAsStream("/compression-samples.jsonl");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().filter(line -> !line.isBlank()).collect(Collectors.toList());
+        }
+    }
+
+    private MemoryRecords buildBatch() {
+        final MemoryRecordsBuilder builder = MemoryRecords.builder(
+                ByteBuffer.allocate(uncompressedSize + 1024),
+                CompressionType.forName(compression.getKafkaName()),
+                TimestampType.CREATE_TIME,
+                0L);
+        final long now = System.currentTimeMillis();
+        for (final byte[] event : events) {
+            builder.append(now, null, event);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public MemoryRecords compress(final Sizes sizes) {
+        final MemoryRecords records = buildBatch();
+        sizes.uncompressedBytes += uncompressedSize;
+        sizes.compressedBytes += records.sizeInBytes();
+        return records;
+    }
+
+    @Benchmark
+    public void decompress(final Blackhole blackhole) {
+        for (final RecordBatch batch : compressedBatch.batches()) {
+            for (final Record record : batch) {
+                blackhole.consume(record.value());
+            }
+        }
+    }
+}
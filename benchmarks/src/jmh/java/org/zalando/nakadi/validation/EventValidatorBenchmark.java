@@ -0,0 +1,64 @@
+package org.zalando.nakadi.validation;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.zalando.nakadi.benchmark.EventCorpus;
+import org.zalando.nakadi.domain.StrictJsonParser;
+import org.zalando.nakadi.domain.ValidationEngine;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures validation of events of generated corpus with validators built by {@link EventValidatorBuilder}, see
+ * {@link SchemaValidationBenchmark} for the validation of a real-world business event. Run with
+ * {@code ./gradlew :benchmarks:jmh -PjmhIncludes=EventValidatorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventValidatorBenchmark {
+
+    @Param({"STANDARD", "COMPILED"})
+    private ValidationEngine engine;
+
+    @Param({"256", "4096", "32768"})
+    private int size;
+
+    @Param({"1", "4", "16"})
+    private int depth;
+
+    private EventTypeValidator validator;
+    private JSONObject event;
+
+    @Setup
+    public void setUp() throws IOException {
+        validator = new EventValidatorBuilder(
+                new JsonSchemaEnrichment(new DefaultResourceLoader(), "classpath:schema_metadata.json"))
+                .build(EventCorpus.eventType(depth, engine));
+        event = StrictJsonParser.parseObject(EventCorpus.event(size, depth));
+        if (validator.validate(event).isPresent()) {
+            throw new IllegalStateException("Benchmark event is not valid: " + validator.validate(event));
+        }
+    }
+
+    @Benchmark
+    public Optional<ValidationError> validate() {
+        return validator.validate(event);
+    }
+}
@@ -0,0 +1,118 @@
+package org.zalando.nakadi.validation;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.zalando.nakadi.domain.CleanupPolicy;
+import org.zalando.nakadi.domain.CompatibilityMode;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeOptions;
+import org.zalando.nakadi.domain.EventTypeSchema;
+import org.zalando.nakadi.domain.ValidationEngine;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares standard (everit) and compiled validation of a business event with nested objects and arrays.
+ * Run with {@code ./gradlew :benchmarks:jmh -PjmhIncludes=SchemaValidationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaValidationBenchmark {
+
+    private static final String SCHEMA = "{" +
+            "\"type\": \"object\"," +
+            "\"required\": [\"order_number\", \"customer\", \"items\"]," +
+            "\"properties\": {" +
+            "  \"order_number\": {\"type\": \"string\", \"pattern\": \"^[0-9]{10}$\"}," +
+            "  \"status\": {\"type\": \"string\", \"enum\": [\"created\", \"paid\", \"shipped\", \"cancelled\"]}," +
+            "  \"created_at\": {\"type\": \"string\", \"format\": \"date-time\"}," +
+            "  \"customer\": {" +
+            "    \"type\": \"object\"," +
+            "    \"required\": [\"id\"]," +
+            "    \"properties\": {" +
+            "      \"id\": {\"type\": \"string\", \"minLength\": 1}," +
+            "      \"email\": {\"type\": \"string\"}," +
+            "      \"vip\": {\"type\": \"boolean\"}" +
+            "    }" +
+            "  }," +
+            "  \"items\": {" +
+            "    \"type\": \"array\"," +
+            "    \"minItems\": 1," +
+            "    \"items\": {" +
+            "      \"type\": \"object\"," +
+            "      \"required\": [\"sku\", \"quantity\"]," +
+            "      \"properties\": {" +
+            "        \"sku\": {\"type\": \"string\", \"maxLength\": 32}," +
+            "        \"quantity\": {\"type\": \"integer\", \"minimum\": 1}," +
+            "        \"price\": {\"type\": \"number\", \"minimum\": 0}" +
+            "      }" +
+            "    }" +
+            "  }" +
+            "}}";
+
+    private static final String EVENT = "{" +
+            "\"metadata\": {\"eid\": \"329ed3d2-8366-11e8-adc0-fa7ae01bbebc\", " +
+            "  \"occurred_at\": \"2021-08-03T10:00:00Z\", \"flow_id\": \"flow\"}," +
+            "\"order_number\": \"1234567890\"," +
+            "\"status\": \"paid\"," +
+            "\"created_at\": \"2021-08-03T09:59:58.123+02:00\"," +
+            "\"customer\": {\"id\": \"c-1\", \"email\": \"someone@example.com\", \"vip\": false}," +
+            "\"items\": [" +
+            "  {\"sku\": \"SKU-0001\", \"quantity\": 1, \"price\": 19.99}," +
+            "  {\"sku\": \"SKU-0002\", \"quantity\": 2, \"price\": 5.5}," +
+            "  {\"sku\": \"SKU-0003\", \"quantity\": 3, \"price\": 100}" +
+            "]}";
+
+    @Param({"STANDARD", "COMPILED"})
+    private ValidationEngine engine;
+
+    private EventTypeValidator validator;
+    private JSONObject event;
+
+    @Setup
+    public void setUp() throws IOException {
+        final EventTypeOptions options = new EventTypeOptions();
+        options.setValidationEngine(engine);
+
+        final EventType eventType = new EventType();
+        eventType.setName("order.order-paid");
+        eventType.setCategory(EventCategory.BUSINESS);
+        eventType.setCompatibilityMode(CompatibilityMode.COMPATIBLE);
+        eventType.setCleanupPolicy(CleanupPolicy.DELETE);
+        eventType.setSchema(new EventTypeSchema());
+        eventType.getSchema().setType(EventTypeSchema.Type.JSON_SCHEMA);
+        eventType.getSchema().setSchema(SCHEMA);
+        eventType.setOptions(options);
+
+        validator = new EventValidatorBuilder(
+                new JsonSchemaEnrichment(new DefaultResourceLoader(), "classpath:schema_metadata.json"))
+                .build(eventType);
+        event = new JSONObject(EVENT);
+        if (validator.validate(event).isPresent()) {
+            throw new IllegalStateException("Benchmark event is not valid: " + validator.validate(event));
+        }
+    }
+
+    @Benchmark
+    public Optional<ValidationError> validate() {
+        return validator.validate(event);
+    }
+}
@@ -0,0 +1,192 @@
+package org.zalando.nakadi.avro;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.json.JSONObject;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeSchema;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts events of event type with avro schema between json and avro binary encoding, in which they are stored.
+ * Instances are created per version of the schema of the event type.
+ *
+ * <p>Events are encoded with {@link #getSchema()}, which depends on the category of the event type:
+ * <ul>
+ * <li>undefined - event itself, encoded with the schema of the event type;</li>
+ * <li>business - record with {@code metadata} field and {@code event} field, encoded with the schema of the event
+ * type. Fields of the event are written to json next to {@code metadata};</li>
+ * <li>data - record with {@code metadata}, {@code data_op} and {@code data_type} fields, and {@code data} field,
+ * encoded with the schema of the event type.</li>
+ * </ul>
+ * Stored events have {@link #STORED_METADATA_SCHEMA} metadata, with the fields set by nakadi on publishing. Items of
+ * batches published in avro have the same form, but with {@link #METADATA_SCHEMA} metadata.
+ */
+public class AvroEventCodec {
+
+    private static final String NAMESPACE = "org.zalando.nakadi";
+    private static final String METADATA = "metadata";
+    private static final String EVENT = "event";
+    private static final byte[] BUSINESS_EVENT_START = ("{\"" + METADATA + "\":").getBytes(StandardCharsets.UTF_8);
+
+    public static final Schema METADATA_SCHEMA = metadataFields().endRecord();
+
+    public static final Schema STORED_METADATA_SCHEMA = metadataFields()
+            .optionalString("event_type")
+            .optionalString("received_at")
+            .optionalString("published_by")
+            .optionalString("version")
+            .endRecord();
+
+    private final String version;
+    private final EventCategory category;
+    private final Schema schema;
+    private final DatumReader<Object> reader;
+    private final DatumWriter<Object> writer;
+
+    private AvroEventCodec(final String version, final EventCategory category, final Schema schema) {
+        this.version = version;
+        this.category = category;
+        this.schema = schema;
+        this.reader = new GenericDatumReader<>(schema);
+        this.writer = new GenericDatumWriter<>(schema);
+    }
+
+    /**
+     * @return codec of the current version of the schema, or null if the event type doesn't have avro schema
+     */
+    @Nullable
+    public static AvroEventCodec create(final EventType eventType) {
+        if (eventType.getSchema() == null || eventType.getSchema().getType() != EventTypeSchemaBase.Type.AVRO_SCHEMA) {
+            return null;
+        }
+        return create(eventType.getCategory(), eventType.getSchema());
+    }
+
+    /**
+     * @param schema avro schema of the event type
+     */
+    public static AvroEventCodec create(final EventCategory category, final EventTypeSchema schema) {
+        final Schema eventSchema = new Schema.Parser().parse(schema.getSchema());
+        return new AvroEventCodec(schema.getVersion().toString(), category,
+                itemSchema(eventSchema, category, STORED_METADATA_SCHEMA));
+    }
+
+    /**
+     * @return schema of the event of the category, as it is encoded in avro
+     */
+    public static Schema itemSchema(final Schema eventSchema, final EventCategory category,
+                                    final Schema metadataSchema) {
+        if (category == EventCategory.BUSINESS) {
+            return SchemaBuilder.record("BusinessEvent").namespace(NAMESPACE).fields()
+                    .name(METADATA).type(metadataSchema).noDefault()
+                    .name(EVENT).type(eventSchema).noDefault()
+                    .endRecord();
+        } else if (category == EventCategory.DATA) {
+            return SchemaBuilder.record("DataChangeEvent").namespace(NAMESPACE).fields()
+                    .name(METADATA).type(metadataSchema).noDefault()
+                    .requiredString("data_op")
+                    .requiredString("data_type")
+                    .name("data").type(eventSchema).noDefault()
+                    .endRecord();
+        }
+        return eventSchema;
+    }
+
+    /**
+     * Writes event, read with {@link #itemSchema(Schema, EventCategory, Schema)}, as json.
+     *
+     * @throws org.json.JSONException if value can not be represented in json (NaN or infinite numbers)
+     */
+    public static void writeJson(final Object item, final Schema itemSchema, final EventCategory category,
+                                 final ByteArrayOutputStream out) {
+        if (category != EventCategory.BUSINESS) {
+            AvroJsonWriter.write(item, itemSchema, out);
+            return;
+        }
+        final GenericRecord record = (GenericRecord) item;
+        out.write(BUSINESS_EVENT_START, 0, BUSINESS_EVENT_START.length);
+        final Schema.Field metadata = itemSchema.getField(METADATA);
+        AvroJsonWriter.write(record.get(metadata.pos()), metadata.schema(), out);
+        final Schema.Field event = itemSchema.getField(EVENT);
+        AvroJsonWriter.writeFields((GenericRecord) record.get(event.pos()), event.schema(), true, out);
+        out.write('}');
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @param event enriched event, as it is published to storage
+     * @throws org.apache.avro.AvroTypeException if the event can not be encoded with the schema
+     */
+    public byte[] toAvro(final JSONObject event) {
+        final Object item;
+        if (category == EventCategory.BUSINESS) {
+            // fields of the event are taken from the top level of the json, metadata is skipped as unknown field
+            final GenericRecord record = new GenericData.Record(schema);
+            final Schema.Field metadata = schema.getField(METADATA);
+            record.put(metadata.pos(), JsonAvroConverter.toAvro(event.opt(METADATA), metadata.schema()));
+            final Schema.Field eventField = schema.getField(EVENT);
+            record.put(eventField.pos(), JsonAvroConverter.toAvro(event, eventField.schema()));
+            item = record;
+        } else {
+            item = JsonAvroConverter.toAvro(event, schema);
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        final BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+        try {
+            writer.write(item, encoder);
+        } catch (final IOException e) {
+            throw new AvroRuntimeException("Failed to encode event", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws AvroRuntimeException if the event can not be decoded with the schema
+     */
+    public byte[] toJson(final byte[] avroEvent) {
+        final Object item;
+        try {
+            item = reader.read(null, DecoderFactory.get().binaryDecoder(avroEvent, null));
+        } catch (final IOException e) {
+            throw new AvroRuntimeException("Failed to decode event", e);
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(avroEvent.length * 2);
+        writeJson(item, schema, category, out);
+        return out.toByteArray();
+    }
+
+    private static SchemaBuilder.FieldAssembler<Schema> metadataFields() {
+        return SchemaBuilder.record("Metadata").namespace(NAMESPACE).fields()
+                .requiredString("eid")
+                .requiredString("occurred_at")
+                .optionalString("flow_id")
+                .optionalString("partition")
+                .optionalString("partition_compaction_key")
+                .name("parent_eids").type().optional().array().items().stringType()
+                .name("span_ctx").type().optional().map().values().stringType();
+    }
+}
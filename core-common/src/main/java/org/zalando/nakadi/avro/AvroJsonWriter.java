@@ -0,0 +1,130 @@
+package org.zalando.nakadi.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes values read by avro generic reader as json, in the form described by
+ * {@link AvroSchemaConverter#toJsonSchema(Schema)}. Fields of records with null values are omitted, union values are
+ * written without type wrappers.
+ */
+public class AvroJsonWriter {
+
+    private AvroJsonWriter() {
+    }
+
+    /**
+     * @throws org.json.JSONException if value can not be represented in json (NaN or infinite numbers)
+     */
+    public static void write(final Object value, final Schema schema, final ByteArrayOutputStream out) {
+        switch (schema.getType()) {
+            case RECORD:
+                writeRecord((GenericRecord) value, schema, out);
+                break;
+            case ARRAY:
+                out.write('[');
+                boolean firstItem = true;
+                for (final Object item : (Collection<?>) value) {
+                    if (!firstItem) {
+                        out.write(',');
+                    }
+                    firstItem = false;
+                    write(item, schema.getElementType(), out);
+                }
+                out.write(']');
+                break;
+            case MAP:
+                out.write('{');
+                boolean firstEntry = true;
+                for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    if (!firstEntry) {
+                        out.write(',');
+                    }
+                    firstEntry = false;
+                    writeString(JSONObject.quote(entry.getKey().toString()), out);
+                    out.write(':');
+                    write(entry.getValue(), schema.getValueType(), out);
+                }
+                out.write('}');
+                break;
+            case UNION:
+                write(value, schema.getTypes().get(GenericData.get().resolveUnion(schema, value)), out);
+                break;
+            case ENUM:
+            case STRING:
+                writeString(JSONObject.quote(value.toString()), out);
+                break;
+            case BYTES:
+                final ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+                final byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                writeString(JSONObject.quote(Base64.getEncoder().encodeToString(bytes)), out);
+                break;
+            case FIXED:
+                writeString(JSONObject.quote(Base64.getEncoder().encodeToString(((GenericFixed) value).bytes())), out);
+                break;
+            case INT:
+            case LONG:
+            case BOOLEAN:
+                writeString(value.toString(), out);
+                break;
+            case FLOAT:
+            case DOUBLE:
+                writeString(JSONObject.numberToString((Number) value), out);
+                break;
+            case NULL:
+                writeString("null", out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported avro type " + schema.getType());
+        }
+    }
+
+    /**
+     * Writes fields of the record without enclosing braces.
+     *
+     * @return true if at least one field was written
+     */
+    public static boolean writeFields(final GenericRecord record, final Schema schema, final boolean leadingComma,
+                                      final ByteArrayOutputStream out) {
+        boolean comma = leadingComma;
+        boolean written = false;
+        for (final Schema.Field field : schema.getFields()) {
+            final Object fieldValue = record.get(field.pos());
+            if (null == fieldValue) {
+                continue;
+            }
+            if (comma) {
+                out.write(',');
+            }
+            comma = true;
+            written = true;
+            writeString(JSONObject.quote(field.name()), out);
+            out.write(':');
+            write(fieldValue, field.schema(), out);
+        }
+        return written;
+    }
+
+    private static void writeRecord(final GenericRecord record, final Schema schema,
+                                    final ByteArrayOutputStream out) {
+        out.write('{');
+        writeFields(record, schema, false, out);
+        out.write('}');
+    }
+
+    private static void writeString(final String value, final ByteArrayOutputStream out) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,98 @@
+package org.zalando.nakadi.avro;
+
+import org.apache.avro.Schema;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Derives json-schema from avro schema, so that events of event types with avro schema are validated, partitioned
+ * and evolved the same way as events of event types with json-schema.
+ */
+public class AvroSchemaConverter {
+
+    private AvroSchemaConverter() {
+    }
+
+    /**
+     * @return json-schema of the event type, converted from avro schema if the event type has one
+     * @throws org.apache.avro.SchemaParseException if avro schema is not valid
+     */
+    public static JSONObject toJsonSchema(final EventTypeSchemaBase schema) {
+        if (schema.getType() == EventTypeSchemaBase.Type.AVRO_SCHEMA) {
+            return toJsonSchema(new Schema.Parser().parse(schema.getSchema()));
+        }
+        return new JSONObject(schema.getSchema());
+    }
+
+    public static JSONObject toJsonSchema(final Schema schema) {
+        return convert(schema, new HashSet<>());
+    }
+
+    private static JSONObject convert(final Schema schema, final Set<String> parentRecords) {
+        switch (schema.getType()) {
+            case RECORD:
+                return convertRecord(schema, parentRecords);
+            case ENUM:
+                return type("string").put("enum", new JSONArray(schema.getEnumSymbols()));
+            case ARRAY:
+                return type("array").put("items", convert(schema.getElementType(), parentRecords));
+            case MAP:
+                return type("object").put("additionalProperties", convert(schema.getValueType(), parentRecords));
+            case UNION:
+                final JSONArray anyOf = new JSONArray();
+                for (final Schema member : schema.getTypes()) {
+                    anyOf.put(convert(member, parentRecords));
+                }
+                return new JSONObject().put("anyOf", anyOf);
+            case STRING:
+            case BYTES:
+            case FIXED:
+                // bytes and fixed values are written to json as base64 strings
+                return type("string");
+            case INT:
+            case LONG:
+                return type("integer");
+            case FLOAT:
+            case DOUBLE:
+                return type("number");
+            case BOOLEAN:
+                return type("boolean");
+            case NULL:
+                return type("null");
+            default:
+                throw new IllegalArgumentException("Unsupported avro type " + schema.getType());
+        }
+    }
+
+    private static JSONObject convertRecord(final Schema schema, final Set<String> parentRecords) {
+        if (!parentRecords.add(schema.getFullName())) {
+            // recursive records are only checked to be objects starting from the first repetition
+            return type("object");
+        }
+        final JSONObject properties = new JSONObject();
+        final JSONArray required = new JSONArray();
+        for (final Schema.Field field : schema.getFields()) {
+            properties.put(field.name(), convert(field.schema(), parentRecords));
+            if (!field.hasDefaultValue() && !field.schema().isNullable()) {
+                required.put(field.name());
+            }
+        }
+        parentRecords.remove(schema.getFullName());
+
+        final JSONObject result = type("object")
+                .put("properties", properties)
+                .put("additionalProperties", false);
+        if (required.length() > 0) {
+            result.put("required", required);
+        }
+        return result;
+    }
+
+    private static JSONObject type(final String type) {
+        return new JSONObject().put("type", type);
+    }
+}
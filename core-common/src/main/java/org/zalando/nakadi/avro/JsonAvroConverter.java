@@ -0,0 +1,219 @@
+package org.zalando.nakadi.avro;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts json values, in the form described by {@link AvroSchemaConverter#toJsonSchema(Schema)}, to values of avro
+ * generic data model. It is the reverse of {@link AvroJsonWriter}: missing fields of records take default values
+ * (or nulls for nullable fields), union branches are chosen by the first branch the value matches.
+ */
+public class JsonAvroConverter {
+
+    private JsonAvroConverter() {
+    }
+
+    /**
+     * @param value json value, as returned by {@link JSONObject#opt(String)}
+     * @throws AvroTypeException if the value doesn't match the schema
+     */
+    public static Object toAvro(final Object value, final Schema schema) throws AvroTypeException {
+        switch (schema.getType()) {
+            case RECORD:
+                return toRecord(cast(value, JSONObject.class, schema), schema);
+            case ARRAY:
+                final JSONArray array = cast(value, JSONArray.class, schema);
+                final List<Object> items = new ArrayList<>(array.length());
+                for (int i = 0; i < array.length(); ++i) {
+                    items.add(toAvro(array.get(i), schema.getElementType()));
+                }
+                return items;
+            case MAP:
+                final JSONObject object = cast(value, JSONObject.class, schema);
+                final Map<String, Object> entries = new LinkedHashMap<>();
+                for (final String key : object.keySet()) {
+                    entries.put(key, toAvro(object.get(key), schema.getValueType()));
+                }
+                return entries;
+            case UNION:
+                for (final Schema branch : schema.getTypes()) {
+                    if (matches(value, branch)) {
+                        return toAvro(value, branch);
+                    }
+                }
+                throw mismatch(value, schema);
+            case ENUM:
+                final String symbol = cast(value, String.class, schema);
+                if (!schema.hasEnumSymbol(symbol)) {
+                    throw mismatch(value, schema);
+                }
+                return new GenericData.EnumSymbol(schema, symbol);
+            case STRING:
+                return cast(value, String.class, schema);
+            case BYTES:
+                return ByteBuffer.wrap(decodeBase64(value, schema));
+            case FIXED:
+                final byte[] bytes = decodeBase64(value, schema);
+                if (bytes.length != schema.getFixedSize()) {
+                    throw mismatch(value, schema);
+                }
+                return new GenericData.Fixed(schema, bytes);
+            case INT:
+                if (!isIntegral(value, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+                    throw mismatch(value, schema);
+                }
+                return ((Number) value).intValue();
+            case LONG:
+                if (!isIntegral(value, Long.MIN_VALUE, Long.MAX_VALUE)) {
+                    throw mismatch(value, schema);
+                }
+                return ((Number) value).longValue();
+            case FLOAT:
+                return cast(value, Number.class, schema).floatValue();
+            case DOUBLE:
+                return cast(value, Number.class, schema).doubleValue();
+            case BOOLEAN:
+                return cast(value, Boolean.class, schema);
+            case NULL:
+                if (!JSONObject.NULL.equals(value)) {
+                    throw mismatch(value, schema);
+                }
+                return null;
+            default:
+                throw new IllegalArgumentException("Unsupported avro type " + schema.getType());
+        }
+    }
+
+    private static GenericRecord toRecord(final JSONObject object, final Schema schema) {
+        final GenericRecord record = new GenericData.Record(schema);
+        for (final Schema.Field field : schema.getFields()) {
+            final Object fieldValue = object.opt(field.name());
+            if (null != fieldValue) {
+                record.put(field.pos(), toAvro(fieldValue, field.schema()));
+            } else if (field.hasDefaultValue()) {
+                record.put(field.pos(), GenericData.get().getDefaultValue(field));
+            } else if (!field.schema().isNullable()) {
+                throw new AvroTypeException("Field " + field.name() + " of " + schema.getFullName() + " is missing");
+            }
+        }
+        return record;
+    }
+
+    private static boolean matches(final Object value, final Schema schema) {
+        switch (schema.getType()) {
+            case RECORD:
+                if (!(value instanceof JSONObject)) {
+                    return false;
+                }
+                final JSONObject object = (JSONObject) value;
+                for (final String key : object.keySet()) {
+                    if (null == schema.getField(key)) {
+                        return false;
+                    }
+                }
+                for (final Schema.Field field : schema.getFields()) {
+                    final Object fieldValue = object.opt(field.name());
+                    if (null == fieldValue ? !field.hasDefaultValue() && !field.schema().isNullable()
+                            : !matches(fieldValue, field.schema())) {
+                        return false;
+                    }
+                }
+                return true;
+            case ARRAY:
+                if (!(value instanceof JSONArray)) {
+                    return false;
+                }
+                for (final Object item : (JSONArray) value) {
+                    if (!matches(item, schema.getElementType())) {
+                        return false;
+                    }
+                }
+                return true;
+            case MAP:
+                if (!(value instanceof JSONObject)) {
+                    return false;
+                }
+                final JSONObject entries = (JSONObject) value;
+                for (final String key : entries.keySet()) {
+                    if (!matches(entries.get(key), schema.getValueType())) {
+                        return false;
+                    }
+                }
+                return true;
+            case UNION:
+                return schema.getTypes().stream().anyMatch(branch -> matches(value, branch));
+            case ENUM:
+                return value instanceof String && schema.hasEnumSymbol((String) value);
+            case STRING:
+                return value instanceof String;
+            case BYTES:
+            case FIXED:
+                try {
+                    final byte[] bytes = decodeBase64(value, schema);
+                    return schema.getType() == Schema.Type.BYTES || bytes.length == schema.getFixedSize();
+                } catch (final AvroTypeException e) {
+                    return false;
+                }
+            case INT:
+                return isIntegral(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            case LONG:
+                return isIntegral(value, Long.MIN_VALUE, Long.MAX_VALUE);
+            case FLOAT:
+            case DOUBLE:
+                return value instanceof Number;
+            case BOOLEAN:
+                return value instanceof Boolean;
+            case NULL:
+                return JSONObject.NULL.equals(value);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isIntegral(final Object value, final long min, final long max) {
+        if (value instanceof Integer || value instanceof Long) {
+            final long longValue = ((Number) value).longValue();
+            return longValue >= min && longValue <= max;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            // json-schema treats numbers like 1.0 as integers
+            final double doubleValue = ((Number) value).doubleValue();
+            return doubleValue == Math.rint(doubleValue) && doubleValue >= min && doubleValue <= max;
+        }
+        return false;
+    }
+
+    private static byte[] decodeBase64(final Object value, final Schema schema) {
+        try {
+            return Base64.getDecoder().decode(cast(value, String.class, schema));
+        } catch (final IllegalArgumentException e) {
+            throw mismatch(value, schema);
+        }
+    }
+
+    private static <T> T cast(final Object value, final Class<T> type, final Schema schema) {
+        if (!type.isInstance(value)) {
+            throw mismatch(value, schema);
+        }
+        return type.cast(value);
+    }
+
+    private static AvroTypeException mismatch(final Object value, final Schema schema) {
+        final String description = value instanceof JSONObject || value instanceof JSONArray ?
+                value.getClass().getSimpleName() : String.valueOf(value);
+        final String type = schema.getType() == Schema.Type.RECORD || schema.getType() == Schema.Type.ENUM
+                || schema.getType() == Schema.Type.FIXED ? schema.getFullName() : schema.getType().getName();
+        return new AvroTypeException("Value " + description + " does not match avro type " + type);
+    }
+}
@@ -0,0 +1,30 @@
+package org.zalando.nakadi.domain;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class represents serializer / deserializer of the header, that marks events stored in avro binary encoding with
+ * the version of the schema of the event type. Events without the header are stored as json.
+ */
+public class AvroSchemaVersionHeader {
+
+    public static final String AVRO_SCHEMA_VERSION = "X-Nakadi-Avro-Schema-Version";
+
+    private AvroSchemaVersionHeader() {
+    }
+
+    public static void serialize(final String version, final ProducerRecord<?, ?> record) {
+        record.headers().add(AVRO_SCHEMA_VERSION, version.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nullable
+    public static String deserialize(final ConsumerRecord<byte[], byte[]> record) {
+        final Header header = record.headers().lastHeader(AVRO_SCHEMA_VERSION);
+        return null == header ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
@@ -1,17 +1,28 @@
 package org.zalando.nakadi.domain;
 
 import org.json.JSONException;
+import org.json.JSONObject;
+import org.zalando.nakadi.exceptions.runtime.EventSizeExceededException;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
 
 public class BatchFactory {
 
-    private static int navigateToObjectStart(final int from, final int end, final String data) {
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final int INITIAL_FIELD_POSITIONS = 8;
+    private static final int OVERSIZED_OBJECT = -2;
+
+    private static int navigateToObjectStart(final int from, final int end, final byte[] data) {
         int curPos = from;
-        char currentChar;
-        while (curPos < end && (currentChar = data.charAt(curPos)) != '{') {
+        byte currentChar;
+        while (curPos < end && (currentChar = data[curPos]) != '{') {
             if (currentChar != ',' && !isEmptyCharacter(currentChar)) {
                 throw new JSONException("Illegal character at position " + curPos);
             }
@@ -21,8 +32,21 @@ public class BatchFactory {
         return found ? curPos : -1;
     }
 
-    private static int navigateToObjectEnd(final int from, final int end, final String data,
+    private static int navigateToObjectEnd(final int from, final int end, final byte[] data,
+                                           final Consumer<BatchItem> batchItemConsumer) {
+        return navigateToObjectEnd(from, end, data, Long.MAX_VALUE, null, batchItemConsumer);
+    }
+
+    /**
+     * @return position of the closing bracket of the object, -1 if the object is not closed or
+     * {@link #OVERSIZED_OBJECT} if the object is longer than {@code maxLength}. Oversized object is not scanned
+     * further than {@code maxLength} bytes.
+     */
+    private static int navigateToObjectEnd(final int from, final int end, final byte[] data,
+                                           final long maxLength,
+                                           @Nullable final JSONObject event,
                                            final Consumer<BatchItem> batchItemConsumer) {
+        final int scanEnd = maxLength < end - from ? from + (int) maxLength : end;
         int curPos = from;
         int nestingLevel = 0;
         boolean escaped = false;
@@ -33,9 +57,11 @@ public class BatchFactory {
         final BatchItem.InjectionConfiguration[] injections =
                 new BatchItem.InjectionConfiguration[BatchItem.Injection.values().length];
         final List<Integer> skipPositions = new ArrayList<>();
+        int[] fieldPositions = new int[INITIAL_FIELD_POSITIONS];
+        int fieldsCount = 0;
 
-        while (curPos < end) {
-            final char curChar = data.charAt(curPos);
+        while (curPos < scanEnd) {
+            final byte curChar = data[curPos];
             if (!insideQuote && shouldBeSkipped(curChar)) {
                 skipPositions.add(curPos - from);
             }
@@ -44,6 +70,10 @@ public class BatchFactory {
                 if (insideQuote && nestingLevel == 1 && injectionPointStart == -1) {
                     injectionPointStart = curPos;
                     hasFields = true;
+                    if (fieldsCount == fieldPositions.length) {
+                        fieldPositions = Arrays.copyOf(fieldPositions, fieldsCount * 2);
+                    }
+                    fieldPositions[fieldsCount++] = curPos - from;
                 }
             }
             if (escaped) {
@@ -73,15 +103,23 @@ public class BatchFactory {
             }
             ++curPos;
         }
-        if (curPos == data.length()) {
+        if (nestingLevel != 0 && scanEnd < end) {
+            return OVERSIZED_OBJECT;
+        }
+        if (curPos == data.length) {
             return -1;
         }
-        batchItemConsumer.accept(
-                new BatchItem(
-                        data.substring(from, curPos + 1),
-                        BatchItem.EmptyInjectionConfiguration.build(1, hasFields),
-                        injections,
-                        skipPositions));
+        final BatchItem.EmptyInjectionConfiguration emptyInjection =
+                BatchItem.EmptyInjectionConfiguration.build(1, hasFields);
+        if (null != event) {
+            batchItemConsumer.accept(new BatchItem(
+                    data, event, emptyInjection, injections, skipPositions,
+                    Arrays.copyOf(fieldPositions, fieldsCount)));
+        } else {
+            batchItemConsumer.accept(new BatchItem(
+                    data, from, curPos + 1 - from, emptyInjection, injections, skipPositions,
+                    Arrays.copyOf(fieldPositions, fieldsCount)));
+        }
         return curPos;
     }
 
@@ -89,15 +127,15 @@ public class BatchFactory {
             final int messageOffset,
             final int injectionPointStart,
             final int end,
-            final String data) {
+            final byte[] data) {
         for (final BatchItem.Injection type : BatchItem.Injection.values()) {
             if ((end - injectionPointStart - 3) < type.name.length()) {
                 continue;
             }
-            boolean matches = data.charAt(injectionPointStart + 1 + type.name.length()) == '"';
+            boolean matches = data[injectionPointStart + 1 + type.name.length()] == '"';
             if (matches) {
                 for (int i = 0; i < type.name.length(); ++i) {
-                    if (data.charAt(injectionPointStart + i + 1) != type.name.charAt(i)) {
+                    if (data[injectionPointStart + i + 1] != type.name.charAt(i)) {
                         matches = false;
                         break;
                     }
@@ -112,12 +150,41 @@ public class BatchFactory {
     }
 
     public static List<BatchItem> from(final String events) {
+        return from(events.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Splits UTF-8 encoded array of events into batch items without decoding the whole batch into characters.
+     * Every created {@link BatchItem} references a slice of {@code events}, so the array must not be modified
+     * afterwards. Scanning bytes is safe, as every byte of multi-byte UTF-8 sequence is outside of ASCII range and
+     * therefore never matches structural characters of JSON.
+     *
+     * @param events UTF-8 encoded JSON array of events
+     * @return list of batch items in the order they appear in the array
+     */
+    public static List<BatchItem> from(final byte[] events) {
+        return from(events, Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #from(byte[])}, but stops creating batch items as soon as an event longer than
+     * {@code maxEventBytes} is found. The oversized event and the events after it are only measured and counted,
+     * so that the failure can be reported for every event of the batch.
+     *
+     * @throws EventSizeExceededException in case if one of the events is longer than {@code maxEventBytes}
+     */
+    public static List<BatchItem> from(final byte[] events, final long maxEventBytes)
+            throws EventSizeExceededException {
         final List<BatchItem> batch = new ArrayList<>();
         int objectStart = locateOpenSquareBracket(events) + 1;
         final int arrayEnd = locateClosingSquareBracket(objectStart, events);
 
         while (-1 != (objectStart = navigateToObjectStart(objectStart, arrayEnd, events))) {
-            final int objectEnd = navigateToObjectEnd(objectStart, arrayEnd, events, batch::add);
+            final int objectEnd = navigateToObjectEnd(
+                    objectStart, arrayEnd, events, maxEventBytes, null, batch::add);
+            if (objectEnd == OVERSIZED_OBJECT) {
+                throw oversizedEvent(objectStart, arrayEnd, events, batch.size(), maxEventBytes);
+            }
             if (objectEnd == -1) {
                 throw new JSONException("Unclosed object staring at " + objectStart + " found.");
             }
@@ -127,33 +194,193 @@ public class BatchFactory {
         return batch;
     }
 
-    private static int locateOpenSquareBracket(final String events) {
+    /**
+     * Creates batch items for events built by nakadi itself. Every event is serialized once, straight into the
+     * bytes that are sent to storage, and is not parsed back.
+     */
+    public static List<BatchItem> fromEvents(final List<JSONObject> events) {
+        final List<BatchItem> batch = new ArrayList<>(events.size());
+        for (final JSONObject event : events) {
+            final byte[] data = event.toString().getBytes(StandardCharsets.UTF_8);
+            navigateToObjectEnd(0, data.length, data, Long.MAX_VALUE, event, batch::add);
+        }
+        return batch;
+    }
+
+    /**
+     * Measures the oversized event and counts the events that follow it, without creating batch items.
+     */
+    private static EventSizeExceededException oversizedEvent(final int objectStart, final int arrayEnd,
+                                                             final byte[] events, final int eventIndex,
+                                                             final long maxEventBytes) {
+        int objectEnd = skipObject(objectStart, arrayEnd, events);
+        if (objectEnd == -1) {
+            throw new JSONException("Unclosed object staring at " + objectStart + " found.");
+        }
+        final int eventSize = objectEnd + 1 - objectStart;
+        int eventsCount = eventIndex + 1;
+        int nextStart = objectEnd + 1;
+        while (-1 != (nextStart = navigateToObjectStart(nextStart, arrayEnd, events))) {
+            objectEnd = skipObject(nextStart, arrayEnd, events);
+            if (objectEnd == -1) {
+                throw new JSONException("Unclosed object staring at " + nextStart + " found.");
+            }
+            ++eventsCount;
+            nextStart = objectEnd + 1;
+        }
+        return new EventSizeExceededException("Event too large: " + eventSize + " bytes, max size is "
+                + maxEventBytes + " bytes", eventIndex, eventsCount);
+    }
+
+    /**
+     * @return position of the closing bracket of the object or -1 if the object is not closed
+     */
+    private static int skipObject(final int from, final int end, final byte[] data) {
+        int nestingLevel = 0;
+        boolean escaped = false;
+        boolean insideQuote = false;
+        for (int curPos = from; curPos < end; ++curPos) {
+            final byte curChar = data[curPos];
+            if (escaped) {
+                escaped = false;
+            } else if (curChar == '\\') {
+                escaped = true;
+            } else if (curChar == '"') {
+                insideQuote = !insideQuote;
+            } else if (!insideQuote) {
+                if (curChar == '{') {
+                    ++nestingLevel;
+                } else if (curChar == '}' && --nestingLevel == 0) {
+                    return curPos;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads UTF-8 encoded array of events from stream and passes every event to {@code batchItemConsumer} as soon
+     * as it is completely read, so only the event being currently read is kept in memory by this method.
+     *
+     * @param events            stream with JSON array of events
+     * @param batchItemConsumer consumer of batch items, called in the order events appear in the array
+     * @throws IOException   in case if reading from stream failed
+     * @throws JSONException in case if stream does not contain valid array of events
+     */
+    public static void from(final InputStream events, final Consumer<BatchItem> batchItemConsumer)
+            throws IOException, JSONException {
+        from(events, Long.MAX_VALUE, batchItemConsumer);
+    }
+
+    /**
+     * Same as {@link #from(InputStream, Consumer)}, but stops reading the stream as soon as the event being read
+     * gets longer than {@code maxEventBytes}, so that the oversized event is neither buffered nor read till the end.
+     * As the rest of the stream is not read, the number of events in the batch is only known up to the oversized
+     * one.
+     *
+     * @throws EventSizeExceededException in case if one of the events is longer than {@code maxEventBytes}
+     */
+    public static void from(final InputStream events, final long maxEventBytes,
+                            final Consumer<BatchItem> batchItemConsumer)
+            throws IOException, JSONException, EventSizeExceededException {
+        final byte[] readBuffer = new byte[STREAM_BUFFER_SIZE];
+        byte[] eventBuffer = new byte[STREAM_BUFFER_SIZE];
+        int eventLength = 0;
+        int nestingLevel = 0;
+        boolean escaped = false;
+        boolean insideQuote = false;
+        boolean arrayStarted = false;
+        boolean arrayFinished = false;
+        long position = 0;
+        int eventIndex = 0;
+        int read;
+        while (-1 != (read = events.read(readBuffer))) {
+            for (int i = 0; i < read; ++i, ++position) {
+                final byte curChar = readBuffer[i];
+                if (arrayFinished || !arrayStarted) {
+                    if (!arrayStarted && curChar == '[') {
+                        arrayStarted = true;
+                    } else if (!isEmptyCharacter(curChar)) {
+                        throw new JSONException(arrayFinished ?
+                                "Array of events should end with ] at position " + position :
+                                "Array of events should start with [ at position " + position);
+                    }
+                    continue;
+                }
+                if (nestingLevel == 0) {
+                    if (curChar == '{') {
+                        nestingLevel = 1;
+                        eventLength = 0;
+                    } else if (curChar == ']') {
+                        arrayFinished = true;
+                        continue;
+                    } else if (curChar != ',' && !isEmptyCharacter(curChar)) {
+                        throw new JSONException("Illegal character at position " + position);
+                    } else {
+                        continue;
+                    }
+                } else if (escaped) {
+                    escaped = false;
+                } else if (curChar == '\\') {
+                    escaped = true;
+                } else if (curChar == '"') {
+                    insideQuote = !insideQuote;
+                } else if (!insideQuote) {
+                    if (curChar == '{') {
+                        ++nestingLevel;
+                    } else if (curChar == '}') {
+                        --nestingLevel;
+                    }
+                }
+                if (eventLength == maxEventBytes) {
+                    throw new EventSizeExceededException("Event too large: more than " + maxEventBytes
+                            + " bytes, max size is " + maxEventBytes + " bytes", eventIndex, eventIndex + 1);
+                }
+                if (eventLength == eventBuffer.length) {
+                    eventBuffer = Arrays.copyOf(eventBuffer, eventBuffer.length * 2);
+                }
+                eventBuffer[eventLength++] = curChar;
+                if (nestingLevel == 0) {
+                    final byte[] event = Arrays.copyOf(eventBuffer, eventLength);
+                    navigateToObjectEnd(0, event.length, event, batchItemConsumer);
+                    ++eventIndex;
+                }
+            }
+        }
+        if (!arrayFinished) {
+            throw new JSONException(arrayStarted ?
+                    "Unclosed array of events, stream ended at position " + position :
+                    "Array of events should start with [ at position " + position);
+        }
+    }
+
+    private static int locateOpenSquareBracket(final byte[] events) {
         int pos = 0;
-        while (pos < events.length() && isEmptyCharacter(events.charAt(pos))) {
+        while (pos < events.length && isEmptyCharacter(events[pos])) {
             ++pos;
         }
-        if (events.charAt(pos) != '[') {
+        if (pos == events.length || events[pos] != '[') {
             throw new JSONException("Array of events should start with [ at position " + pos);
         }
         return pos;
     }
 
-    private static int locateClosingSquareBracket(final int start, final String events) {
-        int pos = events.length() - 1;
-        while (pos >= start && isEmptyCharacter(events.charAt(pos))) {
+    private static int locateClosingSquareBracket(final int start, final byte[] events) {
+        int pos = events.length - 1;
+        while (pos >= start && isEmptyCharacter(events[pos])) {
             --pos;
         }
-        if (events.charAt(pos) != ']') {
+        if (events[pos] != ']') {
             throw new JSONException("Array of events should end with ] at position " + pos);
         }
         return pos;
     }
 
-    static boolean shouldBeSkipped(final char c) {
+    static boolean shouldBeSkipped(final byte c) {
         return (c == '\r' || c == '\n' || c == ' ' || c == '\t');
     }
 
-    static boolean isEmptyCharacter(final char c) {
+    static boolean isEmptyCharacter(final byte c) {
         return (c == ' ' || c == '\t' || c == '\n' || c == '\r');
     }
 }
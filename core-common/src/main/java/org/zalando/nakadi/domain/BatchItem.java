@@ -6,6 +6,7 @@ import org.zalando.nakadi.plugin.api.authz.AuthorizationService;
 import org.zalando.nakadi.plugin.api.authz.Resource;
 
 import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
@@ -19,9 +20,11 @@ public class BatchItem implements Resource<BatchItem> {
     public enum Injection {
         METADATA("metadata");
         public final String name;
+        private final byte[] nameBytes;
 
         Injection(final String name) {
             this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
         }
     }
 
@@ -58,44 +61,352 @@ public class BatchItem implements Resource<BatchItem> {
     private static final EmptyInjectionConfiguration CONFIG_NO_COMMA = new EmptyInjectionConfiguration(1, false);
 
     private final BatchItemResponse response;
-    private final String rawEvent;
-    private final JSONObject event;
+    private final byte[] rawEvent;
+    private final int rawOffset;
+    private final int rawLength;
+    @Nullable
+    private final int[] fieldPositions;
+    private volatile JSONObject event;
     private final EmptyInjectionConfiguration emptyInjectionConfiguration;
     private final InjectionConfiguration[] injections;
-    private String[] injectionValues;
+    private byte[][] injectionValues;
     private final List<Integer> skipCharacters;
     private String partition;
     private String brokerId;
     private String eventKey;
     private int eventSize;
     private EventOwnerHeader owner;
+    private List<String> partitionKeys;
+    private byte[] avroEvent;
+    private String avroSchemaVersion;
 
     public BatchItem(
             final String rawEvent,
             final EmptyInjectionConfiguration emptyInjectionConfiguration,
             final InjectionConfiguration[] injections,
             final List<Integer> skipCharacters) {
-        this.rawEvent = rawEvent;
+        this(rawEvent.getBytes(StandardCharsets.UTF_8), emptyInjectionConfiguration, injections, skipCharacters);
+    }
+
+    private BatchItem(
+            final byte[] rawEvent,
+            final EmptyInjectionConfiguration emptyInjectionConfiguration,
+            final InjectionConfiguration[] injections,
+            final List<Integer> skipCharacters) {
+        this(rawEvent, 0, rawEvent.length, emptyInjectionConfiguration, injections, skipCharacters);
+    }
+
+    /**
+     * Creates batch item that is a slice of UTF-8 encoded batch. Positions in {@code injections} and
+     * {@code skipCharacters} are byte offsets relative to {@code offset}.
+     */
+    public BatchItem(
+            final byte[] data,
+            final int offset,
+            final int length,
+            final EmptyInjectionConfiguration emptyInjectionConfiguration,
+            final InjectionConfiguration[] injections,
+            final List<Integer> skipCharacters) {
+        this(data, offset, length, emptyInjectionConfiguration, injections, skipCharacters, null);
+    }
+
+    /**
+     * Creates batch item that is a slice of UTF-8 encoded batch. The event is only checked to be a valid json
+     * object here, {@link JSONObject} is built on the first call to {@link #getEvent()}.
+     *
+     * @param fieldPositions positions of opening quotes of top-level field names relative to {@code offset}, used
+     *                       to look up fields without scanning the whole event. May be null.
+     */
+    public BatchItem(
+            final byte[] data,
+            final int offset,
+            final int length,
+            final EmptyInjectionConfiguration emptyInjectionConfiguration,
+            final InjectionConfiguration[] injections,
+            final List<Integer> skipCharacters,
+            @Nullable final int[] fieldPositions) {
+        this(data, offset, length, emptyInjectionConfiguration, injections, skipCharacters, fieldPositions, null);
+    }
+
+    /**
+     * Creates batch item for the event built by nakadi itself, {@code data} being the event serialized as UTF-8
+     * encoded json. The event is trusted to be a valid json object, so it is neither checked nor parsed again.
+     */
+    public BatchItem(
+            final byte[] data,
+            final JSONObject event,
+            final EmptyInjectionConfiguration emptyInjectionConfiguration,
+            final InjectionConfiguration[] injections,
+            final List<Integer> skipCharacters,
+            @Nullable final int[] fieldPositions) {
+        this(data, 0, data.length, emptyInjectionConfiguration, injections, skipCharacters, fieldPositions, event);
+    }
+
+    private BatchItem(
+            final byte[] data,
+            final int offset,
+            final int length,
+            final EmptyInjectionConfiguration emptyInjectionConfiguration,
+            final InjectionConfiguration[] injections,
+            final List<Integer> skipCharacters,
+            @Nullable final int[] fieldPositions,
+            @Nullable final JSONObject event) {
+        this.rawEvent = data;
+        this.rawOffset = offset;
+        this.rawLength = length;
+        this.fieldPositions = fieldPositions;
         this.skipCharacters = skipCharacters;
-        this.event = StrictJsonParser.parseObject(rawEvent);
-        this.eventSize = rawEvent.getBytes(StandardCharsets.UTF_8).length;
+        if (null != event) {
+            this.event = event;
+        } else if (!StrictJsonScanner.checkObject(data, offset, offset + length)) {
+            this.event = parseEvent();
+        }
+        this.eventSize = length;
         this.emptyInjectionConfiguration = emptyInjectionConfiguration;
         this.injections = injections;
         this.response = new BatchItemResponse();
-        Optional.ofNullable(this.event.optJSONObject("metadata"))
-                .map(e -> e.optString("eid", null))
-                .ifPresent(this.response::setEid);
+        final Object eid = getField("metadata", "eid");
+        if (null != eid && !JSONObject.NULL.equals(eid)) {
+            this.response.setEid(eid.toString());
+        }
     }
 
     public void inject(final Injection type, final String value) {
+        inject(type, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Replaces the value of the field in the event. Already built {@link JSONObject} is dropped, so that the next
+     * call to {@link #getEvent()} builds the event with injected values.
+     */
+    public void inject(final Injection type, final byte[] value) {
         if (null == injectionValues) {
-            injectionValues = new String[Injection.values().length];
+            injectionValues = new byte[Injection.values().length][];
         }
         injectionValues[type.ordinal()] = value;
+        event = null;
     }
 
+    /**
+     * Returns the event as {@link JSONObject}, building it on the first call. The object is shared, so changes
+     * made to it are visible to all the callers (until the next {@link #inject(Injection, byte[])} call).
+     */
     public JSONObject getEvent() {
-        return this.event;
+        JSONObject result = event;
+        if (null == result) {
+            synchronized (this) {
+                result = event;
+                if (null == result) {
+                    result = parseEvent();
+                    event = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads value of the field without building the whole event, if it was not built yet. Only the value itself
+     * is parsed, so for objects and arrays a new instance is returned on every call.
+     *
+     * @param path names of the fields, starting from the top level
+     * @return value of the field ({@link JSONObject#NULL} for nulls) or null if there is no such field
+     */
+    @Nullable
+    public Object getField(final String... path) {
+        final JSONObject parsed = null == injectionValues ? event : getEvent();
+        if (null != parsed) {
+            Object current = parsed;
+            for (final String name : path) {
+                if (!(current instanceof JSONObject)) {
+                    return null;
+                }
+                current = ((JSONObject) current).opt(name);
+            }
+            return current;
+        }
+        int valueStart = rawOffset;
+        for (int i = 0; i < path.length; ++i) {
+            if (rawEvent[valueStart] != '{') {
+                return null;
+            }
+            final byte[] nameBytes = path[i].getBytes(StandardCharsets.UTF_8);
+            valueStart = i == 0 && null != fieldPositions ?
+                    findTopLevelFieldValue(path[0], nameBytes) :
+                    StrictJsonScanner.findFieldValue(rawEvent, valueStart, path[i], nameBytes);
+            if (valueStart == -1) {
+                return null;
+            }
+        }
+        return parseValue(valueStart);
+    }
+
+    private int findTopLevelFieldValue(final String name, final byte[] nameBytes) {
+        for (final int fieldPosition : fieldPositions) {
+            final int keyQuote = rawOffset + fieldPosition;
+            // strings in arrays of top-level fields may be reported by BatchFactory as well, they are not followed
+            // by name-value separator
+            final int valueStart = StrictJsonScanner.fieldValueStart(rawEvent, keyQuote);
+            if (valueStart != -1 && StrictJsonScanner.isFieldName(rawEvent, keyQuote, name, nameBytes)) {
+                return valueStart;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads values of all the fields of {@code selector} in one traversal of the event. Values are parsed in the
+     * same way as with {@link #getField(String...)}.
+     *
+     * @return values of the fields placed according to {@link FieldSelector#getSlot(int)}, null for missing fields
+     */
+    public Object[] select(final FieldSelector selector) {
+        final Object[] result = new Object[selector.getSlotsCount()];
+        final JSONObject parsed = null == injectionValues ? event : getEvent();
+        if (null != parsed) {
+            select(parsed, selector.getRoot(), result);
+        } else {
+            selectRaw(rawOffset, selector.getRoot(), result, true);
+        }
+        return result;
+    }
+
+    private static void select(final Object value, final FieldSelector.Node node, final Object[] result) {
+        if (node.slot != -1) {
+            result[node.slot] = value;
+        }
+        if (node.children.length == 0 || !(value instanceof JSONObject)) {
+            return;
+        }
+        for (final FieldSelector.Node child : node.children) {
+            final Object childValue = ((JSONObject) value).opt(child.name);
+            if (null != childValue) {
+                select(childValue, child, result);
+            }
+        }
+    }
+
+    private void selectRaw(final int valueStart, final FieldSelector.Node node, final Object[] result,
+                           final boolean topLevel) {
+        if (node.slot != -1) {
+            result[node.slot] = parseValue(valueStart);
+        }
+        if (node.children.length == 0 || rawEvent[valueStart] != '{') {
+            return;
+        }
+        int remaining = node.children.length;
+        if (topLevel && null != fieldPositions) {
+            for (final int fieldPosition : fieldPositions) {
+                final int keyQuote = rawOffset + fieldPosition;
+                final int childStart = StrictJsonScanner.fieldValueStart(rawEvent, keyQuote);
+                if (childStart != -1 && selectRawChild(keyQuote, childStart, node, result) && --remaining == 0) {
+                    return;
+                }
+            }
+            return;
+        }
+        int keyQuote = StrictJsonScanner.skipEmptyCharacters(rawEvent, valueStart + 1);
+        while (rawEvent[keyQuote] == '"') {
+            final int childStart = StrictJsonScanner.fieldValueStart(rawEvent, keyQuote);
+            if (selectRawChild(keyQuote, childStart, node, result) && --remaining == 0) {
+                return;
+            }
+            keyQuote = StrictJsonScanner.skipEmptyCharacters(rawEvent,
+                    StrictJsonScanner.skipValue(rawEvent, childStart));
+            if (rawEvent[keyQuote] == ',') {
+                keyQuote = StrictJsonScanner.skipEmptyCharacters(rawEvent, keyQuote + 1);
+            }
+        }
+    }
+
+    private boolean selectRawChild(final int keyQuote, final int valueStart, final FieldSelector.Node node,
+                                   final Object[] result) {
+        for (final FieldSelector.Node child : node.children) {
+            if (StrictJsonScanner.isFieldName(rawEvent, keyQuote, child.name, child.nameBytes)) {
+                selectRaw(valueStart, child, result, false);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes members of the object stored in top-level field {@code name} of the original event (injections are
+     * not taken into account) to {@code out}, without building the event. Members are written as they are, except
+     * of whitespace outside of strings, every member is preceded with comma, enclosing braces are not written.
+     *
+     * @param skipped members matching top-level fields of this selector are not written
+     * @return false if there is no such field or its value is not an object
+     */
+    public boolean writeObjectMembers(final String name, final FieldSelector skipped,
+                                      final ByteArrayOutputStream out) {
+        if (rawEvent[rawOffset] != '{') {
+            return false;
+        }
+        final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final int objectStart = null != fieldPositions ?
+                findTopLevelFieldValue(name, nameBytes) :
+                StrictJsonScanner.findFieldValue(rawEvent, rawOffset, name, nameBytes);
+        if (objectStart == -1 || rawEvent[objectStart] != '{') {
+            return false;
+        }
+        final FieldSelector.Node[] skippedMembers = skipped.getRoot().children;
+        int keyQuote = StrictJsonScanner.skipEmptyCharacters(rawEvent, objectStart + 1);
+        while (rawEvent[keyQuote] == '"') {
+            final int valueStart = StrictJsonScanner.fieldValueStart(rawEvent, keyQuote);
+            final int valueEnd = StrictJsonScanner.skipValue(rawEvent, valueStart);
+            if (!isSkippedMember(keyQuote, skippedMembers)) {
+                final int keyEnd = StrictJsonScanner.skipString(rawEvent, keyQuote + 1);
+                out.write(',');
+                out.write(rawEvent, keyQuote, keyEnd - keyQuote);
+                out.write(':');
+                writeWithoutEmptyCharacters(valueStart, valueEnd, out);
+            }
+            keyQuote = StrictJsonScanner.skipEmptyCharacters(rawEvent, valueEnd);
+            if (rawEvent[keyQuote] == ',') {
+                keyQuote = StrictJsonScanner.skipEmptyCharacters(rawEvent, keyQuote + 1);
+            }
+        }
+        return true;
+    }
+
+    private boolean isSkippedMember(final int keyQuote, final FieldSelector.Node[] skippedMembers) {
+        for (final FieldSelector.Node member : skippedMembers) {
+            if (StrictJsonScanner.isFieldName(rawEvent, keyQuote, member.name, member.nameBytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeWithoutEmptyCharacters(final int from, final int to, final ByteArrayOutputStream out) {
+        int copyFrom = from;
+        int i = from;
+        while (i < to) {
+            final byte c = rawEvent[i];
+            if (c == '"') {
+                i = StrictJsonScanner.skipString(rawEvent, i + 1);
+            } else if (BatchFactory.isEmptyCharacter(c)) {
+                out.write(rawEvent, copyFrom, i - copyFrom);
+                copyFrom = ++i;
+            } else {
+                ++i;
+            }
+        }
+        out.write(rawEvent, copyFrom, to - copyFrom);
+    }
+
+    private Object parseValue(final int valueStart) {
+        final int valueEnd = StrictJsonScanner.skipValue(rawEvent, valueStart);
+        return StrictJsonParser.parseValue(
+                new String(rawEvent, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8));
+    }
+
+    private JSONObject parseEvent() {
+        if (null != injectionValues) {
+            return StrictJsonParser.parseObject(dumpEventToString());
+        }
+        return StrictJsonParser.parseObject(new String(rawEvent, rawOffset, rawLength, StandardCharsets.UTF_8));
     }
 
     public BatchItemResponse getResponse() {
@@ -142,6 +453,33 @@ public class BatchItem implements Resource<BatchItem> {
         this.eventKey = key;
     }
 
+    /**
+     * Sets the event encoded in avro, that is stored instead of json.
+     */
+    public void setAvroEvent(final byte[] avroEvent, final String avroSchemaVersion) {
+        this.avroEvent = avroEvent;
+        this.avroSchemaVersion = avroSchemaVersion;
+    }
+
+    @Nullable
+    public byte[] getAvroEvent() {
+        return avroEvent;
+    }
+
+    @Nullable
+    public String getAvroSchemaVersion() {
+        return avroSchemaVersion;
+    }
+
+    @Nullable
+    public List<String> getPartitionKeys() {
+        return partitionKeys;
+    }
+
+    public void setPartitionKeys(final List<String> partitionKeys) {
+        this.partitionKeys = partitionKeys;
+    }
+
     @Override
     public String getName() {
         return response.getEid();
@@ -185,19 +523,26 @@ public class BatchItem implements Resource<BatchItem> {
     }
 
     public String dumpEventToString() {
+        return new String(dumpEventToBytes(), StandardCharsets.UTF_8);
+    }
+
+    public byte[] dumpEventToBytes() {
         if (null == injectionValues) {
             if (skipCharacters.isEmpty()) {
-                return rawEvent;
+                if (rawOffset == 0 && rawLength == rawEvent.length) {
+                    return rawEvent;
+                }
+                return Arrays.copyOfRange(rawEvent, rawOffset, rawOffset + rawLength);
             } else {
-                final StringBuilder sb = new StringBuilder();
-                appendWithSkip(sb, 0, rawEvent.length(), 0);
-                return sb.toString();
+                final ByteArrayOutputStream out = new ByteArrayOutputStream(rawLength);
+                appendWithSkip(out, 0, rawLength, 0);
+                return out.toByteArray();
             }
         }
         boolean nonComaAdded = false;
         int lastMainEventUsedPosition = 0;
         int currentSkipPosition = 0;
-        final StringBuilder sb = new StringBuilder();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(rawLength + estimateInjectionsSize());
         final Injection[] sortedInjections = Arrays.copyOf(Injection.values(), Injection.values().length);
         Arrays.sort(sortedInjections, Comparator.comparing(injection -> {
             final InjectionConfiguration config = injections[injection.ordinal()];
@@ -205,7 +550,7 @@ public class BatchItem implements Resource<BatchItem> {
         }));
 
         for (final Injection injectionKey : sortedInjections) {
-            final String injectionValue = injectionValues[injectionKey.ordinal()];
+            final byte[] injectionValue = injectionValues[injectionKey.ordinal()];
             if (injectionValue == null) {
                 continue;
             }
@@ -221,31 +566,47 @@ public class BatchItem implements Resource<BatchItem> {
             }
 
             if (positionStart > lastMainEventUsedPosition) {
-                currentSkipPosition = appendWithSkip(sb, lastMainEventUsedPosition, positionStart, currentSkipPosition);
+                currentSkipPosition = appendWithSkip(
+                        out, lastMainEventUsedPosition, positionStart, currentSkipPosition);
                 lastMainEventUsedPosition = positionEnd;
             }
-            sb.append('\"').append(injectionKey.name).append("\":");
-            sb.append(injectionValue);
+            out.write('\"');
+            out.write(injectionKey.nameBytes, 0, injectionKey.nameBytes.length);
+            out.write('\"');
+            out.write(':');
+            out.write(injectionValue, 0, injectionValue.length);
             if (config == null) {
                 if (!emptyInjectionConfiguration.addComma) {
                     // Well, really rare case, but we are trying to load brain, so cover it as well
                     if (nonComaAdded) {
-                        sb.append(',');
+                        out.write(',');
                     } else {
                         nonComaAdded = true;
                     }
                 } else {
-                    sb.append(',');
+                    out.write(',');
                 }
             }
         }
-        if (lastMainEventUsedPosition < rawEvent.length()) {
-            appendWithSkip(sb, lastMainEventUsedPosition, rawEvent.length(), currentSkipPosition);
+        if (lastMainEventUsedPosition < rawLength) {
+            appendWithSkip(out, lastMainEventUsedPosition, rawLength, currentSkipPosition);
+        }
+        return out.toByteArray();
+    }
+
+    private int estimateInjectionsSize() {
+        int result = 0;
+        for (final Injection injection : Injection.values()) {
+            final byte[] value = injectionValues[injection.ordinal()];
+            if (null != value) {
+                result += value.length + injection.nameBytes.length + 4;
+            }
         }
-        return sb.toString();
+        return result;
     }
 
-    private int appendWithSkip(final StringBuilder sb, final int from, final int to, final int currentSkipPosition) {
+    private int appendWithSkip(
+            final ByteArrayOutputStream out, final int from, final int to, final int currentSkipPosition) {
         int currentPos = from;
         int idx;
         for (idx = currentSkipPosition; idx < skipCharacters.size(); ++idx) {
@@ -257,12 +618,12 @@ public class BatchItem implements Resource<BatchItem> {
                 break;
             }
             if (currentSkipIdx > currentPos) {
-                sb.append(rawEvent, currentPos, currentSkipIdx);
+                out.write(rawEvent, rawOffset + currentPos, currentSkipIdx - currentPos);
             }
             currentPos = currentSkipIdx + 1;
         }
         if (to > currentPos) {
-            sb.append(rawEvent, currentPos, to);
+            out.write(rawEvent, rawOffset + currentPos, to - currentPos);
         }
         return idx;
     }
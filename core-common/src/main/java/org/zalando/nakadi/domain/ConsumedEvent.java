@@ -19,19 +19,37 @@ public class ConsumedEvent implements Resource<ConsumedEvent> {
     private final NakadiCursor position;
     private final long timestamp;
     private final EventOwnerHeader owner;
+    private final String avroSchemaVersion;
 
     public ConsumedEvent(final byte[] event, final NakadiCursor position, final long timestamp,
                          @Nullable final EventOwnerHeader owner) {
+        this(event, position, timestamp, owner, null);
+    }
+
+    /**
+     * @param avroSchemaVersion version of the schema the event is encoded with in avro, or null for json events
+     */
+    public ConsumedEvent(final byte[] event, final NakadiCursor position, final long timestamp,
+                         @Nullable final EventOwnerHeader owner, @Nullable final String avroSchemaVersion) {
         this.event = event;
         this.position = position;
         this.timestamp = timestamp;
         this.owner = owner;
+        this.avroSchemaVersion = avroSchemaVersion;
     }
 
+    /**
+     * @return the event as it is stored, json or avro binary encoding (see {@link #getAvroSchemaVersion()})
+     */
     public byte[] getEvent() {
         return event;
     }
 
+    @Nullable
+    public String getAvroSchemaVersion() {
+        return avroSchemaVersion;
+    }
+
     public NakadiCursor getPosition() {
         return position;
     }
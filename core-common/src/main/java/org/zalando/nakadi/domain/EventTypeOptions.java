@@ -1,11 +1,22 @@
 package org.zalando.nakadi.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import javax.annotation.Nullable;
 
 public class EventTypeOptions {
 
     private Long retentionTime;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ValidationEngine validationEngine;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private PublishingProfile publishingProfile;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private PublishingCompression compression;
+
     @Nullable
     public Long getRetentionTime() {
         return retentionTime;
@@ -14,4 +25,31 @@ public class EventTypeOptions {
     public void setRetentionTime(@Nullable final Long retentionTime) {
         this.retentionTime = retentionTime;
     }
+
+    @Nullable
+    public ValidationEngine getValidationEngine() {
+        return validationEngine;
+    }
+
+    public void setValidationEngine(@Nullable final ValidationEngine validationEngine) {
+        this.validationEngine = validationEngine;
+    }
+
+    @Nullable
+    public PublishingProfile getPublishingProfile() {
+        return publishingProfile;
+    }
+
+    public void setPublishingProfile(@Nullable final PublishingProfile publishingProfile) {
+        this.publishingProfile = publishingProfile;
+    }
+
+    @Nullable
+    public PublishingCompression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(@Nullable final PublishingCompression compression) {
+        this.compression = compression;
+    }
 }
@@ -17,7 +17,12 @@ public class EventTypeSchemaBase {
     }
 
     public enum Type {
-        JSON_SCHEMA
+        JSON_SCHEMA,
+        /**
+         * Avro schema of a record. Events are validated against json-schema derived from it, and can be published
+         * in avro binary encoding.
+         */
+        AVRO_SCHEMA
     }
 
     @NotNull
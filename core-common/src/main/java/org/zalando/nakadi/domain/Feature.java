@@ -19,6 +19,8 @@ public enum Feature {
     ACCESS_LOG_ENABLED("access_log_enabled"),
     TOKEN_SUBSCRIPTIONS_ITERATION("token_subscription_iteration"),
     RETURN_BODY_ON_CREATE_UPDATE_EVENT_TYPE("return_body_on_create_update_event_type"),
+    STREAMING_PUBLISHING("streaming_publishing"),
+    ASYNC_PUBLISHING("async_publishing"),
     ;
 
     private final String id;
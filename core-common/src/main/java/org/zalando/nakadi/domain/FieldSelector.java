@@ -0,0 +1,103 @@
+package org.zalando.nakadi.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Paths of event fields compiled to a tree, so that values of all of them are read with
+ * {@link BatchItem#select(FieldSelector)} in one traversal of the event. Instances are immutable and may be shared
+ * between threads.
+ */
+public final class FieldSelector {
+
+    private final Node root;
+    private final int[] slots;
+    private final int slotsCount;
+
+    private FieldSelector(final Node root, final int[] slots, final int slotsCount) {
+        this.root = root;
+        this.slots = slots;
+        this.slotsCount = slotsCount;
+    }
+
+    /**
+     * @param paths paths to select, every path is a list of field names starting from the top level. Empty path
+     *              selects the whole event.
+     */
+    public static FieldSelector compile(final List<String[]> paths) {
+        final Builder root = new Builder(null);
+        final int[] slots = new int[paths.size()];
+        int slotsCount = 0;
+        for (int i = 0; i < paths.size(); ++i) {
+            Builder node = root;
+            for (final String name : paths.get(i)) {
+                node = node.child(name);
+            }
+            if (node.slot == -1) {
+                node.slot = slotsCount++;
+            }
+            slots[i] = node.slot;
+        }
+        return new FieldSelector(root.build(), slots, slotsCount);
+    }
+
+    /**
+     * @return position of the value of path number {@code pathIndex} in array returned by
+     * {@link BatchItem#select(FieldSelector)}. The same path passed several times shares the position.
+     */
+    public int getSlot(final int pathIndex) {
+        return slots[pathIndex];
+    }
+
+    int getSlotsCount() {
+        return slotsCount;
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    static final class Node {
+        final String name;
+        final byte[] nameBytes;
+        final int slot;
+        final Node[] children;
+
+        private Node(final String name, final int slot, final Node[] children) {
+            this.name = name;
+            this.nameBytes = null == name ? null : name.getBytes(StandardCharsets.UTF_8);
+            this.slot = slot;
+            this.children = children;
+        }
+    }
+
+    private static final class Builder {
+        private final String name;
+        private final List<Builder> children = new ArrayList<>();
+        private int slot = -1;
+
+        private Builder(final String name) {
+            this.name = name;
+        }
+
+        private Builder child(final String childName) {
+            for (final Builder child : children) {
+                if (child.name.equals(childName)) {
+                    return child;
+                }
+            }
+            final Builder child = new Builder(childName);
+            children.add(child);
+            return child;
+        }
+
+        private Node build() {
+            final Node[] built = new Node[children.size()];
+            for (int i = 0; i < built.length; ++i) {
+                built[i] = children.get(i).build();
+            }
+            return new Node(name, slot, built);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.zalando.nakadi.domain;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of partitions of a topic, together with the brokers leading them. Instances are cached by topic
+ * repository, so that nothing is computed per published event or per published batch.
+ */
+@Immutable
+public class PartitionsMetadata {
+    private final List<String> sortedPartitions;
+    private final Map<String, String> partitionToBroker;
+
+    /**
+     * @param partitionToBroker mapping from partition name to the id of the broker leading it, the id is null for
+     *                          partitions without leader at the moment
+     */
+    public PartitionsMetadata(final Map<String, String> partitionToBroker) {
+        this.partitionToBroker = Collections.unmodifiableMap(new HashMap<>(partitionToBroker));
+        this.sortedPartitions = ImmutableList.sortedCopyOf(partitionToBroker.keySet());
+    }
+
+    /**
+     * @return partition names sorted in natural order of strings, which is the order hash partitioning relies on
+     */
+    public List<String> getSortedPartitions() {
+        return sortedPartitions;
+    }
+
+    @Nullable
+    public String getBrokerId(final String partition) {
+        return partitionToBroker.get(partition);
+    }
+}
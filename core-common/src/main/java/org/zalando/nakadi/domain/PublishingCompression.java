@@ -0,0 +1,16 @@
+package org.zalando.nakadi.domain;
+
+/**
+ * Compression applied by producers to batches of events of an event type. Names match values of kafka producer
+ * {@code compression.type} property.
+ */
+public enum PublishingCompression {
+    NONE,
+    GZIP,
+    LZ4,
+    ZSTD;
+
+    public String getKafkaName() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,70 @@
+package org.zalando.nakadi.domain;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Objects;
+
+/**
+ * Settings of producers used to publish events of an event type. Event types with the same options share
+ * producers.
+ */
+@Immutable
+public class PublishingOptions {
+
+    public static final PublishingOptions DEFAULT = new PublishingOptions(PublishingProfile.DURABLE, null);
+
+    private final PublishingProfile profile;
+    @Nullable
+    private final PublishingCompression compression;
+
+    public PublishingOptions(final PublishingProfile profile, @Nullable final PublishingCompression compression) {
+        this.profile = profile;
+        this.compression = compression;
+    }
+
+    public static PublishingOptions of(@Nullable final EventTypeOptions options) {
+        if (null == options || (null == options.getPublishingProfile() && null == options.getCompression())) {
+            return DEFAULT;
+        }
+        return new PublishingOptions(
+                null == options.getPublishingProfile() ? PublishingProfile.DURABLE : options.getPublishingProfile(),
+                options.getCompression());
+    }
+
+    public PublishingProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return compression chosen for the event type, or null if the default compression of the profile is used
+     */
+    @Nullable
+    public PublishingCompression getCompression() {
+        return compression;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PublishingOptions)) {
+            return false;
+        }
+        final PublishingOptions that = (PublishingOptions) o;
+        return profile == that.profile && compression == that.compression;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(profile, compression);
+    }
+
+    @Override
+    public String toString() {
+        return "PublishingOptions{" +
+                "profile=" + profile +
+                ", compression=" + compression +
+                '}';
+    }
+}
@@ -0,0 +1,20 @@
+package org.zalando.nakadi.domain;
+
+/**
+ * Trade-off between durability, latency and throughput made when events of event type are published. Every profile
+ * is served by its own group of producers.
+ */
+public enum PublishingProfile {
+    /**
+     * Event is acknowledged once it is written to all in-sync replicas.
+     */
+    DURABLE,
+    /**
+     * Event is acknowledged once it is written by the leader, and is sent without waiting for other events.
+     */
+    LOW_LATENCY,
+    /**
+     * Events are collected to larger batches before they are sent, at the cost of higher latency.
+     */
+    HIGH_THROUGHPUT
+}
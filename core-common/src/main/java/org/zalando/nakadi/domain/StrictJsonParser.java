@@ -40,7 +40,7 @@ public class StrictJsonParser {
         }
 
         String next(final int count) {
-            if (currentPosition + count >= endIndex) {
+            if (currentPosition + count > endIndex) {
                 throw new JSONException("Unexpected end of data at pos " + currentPosition);
             }
             currentPosition += count;
@@ -81,6 +81,16 @@ public class StrictJsonParser {
         }
     }
 
+    /**
+     * Parses any json value, not only objects.
+     *
+     * @return {@link JSONObject}, {@link JSONArray}, String, Boolean, Integer, Long, Double or
+     * {@link JSONObject#NULL}
+     */
+    public static Object parseValue(final String value) throws JSONException {
+        return parse(value, 0, value.length(), false);
+    }
+
     private static Object parse(final String value, final int startIdx, final int endIdx, final boolean allowMore)
             throws JSONException {
         final StringTokenizer stringTokenizer = new StringTokenizer(value, startIdx, endIdx);
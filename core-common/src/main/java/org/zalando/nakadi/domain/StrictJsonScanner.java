@@ -0,0 +1,395 @@
+package org.zalando.nakadi.domain;
+
+import org.json.JSONException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Works with UTF-8 encoded json directly, without building {@link org.json.JSONObject}. Syntax check accepts the
+ * same documents as {@link StrictJsonParser} does, lookup methods expect data that already passed the check.
+ */
+final class StrictJsonScanner {
+
+    private static final String POSSIBLE_NUMBER_DIGITS = "0123456789-+.Ee";
+    // Duplicate keys are checked by comparing with every previous key of the object, that is why large objects
+    // are left for StrictJsonParser
+    private static final int MAX_TRACKED_KEYS = 64;
+    private static final int MAX_SIMPLE_NUMBER_DIGITS = 18;
+
+    private final byte[] data;
+    private final int end;
+    private int pos;
+    private boolean complete = true;
+    private int[] keyStarts = new int[16];
+    private int[] keyEnds = new int[16];
+    private int keysCount = 0;
+
+    private StrictJsonScanner(final byte[] data, final int from, final int to) {
+        this.data = data;
+        this.pos = from;
+        this.end = to;
+    }
+
+    /**
+     * Checks syntax of json object located in {@code data[from, to)}.
+     *
+     * @return false if some checks (duplicates among escaped keys or keys of large objects) were not performed, and
+     * the object should be parsed with {@link StrictJsonParser} in order to complete the check.
+     * @throws JSONException if the object is not valid json.
+     */
+    static boolean checkObject(final byte[] data, final int from, final int to) throws JSONException {
+        final StrictJsonScanner scanner = new StrictJsonScanner(data, from, to);
+        final byte first = scanner.nextUnskippable();
+        if (first != '{') {
+            throw scanner.syntaxError("Unexpected symbol '" + (char) first + "'");
+        }
+        scanner.checkObjectTillTheEnd();
+        return scanner.complete;
+    }
+
+    private void checkValue() {
+        final byte value = nextUnskippable();
+        switch (value) {
+            case '{':
+                checkObjectTillTheEnd();
+                break;
+            case '[':
+                checkArrayTillTheEnd();
+                break;
+            case '"':
+                checkStringTillTheEnd();
+                break;
+            case 'n':
+                checkLiteral("ull", "Expected null value");
+                break;
+            case 't':
+                checkLiteral("rue", "Expected true value");
+                break;
+            case 'f':
+                checkLiteral("alse", "Expected false value");
+                break;
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+            case '-':
+                checkNumberTillTheEnd();
+                break;
+            default:
+                throw syntaxError("Unexpected symbol '" + (char) value + "'");
+        }
+    }
+
+    private void checkObjectTillTheEnd() {
+        final int firstKey = keysCount;
+        try {
+            boolean allowObjectEnd = true;
+            while (true) {
+                final byte nameStart = nextUnskippable();
+                if (nameStart == '}') {
+                    if (!allowObjectEnd) {
+                        throw syntaxError("Not allowed to finish object with comma");
+                    }
+                    return;
+                }
+                if (nameStart != '"') {
+                    throw syntaxError("Unexpected symbol '" + (char) nameStart + "'");
+                }
+                final int keyStart = pos;
+                final boolean escaped = checkStringTillTheEnd();
+                trackKey(firstKey, keyStart, pos - 1, escaped);
+                if (nextUnskippable() != ':') {
+                    throw syntaxError("Waiting for name-value separator : while parsing object");
+                }
+                checkValue();
+                final byte nextToken = nextUnskippable();
+                if (nextToken == '}') {
+                    return;
+                } else if (nextToken != ',') {
+                    throw syntaxError("Unexpected symbol '" + (char) nextToken + "' while parsing object");
+                }
+                allowObjectEnd = false;
+            }
+        } finally {
+            keysCount = firstKey;
+        }
+    }
+
+    private void trackKey(final int firstKey, final int keyStart, final int keyEnd, final boolean escaped) {
+        if (escaped || keysCount - firstKey >= MAX_TRACKED_KEYS) {
+            complete = false;
+            return;
+        }
+        for (int i = firstKey; i < keysCount; ++i) {
+            if (Arrays.equals(data, keyStarts[i], keyEnds[i], data, keyStart, keyEnd)) {
+                throw new JSONException("Duplicate key \"" +
+                        new String(data, keyStart, keyEnd - keyStart, StandardCharsets.UTF_8) + "\"");
+            }
+        }
+        if (keysCount == keyStarts.length) {
+            keyStarts = Arrays.copyOf(keyStarts, keysCount * 2);
+            keyEnds = Arrays.copyOf(keyEnds, keysCount * 2);
+        }
+        keyStarts[keysCount] = keyStart;
+        keyEnds[keysCount] = keyEnd;
+        ++keysCount;
+    }
+
+    private void checkArrayTillTheEnd() {
+        if (nextUnskippable() == ']') {
+            return;
+        }
+        --pos;
+        while (true) {
+            checkValue();
+            final byte separator = nextUnskippable();
+            if (separator == ']') {
+                return;
+            } else if (separator != ',') {
+                throw syntaxError("Unexpected separator '" + (char) separator + "'");
+            }
+        }
+    }
+
+    /**
+     * @return true if the string contains escaped characters.
+     */
+    private boolean checkStringTillTheEnd() {
+        boolean escaped = false;
+        while (true) {
+            final byte c = next();
+            if (c >= 0 && c < 0x20) {
+                throw syntaxError("Illegal escape.");
+            }
+            if (c == '"') {
+                return escaped;
+            } else if (c == '\\') {
+                escaped = true;
+                final byte escapedChar = next();
+                switch (escapedChar) {
+                    case 'b':
+                    case 't':
+                    case 'n':
+                    case 'f':
+                    case 'r':
+                    case '"':
+                    case '\'':
+                    case '\\':
+                    case '/':
+                        break;
+                    case 'u':
+                        checkCodepoint();
+                        break;
+                    default:
+                        throw syntaxError("Illegal escape.");
+                }
+            }
+        }
+    }
+
+    private void checkCodepoint() {
+        if (pos + 4 > end) {
+            throw syntaxError("Unexpected end of data");
+        }
+        for (int i = pos; i < pos + 4; ++i) {
+            if (data[i] < 0) {
+                // non-ascii characters are left to StrictJsonParser, as they are decoded before the check there
+                complete = false;
+                pos += 4;
+                return;
+            }
+        }
+        final String codepoint = new String(data, pos, 4, StandardCharsets.US_ASCII);
+        pos += 4;
+        try {
+            Integer.parseInt(codepoint, 16);
+        } catch (final NumberFormatException e) {
+            throw syntaxError("Illegal codepoint " + codepoint);
+        }
+    }
+
+    private void checkLiteral(final String rest, final String error) {
+        if (pos + rest.length() > end) {
+            throw syntaxError("Unexpected end of data");
+        }
+        for (int i = 0; i < rest.length(); ++i) {
+            if (data[pos + i] != rest.charAt(i)) {
+                throw syntaxError(error);
+            }
+        }
+        pos += rest.length();
+    }
+
+    private void checkNumberTillTheEnd() {
+        final int start = pos - 1;
+        while (pos < end && POSSIBLE_NUMBER_DIGITS.indexOf(data[pos]) >= 0) {
+            ++pos;
+        }
+        if (isSimpleInteger(start, pos)) {
+            return;
+        }
+        final String stringNumber = new String(data, start, pos - start, StandardCharsets.US_ASCII);
+        if (stringNumber.indexOf('.') > -1 || stringNumber.indexOf('e') > -1
+                || stringNumber.indexOf('E') > -1 || "-0".equals(stringNumber)) {
+            try {
+                final Double d = Double.valueOf(stringNumber);
+                if (d.isInfinite() || d.isNaN()) {
+                    throw syntaxError(stringNumber + " can not be used");
+                }
+            } catch (final NumberFormatException e) {
+                throw syntaxError("The provided value '" + stringNumber + "' cannot be parsed to float");
+            }
+        } else {
+            try {
+                Long.parseLong(stringNumber);
+            } catch (final NumberFormatException e) {
+                throw syntaxError("Can not use long value '" + stringNumber + "' cause it is too big");
+            }
+        }
+    }
+
+    private boolean isSimpleInteger(final int from, final int to) {
+        final int digitsFrom = data[from] == '-' ? from + 1 : from;
+        if (to == digitsFrom || to - digitsFrom > MAX_SIMPLE_NUMBER_DIGITS) {
+            return false;
+        }
+        for (int i = digitsFrom; i < to; ++i) {
+            if (data[i] < '0' || data[i] > '9') {
+                return false;
+            }
+        }
+        // -0 is parsed as double
+        return !(digitsFrom != from && to - digitsFrom == 1 && data[digitsFrom] == '0');
+    }
+
+    private byte next() {
+        if (pos >= end) {
+            throw syntaxError("Unexpected end of data");
+        }
+        return data[pos++];
+    }
+
+    private byte nextUnskippable() {
+        while (true) {
+            final byte value = next();
+            if (!isEmptyCharacter(value)) {
+                return value;
+            }
+        }
+    }
+
+    private JSONException syntaxError(final String message) {
+        return new JSONException(message + " at pos " + pos);
+    }
+
+    private static boolean isEmptyCharacter(final byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    static int skipEmptyCharacters(final byte[] data, final int from) {
+        int i = from;
+        while (isEmptyCharacter(data[i])) {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * @param from position right after the opening quote.
+     * @return position right after the closing quote.
+     */
+    static int skipString(final byte[] data, final int from) {
+        int i = from;
+        while (true) {
+            final byte c = data[i++];
+            if (c == '\\') {
+                ++i;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * @param from position of the first byte of the value.
+     * @return position right after the value.
+     */
+    static int skipValue(final byte[] data, final int from) {
+        final byte first = data[from];
+        if (first == '"') {
+            return skipString(data, from + 1);
+        }
+        int i = from;
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            while (true) {
+                final byte c = data[i];
+                if (c == '"') {
+                    i = skipString(data, i + 1);
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    ++depth;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    return i + 1;
+                }
+                ++i;
+            }
+        }
+        while (i < data.length && data[i] != ',' && data[i] != '}' && data[i] != ']' && !isEmptyCharacter(data[i])) {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * @param keyQuote position of the opening quote of the field name.
+     * @return position of the first byte of the field value or -1 if the string at {@code keyQuote} is not
+     * followed by name-value separator, i.e. it is not a field name.
+     */
+    static int fieldValueStart(final byte[] data, final int keyQuote) {
+        final int separator = skipEmptyCharacters(data, skipString(data, keyQuote + 1));
+        return data[separator] == ':' ? skipEmptyCharacters(data, separator + 1) : -1;
+    }
+
+    /**
+     * Checks if name of the field, that starts with quote at {@code keyQuote}, is equal to {@code name}.
+     */
+    static boolean isFieldName(final byte[] data, final int keyQuote, final String name, final byte[] nameBytes) {
+        final int keyEnd = skipString(data, keyQuote + 1) - 1;
+        for (int i = keyQuote + 1; i < keyEnd; ++i) {
+            if (data[i] == '\\') {
+                return name.equals(StrictJsonParser.parseValue(
+                        new String(data, keyQuote, keyEnd + 1 - keyQuote, StandardCharsets.UTF_8)));
+            }
+        }
+        return Arrays.equals(data, keyQuote + 1, keyEnd, nameBytes, 0, nameBytes.length);
+    }
+
+    /**
+     * Looks for the field in the object, that starts at {@code objectStart}.
+     *
+     * @return position of the first byte of the field value or -1 if there is no such field.
+     */
+    static int findFieldValue(final byte[] data, final int objectStart, final String name, final byte[] nameBytes) {
+        int i = skipEmptyCharacters(data, objectStart + 1);
+        while (data[i] == '"') {
+            final int valueStart = fieldValueStart(data, i);
+            if (isFieldName(data, i, name, nameBytes)) {
+                return valueStart;
+            }
+            i = skipEmptyCharacters(data, skipValue(data, valueStart));
+            if (data[i] == ',') {
+                i = skipEmptyCharacters(data, i + 1);
+            }
+        }
+        return -1;
+    }
+}
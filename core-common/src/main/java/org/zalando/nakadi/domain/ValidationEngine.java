@@ -0,0 +1,16 @@
+package org.zalando.nakadi.domain;
+
+/**
+ * Engine used to validate published events against event type schema.
+ */
+public enum ValidationEngine {
+    /**
+     * Schema is interpreted by everit json-schema library.
+     */
+    STANDARD,
+    /**
+     * Schema is compiled to specialized checks. Falls back to {@link #STANDARD} for schemas using features not
+     * supported by the compiler.
+     */
+    COMPILED
+}
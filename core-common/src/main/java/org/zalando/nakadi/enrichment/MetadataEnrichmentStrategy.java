@@ -1,20 +1,44 @@
 package org.zalando.nakadi.enrichment;
 
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
-import org.json.JSONException;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
 import org.json.JSONObject;
 import org.zalando.nakadi.config.SecuritySettings;
 import org.zalando.nakadi.domain.BatchItem;
 import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.FieldSelector;
 import org.zalando.nakadi.exceptions.runtime.EnrichmentException;
 import org.zalando.nakadi.plugin.api.authz.AuthorizationService;
 import org.zalando.nakadi.plugin.api.authz.Subject;
 import org.zalando.nakadi.util.FlowIdUtils;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes enriched metadata object directly as bytes, without building {@link JSONObject} for it. Fields that are
+ * the same for the whole batch are kept as precomputed fragment of the object, members of the original metadata
+ * are copied from the raw event as they are.
+ */
 public class MetadataEnrichmentStrategy implements EnrichmentStrategy {
 
+    private static final String FLOW_ID = "flow_id";
+    private static final String PARTITION = "partition";
+    private static final FieldSelector ENRICHED_FIELDS = enrichedFields();
+    private static final FieldSelector ENRICHED_FIELDS_WITH_FLOW_ID = enrichedFields(FLOW_ID);
+    private static final DateTimeFormatter RECEIVED_AT_FORMAT = ISODateTimeFormat.dateTime().withZoneUTC();
+
+    private static volatile ReceivedAt receivedAt = new ReceivedAt(0);
+
     private final AuthorizationService authorizationService;
+    private final ThreadLocal<Template> templates = new ThreadLocal<>();
 
     public MetadataEnrichmentStrategy(final AuthorizationService authorizationService) {
         this.authorizationService = authorizationService;
@@ -22,49 +46,123 @@ public class MetadataEnrichmentStrategy implements EnrichmentStrategy {
 
     @Override
     public void enrich(final BatchItem batchItem, final EventType eventType) throws EnrichmentException {
-        try {
-            final JSONObject metadata = batchItem
-                    .getEvent()
-                    .getJSONObject(BatchItem.Injection.METADATA.name);
-
-            setPublisher(metadata);
-            setReceivedAt(metadata);
-            setEventTypeName(metadata, eventType);
-            setFlowId(metadata);
-            setPartition(metadata, batchItem);
-            setVersion(metadata, eventType);
-            batchItem.inject(BatchItem.Injection.METADATA, metadata.toString());
-        } catch (final JSONException e) {
-            throw new EnrichmentException("enrichment error", e);
+        final Template template = getTemplate(eventType);
+        final ByteArrayOutputStream out = template.buffer;
+        out.reset();
+        out.write(template.constantFields, 0, template.constantFields.length);
+        final byte[] receivedAtField = getReceivedAt();
+        out.write(receivedAtField, 0, receivedAtField.length);
+        if (null != batchItem.getPartition()) {
+            final byte[] partitionField = template.getPartitionField(batchItem.getPartition());
+            out.write(partitionField, 0, partitionField.length);
+        }
+        final boolean replaceFlowId = isFlowIdEmpty(batchItem.getField(BatchItem.Injection.METADATA.name, FLOW_ID));
+        if (replaceFlowId && null != template.flowIdField) {
+            out.write(template.flowIdField, 0, template.flowIdField.length);
+        }
+        if (!batchItem.writeObjectMembers(BatchItem.Injection.METADATA.name,
+                replaceFlowId ? ENRICHED_FIELDS_WITH_FLOW_ID : ENRICHED_FIELDS, out)) {
+            throw new EnrichmentException("enrichment error");
         }
+        out.write('}');
+        batchItem.inject(BatchItem.Injection.METADATA, out.toByteArray());
     }
 
-    private void setPublisher(final JSONObject metadata) {
+    private Template getTemplate(final EventType eventType) {
         final String publisher = authorizationService.getSubject().map(Subject::getName)
                 .orElse(SecuritySettings.UNAUTHENTICATED_CLIENT_ID);
-        metadata.put("published_by", publisher);
+        final String version = eventType.getSchema().getVersion().toString();
+        final String flowId = FlowIdUtils.peek();
+        Template template = templates.get();
+        if (null == template || !template.matches(publisher, eventType.getName(), version, flowId)) {
+            template = new Template(publisher, eventType.getName(), version, flowId);
+            templates.set(template);
+        }
+        return template;
     }
 
-    private void setVersion(final JSONObject metadata, final EventType eventType) {
-        metadata.put("version", eventType.getSchema().getVersion().toString());
+    private static boolean isFlowIdEmpty(@Nullable final Object flowId) {
+        return null == flowId || JSONObject.NULL.equals(flowId) || "".equals(flowId);
     }
 
-    private void setFlowId(final JSONObject metadata) {
-        if ("".equals(metadata.optString("flow_id"))) {
-            metadata.put("flow_id", FlowIdUtils.peek());
+    private static byte[] getReceivedAt() {
+        final long now = DateTimeUtils.currentTimeMillis();
+        ReceivedAt current = receivedAt;
+        if (current.millis != now) {
+            current = new ReceivedAt(now);
+            receivedAt = current;
         }
+        return current.field;
+    }
+
+    private static byte[] field(final String name, final String value) {
+        return (",\"" + name + "\":" + JSONObject.quote(value)).getBytes(StandardCharsets.UTF_8);
     }
 
-    private void setEventTypeName(final JSONObject metadata, final EventType eventType) {
-        metadata.put("event_type", eventType.getName());
+    private static FieldSelector enrichedFields(final String... additional) {
+        final List<String[]> fields = new ArrayList<>();
+        for (final String name : new String[]{"published_by", "event_type", "version", "received_at", PARTITION}) {
+            fields.add(new String[]{name});
+        }
+        for (final String name : additional) {
+            fields.add(new String[]{name});
+        }
+        return FieldSelector.compile(fields);
     }
 
-    private void setReceivedAt(final JSONObject metadata) {
-        final DateTime dateTime = new DateTime(DateTimeZone.UTC);
-        metadata.put("received_at", dateTime.toString());
+    private static class ReceivedAt {
+        private final long millis;
+        private final byte[] field;
+
+        private ReceivedAt(final long millis) {
+            this.millis = millis;
+            this.field = field("received_at", RECEIVED_AT_FORMAT.print(millis));
+        }
     }
 
-    public void setPartition(final JSONObject metadata, final BatchItem batchItem) {
-        metadata.put("partition", batchItem.getPartition());
+    /**
+     * Fields that are the same for all the events of a batch, reused while publisher, event type and flow id of the
+     * published events stay the same.
+     */
+    private static class Template {
+        private final String publisher;
+        private final String eventType;
+        private final String version;
+        @Nullable
+        private final String flowId;
+        private final byte[] constantFields;
+        @Nullable
+        private final byte[] flowIdField;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+        private final Map<String, byte[]> partitionFields = new HashMap<>();
+
+        private Template(final String publisher, final String eventType, final String version,
+                         @Nullable final String flowId) {
+            this.publisher = publisher;
+            this.eventType = eventType;
+            this.version = version;
+            this.flowId = flowId;
+            final byte[] publishedBy = field("published_by", publisher);
+            // the first field goes right after the opening brace instead of a comma
+            publishedBy[0] = '{';
+            final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+            fields.write(publishedBy, 0, publishedBy.length);
+            final byte[] eventTypeField = field("event_type", eventType);
+            fields.write(eventTypeField, 0, eventTypeField.length);
+            final byte[] versionField = field("version", version);
+            fields.write(versionField, 0, versionField.length);
+            this.constantFields = fields.toByteArray();
+            this.flowIdField = null == flowId ? null : field(FLOW_ID, flowId);
+        }
+
+        private boolean matches(final String publisher, final String eventType, final String version,
+                                @Nullable final String flowId) {
+            return this.publisher.equals(publisher) && this.eventType.equals(eventType)
+                    && this.version.equals(version) && Objects.equals(this.flowId, flowId);
+        }
+
+        private byte[] getPartitionField(final String partition) {
+            return partitionFields.computeIfAbsent(partition, p -> field(PARTITION, p));
+        }
     }
 }
@@ -2,7 +2,7 @@ package org.zalando.nakadi.exceptions.runtime;
 
 public class EventPublishingException extends NakadiBaseException {
 
-    public EventPublishingException(final String msg, final Exception cause) {
+    public EventPublishingException(final String msg, final Throwable cause) {
         super(msg, cause);
     }
 
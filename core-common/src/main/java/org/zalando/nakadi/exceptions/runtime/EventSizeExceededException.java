@@ -0,0 +1,29 @@
+package org.zalando.nakadi.exceptions.runtime;
+
+/**
+ * Thrown while splitting a batch into events, as soon as one of the events is found to be larger than allowed.
+ * The rest of the batch is not turned into events.
+ */
+public class EventSizeExceededException extends NakadiBaseException {
+
+    private final int eventIndex;
+    private final int eventsCount;
+
+    /**
+     * @param eventIndex  position of the oversized event in the batch
+     * @param eventsCount number of events in the batch, as far as it is known
+     */
+    public EventSizeExceededException(final String message, final int eventIndex, final int eventsCount) {
+        super(message);
+        this.eventIndex = eventIndex;
+        this.eventsCount = eventsCount;
+    }
+
+    public int getEventIndex() {
+        return eventIndex;
+    }
+
+    public int getEventsCount() {
+        return eventsCount;
+    }
+}
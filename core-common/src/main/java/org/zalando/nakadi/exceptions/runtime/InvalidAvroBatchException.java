@@ -0,0 +1,8 @@
+package org.zalando.nakadi.exceptions.runtime;
+
+public class InvalidAvroBatchException extends NakadiBaseException {
+
+    public InvalidAvroBatchException(final String message) {
+        super(message);
+    }
+}
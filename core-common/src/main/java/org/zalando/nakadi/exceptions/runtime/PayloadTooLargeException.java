@@ -0,0 +1,8 @@
+package org.zalando.nakadi.exceptions.runtime;
+
+public class PayloadTooLargeException extends NakadiBaseException {
+
+    public PayloadTooLargeException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package org.zalando.nakadi.exceptions.runtime;
+
+public class PublishingQuotaExceededException extends NakadiBaseException {
+
+    private final long retryAfterSeconds;
+
+    public PublishingQuotaExceededException(final String message, final long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
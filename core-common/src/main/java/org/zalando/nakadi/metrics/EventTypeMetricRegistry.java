@@ -1,21 +1,41 @@
 package org.zalando.nakadi.metrics;
 
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class EventTypeMetricRegistry {
 
+    // event type names start with a letter, so the name can not clash with a real event type
+    static final String OTHER_EVENT_TYPES = "_other";
+    private static final int DEFAULT_MAX_LATENCY_EVENT_TYPES = 100;
+
     private final ConcurrentMap<String, EventTypeMetrics> metricsPerEventType = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PublishingLatencyMetrics> latencyPerEventType = new ConcurrentHashMap<>();
+    private final AtomicInteger latencyEventTypes = new AtomicInteger();
     private final MetricRegistry metricRegistry;
+    private final int maxLatencyEventTypes;
+    private final Supplier<PublishingLatencyMetrics> otherLatency;
 
-    @Autowired
     public EventTypeMetricRegistry(final MetricRegistry metricRegistry) {
+        this(metricRegistry, DEFAULT_MAX_LATENCY_EVENT_TYPES);
+    }
+
+    @Autowired
+    public EventTypeMetricRegistry(
+            final MetricRegistry metricRegistry,
+            @Value("${nakadi.metrics.publishingLatency.maxEventTypes:100}") final int maxLatencyEventTypes) {
         this.metricRegistry = metricRegistry;
+        this.maxLatencyEventTypes = maxLatencyEventTypes;
+        this.otherLatency = Suppliers.memoize(() -> new PublishingLatencyMetrics(OTHER_EVENT_TYPES, metricRegistry));
     }
 
     public EventTypeMetrics metricsFor(final String eventTypeName) {
@@ -23,4 +43,19 @@ public class EventTypeMetricRegistry {
                 key -> new EventTypeMetrics(eventTypeName, metricRegistry));
     }
 
+    /**
+     * Returns latency timers of the event type. Every timer keeps a histogram of its own, so only the first
+     * {@code maxLatencyEventTypes} event types get timers of their own, the rest of event types share the timers
+     * reported as {@value #OTHER_EVENT_TYPES} event type.
+     */
+    public PublishingLatencyMetrics latencyFor(final String eventTypeName) {
+        final PublishingLatencyMetrics latency = latencyPerEventType.computeIfAbsent(eventTypeName, key -> {
+            if (latencyEventTypes.incrementAndGet() > maxLatencyEventTypes) {
+                latencyEventTypes.decrementAndGet();
+                return null;
+            }
+            return new PublishingLatencyMetrics(eventTypeName, metricRegistry);
+        });
+        return null != latency ? latency : otherLatency.get();
+    }
 }
@@ -0,0 +1,133 @@
+package org.zalando.nakadi.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Longs;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservoir of durations in nanoseconds for {@link com.codahale.metrics.Timer}, that records all the values into
+ * HdrHistogram instead of sampling them. Values are recorded lock-free with microsecond resolution and two
+ * significant digits, durations longer than a minute are recorded as a minute.
+ *
+ * <p>Snapshot covers the values recorded during the last window, the window is closed by the first snapshot taken a
+ * minute (or more) after the previous window was closed. So with metrics scraped every minute every snapshot
+ * reflects the last minute of publishing.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_VALUE_DIGITS = 2;
+    private static final long NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_VALUE_DIGITS);
+    private final Clock clock;
+    private Histogram window;
+    private long windowClosedAt;
+
+    public HdrHistogramReservoir() {
+        this(Clock.defaultClock());
+    }
+
+    @VisibleForTesting
+    HdrHistogramReservoir(final Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(final long value) {
+        recorder.recordValue(Math.max(0, Math.min(value / NANOS_PER_MICRO, HIGHEST_TRACKABLE_MICROS)));
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        final long now = clock.getTick();
+        if (null == window || now - windowClosedAt >= WINDOW_NANOS) {
+            // the previous window is not recycled, as it may still be used by a snapshot being reported
+            window = recorder.getIntervalHistogram();
+            windowClosedAt = now;
+        }
+        return new HdrSnapshot(window);
+    }
+
+    private static class HdrSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        private HdrSnapshot(final Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(final double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            return histogram.getValueAtPercentile(quantile * 100) * NANOS_PER_MICRO;
+        }
+
+        /**
+         * Returns every distinct recorded value once, values are not repeated as many times as they were recorded.
+         */
+        @Override
+        public long[] getValues() {
+            final List<Long> values = new ArrayList<>();
+            for (final HistogramIterationValue value : histogram.recordedValues()) {
+                values.add(value.getValueIteratedTo() * NANOS_PER_MICRO);
+            }
+            return Longs.toArray(values);
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue() * NANOS_PER_MICRO;
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean() * NANOS_PER_MICRO;
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue() * NANOS_PER_MICRO;
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation() * NANOS_PER_MICRO;
+        }
+
+        @Override
+        public void dump(final OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (final long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
@@ -133,6 +133,10 @@ public class NakadiMetricsModule extends Module {
             final Snapshot snapshot = timer.getSnapshot();
             json.writeNumberField("count", timer.getCount());
             json.writeNumberField("mean", snapshot.getMean() * durationFactor);
+            json.writeNumberField("p50", snapshot.getMedian() * durationFactor);
+            json.writeNumberField("p99", snapshot.get99thPercentile() * durationFactor);
+            json.writeNumberField("p999", snapshot.get999thPercentile() * durationFactor);
+            json.writeNumberField("max", snapshot.getMax() * durationFactor);
 
             if (showSamples) {
                 final long[] values = snapshot.getValues();
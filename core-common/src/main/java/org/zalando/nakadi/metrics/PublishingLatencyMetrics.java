@@ -0,0 +1,67 @@
+package org.zalando.nakadi.metrics;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.zalando.nakadi.domain.EventPublishingStep;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.zalando.nakadi.metrics.MetricUtils.metricNameFor;
+
+/**
+ * Latencies of the steps of publishing of a batch, and of the time the batch waits for timeline lock and for kafka
+ * producers. Timers are backed by {@link HdrHistogramReservoir}, so that high percentiles are reported exactly.
+ */
+public class PublishingLatencyMetrics {
+
+    private static final EventPublishingStep[] TIMED_STEPS = {
+            EventPublishingStep.VALIDATING,
+            EventPublishingStep.PARTITIONING,
+            EventPublishingStep.ENRICHING,
+            EventPublishingStep.PUBLISHING};
+
+    private final Map<EventPublishingStep, Timer> stepTimers = new EnumMap<>(EventPublishingStep.class);
+    private final Timer timelineWaitTimer;
+    private final Timer producerWaitTimer;
+
+    PublishingLatencyMetrics(final String eventTypeName, final MetricRegistry metricRegistry) {
+        for (final EventPublishingStep step : TIMED_STEPS) {
+            stepTimers.put(step, timer(metricRegistry,
+                    metricNameFor(eventTypeName, "publishing.step." + step.name().toLowerCase(Locale.US))));
+        }
+        timelineWaitTimer = timer(metricRegistry, metricNameFor(eventTypeName, "publishing.step.timeline_wait"));
+        producerWaitTimer = timer(metricRegistry, metricNameFor(eventTypeName, "publishing.step.producer_wait"));
+    }
+
+    public void updateStepTiming(final EventPublishingStep step, final long nanos) {
+        final Timer timer = stepTimers.get(step);
+        if (null != timer) {
+            timer.update(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void updateTimelineWaitTiming(final long nanos) {
+        timelineWaitTimer.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void updateProducerWaitTiming(final long nanos) {
+        producerWaitTimer.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer timer(final MetricRegistry metricRegistry, final String name) {
+        final Metric existing = metricRegistry.getMetrics().get(name);
+        if (existing instanceof Timer) {
+            return (Timer) existing;
+        }
+        try {
+            return metricRegistry.register(name, new Timer(new HdrHistogramReservoir()));
+        } catch (final IllegalArgumentException e) {
+            // registered concurrently
+            return (Timer) metricRegistry.getMetrics().get(name);
+        }
+    }
+}
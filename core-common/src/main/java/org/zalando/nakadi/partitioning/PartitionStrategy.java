@@ -1,6 +1,6 @@
 package org.zalando.nakadi.partitioning;
 
-import org.json.JSONObject;
+import org.zalando.nakadi.domain.BatchItem;
 import org.zalando.nakadi.domain.EventType;
 import org.zalando.nakadi.exceptions.runtime.PartitioningException;
 
@@ -13,6 +13,11 @@ public interface PartitionStrategy {
     String USER_DEFINED_STRATEGY = "user_defined";
     String RANDOM_STRATEGY = "random";
 
-    String calculatePartition(EventType eventType, JSONObject event, List<String> partitions)
+    /**
+     * @param partitions partitions of the topic, sorted in natural order of strings (as provided by
+     *                   {@link org.zalando.nakadi.domain.PartitionsMetadata#getSortedPartitions()})
+     * @return partition to publish the item to
+     */
+    String calculatePartition(EventType eventType, BatchItem item, List<String> partitions)
             throws PartitioningException;
 }
@@ -11,6 +11,8 @@ import org.zalando.nakadi.domain.storage.KafkaConfiguration;
 import org.zalando.nakadi.domain.storage.Storage;
 import org.zalando.nakadi.exceptions.runtime.NakadiRuntimeException;
 import org.zalando.nakadi.exceptions.runtime.TopicRepositoryException;
+import org.zalando.nakadi.metrics.EventTypeMetricRegistry;
+import org.zalando.nakadi.repository.kafka.KafkaCircuitBreakerSettings;
 import org.zalando.nakadi.repository.kafka.KafkaFactory;
 import org.zalando.nakadi.repository.kafka.KafkaLocationManager;
 import org.zalando.nakadi.repository.kafka.KafkaSettings;
@@ -31,7 +33,9 @@ public class KafkaRepositoryCreator implements TopicRepositoryCreator {
     private final KafkaSettings kafkaSettings;
     private final ZookeeperSettings zookeeperSettings;
     private final KafkaTopicConfigFactory kafkaTopicConfigFactory;
+    private final KafkaCircuitBreakerSettings circuitBreakerSettings;
     private final MetricRegistry metricRegistry;
+    private final EventTypeMetricRegistry eventTypeMetricRegistry;
     private final ObjectMapper objectMapper;
 
     @Autowired
@@ -40,13 +44,17 @@ public class KafkaRepositoryCreator implements TopicRepositoryCreator {
             final KafkaSettings kafkaSettings,
             final ZookeeperSettings zookeeperSettings,
             final KafkaTopicConfigFactory kafkaTopicConfigFactory,
+            final KafkaCircuitBreakerSettings circuitBreakerSettings,
             final MetricRegistry metricRegistry,
+            final EventTypeMetricRegistry eventTypeMetricRegistry,
             final ObjectMapper objectMapper) {
         this.nakadiSettings = nakadiSettings;
         this.kafkaSettings = kafkaSettings;
         this.zookeeperSettings = zookeeperSettings;
         this.kafkaTopicConfigFactory = kafkaTopicConfigFactory;
+        this.circuitBreakerSettings = circuitBreakerSettings;
         this.metricRegistry = metricRegistry;
+        this.eventTypeMetricRegistry = eventTypeMetricRegistry;
         this.objectMapper = objectMapper;
     }
 
@@ -61,7 +69,8 @@ public class KafkaRepositoryCreator implements TopicRepositoryCreator {
                     nakadiSettings);
             final KafkaLocationManager kafkaLocationManager = new KafkaLocationManager(zooKeeperHolder, kafkaSettings);
             final KafkaFactory kafkaFactory =
-                    new KafkaFactory(new KafkaLocationManager(zooKeeperHolder, kafkaSettings), metricRegistry);
+                    new KafkaFactory(new KafkaLocationManager(zooKeeperHolder, kafkaSettings), metricRegistry,
+                            kafkaSettings.getProducersCount());
             final KafkaZookeeper zk = new KafkaZookeeper(zooKeeperHolder, objectMapper);
             final KafkaTopicRepository kafkaTopicRepository =
                     new KafkaTopicRepository.Builder()
@@ -72,7 +81,9 @@ public class KafkaRepositoryCreator implements TopicRepositoryCreator {
                             .setZookeeperSettings(zookeeperSettings)
                             .setKafkaTopicConfigFactory(kafkaTopicConfigFactory)
                             .setKafkaLocationManager(kafkaLocationManager)
+                            .setCircuitBreakerSettings(circuitBreakerSettings)
                             .setMetricRegistry(metricRegistry)
+                            .setEventTypeMetricRegistry(eventTypeMetricRegistry)
                             .build();
             // check that it does work
             kafkaTopicRepository.listTopics();
@@ -5,6 +5,8 @@ import org.zalando.nakadi.domain.CleanupPolicy;
 import org.zalando.nakadi.domain.NakadiCursor;
 import org.zalando.nakadi.domain.PartitionEndStatistics;
 import org.zalando.nakadi.domain.PartitionStatistics;
+import org.zalando.nakadi.domain.PartitionsMetadata;
+import org.zalando.nakadi.domain.PublishingOptions;
 import org.zalando.nakadi.domain.Timeline;
 import org.zalando.nakadi.domain.TopicPartition;
 import org.zalando.nakadi.exceptions.runtime.CannotAddPartitionToTopicException;
@@ -20,6 +22,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface TopicRepository {
 
@@ -47,8 +50,37 @@ public interface TopicRepository {
 
     boolean topicExists(String topic) throws TopicRepositoryException;
 
-    void syncPostBatch(String topicId, List<BatchItem> batch, String eventTypeName, boolean delete)
-            throws EventPublishingException;
+    default void syncPostBatch(final String topicId, final List<BatchItem> batch, final String eventTypeName,
+                               final boolean delete) throws EventPublishingException {
+        syncPostBatch(topicId, batch, eventTypeName, PublishingOptions.DEFAULT, delete);
+    }
+
+    /**
+     * Publishes the batch with producers configured according to {@code options}.
+     */
+    void syncPostBatch(String topicId, List<BatchItem> batch, String eventTypeName, PublishingOptions options,
+                       boolean delete) throws EventPublishingException;
+
+    /**
+     * Sends the batch without waiting for storage to acknowledge it. Status of every item is updated before the
+     * returned future completes.
+     *
+     * @return Future that completes when all the events are published, or completes exceptionally with
+     * {@link EventPublishingException} if some of them failed or timed out
+     * @throws EventPublishingException In case when the batch could not be sent at all
+     */
+    default CompletableFuture<Void> postBatch(final String topicId, final List<BatchItem> batch,
+                                              final String eventTypeName, final boolean delete)
+            throws EventPublishingException {
+        return postBatch(topicId, batch, eventTypeName, PublishingOptions.DEFAULT, delete);
+    }
+
+    /**
+     * Sends the batch with producers configured according to {@code options}. See
+     * {@link #postBatch(String, List, String, boolean)}.
+     */
+    CompletableFuture<Void> postBatch(String topicId, List<BatchItem> batch, String eventTypeName,
+                                      PublishingOptions options, boolean delete) throws EventPublishingException;
 
     void repartition(String topic, int partitionsNumber) throws CannotAddPartitionToTopicException,
             TopicConfigException;
@@ -75,6 +107,23 @@ public interface TopicRepository {
 
     List<String> listPartitionNames(String topicId);
 
+    /**
+     * Returns cached partitions of the topic together with their leaders. The cached value is refreshed periodically
+     * and after publishing failures caused by outdated metadata.
+     *
+     * @param topicId Topic to get partitions for
+     * @return Partitions of the topic
+     */
+    PartitionsMetadata getPartitionsMetadata(String topicId);
+
+    /**
+     * Drops cached partitions metadata of the topic, so that it is read from storage on next access. Should be called
+     * whenever partitions of the topic are known to be changed.
+     *
+     * @param topicId Topic to drop cached metadata for
+     */
+    void invalidatePartitionsMetadata(String topicId);
+
     /**
      * Provides estimation of disk size occupied by particular topic partition. Replicated data is not included
      *
@@ -89,4 +138,10 @@ public interface TopicRepository {
             ServiceTemporarilyUnavailableException;
 
     void updateTopicConfig(String topic, Long retentionMs, CleanupPolicy cleanupPolicy) throws TopicConfigException;
+
+    /**
+     * Stops background threads of the repository. Batches still being published are completed, but the repository
+     * should not be used for publishing any more.
+     */
+    void close();
 }
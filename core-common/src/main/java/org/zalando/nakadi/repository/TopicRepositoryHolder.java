@@ -13,6 +13,7 @@ import org.zalando.nakadi.exceptions.runtime.NakadiRuntimeException;
 import org.zalando.nakadi.exceptions.runtime.ServiceTemporarilyUnavailableException;
 import org.zalando.nakadi.exceptions.runtime.TopicRepositoryException;
 
+import javax.annotation.PreDestroy;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -97,6 +98,16 @@ public class TopicRepositoryHolder {
         }
     }
 
+    @PreDestroy
+    public void closeTopicRepositories() {
+        lock.lock();
+        try {
+            storageTopicRepository.values().forEach(TopicRepository::close);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private TopicRepositoryCreator getTopicRepositoryCreator(final Storage.Type type) {
         final TopicRepositoryCreator topicRepositoryCreator = repositoryCreators.get(type);
         if (topicRepositoryCreator == null) {
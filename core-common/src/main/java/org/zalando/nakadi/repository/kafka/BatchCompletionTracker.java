@@ -0,0 +1,89 @@
+package org.zalando.nakadi.repository.kafka;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tracks results of the events of a batch sent to kafka, indexed by position of the event in the batch. Every sent
+ * event is registered with {@link #expect()} before it is sent and is completed from the producer callback, the
+ * batch is completed once all the registered events are completed and {@link #seal()} was called.
+ *
+ * <p>Only one future is created per batch, no matter how many events it has.
+ */
+class BatchCompletionTracker {
+
+    // marks events completed without an error, so that they are distinguished from the ones still in flight
+    private static final Exception SUCCEEDED = new Exception("succeeded");
+
+    private final AtomicReferenceArray<Exception> results;
+    // one more than the number of events in flight until the tracker is sealed
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final CompletableFuture<Void> completed = new CompletableFuture<>();
+
+    BatchCompletionTracker(final int size) {
+        this.results = new AtomicReferenceArray<>(size);
+    }
+
+    void expect() {
+        pending.incrementAndGet();
+    }
+
+    void complete(final int position, @Nullable final Exception exception) {
+        results.set(position, null == exception ? SUCCEEDED : exception);
+        release();
+    }
+
+    /**
+     * Should be called once all the events of the batch are registered.
+     */
+    void seal() {
+        release();
+    }
+
+    private void release() {
+        if (0 == pending.decrementAndGet()) {
+            completed.complete(null);
+        }
+    }
+
+    /**
+     * @return future completed once all the registered events are completed, it is a copy that can be cancelled or
+     * timed out by the caller without affecting the tracker
+     */
+    CompletableFuture<Void> whenCompleted() {
+        return completed.copy();
+    }
+
+    /**
+     * @return false if there are events that were not completed within the timeout
+     */
+    boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+        try {
+            completed.get(timeout, unit);
+            return true;
+        } catch (final TimeoutException e) {
+            return false;
+        } catch (final ExecutionException e) {
+            // the future is only completed normally
+            throw new IllegalStateException(e);
+        }
+    }
+
+    boolean isCompleted(final int position) {
+        return null != results.get(position);
+    }
+
+    /**
+     * @return exception the event was failed with, null if it succeeded, was not sent or is still in flight
+     */
+    @Nullable
+    Exception getException(final int position) {
+        final Exception exception = results.get(position);
+        return exception == SUCCEEDED ? null : exception;
+    }
+}
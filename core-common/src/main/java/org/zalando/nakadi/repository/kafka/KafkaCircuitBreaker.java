@@ -0,0 +1,171 @@
+package org.zalando.nakadi.repository.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Circuit breaker of a kafka broker. Results of publishing are counted in a sliding window, that is split in time
+ * buckets, and the circuit is opened once there were enough events published to the broker in the window and share
+ * of the failed ones reached the threshold. After the sleep window one request is let through to probe the broker,
+ * its result either closes the circuit or opens it again.
+ *
+ * <p>All the state is kept in atomics, so checking the circuit and recording results never takes locks. Results are
+ * expected to be recorded once per published batch, with the numbers of succeeded and failed events of the broker.
+ */
+public class KafkaCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaCircuitBreaker.class);
+    private static final String METRIC_PREFIX = "kafka.circuit_breaker.";
+
+    private final String brokerId;
+    private final KafkaCircuitBreakerSettings settings;
+    private final long bucketMs;
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final AtomicReference<Transition> transition;
+    @Nullable
+    private final MetricRegistry metricRegistry;
+
+    public KafkaCircuitBreaker(final String brokerId, final KafkaCircuitBreakerSettings settings,
+                               @Nullable final MetricRegistry metricRegistry) {
+        this.brokerId = brokerId;
+        this.settings = settings;
+        this.bucketMs = settings.getWindowMs() / settings.getBuckets();
+        this.buckets = new AtomicReferenceArray<>(settings.getBuckets());
+        this.transition = new AtomicReference<>(new Transition(State.CLOSED, DateTimeUtils.currentTimeMillis()));
+        this.metricRegistry = metricRegistry;
+        if (null != metricRegistry) {
+            final String stateGaugeName = METRIC_PREFIX + brokerId + ".state";
+            // repository of the same storage could be recreated, the latest one is reported
+            metricRegistry.remove(stateGaugeName);
+            metricRegistry.register(stateGaugeName, (Gauge<Integer>) () -> getState().ordinal());
+        }
+    }
+
+    public State getState() {
+        return transition.get().state;
+    }
+
+    public boolean allowRequest() {
+        final Transition current = transition.get();
+        if (current.state == State.CLOSED) {
+            return true;
+        }
+        final long now = DateTimeUtils.currentTimeMillis();
+        if (now - current.since < settings.getSleepWindowMs()) {
+            return false;
+        }
+        // only one request wins the probe, it is repeated after another sleep window if its result is not recorded
+        return moveTo(current, State.HALF_OPEN, now);
+    }
+
+    public void record(final int succeeded, final int failed) {
+        if (0 == succeeded && 0 == failed) {
+            return;
+        }
+        final long now = DateTimeUtils.currentTimeMillis();
+        final Bucket bucket = getBucket(now);
+        bucket.succeeded.addAndGet(succeeded);
+        bucket.failed.addAndGet(failed);
+
+        final Transition current = transition.get();
+        switch (current.state) {
+            case CLOSED:
+                if (isFailureThresholdReached(now)) {
+                    moveTo(current, State.OPEN, now);
+                }
+                break;
+            case HALF_OPEN:
+                if (failed > 0) {
+                    moveTo(current, State.OPEN, now);
+                } else if (moveTo(current, State.CLOSED, now)) {
+                    // failures that opened the circuit should not open it again
+                    for (int i = 0; i < buckets.length(); ++i) {
+                        buckets.set(i, null);
+                    }
+                }
+                break;
+            default:
+                // results of the requests that were sent before the circuit was opened
+                break;
+        }
+    }
+
+    private boolean isFailureThresholdReached(final long now) {
+        final long epoch = now / bucketMs;
+        long succeeded = 0;
+        long failed = 0;
+        for (int i = 0; i < buckets.length(); ++i) {
+            final Bucket bucket = buckets.get(i);
+            if (null != bucket && epoch - bucket.epoch < buckets.length()) {
+                succeeded += bucket.succeeded.get();
+                failed += bucket.failed.get();
+            }
+        }
+        final long total = succeeded + failed;
+        return total >= settings.getRequestVolumeThreshold()
+                && failed * 100 >= total * settings.getErrorThresholdPercentage();
+    }
+
+    private Bucket getBucket(final long now) {
+        final long epoch = now / bucketMs;
+        final int index = (int) (epoch % buckets.length());
+        while (true) {
+            final Bucket bucket = buckets.get(index);
+            if (null != bucket && bucket.epoch >= epoch) {
+                return bucket;
+            }
+            final Bucket newBucket = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, newBucket)) {
+                return newBucket;
+            }
+        }
+    }
+
+    private boolean moveTo(final Transition current, final State state, final long now) {
+        if (!transition.compareAndSet(current, new Transition(state, now))) {
+            return false;
+        }
+        if (current.state != state) {
+            LOG.info("Circuit breaker of kafka broker {} moved from {} to {}", brokerId, current.state, state);
+            if (null != metricRegistry) {
+                metricRegistry.meter(METRIC_PREFIX + brokerId + ".transitions." + state.name().toLowerCase())
+                        .mark();
+            }
+        }
+        return true;
+    }
+
+    private static class Transition {
+        private final State state;
+        private final long since;
+
+        private Transition(final State state, final long since) {
+            this.state = state;
+            this.since = since;
+        }
+    }
+
+    private static class Bucket {
+        private final long epoch;
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private Bucket(final long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.zalando.nakadi.repository.kafka;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class KafkaCircuitBreakerSettings {
+
+    public static final KafkaCircuitBreakerSettings DEFAULT = new KafkaCircuitBreakerSettings(30000, 10, 20, 20, 5000);
+
+    private final long windowMs;
+    private final int buckets;
+    private final int requestVolumeThreshold;
+    private final int errorThresholdPercentage;
+    private final long sleepWindowMs;
+
+    @Autowired
+    public KafkaCircuitBreakerSettings(
+            @Value("${nakadi.kafka.circuit-breaker.window.ms:30000}") final long windowMs,
+            @Value("${nakadi.kafka.circuit-breaker.buckets:10}") final int buckets,
+            @Value("${nakadi.kafka.circuit-breaker.request-volume-threshold:20}") final int requestVolumeThreshold,
+            @Value("${nakadi.kafka.circuit-breaker.error-threshold-percentage:20}") final int errorThresholdPercentage,
+            @Value("${nakadi.kafka.circuit-breaker.sleep-window.ms:5000}") final long sleepWindowMs) {
+        if (buckets < 1 || windowMs < buckets) {
+            throw new IllegalArgumentException("Circuit breaker window of " + windowMs + " ms can not be split in "
+                    + buckets + " buckets");
+        }
+        this.windowMs = windowMs;
+        this.buckets = buckets;
+        this.requestVolumeThreshold = requestVolumeThreshold;
+        this.errorThresholdPercentage = errorThresholdPercentage;
+        this.sleepWindowMs = sleepWindowMs;
+    }
+
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public int getRequestVolumeThreshold() {
+        return requestVolumeThreshold;
+    }
+
+    public int getErrorThresholdPercentage() {
+        return errorThresholdPercentage;
+    }
+
+    public long getSleepWindowMs() {
+        return sleepWindowMs;
+    }
+}
@@ -12,6 +12,7 @@ import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.zalando.nakadi.domain.PublishingOptions;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
@@ -30,56 +31,87 @@ public class KafkaFactory {
     private final KafkaLocationManager kafkaLocationManager;
     private final Counter useCountMetric;
     private final Counter producerTerminations;
-    private final Map<Producer<String, String>, AtomicInteger> useCount = new ConcurrentHashMap<>();
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
-    @Nullable
-    private Producer<String, String> activeProducer;
+    private final Map<Producer<byte[], byte[]>, ProducerUsage> useCount = new ConcurrentHashMap<>();
+    private final Map<PublishingOptions, ProducerSlot[]> producerGroups = new ConcurrentHashMap<>();
+    private final MetricRegistry metricRegistry;
+    private final int producersCount;
 
     public KafkaFactory(final KafkaLocationManager kafkaLocationManager, final MetricRegistry metricRegistry) {
+        this(kafkaLocationManager, metricRegistry, 1);
+    }
+
+    /**
+     * @param producersCount number of producers used for publishing with every {@link PublishingOptions}. Every
+     *                       producer has its own accumulator and sender thread, so several producers allow to use
+     *                       several cores for publishing on the same instance. Producers are created on first use,
+     *                       so options that are not used do not allocate anything.
+     */
+    public KafkaFactory(final KafkaLocationManager kafkaLocationManager, final MetricRegistry metricRegistry,
+                        final int producersCount) {
+        if (producersCount < 1) {
+            throw new IllegalArgumentException("At least one kafka producer is required, got " + producersCount);
+        }
         this.kafkaLocationManager = kafkaLocationManager;
         this.useCountMetric = metricRegistry.counter("kafka.producer.use_count");
         this.producerTerminations = metricRegistry.counter("kafka.producer.termination_count");
+        this.metricRegistry = metricRegistry;
+        this.producersCount = producersCount;
     }
 
-    @Nullable
-    private Producer<String, String> takeUnderLock(final boolean canCreate) {
-        final Lock lock = canCreate ? rwLock.writeLock() : rwLock.readLock();
-        lock.lock();
-        try {
-            if (null != activeProducer) {
-                useCount.get(activeProducer).incrementAndGet();
-                return activeProducer;
-            } else if (canCreate) {
-                activeProducer = createProducerInstance();
-                useCount.put(activeProducer, new AtomicInteger(1));
-                LOG.info("New producer instance created: " + activeProducer);
-                return activeProducer;
-            } else {
-                return null;
-            }
-        } finally {
-            lock.unlock();
-        }
+    protected Producer<byte[], byte[]> createProducerInstance(final PublishingOptions options) {
+        return new KafkaProducerCrutch(kafkaLocationManager.getKafkaProducerProperties(options),
+                new KafkaCrutch(kafkaLocationManager));
     }
 
-    protected Producer<String, String> createProducerInstance() {
-        return new KafkaProducerCrutch(kafkaLocationManager.getKafkaProducerProperties(),
-                new KafkaCrutch(kafkaLocationManager));
+    public int getProducersCount() {
+        return producersCount;
+    }
+
+    private ProducerSlot[] getProducerGroup(final PublishingOptions options) {
+        return producerGroups.computeIfAbsent(options, o -> {
+            final ProducerSlot[] slots = new ProducerSlot[producersCount];
+            for (int i = 0; i < producersCount; ++i) {
+                slots[i] = new ProducerSlot(o, i, metricRegistry);
+            }
+            return slots;
+        });
     }
 
     /**
      * Takes producer from producer cache. Every producer, that was received by this method must be released with
+     * {@link #releaseProducer(Producer)} method. Should be used for everything except publishing, as it always
+     * returns the same producer.
+     *
+     * @return Initialized kafka producer instance.
+     */
+    public Producer<byte[], byte[]> takeProducer() {
+        return getProducerGroup(PublishingOptions.DEFAULT)[0].take();
+    }
+
+    /**
+     * Takes producer that should be used to publish to the partition of the topic. The same partition is always
+     * published with the same producer (unless the producer is terminated), therefore the order of events within
+     * partition is kept. Every producer, that was received by this method must be released with
      * {@link #releaseProducer(Producer)} method.
      *
      * @return Initialized kafka producer instance.
      */
-    public Producer<String, String> takeProducer() {
-        Producer<String, String> result = takeUnderLock(false);
-        if (null == result) {
-            result = takeUnderLock(true);
+    public Producer<byte[], byte[]> takeProducer(final String topic, final String partition) {
+        return takeProducer(PublishingOptions.DEFAULT, topic, partition);
+    }
+
+    /**
+     * Takes producer of the group configured with {@code options}, that should be used to publish to the partition
+     * of the topic. See {@link #takeProducer(String, String)}.
+     */
+    public Producer<byte[], byte[]> takeProducer(final PublishingOptions options, final String topic,
+                                                 final String partition) {
+        final ProducerSlot[] producerSlots = getProducerGroup(options);
+        if (producerSlots.length == 1) {
+            return producerSlots[0].take();
         }
-        useCountMetric.inc();
-        return result;
+        final int slot = Math.floorMod(31 * topic.hashCode() + partition.hashCode(), producerSlots.length);
+        return producerSlots[slot].take();
     }
 
     /**
@@ -88,10 +120,134 @@ public class KafkaFactory {
      *
      * @param producer Producer to release.
      */
-    public void releaseProducer(final Producer<String, String> producer) {
+    public void releaseProducer(final Producer<byte[], byte[]> producer) {
         useCountMetric.dec();
-        final AtomicInteger counter = useCount.get(producer);
-        if (counter != null && 0 == counter.decrementAndGet()) {
+        final ProducerUsage usage = useCount.get(producer);
+        if (usage != null) {
+            usage.slot.useCountMetric.dec();
+            if (0 == usage.counter.decrementAndGet()) {
+                usage.slot.closeIfNotUsed(producer, usage.counter);
+            }
+        }
+    }
+
+    /**
+     * Notifies producer cache, that this producer should be marked as obsolete. All methods, that are using this
+     * producer instance right now can continue using it, but new calls to {@link #takeProducer()} will use some other
+     * producers.
+     * It is allowed to call this method only between {@link #takeProducer()} and {@link #releaseProducer(Producer)}
+     * method calls. (You can not terminate something that you do not own)
+     *
+     * @param producer Producer instance to terminate.
+     */
+    public void terminateProducer(final Producer<byte[], byte[]> producer) {
+        LOG.info("Received signal to terminate producer " + producer);
+        final ProducerUsage usage = useCount.get(producer);
+        if (null == usage || !usage.slot.terminate(producer)) {
+            LOG.info("Signal for producer termination already received: " + producer);
+        }
+    }
+
+    /**
+     * Terminates all the producers, so that new producers are created for next calls. Should be used when producers
+     * are known to have outdated metadata, for example after adding partitions to a topic.
+     */
+    public void terminateProducers() {
+        for (final ProducerSlot[] producerSlots : producerGroups.values()) {
+            for (final ProducerSlot slot : producerSlots) {
+                final Producer<byte[], byte[]> producer = slot.takeIfCreated();
+                if (null == producer) {
+                    continue;
+                }
+                try {
+                    terminateProducer(producer);
+                } finally {
+                    releaseProducer(producer);
+                }
+            }
+        }
+    }
+
+    private static String getGroupName(final PublishingOptions options) {
+        // metrics of producers with default options keep their names
+        if (options.equals(PublishingOptions.DEFAULT)) {
+            return "";
+        }
+        return options.getProfile().name().toLowerCase() + "." +
+                (null == options.getCompression() ? "" : options.getCompression().getKafkaName() + ".");
+    }
+
+    private static class ProducerUsage {
+        private final ProducerSlot slot;
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        private ProducerUsage(final ProducerSlot slot) {
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Holder of one producer of the pool. Every holder has its own lock, so that threads publishing with different
+     * producers are not contending with each other.
+     */
+    private class ProducerSlot {
+        private final PublishingOptions options;
+        private final String name;
+        private final Counter useCountMetric;
+        private final Counter producerTerminations;
+        private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+        @Nullable
+        private Producer<byte[], byte[]> activeProducer;
+
+        private ProducerSlot(final PublishingOptions options, final int index, final MetricRegistry metricRegistry) {
+            this.options = options;
+            this.name = getGroupName(options) + index;
+            this.useCountMetric = metricRegistry.counter("kafka.producer." + name + ".use_count");
+            this.producerTerminations = metricRegistry.counter("kafka.producer." + name + ".termination_count");
+        }
+
+        private Producer<byte[], byte[]> take() {
+            Producer<byte[], byte[]> result = takeUnderLock(false);
+            if (null == result) {
+                result = takeUnderLock(true);
+            }
+            KafkaFactory.this.useCountMetric.inc();
+            useCountMetric.inc();
+            return result;
+        }
+
+        @Nullable
+        private Producer<byte[], byte[]> takeIfCreated() {
+            final Producer<byte[], byte[]> result = takeUnderLock(false);
+            if (null != result) {
+                KafkaFactory.this.useCountMetric.inc();
+                useCountMetric.inc();
+            }
+            return result;
+        }
+
+        @Nullable
+        private Producer<byte[], byte[]> takeUnderLock(final boolean canCreate) {
+            final Lock lock = canCreate ? rwLock.writeLock() : rwLock.readLock();
+            lock.lock();
+            try {
+                if (null != activeProducer) {
+                    useCount.get(activeProducer).counter.incrementAndGet();
+                    return activeProducer;
+                } else if (canCreate) {
+                    activeProducer = createProducerInstance(options);
+                    useCount.put(activeProducer, new ProducerUsage(this));
+                    LOG.info("New producer instance created in slot " + name + ": " + activeProducer);
+                    return activeProducer;
+                } else {
+                    return null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void closeIfNotUsed(final Producer<byte[], byte[]> producer, final AtomicInteger counter) {
             final boolean deleteProducer;
             rwLock.readLock().lock();
             try {
@@ -112,29 +268,20 @@ public class KafkaFactory {
                 }
             }
         }
-    }
 
-    /**
-     * Notifies producer cache, that this producer should be marked as obsolete. All methods, that are using this
-     * producer instance right now can continue using it, but new calls to {@link #takeProducer()} will use some other
-     * producers.
-     * It is allowed to call this method only between {@link #takeProducer()} and {@link #releaseProducer(Producer)}
-     * method calls. (You can not terminate something that you do not own)
-     *
-     * @param producer Producer instance to terminate.
-     */
-    public void terminateProducer(final Producer<String, String> producer) {
-        LOG.info("Received signal to terminate producer " + producer);
-        rwLock.writeLock().lock();
-        try {
-            if (producer == this.activeProducer) {
-                producerTerminations.inc();
-                this.activeProducer = null;
-            } else {
-                LOG.info("Signal for producer termination already received: " + producer);
+        private boolean terminate(final Producer<byte[], byte[]> producer) {
+            rwLock.writeLock().lock();
+            try {
+                if (producer == this.activeProducer) {
+                    KafkaFactory.this.producerTerminations.inc();
+                    producerTerminations.inc();
+                    this.activeProducer = null;
+                    return true;
+                }
+                return false;
+            } finally {
+                rwLock.writeLock().unlock();
             }
-        } finally {
-            rwLock.writeLock().unlock();
         }
     }
 
@@ -181,7 +328,7 @@ public class KafkaFactory {
         }
     }
 
-    public class KafkaProducerCrutch extends KafkaProducer<String, String> {
+    public class KafkaProducerCrutch extends KafkaProducer<byte[], byte[]> {
 
         private final KafkaCrutch kafkaCrutch;
 
@@ -191,7 +338,7 @@ public class KafkaFactory {
         }
 
         @Override
-        public Future<RecordMetadata> send(final ProducerRecord<String, String> record, final Callback callback) {
+        public Future<RecordMetadata> send(final ProducerRecord<byte[], byte[]> record, final Callback callback) {
             if (kafkaCrutch.brokerIpAddressChanged) {
                 throw new KafkaCrutchException("Kafka broker ip address changed, exiting");
             }
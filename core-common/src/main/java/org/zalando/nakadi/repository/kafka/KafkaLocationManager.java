@@ -10,6 +10,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.zalando.nakadi.domain.PublishingOptions;
 import org.zalando.nakadi.repository.zookeeper.ZooKeeperHolder;
 
 import java.io.UnsupportedEncodingException;
@@ -117,21 +118,46 @@ public class KafkaLocationManager {
     }
 
     public Properties getKafkaProducerProperties() {
+        return getKafkaProducerProperties(PublishingOptions.DEFAULT);
+    }
+
+    public Properties getKafkaProducerProperties(final PublishingOptions options) {
         final Properties producerProps = (Properties) kafkaProperties.clone();
         producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,
-                "org.apache.kafka.common.serialization.StringSerializer");
+                "org.apache.kafka.common.serialization.ByteArraySerializer");
         producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
-                "org.apache.kafka.common.serialization.StringSerializer");
+                "org.apache.kafka.common.serialization.ByteArraySerializer");
         producerProps.put(ProducerConfig.ACKS_CONFIG, "all");
         producerProps.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, kafkaSettings.getRequestTimeoutMs());
         producerProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, kafkaSettings.getBufferMemory());
         producerProps.put(ProducerConfig.BATCH_SIZE_CONFIG, kafkaSettings.getBatchSize());
         producerProps.put(ProducerConfig.LINGER_MS_CONFIG, kafkaSettings.getLingerMs());
-        producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, kafkaSettings.getCompression().getKafkaName());
         producerProps.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, kafkaSettings.getMaxRequestSize());
         producerProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, kafkaSettings.getDeliveryTimeoutMs());
         producerProps.put(ProducerConfig.RETRIES_CONFIG, 0);
         producerProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, kafkaSettings.getMaxBlockMs());
+        switch (options.getProfile()) {
+            case LOW_LATENCY:
+                producerProps.put(ProducerConfig.ACKS_CONFIG, "1");
+                producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+                producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "none");
+                break;
+            case HIGH_THROUGHPUT:
+                // batches that are sent less often have to be bigger, but still fit into a single request
+                producerProps.put(ProducerConfig.BATCH_SIZE_CONFIG,
+                        Math.min(4 * kafkaSettings.getBatchSize(), kafkaSettings.getMaxRequestSize()));
+                producerProps.put(ProducerConfig.LINGER_MS_CONFIG,
+                        Math.max(kafkaSettings.getLingerMs(), kafkaSettings.getHighThroughputLingerMs()));
+                producerProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, kafkaSettings.getDeliveryTimeoutMs()
+                        + kafkaSettings.getHighThroughputLingerMs());
+                break;
+            default:
+                break;
+        }
+        if (null != options.getCompression()) {
+            producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, options.getCompression().getKafkaName());
+        }
         return producerProps;
     }
 
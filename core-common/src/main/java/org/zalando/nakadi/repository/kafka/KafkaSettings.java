@@ -3,6 +3,7 @@ package org.zalando.nakadi.repository.kafka;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.zalando.nakadi.domain.PublishingCompression;
 
 @Component
 public class KafkaSettings {
@@ -22,6 +23,11 @@ public class KafkaSettings {
     private final int deliveryTimeoutMs;
     private final int maxBlockMs;
     private final String clientRack;
+    private final int producersCount;
+    private final int highThroughputLingerMs;
+    private final PublishingCompression compression;
+    private final int completionThreads;
+    private final int completionQueueSize;
 
     @Autowired
     public KafkaSettings(@Value("${nakadi.kafka.request.timeout.ms}") final int requestTimeoutMs,
@@ -32,7 +38,12 @@ public class KafkaSettings {
                          @Value("${nakadi.kafka.max.request.size}") final int maxRequestSize,
                          @Value("${nakadi.kafka.delivery.timeout.ms}") final int deliveryTimeoutMs,
                          @Value("${nakadi.kafka.max.block.ms}") final int maxBlockMs,
-                         @Value("${nakadi.kafka.client.rack:}") final String clientRack) {
+                         @Value("${nakadi.kafka.client.rack:}") final String clientRack,
+                         @Value("${nakadi.kafka.producers.count:1}") final int producersCount,
+                         @Value("${nakadi.kafka.high-throughput.linger.ms:50}") final int highThroughputLingerMs,
+                         @Value("${nakadi.kafka.compression.type:lz4}") final String compression,
+                         @Value("${nakadi.kafka.completion.threads:4}") final int completionThreads,
+                         @Value("${nakadi.kafka.completion.queue-size:1000}") final int completionQueueSize) {
         this.requestTimeoutMs = requestTimeoutMs;
         this.batchSize = batchSize;
         this.bufferMemory = bufferMemory;
@@ -42,6 +53,11 @@ public class KafkaSettings {
         this.deliveryTimeoutMs = deliveryTimeoutMs;
         this.maxBlockMs = maxBlockMs;
         this.clientRack = clientRack;
+        this.producersCount = producersCount;
+        this.highThroughputLingerMs = highThroughputLingerMs;
+        this.compression = PublishingCompression.valueOf(compression.toUpperCase());
+        this.completionThreads = completionThreads;
+        this.completionQueueSize = completionQueueSize;
     }
 
     public int getRequestTimeoutMs() {
@@ -79,4 +95,30 @@ public class KafkaSettings {
     public String getClientRack() {
         return clientRack;
     }
+
+    public int getProducersCount() {
+        return producersCount;
+    }
+
+    public int getHighThroughputLingerMs() {
+        return highThroughputLingerMs;
+    }
+
+    /**
+     * @return compression used by producers of event types that do not choose one
+     */
+    public PublishingCompression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return threads completing batches published asynchronously, they release and terminate producers
+     */
+    public int getCompletionThreads() {
+        return completionThreads;
+    }
+
+    public int getCompletionQueueSize() {
+        return completionQueueSize;
+    }
 }
@@ -2,8 +2,13 @@ package org.zalando.nakadi.repository.kafka;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AlterConfigOp;
 import org.apache.kafka.clients.admin.ConfigEntry;
@@ -12,6 +17,7 @@ import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.config.ConfigResource;
@@ -27,6 +33,7 @@ import org.echocat.jomon.runtime.concurrent.Retryer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zalando.nakadi.config.NakadiSettings;
+import org.zalando.nakadi.domain.AvroSchemaVersionHeader;
 import org.zalando.nakadi.domain.BatchItem;
 import org.zalando.nakadi.domain.CleanupPolicy;
 import org.zalando.nakadi.domain.EventPublishingStatus;
@@ -34,6 +41,8 @@ import org.zalando.nakadi.domain.EventPublishingStep;
 import org.zalando.nakadi.domain.NakadiCursor;
 import org.zalando.nakadi.domain.PartitionEndStatistics;
 import org.zalando.nakadi.domain.PartitionStatistics;
+import org.zalando.nakadi.domain.PartitionsMetadata;
+import org.zalando.nakadi.domain.PublishingOptions;
 import org.zalando.nakadi.domain.Timeline;
 import org.zalando.nakadi.exceptions.runtime.CannotAddPartitionToTopicException;
 import org.zalando.nakadi.exceptions.runtime.EventPublishingException;
@@ -43,12 +52,14 @@ import org.zalando.nakadi.exceptions.runtime.TopicConfigException;
 import org.zalando.nakadi.exceptions.runtime.TopicCreationException;
 import org.zalando.nakadi.exceptions.runtime.TopicDeletionException;
 import org.zalando.nakadi.exceptions.runtime.TopicRepositoryException;
+import org.zalando.nakadi.metrics.EventTypeMetricRegistry;
 import org.zalando.nakadi.repository.EventConsumer;
 import org.zalando.nakadi.repository.NakadiTopicConfig;
 import org.zalando.nakadi.repository.TopicRepository;
 import org.zalando.nakadi.repository.zookeeper.ZookeeperSettings;
 
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -60,10 +71,11 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -81,17 +93,25 @@ import static org.zalando.nakadi.domain.CursorError.UNAVAILABLE;
 public class KafkaTopicRepository implements TopicRepository {
 
     private static final Logger LOG = LoggerFactory.getLogger(KafkaTopicRepository.class);
-    private static final String HYSTRIX_SHORT_CIRCUIT_COUNTER = "hystrix.short.circuit.%s";
+    // name is kept from the time circuit breaking was done by hystrix, to not break existing dashboards
+    private static final String SHORT_CIRCUIT_COUNTER = "hystrix.short.circuit.%s";
+    // producer refreshes its metadata on its own, the cache is just making it cheap to access per batch
+    private static final long PARTITIONS_METADATA_TTL_MS = TimeUnit.SECONDS.toMillis(30);
 
     private final KafkaZookeeper kafkaZookeeper;
     private final KafkaFactory kafkaFactory;
     private final NakadiSettings nakadiSettings;
     private final KafkaSettings kafkaSettings;
     private final ZookeeperSettings zookeeperSettings;
-    private final ConcurrentMap<String, HystrixKafkaCircuitBreaker> circuitBreakers;
+    private final ConcurrentMap<String, KafkaCircuitBreaker> circuitBreakers;
+    private final KafkaCircuitBreakerSettings circuitBreakerSettings;
     private final KafkaTopicConfigFactory kafkaTopicConfigFactory;
     private final KafkaLocationManager kafkaLocationManager;
     private final MetricRegistry metricRegistry;
+    @Nullable
+    private final EventTypeMetricRegistry eventTypeMetricRegistry;
+    private final LoadingCache<String, PartitionsMetadata> partitionsMetadataCache;
+    private final ThreadPoolExecutor completionExecutor;
 
     public KafkaTopicRepository(final Builder builder) {
         this.kafkaZookeeper = builder.kafkaZookeeper;
@@ -106,7 +126,25 @@ public class KafkaTopicRepository implements TopicRepository {
         } else {
             this.circuitBreakers = builder.circuitBreakers;
         }
+        if (builder.circuitBreakerSettings == null) {
+            this.circuitBreakerSettings = KafkaCircuitBreakerSettings.DEFAULT;
+        } else {
+            this.circuitBreakerSettings = builder.circuitBreakerSettings;
+        }
         this.metricRegistry = builder.metricRegistry;
+        this.eventTypeMetricRegistry = builder.eventTypeMetricRegistry;
+        this.partitionsMetadataCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(PARTITIONS_METADATA_TTL_MS, TimeUnit.MILLISECONDS)
+                .build(CacheLoader.from(this::loadPartitionsMetadata));
+        // batches that do not fit the queue, or are completed after the repository is closed, are completed by the
+        // thread that finished sending them, as producers taken for the batch have to be released anyway
+        this.completionExecutor = new ThreadPoolExecutor(
+                kafkaSettings.getCompletionThreads(),
+                kafkaSettings.getCompletionThreads(),
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(kafkaSettings.getCompletionQueueSize()),
+                new ThreadFactoryBuilder().setNameFormat("kafka-publishing-completion-%d").setDaemon(true).build(),
+                (task, executor) -> task.run());
     }
 
     public static class Builder {
@@ -115,10 +153,12 @@ public class KafkaTopicRepository implements TopicRepository {
         private NakadiSettings nakadiSettings;
         private KafkaSettings kafkaSettings;
         private ZookeeperSettings zookeeperSettings;
-        private ConcurrentMap<String, HystrixKafkaCircuitBreaker> circuitBreakers;
+        private ConcurrentMap<String, KafkaCircuitBreaker> circuitBreakers;
+        private KafkaCircuitBreakerSettings circuitBreakerSettings;
         private KafkaTopicConfigFactory kafkaTopicConfigFactory;
         private KafkaLocationManager kafkaLocationManager;
         private MetricRegistry metricRegistry;
+        private EventTypeMetricRegistry eventTypeMetricRegistry;
 
         public Builder setKafkaZookeeper(final KafkaZookeeper kafkaZookeeper) {
             this.kafkaZookeeper = kafkaZookeeper;
@@ -145,11 +185,16 @@ public class KafkaTopicRepository implements TopicRepository {
             return this;
         }
 
-        public Builder setCircuitBreakers(final ConcurrentMap<String, HystrixKafkaCircuitBreaker> circuitBreakers) {
+        public Builder setCircuitBreakers(final ConcurrentMap<String, KafkaCircuitBreaker> circuitBreakers) {
             this.circuitBreakers = circuitBreakers;
             return this;
         }
 
+        public Builder setCircuitBreakerSettings(final KafkaCircuitBreakerSettings circuitBreakerSettings) {
+            this.circuitBreakerSettings = circuitBreakerSettings;
+            return this;
+        }
+
         public Builder setKafkaTopicConfigFactory(final KafkaTopicConfigFactory kafkaTopicConfigFactory) {
             this.kafkaTopicConfigFactory = kafkaTopicConfigFactory;
             return this;
@@ -165,54 +210,60 @@ public class KafkaTopicRepository implements TopicRepository {
             return this;
         }
 
+        public Builder setEventTypeMetricRegistry(final EventTypeMetricRegistry eventTypeMetricRegistry) {
+            this.eventTypeMetricRegistry = eventTypeMetricRegistry;
+            return this;
+        }
+
         public KafkaTopicRepository build() {
             return new KafkaTopicRepository(this);
         }
     }
 
-    private CompletableFuture<Exception> publishItem(
-            final Producer<String, String> producer,
+    private void publishItem(
+            final Producer<byte[], byte[]> producer,
             final String topicId,
             final BatchItem item,
-            final HystrixKafkaCircuitBreaker circuitBreaker,
-            final boolean delete) throws EventPublishingException {
+            final boolean delete,
+            final BatchCompletionTracker tracker,
+            final int position) throws EventPublishingException {
         try {
-            final CompletableFuture<Exception> result = new CompletableFuture<>();
-            final ProducerRecord<String, String> kafkaRecord = new ProducerRecord<>(
+            final byte[] value;
+            if (delete) {
+                value = null;
+            } else if (null != item.getAvroEvent()) {
+                value = item.getAvroEvent();
+            } else {
+                value = item.dumpEventToBytes();
+            }
+            final ProducerRecord<byte[], byte[]> kafkaRecord = new ProducerRecord<>(
                     topicId,
                     KafkaCursor.toKafkaPartition(item.getPartition()),
-                    item.getEventKey(),
-                    delete ? null : item.dumpEventToString());
+                    null == item.getEventKey() ? null : item.getEventKey().getBytes(StandardCharsets.UTF_8),
+                    value);
             if (null != item.getOwner()) {
                 item.getOwner().serialize(kafkaRecord);
             }
+            if (!delete && null != item.getAvroEvent()) {
+                AvroSchemaVersionHeader.serialize(item.getAvroSchemaVersion(), kafkaRecord);
+            }
 
-            circuitBreaker.markStart();
+            tracker.expect();
             producer.send(kafkaRecord, ((metadata, exception) -> {
                 if (null != exception) {
                     LOG.warn("Failed to publish to kafka topic {}", topicId, exception);
                     item.updateStatusAndDetail(EventPublishingStatus.FAILED, "internal error");
-                    if (hasKafkaConnectionException(exception)) {
-                        circuitBreaker.markFailure();
-                    } else {
-                        circuitBreaker.markSuccessfully();
-                    }
-                    result.complete(exception);
                 } else {
                     item.updateStatusAndDetail(EventPublishingStatus.SUBMITTED, "");
-                    circuitBreaker.markSuccessfully();
-                    result.complete(null);
                 }
+                tracker.complete(position, exception);
             }));
-            return result;
         } catch (final InterruptException e) {
             Thread.currentThread().interrupt();
-            circuitBreaker.markSuccessfully();
             item.updateStatusAndDetail(EventPublishingStatus.FAILED, "internal error");
             throw new EventPublishingException("Error publishing message to kafka", e);
         } catch (final RuntimeException e) {
             kafkaFactory.terminateProducer(producer);
-            circuitBreaker.markSuccessfully();
             item.updateStatusAndDetail(EventPublishingStatus.FAILED, "internal error");
             throw new EventPublishingException("Error publishing message to kafka", e);
         }
@@ -259,9 +310,8 @@ public class KafkaTopicRepository implements TopicRepository {
             if (!Boolean.TRUE.equals(areNewPartitionsAdded)) {
                 throw new TopicConfigException(String.format("Failed to repartition topic to %s", partitionsNumber));
             }
-            final Producer<String, String> producer = kafkaFactory.takeProducer();
-            kafkaFactory.terminateProducer(producer);
-            kafkaFactory.releaseProducer(producer);
+            kafkaFactory.terminateProducers();
+            invalidatePartitionsMetadata(topic);
         } catch (Exception e) {
             throw new CannotAddPartitionToTopicException(String
                     .format("Failed to increase the number of partition for %s topic to %s", topic,
@@ -314,6 +364,7 @@ public class KafkaTopicRepository implements TopicRepository {
         try (AdminClient adminClient = AdminClient.create(kafkaLocationManager.getProperties())) {
             // this will only trigger topic deletion, but the actual deletion is asynchronous
             adminClient.deleteTopics(Lists.newArrayList(topic)).all().get(30, TimeUnit.SECONDS);
+            invalidatePartitionsMetadata(topic);
         } catch (final Exception e) {
             if (e instanceof InterruptedException) {
                 Thread.currentThread().interrupt();
@@ -331,72 +382,184 @@ public class KafkaTopicRepository implements TopicRepository {
 
     @Override
     public void syncPostBatch(
-            final String topicId, final List<BatchItem> batch, final String eventType, final boolean delete)
+            final String topicId, final List<BatchItem> batch, final String eventType,
+            final PublishingOptions options, final boolean delete)
             throws EventPublishingException {
-        final Producer<String, String> producer = kafkaFactory.takeProducer();
+        final Map<String, Producer<byte[], byte[]>> producers = new HashMap<>();
+        final Map<String, Boolean> allowedBrokers = new HashMap<>();
+        final BatchCompletionTracker tracker =
+                sendBatch(topicId, batch, eventType, options, delete, producers, allowedBrokers);
+        final boolean completed;
         try {
-            final Map<String, String> partitionToBroker = producer.partitionsFor(topicId).stream().collect(
-                    Collectors.toMap(
-                            p -> String.valueOf(p.partition()),
-                            p -> p.leader().idString() + "_" + p.leader().host()));
-            batch.forEach(item -> {
-                Preconditions.checkNotNull(
-                        item.getPartition(), "BatchItem partition can't be null at the moment of publishing!");
-                item.setBrokerId(partitionToBroker.get(item.getPartition()));
-            });
+            completed = tracker.await(createSendTimeout(), TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            producers.values().forEach(kafkaFactory::releaseProducer);
+            failUnpublished(batch, "interrupted");
+            throw new EventPublishingException("Interrupted publishing message to kafka", ex);
+        }
+        recordCircuitBreakerResults(batch, allowedBrokers, tracker);
+        completeBatch(topicId, batch, producers, tracker,
+                completed ? null : new TimeoutException("Events were not acknowledged in time"));
+    }
+
+    @Override
+    public CompletableFuture<Void> postBatch(
+            final String topicId, final List<BatchItem> batch, final String eventType,
+            final PublishingOptions options, final boolean delete)
+            throws EventPublishingException {
+        final Map<String, Producer<byte[], byte[]>> producers = new HashMap<>();
+        final Map<String, Boolean> allowedBrokers = new HashMap<>();
+        final BatchCompletionTracker tracker =
+                sendBatch(topicId, batch, eventType, options, delete, producers, allowedBrokers);
+        // callbacks of kafka producers are invoked by their sender threads, that should not be blocked with
+        // termination and release of producers, so the batch is completed in a separate thread
+        return tracker.whenCompleted()
+                .orTimeout(createSendTimeout(), TimeUnit.MILLISECONDS)
+                .handleAsync((ignore, ex) -> {
+                    recordCircuitBreakerResults(batch, allowedBrokers, tracker);
+                    completeBatch(topicId, batch, producers, tracker, ex);
+                    return null;
+                }, completionExecutor);
+    }
 
-            int shortCircuited = 0;
-            final Map<BatchItem, CompletableFuture<Exception>> sendFutures = new HashMap<>();
-            for (final BatchItem item : batch) {
+    /**
+     * Sends events of the batch to kafka without waiting for them to be acknowledged.
+     *
+     * @param producers      filled with producers taken for the partitions of the batch, they should be released
+     *                       once the batch is completed
+     * @param allowedBrokers filled with decisions of the circuit breakers of the brokers of the batch
+     */
+    private BatchCompletionTracker sendBatch(
+            final String topicId, final List<BatchItem> batch, final String eventType, final PublishingOptions options,
+            final boolean delete, final Map<String, Producer<byte[], byte[]>> producers,
+            final Map<String, Boolean> allowedBrokers)
+            throws EventPublishingException {
+        final PartitionsMetadata partitionsMetadata;
+        try {
+            partitionsMetadata = getPartitionsMetadata(topicId);
+        } catch (final KafkaException e) {
+            failUnpublished(batch, "internal error");
+            throw new EventPublishingException("Failed to get partitions of topic " + topicId, e);
+        }
+        boolean unknownLeader = false;
+        for (final BatchItem item : batch) {
+            Preconditions.checkNotNull(
+                    item.getPartition(), "BatchItem partition can't be null at the moment of publishing!");
+            item.setBrokerId(partitionsMetadata.getBrokerId(item.getPartition()));
+            unknownLeader |= null == item.getBrokerId();
+        }
+        if (unknownLeader) {
+            // leader is being elected or the partition was added, the next batch takes fresh metadata, while
+            // this one is sent without circuit breaker, as the broker it goes to is unknown
+            invalidatePartitionsMetadata(topicId);
+        }
+        final BatchCompletionTracker tracker = new BatchCompletionTracker(batch.size());
+        final Map<String, Integer> shortCircuited = new HashMap<>();
+        long producerWaitNanos = 0;
+        try {
+            for (int i = 0; i < batch.size(); ++i) {
+                final BatchItem item = batch.get(i);
                 item.setStep(EventPublishingStep.PUBLISHING);
-                final HystrixKafkaCircuitBreaker circuitBreaker = circuitBreakers.computeIfAbsent(
-                        item.getBrokerId(), brokerId -> new HystrixKafkaCircuitBreaker(brokerId));
-                if (circuitBreaker.attemptExecution()) {
-                    sendFutures.put(item, publishItem(producer, topicId, item, circuitBreaker, delete));
+                // circuit breakers are checked once per broker of the batch, not for every event
+                if (allowedBrokers.computeIfAbsent(item.getBrokerId(),
+                        brokerId -> null == brokerId || getCircuitBreaker(brokerId).allowRequest())) {
+                    // producers are taken once per partition, the same producer is used for all its events
+                    Producer<byte[], byte[]> producer = producers.get(item.getPartition());
+                    if (null == producer) {
+                        final long producerWaitStart = System.nanoTime();
+                        producer = kafkaFactory.takeProducer(options, topicId, item.getPartition());
+                        producerWaitNanos += System.nanoTime() - producerWaitStart;
+                        producers.put(item.getPartition(), producer);
+                    }
+                    publishItem(producer, topicId, item, delete, tracker, i);
                 } else {
-                    shortCircuited++;
                     item.updateStatusAndDetail(EventPublishingStatus.FAILED, "short circuited");
-                    metricRegistry
-                            .meter(String.format(
-                                    HYSTRIX_SHORT_CIRCUIT_COUNTER,
-                                    item.getBrokerId()))
-                            .mark();
+                    shortCircuited.merge(item.getBrokerId(), 1, Integer::sum);
                 }
             }
-            if (shortCircuited > 0) {
+            if (!shortCircuited.isEmpty()) {
+                shortCircuited.forEach((brokerId, count) ->
+                        metricRegistry.meter(String.format(SHORT_CIRCUIT_COUNTER, brokerId)).mark(count));
                 LOG.warn("Short circuiting request to Kafka {} time(s) due to timeout for topic {}",
-                        shortCircuited, topicId);
+                        shortCircuited.values().stream().mapToInt(Integer::intValue).sum(), topicId);
+            }
+        } catch (final RuntimeException ex) {
+            producers.values().forEach(kafkaFactory::releaseProducer);
+            throw ex;
+        }
+        if (null != eventTypeMetricRegistry && !producers.isEmpty()) {
+            eventTypeMetricRegistry.latencyFor(eventType).updateProducerWaitTiming(producerWaitNanos);
+        }
+        tracker.seal();
+        return tracker;
+    }
+
+    private KafkaCircuitBreaker getCircuitBreaker(final String brokerId) {
+        return circuitBreakers.computeIfAbsent(
+                brokerId, id -> new KafkaCircuitBreaker(id, circuitBreakerSettings, metricRegistry));
+    }
+
+    private void recordCircuitBreakerResults(final List<BatchItem> batch, final Map<String, Boolean> allowedBrokers,
+                                             final BatchCompletionTracker tracker) {
+        // events that were not acknowledged in time are failed the same way as kafka timeouts
+        final Map<String, int[]> results = new HashMap<>();
+        for (int i = 0; i < batch.size(); ++i) {
+            final String brokerId = batch.get(i).getBrokerId();
+            if (null == brokerId || !allowedBrokers.get(brokerId)) {
+                continue;
+            }
+            final int[] brokerResults = results.computeIfAbsent(brokerId, id -> new int[2]);
+            final Exception exception = tracker.getException(i);
+            if (!tracker.isCompleted(i) || (null != exception && hasKafkaConnectionException(exception))) {
+                brokerResults[1]++;
+            } else {
+                brokerResults[0]++;
+            }
+        }
+        results.forEach((brokerId, brokerResults) ->
+                getCircuitBreaker(brokerId).record(brokerResults[0], brokerResults[1]));
+    }
+
+    private void completeBatch(
+            final String topicId,
+            final List<BatchItem> batch,
+            final Map<String, Producer<byte[], byte[]>> producers,
+            final BatchCompletionTracker tracker,
+            @Nullable final Throwable sendFailure) throws EventPublishingException {
+        try {
+            if (sendFailure instanceof TimeoutException) {
+                producers.values().forEach(kafkaFactory::terminateProducer);
+                failUnpublished(batch, "timed out");
+                throw new EventPublishingException("Timeout publishing message to kafka", sendFailure);
+            } else if (null != sendFailure) {
+                failUnpublished(batch, "internal error");
+                throw new EventPublishingException("Internal error publishing message to kafka", sendFailure);
             }
-            final CompletableFuture<Void> multiFuture = CompletableFuture.allOf(
-                    sendFutures.values().toArray(new CompletableFuture<?>[sendFutures.size()]));
-            multiFuture.get(createSendTimeout(), TimeUnit.MILLISECONDS);
 
             // Now lets check for errors
-            final Optional<Exception> needReset = sendFutures.entrySet().stream()
-                    .filter(entry -> isExceptionShouldLeadToReset(entry.getValue().getNow(null)))
-                    .map(entry -> entry.getValue().getNow(null))
-                    .findAny();
-            if (needReset.isPresent()) {
+            final Map<Producer<byte[], byte[]>, Exception> needReset = new HashMap<>();
+            for (int i = 0; i < batch.size(); ++i) {
+                final Exception exception = tracker.getException(i);
+                if (isExceptionShouldLeadToReset(exception)) {
+                    needReset.putIfAbsent(producers.get(batch.get(i).getPartition()), exception);
+                }
+            }
+            needReset.forEach((producer, exception) -> {
                 LOG.info("Terminating producer while publishing to topic {} because of unrecoverable exception",
-                        topicId, needReset.get());
+                        topicId, exception);
                 kafkaFactory.terminateProducer(producer);
+            });
+            if (!needReset.isEmpty()) {
+                invalidatePartitionsMetadata(topicId);
             }
-        } catch (final TimeoutException ex) {
-            kafkaFactory.terminateProducer(producer);
-            failUnpublished(batch, "timed out");
-            throw new EventPublishingException("Timeout publishing message to kafka", ex);
-        } catch (final ExecutionException ex) {
-            failUnpublished(batch, "internal error");
-            throw new EventPublishingException("Internal error publishing message to kafka", ex);
-        } catch (final InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            failUnpublished(batch, "interrupted");
-            throw new EventPublishingException("Interrupted publishing message to kafka", ex);
         } finally {
-            kafkaFactory.releaseProducer(producer);
+            producers.values().forEach(kafkaFactory::releaseProducer);
+        }
+        boolean atLeastOneFailed = false;
+        for (final BatchItem item : batch) {
+            atLeastOneFailed |= item.getResponse().getPublishingStatus() == EventPublishingStatus.FAILED;
         }
-        final boolean atLeastOneFailed = batch.stream()
-                .anyMatch(item -> item.getResponse().getPublishingStatus() == EventPublishingStatus.FAILED);
         if (atLeastOneFailed) {
             failUnpublished(batch, "internal error");
             throw new EventPublishingException("Internal error publishing message to kafka");
@@ -592,6 +755,43 @@ public class KafkaTopicRepository implements TopicRepository {
                         .withExceptionsThatForceRetry(org.apache.kafka.common.errors.TimeoutException.class));
     }
 
+    @Override
+    public PartitionsMetadata getPartitionsMetadata(final String topicId) {
+        try {
+            return partitionsMetadataCache.getUnchecked(topicId);
+        } catch (final UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void invalidatePartitionsMetadata(final String topicId) {
+        partitionsMetadataCache.invalidate(topicId);
+    }
+
+    /**
+     * Loads the metadata without retries: concurrent publishers of the topic wait for the same load, so a failure is
+     * reported to all of them at once, and the next batch tries again.
+     */
+    private PartitionsMetadata loadPartitionsMetadata(final String topicId) {
+        final Producer<byte[], byte[]> producer = kafkaFactory.takeProducer();
+        try {
+            final Map<String, String> partitionToBroker = new HashMap<>();
+            for (final PartitionInfo partitionInfo : producer.partitionsFor(topicId)) {
+                partitionToBroker.put(
+                        KafkaCursor.toNakadiPartition(partitionInfo.partition()),
+                        null == partitionInfo.leader() ? null :
+                                partitionInfo.leader().idString() + "_" + partitionInfo.leader().host());
+            }
+            return new PartitionsMetadata(partitionToBroker);
+        } finally {
+            kafkaFactory.releaseProducer(producer);
+        }
+    }
+
     @Override
     public Map<org.zalando.nakadi.domain.TopicPartition, Long> getSizeStats() {
         final Map<org.zalando.nakadi.domain.TopicPartition, Long> result = new HashMap<>();
@@ -618,7 +818,7 @@ public class KafkaTopicRepository implements TopicRepository {
     }
 
     public List<String> listPartitionNamesInternal(final String topicId) {
-        final Producer<String, String> producer = kafkaFactory.takeProducer();
+        final Producer<byte[], byte[]> producer = kafkaFactory.takeProducer();
         try {
             return unmodifiableList(producer.partitionsFor(topicId)
                     .stream()
@@ -720,6 +920,11 @@ public class KafkaTopicRepository implements TopicRepository {
         }
     }
 
+    @Override
+    public void close() {
+        completionExecutor.shutdown();
+    }
+
     private void validateCursorForNulls(final NakadiCursor cursor) throws InvalidCursorException {
         if (cursor.getPartition() == null) {
             throw new InvalidCursorException(NULL_PARTITION, cursor);
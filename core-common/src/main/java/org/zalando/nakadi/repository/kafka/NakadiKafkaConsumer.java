@@ -4,6 +4,7 @@ import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.common.TopicPartition;
+import org.zalando.nakadi.domain.AvroSchemaVersionHeader;
 import org.zalando.nakadi.domain.ConsumedEvent;
 import org.zalando.nakadi.domain.EventOwnerHeader;
 import org.zalando.nakadi.domain.Timeline;
@@ -65,7 +66,8 @@ public class NakadiKafkaConsumer implements EventConsumer.LowLevelConsumer {
                     record.value(),
                     cursor.toNakadiCursor(timeline),
                     record.timestamp(),
-                    EventOwnerHeader.deserialize(record)));
+                    EventOwnerHeader.deserialize(record),
+                    AvroSchemaVersionHeader.deserialize(record)));
         }
         return result;
     }
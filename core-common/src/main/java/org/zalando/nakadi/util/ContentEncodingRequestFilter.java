@@ -0,0 +1,211 @@
+package org.zalando.nakadi.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdInputStream;
+import com.google.common.collect.ImmutableMap;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
+import org.zalando.nakadi.util.encoding.ContentDecoder;
+import org.zalando.nakadi.util.encoding.GzipContentDecoder;
+import org.zalando.problem.Problem;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpMethod.POST;
+import static org.zalando.problem.Status.NOT_ACCEPTABLE;
+
+/**
+ * Decodes bodies of POST requests sent with gzip, zstd or lz4 (frame format) Content-Encoding. Bodies with other
+ * encodings are passed as they are. Size of decoded body is limited, so that a small compressed request can not make
+ * us read an unlimited amount of data.
+ */
+public class ContentEncodingRequestFilter implements Filter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentEncodingRequestFilter.class);
+    private static final int GZIP_INFLATERS_POOL_SIZE = 64;
+
+    private final ObjectMapper objectMapper;
+    private final long maxDecodedBytes;
+    private final Map<String, ContentDecoder> decoders;
+
+    public ContentEncodingRequestFilter(final ObjectMapper objectMapper, final long maxDecodedBytes) {
+        this.objectMapper = objectMapper;
+        this.maxDecodedBytes = maxDecodedBytes;
+        final ContentDecoder gzip = new GzipContentDecoder(GZIP_INFLATERS_POOL_SIZE);
+        this.decoders = ImmutableMap.of(
+                "gzip", gzip,
+                "x-gzip", gzip,
+                "zstd", ZstdInputStream::new,
+                "lz4", LZ4FrameInputStream::new);
+    }
+
+    @Override
+    public final void doFilter(final ServletRequest servletRequest, final ServletResponse servletResponse,
+                               final FilterChain chain) throws IOException, ServletException {
+
+        final HttpServletRequest request = (HttpServletRequest) servletRequest;
+
+        final String encoding = request.getHeader(CONTENT_ENCODING);
+        final ContentDecoder decoder = null == encoding ? null :
+                decoders.get(encoding.trim().toLowerCase(Locale.ROOT));
+
+        if (null != decoder && !POST.matches(request.getMethod())) {
+            reportNotAcceptableError((HttpServletResponse) servletResponse, request, encoding.trim());
+            return;
+        }
+        else if (null != decoder) {
+            final DecodingServletRequestWrapper decodingRequest = new DecodingServletRequestWrapper(request, decoder);
+            try {
+                chain.doFilter(decodingRequest, servletResponse);
+            } finally {
+                // returns pooled gzip inflater and frees native memory of zstd and lz4 decoders
+                decodingRequest.close();
+            }
+            return;
+        }
+        chain.doFilter(request, servletResponse);
+    }
+
+    private void reportNotAcceptableError(final HttpServletResponse response, final HttpServletRequest request,
+                                          final String encoding)
+            throws IOException {
+
+        response.setStatus(NOT_ACCEPTABLE.getStatusCode());
+        final PrintWriter writer = response.getWriter();
+        final Problem problem = Problem.valueOf(NOT_ACCEPTABLE,
+                request.getMethod() + " method doesn't support " + encoding + " content encoding");
+        writer.write(objectMapper.writeValueAsString(problem));
+        writer.close();
+    }
+
+    @Override
+    public void init(final FilterConfig filterConfig) throws ServletException {
+        // filter is stateless, nothing to init
+    }
+
+    @Override
+    public void destroy() {
+        // filter is stateless, nothing to destroy
+    }
+
+
+    private class DecodingServletRequestWrapper extends HttpServletRequestWrapper {
+
+        private final ContentDecoder decoder;
+        private ServletInputStream inputStream;
+
+        DecodingServletRequestWrapper(final HttpServletRequest request, final ContentDecoder decoder) {
+            super(request);
+            this.decoder = decoder;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (null == inputStream) {
+                inputStream = new DecodingServletInputStream(decoder.decode(super.getInputStream()));
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            return new BufferedReader(new InputStreamReader(this.getInputStream()));
+        }
+
+        private void close() {
+            if (null == inputStream) {
+                return;
+            }
+            try {
+                inputStream.close();
+            } catch (final IOException e) {
+                LOG.warn("Failed to close decoded request body", e);
+            }
+        }
+    }
+
+
+    private class DecodingServletInputStream extends ServletInputStream {
+
+        private final InputStream inputStream;
+        private long decodedBytes;
+        private boolean finished;
+        private boolean closed;
+
+        DecodingServletInputStream(final InputStream inputStream) {
+            super();
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = inputStream.read();
+            count(result == -1 ? -1 : 1);
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int result = inputStream.read(b, off, len);
+            count(result);
+            return result;
+        }
+
+        private void count(final int read) {
+            if (read < 0) {
+                finished = true;
+                return;
+            }
+            decodedBytes += read;
+            if (decodedBytes > maxDecodedBytes) {
+                throw new PayloadTooLargeException("Decoded request body is larger than " + maxDecodedBytes +
+                        " bytes");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            inputStream.close();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(final ReadListener listener) {
+            throw new UnsupportedOperationException("Not supported");
+        }
+    }
+
+}
@@ -4,6 +4,9 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.zalando.nakadi.exceptions.runtime.JsonPathAccessException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /*
  One could use JsonPath Lib instead: https://github.com/jayway/JsonPath
 
@@ -38,6 +41,19 @@ public class JsonPathAccess {
         return curr;
     }
 
+    /**
+     * Splits path to the names of the fields, in the same way as {@link #get(String)} does.
+     */
+    public static String[] parsePath(final String path) {
+        final JsonPathTokenizer pathTokenizer = new JsonPathTokenizer(path);
+        final List<String> fields = new ArrayList<>();
+        String field;
+        while ((field = pathTokenizer.nextToken()) != null) {
+            fields.add(field);
+        }
+        return fields.toArray(new String[0]);
+    }
+
     private static class JsonPathTokenizer {
         private final char[] path;
         private int pos = 0;
@@ -48,7 +64,7 @@ public class JsonPathAccess {
             tokenBuilder = new StringBuilder(this.path.length);
         }
 
-        public synchronized String nextToken() {
+        public String nextToken() {
             if (pos >= path.length) {
                 return null;
             }
@@ -0,0 +1,90 @@
+package org.zalando.nakadi.util;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded queue for many producers and a single consumer, built on preallocated array of slots. Producers claim
+ * slots with a single CAS and never block or take locks, {@link #offer(Object)} fails right away if the queue is
+ * full. Every slot has a sequence number, that tells whether the slot is free for the producer of the given lap or
+ * already filled for the consumer.
+ *
+ * <p>{@link #poll()} must only be called by one thread at a time.
+ */
+public class MpscRingBuffer<T> {
+
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity minimal capacity of the buffer, rounded up to the power of 2
+     */
+    public MpscRingBuffer(final int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity should be between 1 and 2^30, got " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    public boolean offer(final T element) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) (position & mask);
+            final long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    // publishes the element to the consumer
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (sequence < position) {
+                // the slot is not consumed since the previous lap
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return the oldest element or null if the buffer is empty
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        final long position = head;
+        final int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        final T element = (T) elements[index];
+        elements[index] = null;
+        // frees the slot for the producers of the next lap
+        sequences.lazySet(index, position + elements.length);
+        head = position + 1;
+        return element;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,63 @@
+package org.zalando.nakadi.util;
+
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts bytes read from the underlying stream and fails with {@link PayloadTooLargeException} as soon as more than
+ * {@code maxBytes} are read, instead of silently truncating the stream.
+ */
+public class SizeLimitingInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long count;
+
+    public SizeLimitingInputStream(final InputStream in, final long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int result = in.read();
+        if (result != -1) {
+            count(1);
+        }
+        return result;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int result = in.read(b, off, len);
+        if (result != -1) {
+            count(result);
+        }
+        return result;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long result = in.skip(n);
+        count(result);
+        return result;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(final long read) {
+        count += read;
+        if (count > maxBytes) {
+            throw new PayloadTooLargeException("Request body is larger than " + maxBytes + " bytes");
+        }
+    }
+}
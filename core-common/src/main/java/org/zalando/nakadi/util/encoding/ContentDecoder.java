@@ -0,0 +1,12 @@
+package org.zalando.nakadi.util.encoding;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes request body sent with one of the supported values of Content-Encoding header.
+ */
+public interface ContentDecoder {
+
+    InputStream decode(InputStream encoded) throws IOException;
+}
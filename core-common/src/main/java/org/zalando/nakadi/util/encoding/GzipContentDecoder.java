@@ -0,0 +1,213 @@
+package org.zalando.nakadi.util.encoding;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decodes gzip bodies with inflaters taken from a pool, instead of allocating native inflater for every request as
+ * {@link java.util.zip.GZIPInputStream} does. Concatenated gzip members are decoded one after another.
+ */
+public class GzipContentDecoder implements ContentDecoder {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int DEFLATE_METHOD = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final BlockingQueue<Inflater> inflaters;
+
+    public GzipContentDecoder(final int poolSize) {
+        this.inflaters = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @Override
+    public InputStream decode(final InputStream encoded) throws IOException {
+        final Inflater pooled = inflaters.poll();
+        final GzipInputStream decoded = new GzipInputStream(encoded, null != pooled ? pooled : new Inflater(true));
+        try {
+            decoded.readHeader();
+        } catch (final IOException e) {
+            decoded.close();
+            throw e;
+        }
+        return decoded;
+    }
+
+    private void release(final Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    private class GzipInputStream extends InputStream {
+
+        private final InputStream in;
+        private final Inflater inflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private boolean finished;
+        private boolean closed;
+
+        private GzipInputStream(final InputStream in, final Inflater inflater) {
+            this.in = in;
+            this.inflater = inflater;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (finished) {
+                return -1;
+            }
+            if (0 == len) {
+                return 0;
+            }
+            while (true) {
+                final int inflated;
+                try {
+                    inflated = inflater.inflate(b, off, len);
+                } catch (final DataFormatException e) {
+                    throw new ZipException(e.getMessage());
+                }
+                if (inflated > 0) {
+                    crc.update(b, off, inflated);
+                    return inflated;
+                }
+                if (inflater.finished()) {
+                    // bytes after the end of deflate stream belong to the trailer and the next member
+                    position = limit - inflater.getRemaining();
+                    readTrailer();
+                    if (!hasNextMember()) {
+                        finished = true;
+                        return -1;
+                    }
+                    inflater.reset();
+                    crc.reset();
+                    readHeader();
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException("Deflate stream requires a dictionary");
+                } else if (inflater.needsInput()) {
+                    if (position == limit) {
+                        fill();
+                    }
+                    inflater.setInput(buffer, position, limit - position);
+                    position = limit;
+                }
+            }
+        }
+
+        private void readHeader() throws IOException {
+            if (readUnsignedShort() != GZIP_MAGIC) {
+                throw new ZipException("Not in gzip format");
+            }
+            if (readUnsignedByte() != DEFLATE_METHOD) {
+                throw new ZipException("Unsupported compression method");
+            }
+            final int flags = readUnsignedByte();
+            // modification time, extra flags and operating system
+            skipBytes(6);
+            if ((flags & FEXTRA) != 0) {
+                skipBytes(readUnsignedShort());
+            }
+            if ((flags & FNAME) != 0) {
+                skipZeroTerminated();
+            }
+            if ((flags & FCOMMENT) != 0) {
+                skipZeroTerminated();
+            }
+            if ((flags & FHCRC) != 0) {
+                skipBytes(2);
+            }
+        }
+
+        private void readTrailer() throws IOException {
+            final long expectedCrc = readUnsignedInt();
+            final long expectedSize = readUnsignedInt();
+            if (expectedCrc != crc.getValue()) {
+                throw new ZipException("Corrupt gzip trailer, crc mismatch");
+            }
+            if (expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+                throw new ZipException("Corrupt gzip trailer, size mismatch");
+            }
+        }
+
+        private boolean hasNextMember() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit < 0) {
+                    limit = 0;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void fill() throws IOException {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit < 0) {
+                limit = 0;
+                throw new EOFException("Unexpected end of gzip stream");
+            }
+        }
+
+        private int readUnsignedByte() throws IOException {
+            while (position == limit) {
+                fill();
+            }
+            return buffer[position++] & 0xff;
+        }
+
+        private int readUnsignedShort() throws IOException {
+            return readUnsignedByte() | (readUnsignedByte() << 8);
+        }
+
+        private long readUnsignedInt() throws IOException {
+            return readUnsignedShort() | ((long) readUnsignedShort() << 16);
+        }
+
+        private void skipBytes(final int count) throws IOException {
+            for (int i = 0; i < count; ++i) {
+                readUnsignedByte();
+            }
+        }
+
+        private void skipZeroTerminated() throws IOException {
+            while (readUnsignedByte() != 0) {
+                // skipping the field
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            release(inflater);
+            in.close();
+        }
+    }
+}
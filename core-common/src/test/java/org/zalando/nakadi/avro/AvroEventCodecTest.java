@@ -0,0 +1,113 @@
+package org.zalando.nakadi.avro;
+
+import org.apache.avro.AvroTypeException;
+import org.joda.time.DateTime;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeSchema;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+import org.zalando.nakadi.utils.EventTypeTestBuilder;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertNull;
+
+public class AvroEventCodecTest {
+
+    private static final String ORDER_SCHEMA = "{\"type\":\"record\",\"name\":\"Order\",\"fields\":[" +
+            "{\"name\":\"id\",\"type\":\"string\"}," +
+            "{\"name\":\"count\",\"type\":\"int\",\"default\":1}," +
+            "{\"name\":\"comment\",\"type\":[\"null\",\"string\"],\"default\":null}," +
+            "{\"name\":\"status\",\"type\":{\"type\":\"enum\",\"name\":\"Status\",\"symbols\":[\"NEW\",\"PAID\"]}}," +
+            "{\"name\":\"prices\",\"type\":{\"type\":\"array\",\"items\":\"double\"}}," +
+            "{\"name\":\"tags\",\"type\":{\"type\":\"map\",\"values\":\"boolean\"}}," +
+            "{\"name\":\"code\",\"type\":[\"null\",\"bytes\"],\"default\":null}," +
+            "{\"name\":\"next\",\"type\":[\"null\",\"long\",\"Order\"],\"default\":null}]}";
+    private static final String METADATA = "{\"eid\":\"329ed3d2-8366-11e8-adc0-fa7ae01bbebc\"," +
+            "\"occurred_at\":\"1996-12-19T16:39:57-08:00\",\"event_type\":\"orders\"," +
+            "\"received_at\":\"2021-06-01T10:00:00.000Z\",\"published_by\":\"shop\",\"version\":\"1.0.0\"," +
+            "\"span_ctx\":{\"ot-tracer-spanid\":\"b268f901d5f2b865\"},\"parent_eids\":[]}";
+    private static final String ORDER = "\"id\":\"A-1\",\"count\":2,\"comment\":\"fragile\",\"status\":\"PAID\"," +
+            "\"prices\":[9.5,1],\"tags\":{\"gift\":true},\"code\":\"AQID\",\"next\":{\"id\":\"A-2\"," +
+            "\"status\":\"NEW\",\"prices\":[],\"tags\":{},\"next\":7}";
+
+    @Test
+    public void whenBusinessEventIsEncodedThenItIsDecodedToTheSameJson() {
+        final AvroEventCodec codec = AvroEventCodec.create(avroEventType(EventCategory.BUSINESS));
+        final JSONObject event = new JSONObject("{\"metadata\":" + METADATA + "," + ORDER + "}");
+
+        final byte[] avro = codec.toAvro(event);
+
+        assertThat(codec.getVersion(), equalTo("1.0.0"));
+        assertThat(avro.length, lessThan(event.toString().length()));
+        final JSONObject expected = new JSONObject(event.toString());
+        // default values are written, as consumers can not tell them from values set by publishers
+        expected.getJSONObject("next").put("count", 1);
+        assertThat(decode(codec, avro).similar(expected), equalTo(true));
+    }
+
+    @Test
+    public void whenDataChangeEventIsEncodedThenItIsDecodedToTheSameJson() {
+        final AvroEventCodec codec = AvroEventCodec.create(avroEventType(EventCategory.DATA));
+        final JSONObject event = new JSONObject("{\"metadata\":" + METADATA + ",\"data_op\":\"C\"," +
+                "\"data_type\":\"order\",\"data\":{\"id\":\"A-3\",\"count\":3,\"status\":\"NEW\",\"prices\":[]," +
+                "\"tags\":{}}}");
+
+        assertThat(decode(codec, codec.toAvro(event)).similar(event), equalTo(true));
+    }
+
+    @Test
+    public void whenNullValuesThenTheyAreOmitted() {
+        final AvroEventCodec codec = AvroEventCodec.create(avroEventType(EventCategory.UNDEFINED));
+        final JSONObject event = new JSONObject("{\"id\":\"A-4\",\"count\":4,\"comment\":null,\"status\":\"NEW\"," +
+                "\"prices\":[],\"tags\":{}}");
+
+        assertThat(new String(codec.toJson(codec.toAvro(event)), StandardCharsets.UTF_8), equalTo(
+                "{\"id\":\"A-4\",\"count\":4,\"status\":\"NEW\",\"prices\":[],\"tags\":{}}"));
+    }
+
+    @Test(expected = AvroTypeException.class)
+    public void whenIntegerIsOutOfRangeThenEventIsNotEncoded() {
+        final AvroEventCodec codec = AvroEventCodec.create(avroEventType(EventCategory.UNDEFINED));
+
+        codec.toAvro(new JSONObject("{\"id\":\"A-5\",\"count\":3000000000,\"status\":\"NEW\",\"prices\":[]," +
+                "\"tags\":{}}"));
+    }
+
+    @Test(expected = AvroTypeException.class)
+    public void whenBytesAreNotBase64ThenEventIsNotEncoded() {
+        final AvroEventCodec codec = AvroEventCodec.create(avroEventType(EventCategory.UNDEFINED));
+
+        codec.toAvro(new JSONObject("{\"id\":\"A-6\",\"status\":\"NEW\",\"prices\":[],\"tags\":{}," +
+                "\"code\":\"not base64\"}"));
+    }
+
+    @Test(expected = AvroTypeException.class)
+    public void whenRequiredFieldIsMissingThenEventIsNotEncoded() {
+        final AvroEventCodec codec = AvroEventCodec.create(avroEventType(EventCategory.BUSINESS));
+
+        codec.toAvro(new JSONObject("{\"metadata\":" + METADATA + ",\"id\":\"A-7\",\"prices\":[],\"tags\":{}}"));
+    }
+
+    @Test
+    public void whenJsonSchemaThenThereIsNoCodec() {
+        assertNull(AvroEventCodec.create(EventTypeTestBuilder.builder().build()));
+    }
+
+    private static JSONObject decode(final AvroEventCodec codec, final byte[] avro) {
+        return new JSONObject(new String(codec.toJson(avro), StandardCharsets.UTF_8));
+    }
+
+    private static EventType avroEventType(final EventCategory category) {
+        return EventTypeTestBuilder.builder()
+                .category(category)
+                .schema(new EventTypeSchema(new EventTypeSchemaBase(EventTypeSchemaBase.Type.AVRO_SCHEMA,
+                        ORDER_SCHEMA), "1.0.0", new DateTime()))
+                .build();
+    }
+}
@@ -0,0 +1,70 @@
+package org.zalando.nakadi.avro;
+
+import org.apache.avro.Schema;
+import org.everit.json.schema.ValidationException;
+import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class AvroSchemaConverterTest {
+
+    private static final String ORDER_SCHEMA = "{\"type\":\"record\",\"name\":\"Order\",\"fields\":[" +
+            "{\"name\":\"id\",\"type\":\"string\"}," +
+            "{\"name\":\"count\",\"type\":\"int\",\"default\":1}," +
+            "{\"name\":\"comment\",\"type\":[\"null\",\"string\"],\"default\":null}," +
+            "{\"name\":\"status\",\"type\":{\"type\":\"enum\",\"name\":\"Status\",\"symbols\":[\"NEW\",\"PAID\"]}}," +
+            "{\"name\":\"prices\",\"type\":{\"type\":\"array\",\"items\":\"double\"}}," +
+            "{\"name\":\"tags\",\"type\":{\"type\":\"map\",\"values\":\"boolean\"}}," +
+            "{\"name\":\"next\",\"type\":[\"null\",\"Order\"],\"default\":null}]}";
+
+    @Test
+    public void whenRecordThenObjectWithRequiredFieldsIsCreated() {
+        final JSONObject jsonSchema = AvroSchemaConverter.toJsonSchema(new Schema.Parser().parse(ORDER_SCHEMA));
+
+        assertThat(jsonSchema.getString("type"), equalTo("object"));
+        assertThat(jsonSchema.getBoolean("additionalProperties"), equalTo(false));
+        assertThat(jsonSchema.getJSONArray("required").toList(), equalTo(Arrays.asList(
+                "id", "status", "prices", "tags")));
+        final JSONObject properties = jsonSchema.getJSONObject("properties");
+        assertThat(properties.getJSONObject("count").getString("type"), equalTo("integer"));
+        assertThat(properties.getJSONObject("status").getJSONArray("enum").toList(),
+                equalTo(Arrays.asList("NEW", "PAID")));
+        assertThat(properties.getJSONObject("prices").getJSONObject("items").getString("type"),
+                equalTo("number"));
+        assertThat(properties.getJSONObject("tags").getJSONObject("additionalProperties").getString("type"),
+                equalTo("boolean"));
+        assertThat(properties.getJSONObject("next").getJSONArray("anyOf").getJSONObject(1).getString("type"),
+                equalTo("object"));
+    }
+
+    @Test
+    public void whenConvertedThenEventsAreValidatedWithJsonSchema() {
+        final org.everit.json.schema.Schema schema = SchemaLoader.load(AvroSchemaConverter.toJsonSchema(
+                new EventTypeSchemaBase(EventTypeSchemaBase.Type.AVRO_SCHEMA, ORDER_SCHEMA)));
+
+        schema.validate(new JSONObject("{\"id\":\"A-1\",\"status\":\"NEW\",\"prices\":[1.5],\"tags\":{}," +
+                "\"next\":{\"id\":\"A-2\"}}"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void whenUnknownFieldThenEventIsInvalid() {
+        final org.everit.json.schema.Schema schema = SchemaLoader.load(AvroSchemaConverter.toJsonSchema(
+                new EventTypeSchemaBase(EventTypeSchemaBase.Type.AVRO_SCHEMA, ORDER_SCHEMA)));
+
+        schema.validate(new JSONObject("{\"id\":\"A-1\",\"status\":\"NEW\",\"prices\":[],\"tags\":{},\"x\":1}"));
+    }
+
+    @Test
+    public void whenJsonSchemaThenItIsReturnedAsIs() {
+        final JSONObject jsonSchema = AvroSchemaConverter.toJsonSchema(
+                new EventTypeSchemaBase(EventTypeSchemaBase.Type.JSON_SCHEMA, "{\"type\":\"object\"}"));
+
+        assertThat(jsonSchema.similar(new JSONObject("{\"type\":\"object\"}")), equalTo(true));
+    }
+}
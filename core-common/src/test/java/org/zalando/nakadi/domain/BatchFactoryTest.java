@@ -1,12 +1,21 @@
 package org.zalando.nakadi.domain;
 
 import org.json.JSONException;
+import org.json.JSONObject;
 import org.junit.Test;
+import org.zalando.nakadi.exceptions.runtime.EventSizeExceededException;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static junit.framework.TestCase.fail;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class BatchFactoryTest {
 
@@ -19,6 +28,29 @@ public class BatchFactoryTest {
         assertEquals("{\"name\":\"MyEvent\"}", batch.get(0).getEvent().toString());
     }
 
+    @Test
+    public void testMultiByteEventsAreSlicedFromBytes() {
+        final byte[] events = "[{\"name\":\"香港\"}, {\"name\":\"MyEvent\"}]".getBytes(StandardCharsets.UTF_8);
+        final List<BatchItem> batch = BatchFactory.from(events);
+        assertEquals(2, batch.size());
+        assertEquals(17, batch.get(0).getEventSize());
+        assertEquals("{\"name\":\"香港\"}", batch.get(0).getEvent().toString());
+        assertEquals("{\"name\":\"MyEvent\"}",
+                new String(batch.get(1).dumpEventToBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEventsAreSerializedOnce() {
+        final JSONObject event = new JSONObject().put("metadata", new JSONObject().put("eid", "e")).put("x", 1);
+        final List<BatchItem> batch = BatchFactory.fromEvents(Collections.singletonList(event));
+        assertEquals(1, batch.size());
+        assertSame(event, batch.get(0).getEvent());
+        assertEquals("e", batch.get(0).getResponse().getEid());
+        batch.get(0).inject(BatchItem.Injection.METADATA, "{\"eid\":\"e\",\"version\":\"1.0.0\"}");
+        assertTrue(new JSONObject("{\"metadata\":{\"eid\":\"e\",\"version\":\"1.0.0\"},\"x\":1}").similar(
+                new JSONObject(new String(batch.get(0).dumpEventToBytes(), StandardCharsets.UTF_8))));
+    }
+
     @Test
     public void testNoEvent() {
         final String events = "[]";
@@ -140,4 +172,57 @@ public class BatchFactoryTest {
         final String events = "[{\"number\": 9223372036854775808 }]";
         BatchFactory.from(events);
     }
+
+    @Test
+    public void testEventsAreReadFromStream() throws IOException {
+        final String events = " [{\"name\":\"My}\\\"Event\"}, {\"a\":{\"b\":\"香港\"}}]\n";
+        final List<BatchItem> batch = new ArrayList<>();
+        BatchFactory.from(new ByteArrayInputStream(events.getBytes(StandardCharsets.UTF_8)), batch::add);
+        assertEquals(2, batch.size());
+        assertEquals("{\"name\":\"My}\\\"Event\"}", batch.get(0).getEvent().toString());
+        assertEquals(20, batch.get(1).getEventSize());
+        assertEquals("香港", batch.get(1).getEvent().getJSONObject("a").getString("b"));
+    }
+
+    @Test(expected = JSONException.class)
+    public void testUnclosedArrayInStream() throws IOException {
+        final String events = "[{\"name\":\"MyEvent\"}";
+        BatchFactory.from(new ByteArrayInputStream(events.getBytes(StandardCharsets.UTF_8)), item -> {
+        });
+    }
+
+    @Test
+    public void testEventOfMaxSizeIsAccepted() {
+        final String events = "[{\"name\":\"MyEvent\"}]";
+        final List<BatchItem> batch = BatchFactory.from(events.getBytes(StandardCharsets.UTF_8), 18);
+        assertEquals(1, batch.size());
+    }
+
+    @Test
+    public void testOversizedEventIsReportedWithFollowingEventsCounted() {
+        final String events = "[{\"name\":\"MyEvent\"}, {\"name\":\"My}\\\"LargeEvent\"}, {\"a\":{}}, {}]";
+        try {
+            BatchFactory.from(events.getBytes(StandardCharsets.UTF_8), 20);
+            fail("Event size should be exceeded");
+        } catch (final EventSizeExceededException e) {
+            assertEquals(1, e.getEventIndex());
+            assertEquals(4, e.getEventsCount());
+            assertEquals("Event too large: 26 bytes, max size is 20 bytes", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testOversizedEventStopsReadingStream() throws IOException {
+        final String events = "[{\"name\":\"MyEvent\"}, {\"name\":\"MyLargeEvent\"}, {}]";
+        final ByteArrayInputStream stream = new ByteArrayInputStream(events.getBytes(StandardCharsets.UTF_8));
+        final List<BatchItem> batch = new ArrayList<>();
+        try {
+            BatchFactory.from(stream, 20, batch::add);
+            fail("Event size should be exceeded");
+        } catch (final EventSizeExceededException e) {
+            assertEquals(1, e.getEventIndex());
+            assertEquals(2, e.getEventsCount());
+            assertEquals(1, batch.size());
+        }
+    }
 }
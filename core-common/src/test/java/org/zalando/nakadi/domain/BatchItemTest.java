@@ -185,4 +185,48 @@ public class BatchItemTest {
                 "{\"StartOfEnrls=tgy[9}m}Wo%5}q\\u0002d~u%&Qq4a\":\"broker_key_value\"}",
                 bi.dumpEventToString());
     }
+
+    @Test
+    public void testFieldsAreReadWithoutParsingEvent() {
+        final BatchItem bi = BatchFactory.from("[{\"a\": [{\"x\": 1}, \"b\"], \"b\" : 2, " +
+                "\"metadata\": {\"eid\": \"12345\", \"n\": null, \"o\": {\"p\": 1.5}}, \"c\": true}]")
+                .get(0);
+
+        Assert.assertEquals(2, bi.getField("b"));
+        Assert.assertEquals("12345", bi.getField("metadata", "eid"));
+        Assert.assertEquals(1.5, bi.getField("metadata", "o", "p"));
+        Assert.assertEquals(JSONObject.NULL, bi.getField("metadata", "n"));
+        Assert.assertEquals(Boolean.TRUE, bi.getField("c"));
+        Assert.assertTrue(new JSONObject("{\"p\": 1.5}").similar(bi.getField("metadata", "o")));
+        Assert.assertNull(bi.getField("x"));
+        Assert.assertNull(bi.getField("b", "x"));
+        Assert.assertNull(bi.getField("metadata", "n", "x"));
+        Assert.assertEquals("12345", bi.getResponse().getEid());
+    }
+
+    @Test
+    public void testFieldsAreReadFromParsedEvent() {
+        final BatchItem bi = BatchFactory.from("[{\"metadata\": {\"eid\": \"12345\"}}]").get(0);
+        bi.getEvent().getJSONObject("metadata").put("eid", "54321");
+
+        Assert.assertEquals("54321", bi.getField("metadata", "eid"));
+        Assert.assertNull(bi.getField("metadata", "eid", "x"));
+    }
+
+    @Test(expected = JSONException.class)
+    public void testFailOnDuplicateNestedKeys() {
+        BatchFactory.from("[{\"a\": {\"b\": 1, \"c\": {}, \"b\": 2}}]");
+    }
+
+    @Test(expected = JSONException.class)
+    public void testFailOnDuplicateEscapedKeys() {
+        BatchFactory.from("[{\"b\": 1, \"\\u0062\": 2}]");
+    }
+
+    @Test
+    public void testSameKeysInDifferentObjectsAccepted() {
+        final BatchItem bi = BatchFactory.from("[{\"b\": {\"b\": {\"b\": 1}}, \"c\": [{\"b\": 2}, {\"b\": 3}]}]")
+                .get(0);
+        Assert.assertEquals(1, bi.getField("b", "b", "b"));
+    }
 }
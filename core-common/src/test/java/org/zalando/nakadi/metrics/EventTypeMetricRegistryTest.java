@@ -0,0 +1,49 @@
+package org.zalando.nakadi.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.zalando.nakadi.domain.EventPublishingStep;
+
+import static org.zalando.nakadi.metrics.MetricUtils.metricNameFor;
+
+public class EventTypeMetricRegistryTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final EventTypeMetricRegistry registry = new EventTypeMetricRegistry(metricRegistry, 2);
+
+    @Test
+    public void whenLimitOfEventTypesIsReachedThenLatencyIsSharedByTheRestOfEventTypes() {
+        registry.latencyFor("a").updateStepTiming(EventPublishingStep.VALIDATING, 1000);
+        registry.latencyFor("b.c").updateStepTiming(EventPublishingStep.VALIDATING, 1000);
+        registry.latencyFor("d").updateStepTiming(EventPublishingStep.VALIDATING, 1000);
+        registry.latencyFor("e").updateStepTiming(EventPublishingStep.VALIDATING, 1000);
+        registry.latencyFor("a").updateStepTiming(EventPublishingStep.VALIDATING, 1000);
+
+        Assert.assertEquals(2, timerCount("a", "validating"));
+        Assert.assertEquals(1, timerCount("b.c", "validating"));
+        Assert.assertEquals(2, timerCount(EventTypeMetricRegistry.OTHER_EVENT_TYPES, "validating"));
+        Assert.assertNull(metricRegistry.getTimers().get(metricNameFor("d", "publishing.step.validating")));
+        Assert.assertSame(registry.latencyFor("d"), registry.latencyFor("e"));
+    }
+
+    @Test
+    public void whenStepIsNotTimedThenItIsIgnored() {
+        registry.latencyFor("a").updateStepTiming(EventPublishingStep.NONE, 1000);
+
+        Assert.assertEquals(0, timerCount("a", "validating"));
+        Assert.assertNull(metricRegistry.getTimers().get(metricNameFor("a", "publishing.step.none")));
+    }
+
+    @Test
+    public void whenRegistryIsRecreatedThenTimersAreReused() {
+        registry.latencyFor("a").updateProducerWaitTiming(1000);
+        new EventTypeMetricRegistry(metricRegistry, 2).latencyFor("a").updateProducerWaitTiming(1000);
+
+        Assert.assertEquals(2, timerCount("a", "producer_wait"));
+    }
+
+    private long timerCount(final String eventTypeName, final String step) {
+        return metricRegistry.getTimers().get(metricNameFor(eventTypeName, "publishing.step." + step)).getCount();
+    }
+}
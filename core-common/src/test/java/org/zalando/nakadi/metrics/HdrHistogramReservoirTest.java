@@ -0,0 +1,63 @@
+package org.zalando.nakadi.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HdrHistogramReservoirTest {
+
+    private final Clock clock = mock(Clock.class);
+    private final HdrHistogramReservoir reservoir = new HdrHistogramReservoir(clock);
+
+    @Test
+    public void whenValuesAreRecordedThenPercentilesAreReported() {
+        for (int i = 1; i <= 1000; ++i) {
+            reservoir.update(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        Assert.assertEquals(1000, snapshot.size());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), snapshot.getMedian(), 5_000_000);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(990), snapshot.get99thPercentile(), 10_000_000);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMax(), 10_000_000);
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), snapshot.getMin(), 10_000);
+    }
+
+    @Test
+    public void whenValueIsOutOfRangeThenItIsClamped() {
+        reservoir.update(-1);
+        reservoir.update(TimeUnit.HOURS.toNanos(1));
+
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertEquals(0, snapshot.getMin());
+        Assert.assertEquals(TimeUnit.MINUTES.toNanos(1), snapshot.getMax(), TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void whenWindowIsNotClosedThenTheSameSnapshotIsReported() {
+        when(clock.getTick()).thenReturn(0L);
+        reservoir.update(TimeUnit.MILLISECONDS.toNanos(10));
+        Assert.assertEquals(1, reservoir.getSnapshot().size());
+
+        reservoir.update(TimeUnit.MILLISECONDS.toNanos(20));
+        when(clock.getTick()).thenReturn(TimeUnit.SECONDS.toNanos(30));
+        Assert.assertEquals(1, reservoir.getSnapshot().size());
+
+        when(clock.getTick()).thenReturn(TimeUnit.SECONDS.toNanos(60));
+        final Snapshot snapshot = reservoir.getSnapshot();
+        Assert.assertEquals(1, snapshot.size());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(20), snapshot.getMax(), 200_000);
+
+        when(clock.getTick()).thenReturn(TimeUnit.SECONDS.toNanos(120));
+        Assert.assertEquals(0, reservoir.getSnapshot().size());
+    }
+}
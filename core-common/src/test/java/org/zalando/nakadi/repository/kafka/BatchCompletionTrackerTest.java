@@ -0,0 +1,59 @@
+package org.zalando.nakadi.repository.kafka;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class BatchCompletionTrackerTest {
+
+    @Test
+    public void whenAllEventsCompletedThenBatchIsCompleted() throws Exception {
+        final BatchCompletionTracker tracker = new BatchCompletionTracker(3);
+        tracker.expect();
+        tracker.expect();
+        final CompletableFuture<Void> completed = tracker.whenCompleted();
+
+        tracker.complete(0, null);
+        tracker.seal();
+        Assert.assertFalse(completed.isDone());
+        Assert.assertFalse(tracker.await(10, TimeUnit.MILLISECONDS));
+
+        final Exception exception = new RuntimeException();
+        tracker.complete(2, exception);
+        Assert.assertTrue(completed.isDone());
+        Assert.assertTrue(tracker.await(10, TimeUnit.MILLISECONDS));
+
+        Assert.assertTrue(tracker.isCompleted(0));
+        Assert.assertNull(tracker.getException(0));
+        Assert.assertFalse(tracker.isCompleted(1));
+        Assert.assertNull(tracker.getException(1));
+        Assert.assertTrue(tracker.isCompleted(2));
+        Assert.assertSame(exception, tracker.getException(2));
+    }
+
+    @Test
+    public void whenEventsCompletedBeforeSealThenBatchIsCompletedOnSeal() throws Exception {
+        final BatchCompletionTracker tracker = new BatchCompletionTracker(1);
+        tracker.expect();
+        tracker.complete(0, null);
+        Assert.assertFalse(tracker.whenCompleted().isDone());
+
+        tracker.seal();
+        Assert.assertTrue(tracker.whenCompleted().isDone());
+    }
+
+    @Test
+    public void whenCallerTimesOutFutureThenTrackerIsNotAffected() throws Exception {
+        final BatchCompletionTracker tracker = new BatchCompletionTracker(1);
+        tracker.expect();
+        tracker.seal();
+        final CompletableFuture<Void> completed = tracker.whenCompleted().orTimeout(1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(completed.handle((ignore, ex) -> ex).get() instanceof TimeoutException);
+
+        tracker.complete(0, null);
+        Assert.assertTrue(tracker.await(10, TimeUnit.MILLISECONDS));
+    }
+}
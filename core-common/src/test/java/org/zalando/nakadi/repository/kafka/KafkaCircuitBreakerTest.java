@@ -0,0 +1,84 @@
+package org.zalando.nakadi.repository.kafka;
+
+import com.codahale.metrics.MetricRegistry;
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KafkaCircuitBreakerTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private KafkaCircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        DateTimeUtils.setCurrentMillisFixed(1_000_000L);
+        circuitBreaker = new KafkaCircuitBreaker("1_host", new KafkaCircuitBreakerSettings(1000, 10, 20, 50, 500),
+                metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void whenNotEnoughEventsThenCircuitStaysClosed() {
+        circuitBreaker.record(0, 19);
+        Assert.assertTrue(circuitBreaker.allowRequest());
+        Assert.assertEquals(KafkaCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void whenFailuresReachThresholdThenCircuitOpens() {
+        circuitBreaker.record(11, 0);
+        circuitBreaker.record(0, 9);
+        Assert.assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.record(0, 2);
+        Assert.assertFalse(circuitBreaker.allowRequest());
+        Assert.assertEquals(KafkaCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assert.assertEquals(1, metricRegistry.meter("kafka.circuit_breaker.1_host.transitions.open").getCount());
+        Assert.assertEquals(KafkaCircuitBreaker.State.OPEN.ordinal(),
+                metricRegistry.getGauges().get("kafka.circuit_breaker.1_host.state").getValue());
+    }
+
+    @Test
+    public void whenFailuresLeaveWindowThenTheyAreNotCounted() {
+        circuitBreaker.record(0, 15);
+        DateTimeUtils.setCurrentMillisFixed(1_001_000L);
+        circuitBreaker.record(0, 15);
+        Assert.assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void whenProbeSucceedsThenCircuitCloses() {
+        circuitBreaker.record(0, 20);
+        DateTimeUtils.setCurrentMillisFixed(1_000_500L);
+
+        Assert.assertTrue(circuitBreaker.allowRequest());
+        Assert.assertEquals(KafkaCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        // only one request probes the broker
+        Assert.assertFalse(circuitBreaker.allowRequest());
+
+        circuitBreaker.record(1, 0);
+        Assert.assertEquals(KafkaCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        circuitBreaker.record(0, 1);
+        Assert.assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void whenProbeFailsThenCircuitOpensAgain() {
+        circuitBreaker.record(0, 20);
+        DateTimeUtils.setCurrentMillisFixed(1_000_500L);
+        Assert.assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.record(0, 1);
+        Assert.assertEquals(KafkaCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assert.assertFalse(circuitBreaker.allowRequest());
+        DateTimeUtils.setCurrentMillisFixed(1_001_000L);
+        Assert.assertTrue(circuitBreaker.allowRequest());
+    }
+}
@@ -6,8 +6,13 @@ import org.apache.kafka.clients.producer.Producer;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.zalando.nakadi.domain.PublishingCompression;
+import org.zalando.nakadi.domain.PublishingOptions;
+import org.zalando.nakadi.domain.PublishingProfile;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -18,8 +23,12 @@ public class KafkaFactoryTest {
             super(null, metricRegistry);
         }
 
+        FakeKafkaFactory(final MetricRegistry metricRegistry, final int producersCount) {
+            super(null, metricRegistry, producersCount);
+        }
+
         @Override
-        protected Producer<String, String> createProducerInstance() {
+        protected Producer<byte[], byte[]> createProducerInstance(final PublishingOptions options) {
             return Mockito.mock(Producer.class);
         }
     }
@@ -30,17 +39,23 @@ public class KafkaFactoryTest {
         return new FakeKafkaFactory(reg);
     }
 
+    private static KafkaFactory createTestKafkaFactory(final int producersCount) {
+        final MetricRegistry reg = Mockito.mock(MetricRegistry.class);
+        Mockito.when(reg.counter(Mockito.anyString())).thenReturn(Mockito.mock(Counter.class));
+        return new FakeKafkaFactory(reg, producersCount);
+    }
+
     @Test
     public void verifySameProducerUsed() {
         final KafkaFactory factory = createTestKafkaFactory();
-        final Producer<String, String> producer1 = factory.takeProducer();
+        final Producer<byte[], byte[]> producer1 = factory.takeProducer();
         try {
             Assert.assertNotNull(producer1);
         } finally {
             factory.releaseProducer(producer1);
         }
 
-        final Producer<String, String> producer2 = factory.takeProducer();
+        final Producer<byte[], byte[]> producer2 = factory.takeProducer();
         try {
             Assert.assertSame(producer1, producer2);
         } finally {
@@ -52,9 +67,9 @@ public class KafkaFactoryTest {
     public void verifyProducerIsClosedAtCorrectTime() {
         final KafkaFactory factory = createTestKafkaFactory();
 
-        final List<Producer<String, String>> producers1 = IntStream.range(0, 10)
+        final List<Producer<byte[], byte[]>> producers1 = IntStream.range(0, 10)
                 .mapToObj(ignore -> factory.takeProducer()).collect(Collectors.toList());
-        final Producer<String, String> producer = producers1.get(0);
+        final Producer<byte[], byte[]> producer = producers1.get(0);
         Assert.assertNotNull(producer);
         producers1.forEach(p -> Assert.assertSame(producer, p));
         producers1.forEach(factory::releaseProducer);
@@ -62,9 +77,9 @@ public class KafkaFactoryTest {
         Mockito.verify(producer, Mockito.times(0)).close();
 
 
-        final List<Producer<String, String>> producers2 = IntStream.range(0, 10)
+        final List<Producer<byte[], byte[]>> producers2 = IntStream.range(0, 10)
                 .mapToObj(ignore -> factory.takeProducer()).collect(Collectors.toList());
-        final Producer<String, String> additionalProducer = factory.takeProducer();
+        final Producer<byte[], byte[]> additionalProducer = factory.takeProducer();
 
         Assert.assertSame(producer, additionalProducer);
         producers2.forEach(p -> Assert.assertSame(producer, p));
@@ -82,16 +97,95 @@ public class KafkaFactoryTest {
     @Test
     public void verifyNewProducerCreatedAfterClose() {
         final KafkaFactory factory = createTestKafkaFactory();
-        final Producer<String, String> producer1 = factory.takeProducer();
+        final Producer<byte[], byte[]> producer1 = factory.takeProducer();
         Assert.assertNotNull(producer1);
         factory.terminateProducer(producer1);
         factory.releaseProducer(producer1);
         Mockito.verify(producer1, Mockito.times(1)).close();
 
-        final Producer<String, String> producer2 = factory.takeProducer();
+        final Producer<byte[], byte[]> producer2 = factory.takeProducer();
         Assert.assertNotNull(producer2);
         Assert.assertNotSame(producer1, producer2);
         factory.releaseProducer(producer2);
         Mockito.verify(producer2, Mockito.times(0)).close();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void verifySameProducerUsedForPartition() {
+        final KafkaFactory factory = createTestKafkaFactory(4);
+        final Set<Producer<byte[], byte[]>> allProducers = new HashSet<>();
+        for (int partition = 0; partition < 32; ++partition) {
+            final Producer<byte[], byte[]> producer1 = factory.takeProducer("topic", String.valueOf(partition));
+            final Producer<byte[], byte[]> producer2 = factory.takeProducer("topic", String.valueOf(partition));
+            try {
+                Assert.assertSame(producer1, producer2);
+                allProducers.add(producer1);
+            } finally {
+                factory.releaseProducer(producer1);
+                factory.releaseProducer(producer2);
+            }
+        }
+        Assert.assertEquals(4, allProducers.size());
+    }
+
+    @Test
+    public void verifyTerminationAffectsOnlyOneProducer() {
+        final KafkaFactory factory = createTestKafkaFactory(2);
+        final List<Producer<byte[], byte[]>> taken = IntStream.range(0, 16)
+                .mapToObj(partition -> factory.takeProducer("topic", String.valueOf(partition)))
+                .collect(Collectors.toList());
+        final List<Producer<byte[], byte[]>> producers = taken.stream().distinct().collect(Collectors.toList());
+        Assert.assertEquals(2, producers.size());
+
+        factory.terminateProducer(producers.get(0));
+        taken.forEach(factory::releaseProducer);
+        Mockito.verify(producers.get(0), Mockito.times(1)).close();
+        Mockito.verify(producers.get(1), Mockito.times(0)).close();
+    }
+
+    @Test
+    public void verifyAllProducersAreRecreatedAfterTermination() {
+        final KafkaFactory factory = createTestKafkaFactory(2);
+        final Set<Producer<byte[], byte[]>> oldProducers = new HashSet<>();
+        for (int partition = 0; partition < 16; ++partition) {
+            final Producer<byte[], byte[]> producer = factory.takeProducer("topic", String.valueOf(partition));
+            oldProducers.add(producer);
+            factory.releaseProducer(producer);
+        }
+
+        factory.terminateProducers();
+        oldProducers.forEach(producer -> Mockito.verify(producer, Mockito.times(1)).close());
+
+        for (int partition = 0; partition < 16; ++partition) {
+            final Producer<byte[], byte[]> producer = factory.takeProducer("topic", String.valueOf(partition));
+            Assert.assertFalse(oldProducers.contains(producer));
+            factory.releaseProducer(producer);
+        }
+    }
+
+    @Test
+    public void verifyDifferentProducersUsedForDifferentOptions() {
+        final KafkaFactory factory = createTestKafkaFactory(1);
+        final Producer<byte[], byte[]> durable = factory.takeProducer("topic", "0");
+        final Producer<byte[], byte[]> lowLatency = factory.takeProducer(
+                new PublishingOptions(PublishingProfile.LOW_LATENCY, null), "topic", "0");
+        final Producer<byte[], byte[]> zstd = factory.takeProducer(
+                new PublishingOptions(PublishingProfile.DURABLE, PublishingCompression.ZSTD), "topic", "0");
+        try {
+            Assert.assertSame(durable, factory.takeProducer(
+                    new PublishingOptions(PublishingProfile.DURABLE, null), "topic", "0"));
+            factory.releaseProducer(durable);
+            Assert.assertNotSame(durable, lowLatency);
+            Assert.assertNotSame(durable, zstd);
+        } finally {
+            factory.releaseProducer(durable);
+            factory.releaseProducer(lowLatency);
+            factory.releaseProducer(zstd);
+        }
+
+        factory.terminateProducers();
+        Mockito.verify(durable, Mockito.times(1)).close();
+        Mockito.verify(lowLatency, Mockito.times(1)).close();
+        Mockito.verify(zstd, Mockito.times(1)).close();
+    }
+}
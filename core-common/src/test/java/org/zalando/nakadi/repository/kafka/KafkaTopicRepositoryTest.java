@@ -20,6 +20,7 @@ import org.mockito.Captor;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.zalando.nakadi.config.NakadiSettings;
+import org.zalando.nakadi.domain.AvroSchemaVersionHeader;
 import org.zalando.nakadi.domain.BatchItem;
 import org.zalando.nakadi.domain.CursorError;
 import org.zalando.nakadi.domain.EventOwnerHeader;
@@ -27,6 +28,7 @@ import org.zalando.nakadi.domain.EventPublishingStatus;
 import org.zalando.nakadi.domain.NakadiCursor;
 import org.zalando.nakadi.domain.PartitionEndStatistics;
 import org.zalando.nakadi.domain.PartitionStatistics;
+import org.zalando.nakadi.domain.PartitionsMetadata;
 import org.zalando.nakadi.domain.Timeline;
 import org.zalando.nakadi.domain.TopicPartition;
 import org.zalando.nakadi.exceptions.runtime.EventPublishingException;
@@ -43,6 +45,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -53,6 +56,7 @@ import static java.util.stream.Collectors.toList;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -60,8 +64,10 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.anyVararg;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.zalando.nakadi.utils.TestUtils.buildTimelineWithTopic;
@@ -79,7 +85,7 @@ public class KafkaTopicRepositoryTest {
     private static final String KAFKA_CLIENT_ID = "application_name-topic_name";
 
     @Captor
-    private ArgumentCaptor<ProducerRecord<String, String>> producerRecordArgumentCaptor;
+    private ArgumentCaptor<ProducerRecord<byte[], byte[]>> producerRecordArgumentCaptor;
 
     @SuppressWarnings("unchecked")
     public static final ProducerRecord EXPECTED_PRODUCER_RECORD = new ProducerRecord(MY_TOPIC, 0, "0", "payload");
@@ -115,33 +121,18 @@ public class KafkaTopicRepositoryTest {
             cursor("5", "30"), cursor("9", "100"));
 
     private final KafkaTopicRepository kafkaTopicRepository;
-    private final KafkaProducer<String, String> kafkaProducer;
+    private final KafkaProducer<byte[], byte[]> kafkaProducer;
     private final KafkaFactory kafkaFactory;
 
     @SuppressWarnings("unchecked")
     public KafkaTopicRepositoryTest() {
-        //lower hystrix configs for tests to execute faster
-        System.setProperty(
-                String.format(
-                        "hystrix.command.%s.metrics.healthSnapshot.intervalInMilliseconds",
-                        NODE.idString() + "_" + NODE.host()),
-                "10");
-        System.setProperty(
-                String.format(
-                        "hystrix.command.%s.metrics.rollingStats.timeInMilliseconds",
-                        NODE.idString() + "_" + NODE.host()),
-                "500");
-        System.setProperty(
-                String.format(
-                        "hystrix.command.%s.circuitBreaker.sleepWindowInMilliseconds",
-                        NODE.idString() + "_" + NODE.host()),
-                "500");
-
         kafkaProducer = mock(KafkaProducer.class);
         when(kafkaProducer.partitionsFor(anyString())).then(
                 invocation -> partitionsOfTopic((String) invocation.getArguments()[0])
         );
         kafkaFactory = createKafkaFactory();
+        when(kafkaSettings.getCompletionThreads()).thenReturn(1);
+        when(kafkaSettings.getCompletionQueueSize()).thenReturn(10);
         kafkaTopicRepository = createKafkaRepository(kafkaFactory, new MetricRegistry());
         MockitoAnnotations.initMocks(this);
     }
@@ -153,6 +144,61 @@ public class KafkaTopicRepositoryTest {
         assertThat(kafkaTopicRepository.listTopics(), containsInAnyOrder(allTopics.toArray()));
     }
 
+    @Test
+    public void whenGetPartitionsMetadataThenItIsCachedUntilInvalidated() {
+        final String topic = "partitions-metadata-topic";
+        when(kafkaProducer.partitionsFor(topic)).thenReturn(ImmutableList.of(
+                new PartitionInfo(topic, 2, NODE, null, null),
+                new PartitionInfo(topic, 10, NODE, null, null),
+                new PartitionInfo(topic, 1, NODE, null, null)));
+
+        final PartitionsMetadata metadata = kafkaTopicRepository.getPartitionsMetadata(topic);
+        assertThat(metadata.getSortedPartitions(), equalTo(ImmutableList.of("1", "10", "2")));
+        assertThat(metadata.getBrokerId("10"), equalTo(NODE.idString() + "_" + NODE.host()));
+        assertThat(kafkaTopicRepository.getPartitionsMetadata(topic), sameInstance(metadata));
+        verify(kafkaProducer, times(1)).partitionsFor(topic);
+
+        kafkaTopicRepository.invalidatePartitionsMetadata(topic);
+        kafkaTopicRepository.getPartitionsMetadata(topic);
+        verify(kafkaProducer, times(2)).partitionsFor(topic);
+    }
+
+    @Test
+    public void whenPartitionHasNoLeaderThenBatchIsPublishedAndMetadataIsNotKept() throws Exception {
+        final String topic = "leaderless-topic";
+        when(kafkaProducer.partitionsFor(topic)).thenReturn(ImmutableList.of(
+                new PartitionInfo(topic, 1, null, null, null)));
+        when(nakadiSettings.getKafkaSendTimeoutMs()).thenReturn(1000L);
+        when(kafkaProducer.send(any(), any())).thenAnswer(invocation -> {
+            ((Callback) invocation.getArguments()[1]).onCompletion(null, null);
+            return null;
+        });
+        final BatchItem item = new BatchItem("{}", null, null, Collections.emptyList());
+        item.setPartition("1");
+
+        kafkaTopicRepository.syncPostBatch(topic, ImmutableList.of(item), "random", false);
+
+        assertThat(item.getResponse().getPublishingStatus(), equalTo(EventPublishingStatus.SUBMITTED));
+        kafkaTopicRepository.getPartitionsMetadata(topic);
+        verify(kafkaProducer, times(2)).partitionsFor(topic);
+    }
+
+    @Test
+    public void whenPartitionsCanNotBeLoadedThenBatchFailsWithoutRetries() {
+        final String topic = "unavailable-topic";
+        when(kafkaProducer.partitionsFor(topic)).thenThrow(new TimeoutException("metadata not available"));
+        final BatchItem item = new BatchItem("{}", null, null, Collections.emptyList());
+        item.setPartition("1");
+
+        try {
+            kafkaTopicRepository.syncPostBatch(topic, ImmutableList.of(item), "random", false);
+            fail();
+        } catch (final EventPublishingException e) {
+            assertThat(item.getResponse().getPublishingStatus(), equalTo(EventPublishingStatus.FAILED));
+            verify(kafkaProducer, times(1)).partitionsFor(topic);
+        }
+    }
+
     @Test
     public void testRecordHeaderSetWhilePublishing() {
         final String myTopic = "event-owner-selector-events";
@@ -170,7 +216,7 @@ public class KafkaTopicRepositoryTest {
             kafkaTopicRepository.syncPostBatch(myTopic, batch, "random", false);
             fail();
         } catch (final EventPublishingException e) {
-            final ProducerRecord<String, String> recordSent = captureProducerRecordSent();
+            final ProducerRecord<byte[], byte[]> recordSent = captureProducerRecordSent();
             final Header nameHeader = recordSent.headers().headers(EventOwnerHeader.AUTH_PARAM_NAME)
                     .iterator().next();
             Assert.assertEquals(new String(nameHeader.value()), "retailer");
@@ -180,6 +226,29 @@ public class KafkaTopicRepositoryTest {
         }
     }
 
+    @Test
+    public void whenEventIsEncodedInAvroThenItIsSentWithSchemaVersion() {
+        final String myTopic = "avro-events";
+        final BatchItem item = new BatchItem("{}", null, null, Collections.emptyList());
+        item.setPartition("1");
+        final byte[] avroEvent = new byte[]{2, 65};
+        item.setAvroEvent(avroEvent, "1.1.0");
+
+        when(kafkaProducer.partitionsFor(myTopic)).thenReturn(ImmutableList.of(
+                new PartitionInfo(myTopic, 1, NODE, null, null)));
+
+        try {
+            kafkaTopicRepository.syncPostBatch(myTopic, ImmutableList.of(item), "random", false);
+            fail();
+        } catch (final EventPublishingException e) {
+            final ProducerRecord<byte[], byte[]> recordSent = captureProducerRecordSent();
+            Assert.assertArrayEquals(avroEvent, recordSent.value());
+            final Header versionHeader = recordSent.headers()
+                    .lastHeader(AvroSchemaVersionHeader.AVRO_SCHEMA_VERSION);
+            Assert.assertEquals("1.1.0", new String(versionHeader.value()));
+        }
+    }
+
     @Test
     public void canDetermineIfTopicExists() {
         assertThat(kafkaTopicRepository.topicExists(MY_TOPIC), is(true));
@@ -373,6 +442,57 @@ public class KafkaTopicRepositoryTest {
         }
     }
 
+    @Test
+    public void whenPostBatchThenFutureIsCompletedAfterKafkaAcknowledgesEvents() throws Exception {
+        final BatchItem item = new BatchItem("{}", BatchItem.EmptyInjectionConfiguration.build(1, true),
+                new BatchItem.InjectionConfiguration[BatchItem.Injection.values().length],
+                Collections.emptyList());
+        item.setPartition("1");
+
+        when(kafkaProducer.partitionsFor(EXPECTED_PRODUCER_RECORD.topic())).thenReturn(ImmutableList.of(
+                new PartitionInfo(EXPECTED_PRODUCER_RECORD.topic(), 1, NODE, null, null)));
+        when(nakadiSettings.getKafkaSendTimeoutMs()).thenReturn(10000L);
+        final ArgumentCaptor<Callback> callbackCaptor = ArgumentCaptor.forClass(Callback.class);
+        when(kafkaProducer.send(any(), callbackCaptor.capture())).thenReturn(null);
+        // partitions metadata is loaded with a producer of its own, that is released right away
+        kafkaTopicRepository.getPartitionsMetadata(EXPECTED_PRODUCER_RECORD.topic());
+        clearInvocations(kafkaFactory);
+
+        final CompletableFuture<Void> published = kafkaTopicRepository.postBatch(
+                EXPECTED_PRODUCER_RECORD.topic(), ImmutableList.of(item), "random", false);
+
+        Assert.assertFalse(published.isDone());
+        verify(kafkaFactory, times(0)).releaseProducer(kafkaProducer);
+
+        callbackCaptor.getValue().onCompletion(null, null);
+        published.get(5, TimeUnit.SECONDS);
+
+        assertThat(item.getResponse().getPublishingStatus(), equalTo(EventPublishingStatus.SUBMITTED));
+        verify(kafkaFactory, times(1)).releaseProducer(kafkaProducer);
+    }
+
+    @Test
+    public void whenRepositoryIsClosedThenPublishedBatchIsStillCompleted() throws Exception {
+        final BatchItem item = new BatchItem("{}", null, null, Collections.emptyList());
+        item.setPartition("1");
+        when(kafkaProducer.partitionsFor(EXPECTED_PRODUCER_RECORD.topic())).thenReturn(ImmutableList.of(
+                new PartitionInfo(EXPECTED_PRODUCER_RECORD.topic(), 1, NODE, null, null)));
+        when(nakadiSettings.getKafkaSendTimeoutMs()).thenReturn(10000L);
+        final ArgumentCaptor<Callback> callbackCaptor = ArgumentCaptor.forClass(Callback.class);
+        when(kafkaProducer.send(any(), callbackCaptor.capture())).thenReturn(null);
+        kafkaTopicRepository.getPartitionsMetadata(EXPECTED_PRODUCER_RECORD.topic());
+        clearInvocations(kafkaFactory);
+
+        final CompletableFuture<Void> published = kafkaTopicRepository.postBatch(
+                EXPECTED_PRODUCER_RECORD.topic(), ImmutableList.of(item), "random", false);
+        kafkaTopicRepository.close();
+        callbackCaptor.getValue().onCompletion(null, null);
+        published.get(5, TimeUnit.SECONDS);
+
+        assertThat(item.getResponse().getPublishingStatus(), equalTo(EventPublishingStatus.SUBMITTED));
+        verify(kafkaFactory, times(1)).releaseProducer(kafkaProducer);
+    }
+
     @Test
     public void checkCircuitBreakerStateBasedOnKafkaResponse() {
         when(nakadiSettings.getKafkaSendTimeoutMs()).thenReturn(1000L);
@@ -450,6 +570,7 @@ public class KafkaTopicRepositoryTest {
 
         final KafkaTopicRepository ktr = new KafkaTopicRepository.Builder()
                 .setKafkaZookeeper(kz)
+                .setKafkaSettings(kafkaSettings)
                 .build();
 
         final Map<TopicPartition, Long> result = ktr.getSizeStats();
@@ -491,6 +612,8 @@ public class KafkaTopicRepositoryTest {
                     .setZookeeperSettings(zookeeperSettings)
                     .setKafkaTopicConfigFactory(kafkaTopicConfigFactory)
                     .setKafkaLocationManager(kafkaLocationManager)
+                    // lower circuit breaker windows for tests to execute faster
+                    .setCircuitBreakerSettings(new KafkaCircuitBreakerSettings(500, 10, 20, 20, 500))
                     .setMetricRegistry(metricRegistry)
                     .build();
         } catch (final Exception e) {
@@ -546,6 +669,8 @@ public class KafkaTopicRepositoryTest {
         when(kafkaFactory.getConsumer(KAFKA_CLIENT_ID)).thenReturn(consumer);
         when(kafkaFactory.getConsumer()).thenReturn(consumer);
         when(kafkaFactory.takeProducer()).thenReturn(kafkaProducer);
+        when(kafkaFactory.takeProducer(anyString(), anyString())).thenReturn(kafkaProducer);
+        when(kafkaFactory.takeProducer(any(), anyString(), anyString())).thenReturn(kafkaProducer);
 
         return kafkaFactory;
     }
@@ -562,7 +687,7 @@ public class KafkaTopicRepositoryTest {
     }
 
     @SuppressWarnings("unchecked")
-    private ProducerRecord<String, String> captureProducerRecordSent() {
+    private ProducerRecord<byte[], byte[]> captureProducerRecordSent() {
         verify(kafkaProducer, atLeastOnce()).send(producerRecordArgumentCaptor.capture(), any());
         return producerRecordArgumentCaptor.getValue();
     }
@@ -11,6 +11,7 @@ import org.apache.kafka.common.TopicPartition;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.zalando.nakadi.domain.AvroSchemaVersionHeader;
 import org.zalando.nakadi.domain.ConsumedEvent;
 import org.zalando.nakadi.domain.Timeline;
 import org.zalando.nakadi.utils.TestUtils;
@@ -150,6 +151,21 @@ public class NakadiKafkaConsumerTest {
                 equalTo(POLL_TIMEOUT));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void whenRecordHasAvroSchemaVersionThenEventIsReadAsAvro() {
+        final ConsumerRecord<byte[], byte[]> record = new ConsumerRecord<>(TOPIC, PARTITION, 0, null, new byte[]{2});
+        record.headers().add(AvroSchemaVersionHeader.AVRO_SCHEMA_VERSION, "1.1.0".getBytes());
+        final KafkaConsumer<byte[], byte[]> kafkaConsumerMock = mock(KafkaConsumer.class);
+        when(kafkaConsumerMock.poll(POLL_TIMEOUT)).thenReturn(new ConsumerRecords<>(ImmutableMap.of(
+                new TopicPartition(TOPIC, PARTITION), ImmutableList.of(record))));
+
+        final NakadiKafkaConsumer consumer = new NakadiKafkaConsumer(kafkaConsumerMock,
+                ImmutableList.of(kafkaCursor(TOPIC, PARTITION, 0)), createTpTimelineMap(), POLL_TIMEOUT);
+
+        assertThat(consumer.readEvents().get(0).getAvroSchemaVersion(), equalTo("1.1.0"));
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void whenReadEventsThenNakadiRuntimeBaseException() {
@@ -0,0 +1,120 @@
+package org.zalando.nakadi.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.Zstd;
+import com.google.common.io.ByteStreams;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.DelegatingServletInputStream;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+
+public class ContentEncodingRequestFilterTest {
+
+    private static final byte[] BATCH = "[{\"a\":1},{\"b\":2}]".getBytes(StandardCharsets.UTF_8);
+
+    private final ContentEncodingRequestFilter filter = new ContentEncodingRequestFilter(new ObjectMapper(), 100);
+    private final AtomicBoolean bodyClosed = new AtomicBoolean();
+    private final AtomicReference<byte[]> decodedBody = new AtomicReference<>();
+    private final FilterChain readingChain =
+            (request, response) -> decodedBody.set(ByteStreams.toByteArray(request.getInputStream()));
+
+    @Test
+    public void whenGzipThenBodyIsDecodedAndClosed() throws Exception {
+        filter.doFilter(request("POST", "gzip", gzip(BATCH)), new MockHttpServletResponse(), readingChain);
+
+        Assert.assertArrayEquals(BATCH, decodedBody.get());
+        Assert.assertTrue(bodyClosed.get());
+    }
+
+    @Test
+    public void whenZstdThenBodyIsDecodedAndClosed() throws Exception {
+        filter.doFilter(request("POST", "zstd", Zstd.compress(BATCH)), new MockHttpServletResponse(), readingChain);
+
+        Assert.assertArrayEquals(BATCH, decodedBody.get());
+        Assert.assertTrue(bodyClosed.get());
+    }
+
+    @Test
+    public void whenLz4ThenBodyIsDecodedAndClosed() throws Exception {
+        filter.doFilter(request("POST", "lz4", lz4(BATCH)), new MockHttpServletResponse(), readingChain);
+
+        Assert.assertArrayEquals(BATCH, decodedBody.get());
+        Assert.assertTrue(bodyClosed.get());
+    }
+
+    @Test
+    public void whenDecodedBodyIsTooLargeThenExceptionAndBodyIsClosed() throws Exception {
+        final byte[] largeBatch = new byte[101];
+        try {
+            filter.doFilter(request("POST", "gzip", gzip(largeBatch)), new MockHttpServletResponse(), readingChain);
+            Assert.fail("PayloadTooLargeException expected");
+        } catch (final PayloadTooLargeException e) {
+            Assert.assertTrue(bodyClosed.get());
+        }
+    }
+
+    @Test
+    public void whenNotEncodedThenBodyIsPassedAsIs() throws Exception {
+        filter.doFilter(request("POST", null, BATCH), new MockHttpServletResponse(), readingChain);
+
+        Assert.assertArrayEquals(BATCH, decodedBody.get());
+    }
+
+    @Test
+    public void whenEncodedAndNotPostThenNotAcceptable() throws Exception {
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("PUT", "gzip", gzip(BATCH)), response, readingChain);
+
+        Assert.assertEquals(406, response.getStatus());
+        Assert.assertNull(decodedBody.get());
+    }
+
+    private MockHttpServletRequest request(final String method, final String encoding, final byte[] body) {
+        final MockHttpServletRequest request = new MockHttpServletRequest(method, "/event-types/et/events") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return new DelegatingServletInputStream(new ByteArrayInputStream(body) {
+                    @Override
+                    public void close() {
+                        bodyClosed.set(true);
+                    }
+                });
+            }
+        };
+        if (null != encoding) {
+            request.addHeader(CONTENT_ENCODING, encoding);
+        }
+        return request;
+    }
+
+    private static byte[] gzip(final byte[] value) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(value);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] lz4(final byte[] value) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (LZ4FrameOutputStream lz4 = new LZ4FrameOutputStream(out)) {
+            lz4.write(value);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,82 @@
+package org.zalando.nakadi.util.encoding;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+public class GzipContentDecoderTest {
+
+    private final GzipContentDecoder decoder = new GzipContentDecoder(1);
+
+    @Test
+    public void whenDecodeThenOriginalBytesAreRead() throws IOException {
+        final byte[] original = new byte[100_000];
+        new Random(0).nextBytes(original);
+        for (int i = 0; i < original.length; i += 2) {
+            original[i] = 'a';
+        }
+        // the same pooled inflater is used for both requests
+        for (int i = 0; i < 2; ++i) {
+            try (InputStream decoded = decoder.decode(new ByteArrayInputStream(gzip(original)))) {
+                Assert.assertArrayEquals(original, ByteStreams.toByteArray(decoded));
+            }
+        }
+    }
+
+    @Test
+    public void whenSingleBytesAreReadThenOriginalBytesAreRead() throws IOException {
+        try (InputStream decoded = decoder.decode(new ByteArrayInputStream(gzip(bytes("[{}]"))))) {
+            Assert.assertEquals('[', decoded.read());
+            Assert.assertEquals('{', decoded.read());
+            Assert.assertEquals('}', decoded.read());
+            Assert.assertEquals(']', decoded.read());
+            Assert.assertEquals(-1, decoded.read());
+        }
+    }
+
+    @Test
+    public void whenMembersAreConcatenatedThenAllOfThemAreDecoded() throws IOException {
+        final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        encoded.write(gzip(bytes("[{\"a\":1},")));
+        encoded.write(gzip(bytes("{\"b\":2}]")));
+        try (InputStream decoded = decoder.decode(new ByteArrayInputStream(encoded.toByteArray()))) {
+            Assert.assertEquals("[{\"a\":1},{\"b\":2}]",
+                    new String(ByteStreams.toByteArray(decoded), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test(expected = ZipException.class)
+    public void whenNotGzipThenException() throws IOException {
+        decoder.decode(new ByteArrayInputStream(bytes("[{\"a\":1}]")));
+    }
+
+    @Test(expected = ZipException.class)
+    public void whenTrailerIsCorruptThenException() throws IOException {
+        final byte[] encoded = gzip(bytes("[{\"a\":1}]"));
+        encoded[encoded.length - 8] ^= 1;
+        try (InputStream decoded = decoder.decode(new ByteArrayInputStream(encoded))) {
+            ByteStreams.toByteArray(decoded);
+        }
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(final byte[] value) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(value);
+        }
+        return out.toByteArray();
+    }
+}
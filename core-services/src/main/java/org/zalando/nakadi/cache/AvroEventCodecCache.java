@@ -0,0 +1,72 @@
+package org.zalando.nakadi.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.zalando.nakadi.avro.AvroEventCodec;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.exceptions.runtime.InternalNakadiException;
+import org.zalando.nakadi.exceptions.runtime.NoSuchEventTypeException;
+import org.zalando.nakadi.exceptions.runtime.NoSuchSchemaException;
+import org.zalando.nakadi.exceptions.runtime.UnprocessableEntityException;
+import org.zalando.nakadi.repository.db.SchemaRepository;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Codecs of events stored in avro, for every version of the schema of event types. Codec of the current version is
+ * taken from {@link EventTypeCache}, codecs of previous versions are loaded from the database once, as versions of
+ * the schema never change.
+ */
+@Component
+public class AvroEventCodecCache {
+
+    private static final int MAX_PREVIOUS_VERSIONS = 1000;
+
+    private final EventTypeCache eventTypeCache;
+    private final SchemaRepository schemaRepository;
+    // versions are identified by the creation time of the event type, as it could be deleted and created again
+    private final Cache<String, AvroEventCodec> previousVersions = CacheBuilder.newBuilder()
+            .maximumSize(MAX_PREVIOUS_VERSIONS)
+            .build();
+
+    @Autowired
+    public AvroEventCodecCache(final EventTypeCache eventTypeCache, final SchemaRepository schemaRepository) {
+        this.eventTypeCache = eventTypeCache;
+        this.schemaRepository = schemaRepository;
+    }
+
+    /**
+     * @throws UnprocessableEntityException if the event type doesn't have avro schema
+     */
+    public AvroEventCodec getCurrent(final String eventTypeName)
+            throws NoSuchEventTypeException, UnprocessableEntityException {
+        final AvroEventCodec codec = eventTypeCache.getAvroEventCodec(eventTypeName);
+        if (null == codec) {
+            throw new UnprocessableEntityException("Event type " + eventTypeName + " does not have avro schema");
+        }
+        return codec;
+    }
+
+    public AvroEventCodec get(final String eventTypeName, final String version)
+            throws NoSuchEventTypeException, NoSuchSchemaException, InternalNakadiException {
+        final AvroEventCodec current = eventTypeCache.getAvroEventCodec(eventTypeName);
+        if (null != current && current.getVersion().equals(version)) {
+            return current;
+        }
+        final EventType eventType = eventTypeCache.getEventType(eventTypeName);
+        final String key = eventTypeName + '|' + eventType.getCreatedAt().getMillis() + '|' + version;
+        try {
+            return previousVersions.get(key, () -> AvroEventCodec.create(eventType.getCategory(),
+                    schemaRepository.getSchemaVersion(eventTypeName, version)));
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof NoSuchSchemaException) {
+                throw (NoSuchSchemaException) e.getCause();
+            }
+            throw new InternalNakadiException("Failed to load version " + version + " of the schema of event type "
+                    + eventTypeName, e);
+        }
+    }
+}
@@ -9,16 +9,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.zalando.nakadi.avro.AvroEventCodec;
 import org.zalando.nakadi.domain.EventType;
 import org.zalando.nakadi.domain.Timeline;
 import org.zalando.nakadi.exceptions.runtime.InternalNakadiException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchEventTypeException;
+import org.zalando.nakadi.exceptions.runtime.UnprocessableEntityException;
+import org.zalando.nakadi.partitioning.PartitionKeyExtractor;
 import org.zalando.nakadi.repository.db.EventTypeRepository;
 import org.zalando.nakadi.repository.db.TimelineDbRepository;
+import org.zalando.nakadi.service.publishing.AvroBatchReader;
 import org.zalando.nakadi.service.timeline.TimelineSync;
 import org.zalando.nakadi.validation.EventTypeValidator;
 import org.zalando.nakadi.validation.EventValidatorBuilder;
 
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.time.Duration;
@@ -275,6 +280,27 @@ public class EventTypeCache {
         return getCached(name).getEventTypeValidator();
     }
 
+    public PartitionKeyExtractor getPartitionKeyExtractor(final String name) throws NoSuchEventTypeException {
+        return getCached(name).getPartitionKeyExtractor();
+    }
+
+    public AvroBatchReader getAvroBatchReader(final String name)
+            throws NoSuchEventTypeException, UnprocessableEntityException {
+        final AvroBatchReader reader = getCached(name).getAvroBatchReader();
+        if (null == reader) {
+            throw new UnprocessableEntityException("Event type " + name + " does not have avro schema");
+        }
+        return reader;
+    }
+
+    /**
+     * @return codec of the current version of the schema, or null if the event type doesn't have avro schema
+     */
+    @Nullable
+    public AvroEventCodec getAvroEventCodec(final String name) throws NoSuchEventTypeException {
+        return getCached(name).getAvroEventCodec();
+    }
+
     public List<Timeline> getTimelinesOrdered(final String name) throws NoSuchEventTypeException {
         return getCached(name).getTimelines();
     }
@@ -301,6 +327,9 @@ public class EventTypeCache {
         final CachedValue result = new CachedValue(
                 eventType,
                 eventValidatorBuilder.build(eventType),
+                PartitionKeyExtractor.create(eventType),
+                AvroBatchReader.create(eventType),
+                AvroEventCodec.create(eventType),
                 timelines
         );
         LOG.info("Successfully load event type {}, took: {} ms", eventTypeName, System.currentTimeMillis() - start);
@@ -316,13 +345,24 @@ public class EventTypeCache {
     private static class CachedValue {
         private final EventType eventType;
         private final EventTypeValidator eventTypeValidator;
+        private final PartitionKeyExtractor partitionKeyExtractor;
+        @Nullable
+        private final AvroBatchReader avroBatchReader;
+        @Nullable
+        private final AvroEventCodec avroEventCodec;
         private final List<Timeline> timelines;
 
         CachedValue(final EventType eventType,
                     final EventTypeValidator eventTypeValidator,
+                    final PartitionKeyExtractor partitionKeyExtractor,
+                    @Nullable final AvroBatchReader avroBatchReader,
+                    @Nullable final AvroEventCodec avroEventCodec,
                     final List<Timeline> timelines) {
             this.eventType = eventType;
             this.eventTypeValidator = eventTypeValidator;
+            this.partitionKeyExtractor = partitionKeyExtractor;
+            this.avroBatchReader = avroBatchReader;
+            this.avroEventCodec = avroEventCodec;
             this.timelines = timelines;
         }
 
@@ -334,6 +374,20 @@ public class EventTypeCache {
             return eventTypeValidator;
         }
 
+        public PartitionKeyExtractor getPartitionKeyExtractor() {
+            return partitionKeyExtractor;
+        }
+
+        @Nullable
+        public AvroBatchReader getAvroBatchReader() {
+            return avroBatchReader;
+        }
+
+        @Nullable
+        public AvroEventCodec getAvroEventCodec() {
+            return avroEventCodec;
+        }
+
         public List<Timeline> getTimelines() {
             return timelines;
         }
@@ -25,6 +25,7 @@ import org.zalando.nakadi.exceptions.runtime.NakadiRuntimeException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchEventTypeException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchSchemaException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchSubscriptionException;
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
 import org.zalando.nakadi.exceptions.runtime.RepositoryProblemException;
 import org.zalando.nakadi.exceptions.runtime.ServiceTemporarilyUnavailableException;
 import org.zalando.nakadi.exceptions.runtime.UnprocessableEntityException;
@@ -40,6 +41,7 @@ import static org.zalando.problem.Status.FORBIDDEN;
 import static org.zalando.problem.Status.INTERNAL_SERVER_ERROR;
 import static org.zalando.problem.Status.NOT_FOUND;
 import static org.zalando.problem.Status.NOT_IMPLEMENTED;
+import static org.zalando.problem.Status.REQUEST_ENTITY_TOO_LARGE;
 import static org.zalando.problem.Status.SERVICE_UNAVAILABLE;
 import static org.zalando.problem.Status.UNPROCESSABLE_ENTITY;
 
@@ -151,6 +153,13 @@ public class NakadiProblemExceptionHandler implements ProblemHandling {
         return create(Problem.valueOf(NOT_FOUND, exception.getMessage()), request);
     }
 
+    @ExceptionHandler(PayloadTooLargeException.class)
+    public ResponseEntity<Problem> handlePayloadTooLargeException(final PayloadTooLargeException exception,
+                                                                  final NativeWebRequest request) {
+        LOG.debug(exception.getMessage());
+        return create(Problem.valueOf(REQUEST_ENTITY_TOO_LARGE, exception.getMessage()), request);
+    }
+
     @ExceptionHandler(RepositoryProblemException.class)
     public ResponseEntity<Problem> handleRepositoryProblemException(final RepositoryProblemException exception,
                                                                     final NativeWebRequest request) {
@@ -0,0 +1,96 @@
+package org.zalando.nakadi.partitioning;
+
+import org.zalando.nakadi.domain.BatchItem;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.FieldSelector;
+import org.zalando.nakadi.exceptions.runtime.InvalidPartitionKeyFieldsException;
+import org.zalando.nakadi.exceptions.runtime.JsonPathAccessException;
+import org.zalando.nakadi.util.JsonPathAccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.zalando.nakadi.validation.JsonSchemaEnrichment.DATA_PATH_PREFIX;
+
+/**
+ * Reads values of partition key fields of hash partitioned event type. Paths of the fields are parsed once per
+ * version of event type (instances are cached in {@link org.zalando.nakadi.cache.EventTypeCache}), and values of
+ * all the fields are read from an event in one traversal. The same values are used as event key.
+ */
+public class PartitionKeyExtractor {
+
+    private static final PartitionKeyExtractor NONE = new PartitionKeyExtractor(Collections.emptyList());
+
+    private final List<String> fieldPaths;
+    private final FieldSelector selector;
+
+    private PartitionKeyExtractor(final List<String> fieldPaths) {
+        this.fieldPaths = fieldPaths;
+        this.selector = FieldSelector.compile(fieldPaths.stream()
+                .map(JsonPathAccess::parsePath)
+                .collect(Collectors.toList()));
+    }
+
+    public static PartitionKeyExtractor create(final EventType eventType) {
+        if (!PartitionStrategy.HASH_STRATEGY.equals(eventType.getPartitionStrategy())) {
+            return NONE;
+        }
+        return forPartitionKeyFields(eventType);
+    }
+
+    /**
+     * Creates extractor of partition key fields of event type, regardless of its partition strategy.
+     */
+    public static PartitionKeyExtractor forPartitionKeyFields(final EventType eventType) {
+        if (eventType.getPartitionKeyFields().isEmpty()) {
+            return NONE;
+        }
+        final boolean dataEventType = EventCategory.DATA.equals(eventType.getCategory());
+        return new PartitionKeyExtractor(eventType.getPartitionKeyFields().stream()
+                .map(field -> dataEventType ? DATA_PATH_PREFIX + field : field)
+                .collect(Collectors.toList()));
+    }
+
+    public boolean isEmpty() {
+        return fieldPaths.isEmpty();
+    }
+
+    /**
+     * Event key is set only if there is exactly one partition key field, in other case it's not clear what should
+     * be set as event key.
+     */
+    public boolean hasEventKey() {
+        return fieldPaths.size() == 1;
+    }
+
+    /**
+     * @return values of partition key fields converted to strings, in the order of partition key fields of event
+     * type.
+     */
+    public List<String> extract(final BatchItem item) throws InvalidPartitionKeyFieldsException {
+        final Object[] values = item.select(selector);
+        final List<String> keys = new ArrayList<>(fieldPaths.size());
+        for (int i = 0; i < fieldPaths.size(); ++i) {
+            Object value = values[selector.getSlot(i)];
+            if (null == value) {
+                value = reportMissingField(item, fieldPaths.get(i));
+            }
+            // JSONObject doesn't override hashCode(), therefore values are converted to strings
+            keys.add(value.toString());
+        }
+        return keys;
+    }
+
+    private static Object reportMissingField(final BatchItem item, final String fieldPath)
+            throws InvalidPartitionKeyFieldsException {
+        // the whole event is parsed only to describe the missing field in the same way as JsonPathAccess does
+        try {
+            return new JsonPathAccess(item.getEvent()).get(fieldPath);
+        } catch (final JsonPathAccessException e) {
+            throw new InvalidPartitionKeyFieldsException(e.getMessage());
+        }
+    }
+}
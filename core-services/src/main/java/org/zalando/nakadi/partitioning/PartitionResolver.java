@@ -2,11 +2,12 @@ package org.zalando.nakadi.partitioning;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.zalando.nakadi.domain.BatchItem;
 import org.zalando.nakadi.domain.EventType;
 import org.zalando.nakadi.domain.EventTypeBase;
+import org.zalando.nakadi.domain.Timeline;
 import org.zalando.nakadi.exceptions.runtime.InvalidEventTypeException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchPartitionStrategyException;
 import org.zalando.nakadi.exceptions.runtime.PartitioningException;
@@ -56,7 +57,7 @@ public class PartitionResolver {
         }
     }
 
-    public String resolvePartition(final EventType eventType, final JSONObject eventAsJson)
+    public String resolvePartition(final EventType eventType, final BatchItem item)
             throws PartitioningException {
 
         final String eventTypeStrategy = eventType.getPartitionStrategy();
@@ -66,9 +67,11 @@ public class PartitionResolver {
                     eventTypeStrategy);
         }
 
-        final List<String> partitions = timelineService.getTopicRepository(eventType)
-                .listPartitionNames(timelineService.getActiveTimeline(eventType).getTopic());
-        return partitionStrategy.calculatePartition(eventType, eventAsJson, partitions);
+        final Timeline timeline = timelineService.getActiveTimeline(eventType);
+        final List<String> partitions = timelineService.getTopicRepository(timeline)
+                .getPartitionsMetadata(timeline.getTopic())
+                .getSortedPartitions();
+        return partitionStrategy.calculatePartition(eventType, item, partitions);
     }
 
 }
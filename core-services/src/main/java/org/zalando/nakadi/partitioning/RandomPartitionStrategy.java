@@ -1,6 +1,6 @@
 package org.zalando.nakadi.partitioning;
 
-import org.json.JSONObject;
+import org.zalando.nakadi.domain.BatchItem;
 import org.zalando.nakadi.domain.EventType;
 
 import java.util.List;
@@ -15,7 +15,7 @@ public class RandomPartitionStrategy implements PartitionStrategy {
     }
 
     @Override
-    public String calculatePartition(final EventType eventType, final JSONObject event, final List<String> partitions) {
+    public String calculatePartition(final EventType eventType, final BatchItem item, final List<String> partitions) {
         if (partitions.size() == 1) {
             return partitions.get(0);
         }
@@ -1,7 +1,6 @@
 package org.zalando.nakadi.partitioning;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import org.zalando.nakadi.domain.BatchItem;
 import org.zalando.nakadi.domain.EventType;
 import org.zalando.nakadi.exceptions.runtime.PartitioningException;
 
@@ -10,20 +9,18 @@ import java.util.List;
 public class UserDefinedPartitionStrategy implements PartitionStrategy {
 
     @Override
-    public String calculatePartition(final EventType eventType, final JSONObject event, final List<String> partitions)
+    public String calculatePartition(final EventType eventType, final BatchItem item, final List<String> partitions)
             throws PartitioningException {
-        try {
-            final String partition = event.getJSONObject("metadata").getString("partition");
-            if (partitions.contains(partition)) {
-                return partition;
-            } else {
-                throw new PartitioningException("Failed to resolve partition. " +
-                        "Invalid partition specified when publishing event.");
-            }
+        final Object partition = item.getField("metadata", "partition");
+        if (!(partition instanceof String)) {
+            throw new PartitioningException("Failed to resolve partition. " +
+                    "Failed to get partition from event metadata");
         }
-        catch (JSONException e) {
+        if (partitions.contains(partition)) {
+            return (String) partition;
+        } else {
             throw new PartitioningException("Failed to resolve partition. " +
-                    "Failed to get partition from event metadata", e);
+                    "Invalid partition specified when publishing event.");
         }
     }
 
@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.zalando.nakadi.cache.EventTypeCache;
 import org.zalando.nakadi.config.NakadiSettings;
 import org.zalando.nakadi.domain.EventType;
 import org.zalando.nakadi.domain.EventTypeStatistics;
@@ -41,6 +42,7 @@ public class RepartitioningService {
     private static final Logger LOG = LoggerFactory.getLogger(RepartitioningService.class);
 
     private final EventTypeRepository eventTypeRepository;
+    private final EventTypeCache eventTypeCache;
     private final TimelineService timelineService;
     private final SubscriptionDbRepository subscriptionRepository;
     private final SubscriptionClientFactory subscriptionClientFactory;
@@ -52,6 +54,7 @@ public class RepartitioningService {
     @Autowired
     public RepartitioningService(
             final EventTypeRepository eventTypeRepository,
+            final EventTypeCache eventTypeCache,
             final TimelineService timelineService,
             final SubscriptionDbRepository subscriptionRepository,
             final SubscriptionClientFactory subscriptionClientFactory,
@@ -60,6 +63,7 @@ public class RepartitioningService {
             final TimelineSync timelineSync,
             final SubscriptionTokenLister subscriptionTokenLister) {
         this.eventTypeRepository = eventTypeRepository;
+        this.eventTypeCache = eventTypeCache;
         this.timelineService = timelineService;
         this.subscriptionRepository = subscriptionRepository;
         this.subscriptionClientFactory = subscriptionClientFactory;
@@ -106,6 +110,8 @@ public class RepartitioningService {
             } catch (Exception e) {
                 throw new NakadiBaseException(e.getMessage(), e);
             }
+            // notifies all the instances, so that they drop cached partitions of the topic
+            eventTypeCache.invalidate(eventType.getName());
         } catch (final InterruptedException e) {
             Thread.currentThread().interrupt();
             LOG.error("Failed to wait for timeline switch", e);
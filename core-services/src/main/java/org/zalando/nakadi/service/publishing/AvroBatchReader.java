@@ -0,0 +1,128 @@
+package org.zalando.nakadi.service.publishing;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.json.JSONException;
+import org.zalando.nakadi.avro.AvroEventCodec;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+import org.zalando.nakadi.exceptions.runtime.InvalidAvroBatchException;
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Reads batch of events of event type with avro schema, published in avro binary encoding, and converts it to json
+ * batch, that is published the same way as batches published in json. Instances are cached per version of event
+ * type in {@link org.zalando.nakadi.cache.EventTypeCache}.
+ *
+ * <p>Batch is encoded as avro array of events in the form described in {@link AvroEventCodec}, with
+ * {@link AvroEventCodec#METADATA_SCHEMA} metadata. Events are always encoded with the latest version of the schema.
+ *
+ * <p>Json batch is validated, enriched and encoded back to avro for storage by {@link EventPublisher}, so publishing
+ * in avro makes request bodies smaller, but costs more CPU than publishing the same batch in json.
+ */
+public class AvroBatchReader {
+
+    private final Schema batchSchema;
+    private final DatumReader<Object> itemReader;
+    private final EventCategory category;
+
+    private AvroBatchReader(final Schema batchSchema, final EventCategory category) {
+        this.batchSchema = batchSchema;
+        this.itemReader = new GenericDatumReader<>(batchSchema.getElementType());
+        this.category = category;
+    }
+
+    /**
+     * @return reader of batches of the event type, or null if the event type doesn't have avro schema
+     */
+    @Nullable
+    public static AvroBatchReader create(final EventType eventType) {
+        if (eventType.getSchema() == null || eventType.getSchema().getType() != EventTypeSchemaBase.Type.AVRO_SCHEMA) {
+            return null;
+        }
+        final Schema eventSchema = new Schema.Parser().parse(eventType.getSchema().getSchema());
+        final Schema itemSchema = AvroEventCodec.itemSchema(eventSchema, eventType.getCategory(),
+                AvroEventCodec.METADATA_SCHEMA);
+        return new AvroBatchReader(Schema.createArray(itemSchema), eventType.getCategory());
+    }
+
+    /**
+     * @return avro schema of the batch, publishers are expected to encode batches with
+     */
+    public Schema getBatchSchema() {
+        return batchSchema;
+    }
+
+    /**
+     * Converts the batch to json. Events are decoded and written one by one, so that neither decoded events nor
+     * the json batch are held in memory beyond {@code maxJsonBytes}.
+     *
+     * @throws PayloadTooLargeException if the json batch gets larger than {@code maxJsonBytes}
+     */
+    public byte[] toJson(final byte[] avroBatch, final long maxJsonBytes)
+            throws InvalidAvroBatchException, PayloadTooLargeException {
+        final Schema itemSchema = batchSchema.getElementType();
+        final LimitedOutputStream out = new LimitedOutputStream(
+                (int) Math.min(maxJsonBytes, avroBatch.length * 2L), maxJsonBytes);
+        out.write('[');
+        try {
+            final BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(avroBatch, null);
+            boolean firstEvent = true;
+            for (long count = decoder.readArrayStart(); count != 0; count = decoder.arrayNext()) {
+                for (long i = 0; i < count; ++i) {
+                    final Object event = itemReader.read(null, decoder);
+                    if (!firstEvent) {
+                        out.write(',');
+                    }
+                    firstEvent = false;
+                    AvroEventCodec.writeJson(event, itemSchema, category, out);
+                }
+            }
+            if (!decoder.isEnd()) {
+                throw new InvalidAvroBatchException("Unexpected data after the end of avro batch");
+            }
+        } catch (final IOException | AvroRuntimeException e) {
+            throw new InvalidAvroBatchException("Failed to read avro batch: " + e.getMessage());
+        } catch (final JSONException e) {
+            throw new InvalidAvroBatchException("Failed to convert avro batch: " + e.getMessage());
+        }
+        out.write(']');
+        return out.toByteArray();
+    }
+
+    private static class LimitedOutputStream extends ByteArrayOutputStream {
+        private final long maxBytes;
+
+        private LimitedOutputStream(final int initialSize, final long maxBytes) {
+            super(initialSize);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public synchronized void write(final int b) {
+            checkSize(1);
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(final byte[] b, final int off, final int len) {
+            checkSize(len);
+            super.write(b, off, len);
+        }
+
+        private void checkSize(final int len) {
+            if (count + len > maxBytes) {
+                throw new PayloadTooLargeException("Batch converted to json is larger than " + maxBytes + " bytes");
+            }
+        }
+    }
+}
@@ -3,11 +3,15 @@ package org.zalando.nakadi.service.publishing;
 import com.google.common.collect.ImmutableMap;
 import io.opentracing.Span;
 import io.opentracing.tag.Tags;
+import org.apache.avro.AvroRuntimeException;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.zalando.nakadi.avro.AvroEventCodec;
 import org.zalando.nakadi.cache.EventTypeCache;
 import org.zalando.nakadi.config.NakadiSettings;
 import org.zalando.nakadi.domain.BatchFactory;
@@ -20,40 +24,48 @@ import org.zalando.nakadi.domain.EventPublishResult;
 import org.zalando.nakadi.domain.EventPublishingStatus;
 import org.zalando.nakadi.domain.EventPublishingStep;
 import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.PublishingOptions;
 import org.zalando.nakadi.domain.Timeline;
 import org.zalando.nakadi.enrichment.Enrichment;
 import org.zalando.nakadi.exceptions.runtime.AccessDeniedException;
 import org.zalando.nakadi.exceptions.runtime.EnrichmentException;
 import org.zalando.nakadi.exceptions.runtime.EventPublishingException;
+import org.zalando.nakadi.exceptions.runtime.EventSizeExceededException;
 import org.zalando.nakadi.exceptions.runtime.EventTypeTimeoutException;
 import org.zalando.nakadi.exceptions.runtime.EventValidationException;
 import org.zalando.nakadi.exceptions.runtime.InternalNakadiException;
-import org.zalando.nakadi.exceptions.runtime.InvalidPartitionKeyFieldsException;
-import org.zalando.nakadi.exceptions.runtime.JsonPathAccessException;
+import org.zalando.nakadi.exceptions.runtime.InvalidAvroBatchException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchEventTypeException;
 import org.zalando.nakadi.exceptions.runtime.PartitioningException;
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
 import org.zalando.nakadi.exceptions.runtime.PublishEventOwnershipException;
 import org.zalando.nakadi.exceptions.runtime.ServiceTemporarilyUnavailableException;
+import org.zalando.nakadi.exceptions.runtime.UnprocessableEntityException;
+import org.zalando.nakadi.metrics.EventTypeMetricRegistry;
+import org.zalando.nakadi.metrics.PublishingLatencyMetrics;
+import org.zalando.nakadi.partitioning.PartitionKeyExtractor;
 import org.zalando.nakadi.partitioning.PartitionResolver;
-import org.zalando.nakadi.partitioning.PartitionStrategy;
 import org.zalando.nakadi.service.AuthorizationValidator;
 import org.zalando.nakadi.service.TracingService;
 import org.zalando.nakadi.service.timeline.TimelineService;
 import org.zalando.nakadi.service.timeline.TimelineSync;
-import org.zalando.nakadi.util.JsonPathAccess;
 import org.zalando.nakadi.validation.EventTypeValidator;
 import org.zalando.nakadi.validation.ValidationError;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import static org.zalando.nakadi.validation.JsonSchemaEnrichment.DATA_PATH_PREFIX;
-
 @Component
 public class EventPublisher {
 
@@ -68,6 +80,10 @@ public class EventPublisher {
     private final TimelineSync timelineSync;
     private final AuthorizationValidator authValidator;
     private final EventOwnerExtractorFactory eventOwnerExtractorFactory;
+    private final EventValidationExecutor validationExecutor;
+    private final PublishingCoalescer publishingCoalescer;
+    private final EventTypeMetricRegistry eventTypeMetricRegistry;
+    private final long maxBodyBytes;
 
     @Autowired
     public EventPublisher(final TimelineService timelineService,
@@ -77,7 +93,11 @@ public class EventPublisher {
                           final NakadiSettings nakadiSettings,
                           final TimelineSync timelineSync,
                           final AuthorizationValidator authValidator,
-                          final EventOwnerExtractorFactory eventOwnerExtractorFactory) {
+                          final EventOwnerExtractorFactory eventOwnerExtractorFactory,
+                          final EventValidationExecutor validationExecutor,
+                          final PublishingCoalescer publishingCoalescer,
+                          final EventTypeMetricRegistry eventTypeMetricRegistry,
+                          @Value("${nakadi.publishing.maxBodyBytes:104857600}") final long maxBodyBytes) {
         this.timelineService = timelineService;
         this.eventTypeCache = eventTypeCache;
         this.partitionResolver = partitionResolver;
@@ -86,9 +106,13 @@ public class EventPublisher {
         this.timelineSync = timelineSync;
         this.authValidator = authValidator;
         this.eventOwnerExtractorFactory = eventOwnerExtractorFactory;
+        this.validationExecutor = validationExecutor;
+        this.publishingCoalescer = publishingCoalescer;
+        this.eventTypeMetricRegistry = eventTypeMetricRegistry;
+        this.maxBodyBytes = maxBodyBytes;
     }
 
-    public EventPublishResult publish(final String events, final String eventTypeName, final Span parentSpan)
+    public EventPublishResult publish(final byte[] events, final String eventTypeName, final Span parentSpan)
             throws NoSuchEventTypeException,
             InternalNakadiException,
             EnrichmentException,
@@ -100,7 +124,33 @@ public class EventPublisher {
         return processInternal(events, eventTypeName, true, parentSpan, false);
     }
 
-    public EventPublishResult delete(final String events, final String eventTypeName, final Span parentSpan)
+    /**
+     * Publishes batch of events encoded in avro binary format with the schema of the event type. The batch is
+     * converted to json only after the event type is found and authorized, and the converted batch is limited to
+     * {@code nakadi.publishing.maxBodyBytes}.
+     *
+     * @throws UnprocessableEntityException if the event type does not have avro schema
+     * @throws InvalidAvroBatchException    if the batch can not be decoded
+     * @throws PayloadTooLargeException     if the converted batch is too large
+     */
+    public EventPublishResult publishAvro(final byte[] events, final String eventTypeName, final Span parentSpan)
+            throws NoSuchEventTypeException,
+            InternalNakadiException,
+            EnrichmentException,
+            EventTypeTimeoutException,
+            AccessDeniedException,
+            PublishEventOwnershipException,
+            ServiceTemporarilyUnavailableException,
+            PartitioningException,
+            UnprocessableEntityException,
+            InvalidAvroBatchException,
+            PayloadTooLargeException {
+        final List<BatchItem> batch = new ArrayList<>();
+        return processBatch(batch, eventTypeName, true, parentSpan, false,
+                eventType -> processBufferedBatch(toJson(events, eventType), batch, eventType, parentSpan, false));
+    }
+
+    public EventPublishResult delete(final byte[] events, final String eventTypeName, final Span parentSpan)
             throws NoSuchEventTypeException,
             InternalNakadiException,
             EnrichmentException,
@@ -112,7 +162,90 @@ public class EventPublisher {
         return processInternal(events, eventTypeName, true, parentSpan, true);
     }
 
-    EventPublishResult processInternal(final String events,
+    /**
+     * Publishes events without blocking the calling thread while storage acknowledges them. Validation,
+     * partitioning and enrichment are still done by the calling thread, failures of these steps (as well as
+     * authorization and timeline errors) are thrown right away.
+     *
+     * @return future that is completed with the result of publishing, once all the events are acknowledged
+     */
+    public CompletableFuture<EventPublishResult> publishAsync(final byte[] events, final String eventTypeName,
+                                                              final Span parentSpan)
+            throws NoSuchEventTypeException,
+            InternalNakadiException,
+            EventTypeTimeoutException,
+            AccessDeniedException,
+            ServiceTemporarilyUnavailableException {
+        return processInternalAsync(events, eventTypeName, parentSpan, false);
+    }
+
+    public CompletableFuture<EventPublishResult> publishAvroAsync(final byte[] events, final String eventTypeName,
+                                                                  final Span parentSpan)
+            throws NoSuchEventTypeException,
+            InternalNakadiException,
+            EventTypeTimeoutException,
+            AccessDeniedException,
+            ServiceTemporarilyUnavailableException,
+            UnprocessableEntityException,
+            InvalidAvroBatchException,
+            PayloadTooLargeException {
+        final List<BatchItem> batch = new ArrayList<>();
+        return processBatch(batch, eventTypeName, true, parentSpan, false,
+                eventType -> processBufferedBatch(toJson(events, eventType), batch, eventType, parentSpan, false),
+                true);
+    }
+
+    public CompletableFuture<EventPublishResult> deleteAsync(final byte[] events, final String eventTypeName,
+                                                             final Span parentSpan)
+            throws NoSuchEventTypeException,
+            InternalNakadiException,
+            EventTypeTimeoutException,
+            AccessDeniedException,
+            ServiceTemporarilyUnavailableException {
+        return processInternalAsync(events, eventTypeName, parentSpan, true);
+    }
+
+    /**
+     * Publishes events while they are still being read from {@code events}. Every event is validated, partitioned
+     * and enriched right after it was read, and the batch is submitted once the whole stream is read and every event
+     * is processed, so that publishing of the batch stays all-or-nothing. Usage of the event type is only held while
+     * the batch is submitted, not while the client is sending it.
+     *
+     * <p>In case of failure the rest of the stream is still read in order to report status for every event of the
+     * batch.
+     *
+     * @throws IOException if reading of the stream fails, e.g. because the client disconnected. Nothing is submitted
+     *                     in that case.
+     */
+    public EventPublishResult publishStream(final InputStream events, final String eventTypeName,
+                                            final Span parentSpan)
+            throws IOException,
+            NoSuchEventTypeException,
+            InternalNakadiException,
+            EnrichmentException,
+            EventTypeTimeoutException,
+            AccessDeniedException,
+            PublishEventOwnershipException,
+            ServiceTemporarilyUnavailableException,
+            PartitioningException {
+        return processStreamInternal(events, eventTypeName, parentSpan, false);
+    }
+
+    public EventPublishResult deleteStream(final InputStream events, final String eventTypeName,
+                                           final Span parentSpan)
+            throws IOException,
+            NoSuchEventTypeException,
+            InternalNakadiException,
+            EnrichmentException,
+            EventTypeTimeoutException,
+            AccessDeniedException,
+            PublishEventOwnershipException,
+            ServiceTemporarilyUnavailableException,
+            PartitioningException {
+        return processStreamInternal(events, eventTypeName, parentSpan, true);
+    }
+
+    EventPublishResult processInternal(final byte[] events,
                                        final String eventTypeName,
                                        final boolean useAuthz,
                                        final Span parentSpan,
@@ -120,45 +253,169 @@ public class EventPublisher {
             throws NoSuchEventTypeException, InternalNakadiException, EventTypeTimeoutException,
             AccessDeniedException, ServiceTemporarilyUnavailableException, PublishEventOwnershipException,
             EnrichmentException, PartitioningException {
+        final List<BatchItem> batch = new ArrayList<>();
+        return processBatch(batch, eventTypeName, useAuthz, parentSpan, delete,
+                eventType -> processBufferedBatch(events, batch, eventType, parentSpan, delete));
+    }
+
+    /**
+     * Publishes events generated by nakadi itself (kpi, audit and similar events). The events are trusted to match
+     * the schema of the event type, so they are not validated, and are serialized only once, straight into the bytes
+     * that are sent to storage.
+     */
+    EventPublishResult publishInternal(final List<JSONObject> events, final String eventTypeName)
+            throws NoSuchEventTypeException, InternalNakadiException, EventTypeTimeoutException,
+            ServiceTemporarilyUnavailableException, EnrichmentException, PartitioningException {
+        final List<BatchItem> batch = BatchFactory.fromEvents(events);
+        return processBatch(batch, eventTypeName, false, null, false, eventType ->
+                partitionAndEnrich(batch, eventType, true, eventTypeMetricRegistry.latencyFor(eventType.getName())));
+    }
+
+    private CompletableFuture<EventPublishResult> processInternalAsync(final byte[] events,
+                                                                       final String eventTypeName,
+                                                                       final Span parentSpan,
+                                                                       final boolean delete) {
+        final List<BatchItem> batch = new ArrayList<>();
+        return processBatch(batch, eventTypeName, true, parentSpan, delete,
+                eventType -> processBufferedBatch(events, batch, eventType, parentSpan, delete), true);
+    }
+
+    /**
+     * Splits buffered events into {@code batch} and processes them. Events are split only after the event type is
+     * found and authorized, so that clients learn about absent or forbidden event types before size of their events
+     * is checked.
+     */
+    private void processBufferedBatch(final byte[] events, final List<BatchItem> batch, final EventType eventType,
+                                      final Span parentSpan, final boolean delete) {
+        batch.addAll(BatchFactory.from(events, nakadiSettings.getEventMaxBytes()));
+        final PublishingLatencyMetrics latency = eventTypeMetricRegistry.latencyFor(eventType.getName());
+        final long validatingStart = System.nanoTime();
+        validateEventOwnership(eventType, batch);
+        validate(batch, eventType, parentSpan, delete);
+        latency.updateStepTiming(EventPublishingStep.VALIDATING, System.nanoTime() - validatingStart);
+        partitionAndEnrich(batch, eventType, !delete, latency);
+    }
+
+    private byte[] toJson(final byte[] avroEvents, final EventType eventType)
+            throws UnprocessableEntityException, InvalidAvroBatchException, PayloadTooLargeException {
+        return eventTypeCache.getAvroBatchReader(eventType.getName()).toJson(avroEvents, maxBodyBytes);
+    }
+
+    private void partitionAndEnrich(final List<BatchItem> batch, final EventType eventType,
+                                    final boolean withEnrichment, final PublishingLatencyMetrics latency) {
+        final long partitioningStart = System.nanoTime();
+        partition(batch, eventType);
+        setEventKey(batch, eventType);
+        final long enrichingStart = System.nanoTime();
+        latency.updateStepTiming(EventPublishingStep.PARTITIONING, enrichingStart - partitioningStart);
+        if (withEnrichment) {
+            enrich(batch, eventType);
+            latency.updateStepTiming(EventPublishingStep.ENRICHING, System.nanoTime() - enrichingStart);
+        }
+    }
+
+    private EventPublishResult processStreamInternal(final InputStream events,
+                                                     final String eventTypeName,
+                                                     final Span parentSpan,
+                                                     final boolean delete) throws IOException {
+        final EventType eventType = eventTypeCache.getEventType(eventTypeName);
+        authValidator.authorizeEventTypeWrite(eventType);
+        final StreamedBatchProcessor processor = new StreamedBatchProcessor(eventType, parentSpan, delete);
+        try {
+            BatchFactory.from(events, nakadiSettings.getEventMaxBytes(), processor);
+            processor.submit();
+        } catch (final EventSizeExceededException e) {
+            processor.fail(e);
+        } finally {
+            processor.finish();
+        }
+        return processor.result();
+    }
+
+    private EventPublishResult processBatch(final List<BatchItem> batch,
+                                            final String eventTypeName,
+                                            final boolean useAuthz,
+                                            final Span parentSpan,
+                                            final boolean delete,
+                                            final Consumer<EventType> batchProcessor)
+            throws NoSuchEventTypeException, InternalNakadiException, EventTypeTimeoutException,
+            AccessDeniedException, ServiceTemporarilyUnavailableException, PublishEventOwnershipException,
+            EnrichmentException, PartitioningException {
+        // synchronous publishing is completed by the time the future is returned
+        return processBatch(batch, eventTypeName, useAuthz, parentSpan, delete, batchProcessor, false).join();
+    }
 
+    /**
+     * Processes the batch and submits it to storage. Usage of the event type is held until storage acknowledges
+     * the batch, so that timelines are not switched while the batch is being published.
+     */
+    private CompletableFuture<EventPublishResult> processBatch(final List<BatchItem> batch,
+                                                               final String eventTypeName,
+                                                               final boolean useAuthz,
+                                                               final Span parentSpan,
+                                                               final boolean delete,
+                                                               final Consumer<EventType> batchProcessor,
+                                                               final boolean async)
+            throws NoSuchEventTypeException, InternalNakadiException, EventTypeTimeoutException,
+            AccessDeniedException, ServiceTemporarilyUnavailableException, PublishEventOwnershipException,
+            EnrichmentException, PartitioningException {
         Closeable publishingCloser = null;
-        final List<BatchItem> batch = BatchFactory.from(events);
         try {
+            // usage is only tracked for existing event types, names of absent ones are rejected before
+            eventTypeCache.getEventType(eventTypeName);
+            final long timelineWaitStart = System.nanoTime();
             publishingCloser = timelineSync.workWithEventType(eventTypeName, nakadiSettings.getTimelineWaitTimeoutMs());
+            final long timelineWaitNanos = System.nanoTime() - timelineWaitStart;
 
             final EventType eventType = eventTypeCache.getEventType(eventTypeName);
+            // recorded only for existing event types, not to waste timers on names of absent ones
+            eventTypeMetricRegistry.latencyFor(eventTypeName).updateTimelineWaitTiming(timelineWaitNanos);
             if (useAuthz) {
                 authValidator.authorizeEventTypeWrite(eventType);
             }
-            validateEventOwnership(eventType, batch);
-            validate(batch, eventType, parentSpan, delete);
-            partition(batch, eventType);
-            setEventKey(batch, eventType);
-            if (!delete) {
-                enrich(batch, eventType);
+            batchProcessor.accept(eventType);
+            if (!async) {
+                submit(batch, eventType, parentSpan, delete);
+                return CompletableFuture.completedFuture(ok(batch));
             }
-            submit(batch, eventType, parentSpan, delete);
 
-            return ok(batch);
+            final CompletableFuture<Void> submitted = submitAsync(batch, eventType, parentSpan, delete);
+            final Closeable submittedCloser = publishingCloser;
+            publishingCloser = null;
+            return submitted.handle((ignore, ex) -> {
+                closePublishing(submittedCloser);
+                if (null == ex) {
+                    return ok(batch);
+                }
+                final Throwable cause = ex instanceof CompletionException && null != ex.getCause() ?
+                        ex.getCause() : ex;
+                if (cause instanceof EventPublishingException) {
+                    LOG.error("error publishing event", cause);
+                    return failed(batch);
+                }
+                throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+            });
         } catch (final EventValidationException e) {
             LOG.info(
                     "Event type {} validation error: {}",
                     eventTypeName,
                     Optional.ofNullable(e.getMessage()).map(s -> s.replaceAll("\n", "; ")).orElse(null)
             );
-            return aborted(EventPublishingStep.VALIDATING, batch);
+            return CompletableFuture.completedFuture(aborted(EventPublishingStep.VALIDATING, batch));
+        } catch (final EventSizeExceededException e) {
+            return CompletableFuture.completedFuture(eventTooLarge(eventTypeName, responses(batch), e));
         } catch (final PartitioningException e) {
             LOG.debug("Event partition error: {}", e.getMessage());
-            return aborted(EventPublishingStep.PARTITIONING, batch);
+            return CompletableFuture.completedFuture(aborted(EventPublishingStep.PARTITIONING, batch));
         } catch (final EnrichmentException e) {
             LOG.debug("Event enrichment error: {}", e.getMessage());
-            return aborted(EventPublishingStep.ENRICHING, batch);
+            return CompletableFuture.completedFuture(aborted(EventPublishingStep.ENRICHING, batch));
         } catch (final PublishEventOwnershipException e) {
             LOG.debug("Event ownership error: {}", e.getMessage());
-            return aborted(EventPublishingStep.VALIDATING, batch);
+            return CompletableFuture.completedFuture(aborted(EventPublishingStep.VALIDATING, batch));
         } catch (final EventPublishingException e) {
             LOG.error("error publishing event", e);
-            return failed(batch);
+            return CompletableFuture.completedFuture(failed(batch));
         } catch (final InterruptedException e) {
             Thread.currentThread().interrupt();
             LOG.error("Failed to wait for timeline switch", e);
@@ -167,27 +424,214 @@ public class EventPublisher {
             LOG.error("Failed to wait for timeline switch", e);
             throw new EventTypeTimeoutException("Event type is currently in maintenance, please repeat request");
         } finally {
+            closePublishing(publishingCloser);
+        }
+    }
+
+    /**
+     * Submits the batch holding usage of the event type, the same way as {@link #processBatch} does, but only for
+     * the time of submission.
+     */
+    private void submitWithUsage(final List<BatchItem> batch, final EventType eventType, final Span parentSpan,
+                                 final boolean delete) throws EventTypeTimeoutException, EventPublishingException {
+        final Closeable publishingCloser;
+        final long timelineWaitStart = System.nanoTime();
+        try {
+            publishingCloser = timelineSync.workWithEventType(
+                    eventType.getName(), nakadiSettings.getTimelineWaitTimeoutMs());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Failed to wait for timeline switch", e);
+            throw new EventTypeTimeoutException("Event type is currently in maintenance, please repeat request");
+        } catch (final TimeoutException e) {
+            LOG.error("Failed to wait for timeline switch", e);
+            throw new EventTypeTimeoutException("Event type is currently in maintenance, please repeat request");
+        }
+        eventTypeMetricRegistry.latencyFor(eventType.getName())
+                .updateTimelineWaitTiming(System.nanoTime() - timelineWaitStart);
+        try {
+            submit(batch, eventType, parentSpan, delete);
+        } finally {
+            closePublishing(publishingCloser);
+        }
+    }
+
+    private static void closePublishing(@Nullable final Closeable publishingCloser) {
+        try {
+            if (publishingCloser != null) {
+                publishingCloser.close();
+            }
+        } catch (final IOException e) {
+            LOG.error("Exception occurred when releasing usage of event-type", e);
+        }
+    }
+
+    /**
+     * Runs validation, partitioning and enrichment for every event of streamed batch right after it was read, and
+     * submits processed events after the whole batch is read. The first failure stops processing, but the following
+     * events are still read in order to report them as aborted.
+     */
+    private class StreamedBatchProcessor implements Consumer<BatchItem> {
+        private final EventType eventType;
+        private final Span parentSpan;
+        private final boolean delete;
+        private final Function<JSONObject, EventOwnerHeader> ownerExtractor;
+        private final PartitionKeyExtractor partitionKeyExtractor;
+        private final AvroEventCodec avroEventCodec;
+        private final Span validationSpan;
+        private final List<BatchItemResponse> responses = new ArrayList<>();
+        private final List<BatchItem> processed = new ArrayList<>();
+        private RuntimeException failure;
+        private long validatingNanos;
+        private long partitioningNanos;
+        private long enrichingNanos;
+
+        private StreamedBatchProcessor(final EventType eventType, final Span parentSpan, final boolean delete) {
+            this.eventType = eventType;
+            this.parentSpan = parentSpan;
+            this.delete = delete;
+            this.ownerExtractor = eventOwnerExtractorFactory.createExtractor(eventType);
+            this.partitionKeyExtractor = eventTypeCache.getPartitionKeyExtractor(eventType.getName());
+            this.avroEventCodec = delete ? null : avroEventCodec(eventType);
+            this.validationSpan = createValidationSpan(eventType, parentSpan);
+            if (delete && eventType.getCleanupPolicy() == CleanupPolicy.DELETE) {
+                failure = new EventValidationException(
+                        "It is not allowed to delete events from non compacted event type");
+            }
+        }
+
+        @Override
+        public void accept(final BatchItem item) {
+            responses.add(item.getResponse());
+            if (null != failure) {
+                return;
+            }
             try {
-                if (publishingCloser != null) {
-                    publishingCloser.close();
+                final long validatingStart = System.nanoTime();
+                if (null != ownerExtractor) {
+                    validateEventOwnership(ownerExtractor, item);
+                }
+                validateItem(item, eventType, validationSpan, delete);
+                final long partitioningStart = System.nanoTime();
+                partitionItem(item, eventType, partitionKeyExtractor);
+                setEventKey(item, eventType, partitionKeyExtractor);
+                final long enrichingStart = System.nanoTime();
+                validatingNanos += partitioningStart - validatingStart;
+                partitioningNanos += enrichingStart - partitioningStart;
+                if (!delete) {
+                    enrichItem(item, eventType, avroEventCodec);
+                    enrichingNanos += System.nanoTime() - enrichingStart;
                 }
-            } catch (final IOException e) {
-                LOG.error("Exception occurred when releasing usage of event-type", e);
+                processed.add(item);
+            } catch (final RuntimeException e) {
+                failure = e;
             }
         }
+
+        private void submit() {
+            if (null != failure || processed.isEmpty()) {
+                return;
+            }
+            try {
+                submitWithUsage(processed, eventType, parentSpan, delete);
+            } catch (final RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        private void fail(final RuntimeException e) {
+            // failure of one of the previous events is reported in the first place
+            if (null == failure) {
+                failure = e;
+            }
+        }
+
+        private void finish() {
+            validationSpan.finish();
+            if (null == failure) {
+                // steps of every event are timed separately, the batch is reported as if steps were done one by one
+                final PublishingLatencyMetrics latency = eventTypeMetricRegistry.latencyFor(eventType.getName());
+                latency.updateStepTiming(EventPublishingStep.VALIDATING, validatingNanos);
+                latency.updateStepTiming(EventPublishingStep.PARTITIONING, partitioningNanos);
+                if (!delete) {
+                    latency.updateStepTiming(EventPublishingStep.ENRICHING, enrichingNanos);
+                }
+            }
+        }
+
+        private EventPublishResult result() {
+            if (null == failure) {
+                return new EventPublishResult(EventPublishingStatus.SUBMITTED, EventPublishingStep.NONE, responses);
+            }
+            if (failure instanceof EventSizeExceededException) {
+                return eventTooLarge(eventType.getName(), responses, (EventSizeExceededException) failure);
+            } else if (failure instanceof EventValidationException) {
+                LOG.info("Event type {} validation error: {}", eventType.getName(),
+                        Optional.ofNullable(failure.getMessage()).map(m -> m.replaceAll("\n", "; ")).orElse(null));
+                return new EventPublishResult(EventPublishingStatus.ABORTED, EventPublishingStep.VALIDATING,
+                        responses);
+            } else if (failure instanceof PublishEventOwnershipException) {
+                LOG.debug("Event ownership error: {}", failure.getMessage());
+                return new EventPublishResult(EventPublishingStatus.ABORTED, EventPublishingStep.VALIDATING,
+                        responses);
+            } else if (failure instanceof PartitioningException) {
+                LOG.debug("Event partition error: {}", failure.getMessage());
+                return new EventPublishResult(EventPublishingStatus.ABORTED, EventPublishingStep.PARTITIONING,
+                        responses);
+            } else if (failure instanceof EnrichmentException) {
+                LOG.debug("Event enrichment error: {}", failure.getMessage());
+                return new EventPublishResult(EventPublishingStatus.ABORTED, EventPublishingStep.ENRICHING,
+                        responses);
+            } else if (failure instanceof EventPublishingException) {
+                LOG.error("error publishing event", failure);
+                return new EventPublishResult(EventPublishingStatus.FAILED, EventPublishingStep.PUBLISHING,
+                        responses);
+            }
+            throw failure;
+        }
     }
 
     private void enrich(final List<BatchItem> batch, final EventType eventType)
             throws EnrichmentException {
+        final AvroEventCodec avroEventCodec = avroEventCodec(eventType);
         for (final BatchItem batchItem : batch) {
-            try {
-                batchItem.setStep(EventPublishingStep.ENRICHING);
-                enrichment.enrich(batchItem, eventType);
-            } catch (EnrichmentException e) {
-                batchItem.updateStatusAndDetail(EventPublishingStatus.FAILED, e.getMessage());
-                throw e;
+            enrichItem(batchItem, eventType, avroEventCodec);
+        }
+    }
+
+    /**
+     * Enriches the event and, for event types with avro schema, encodes the enriched event in avro, as it is stored.
+     */
+    private void enrichItem(final BatchItem batchItem, final EventType eventType,
+                            @Nullable final AvroEventCodec avroEventCodec) throws EnrichmentException {
+        try {
+            batchItem.setStep(EventPublishingStep.ENRICHING);
+            enrichment.enrich(batchItem, eventType);
+            if (null != avroEventCodec) {
+                batchItem.setAvroEvent(avroEventCodec.toAvro(batchItem.getEvent()), avroEventCodec.getVersion());
             }
+        } catch (final EnrichmentException e) {
+            batchItem.updateStatusAndDetail(EventPublishingStatus.FAILED, e.getMessage());
+            throw e;
+        } catch (final AvroRuntimeException e) {
+            batchItem.updateStatusAndDetail(EventPublishingStatus.FAILED,
+                    "failed to encode event in avro: " + e.getMessage());
+            throw new EnrichmentException("failed to encode event in avro", e);
+        }
+    }
+
+    /**
+     * @return codec of the version of the schema the events are enriched with, or null if the event type doesn't
+     * have avro schema
+     */
+    @Nullable
+    private AvroEventCodec avroEventCodec(final EventType eventType) {
+        final AvroEventCodec cached = eventTypeCache.getAvroEventCodec(eventType.getName());
+        if (null == cached || cached.getVersion().equals(eventType.getSchema().getVersion().toString())) {
+            return cached;
         }
+        // the event type was updated after it was taken from the cache
+        return AvroEventCodec.create(eventType);
     }
 
     private List<BatchItemResponse> responses(final List<BatchItem> batch) {
@@ -198,46 +642,49 @@ public class EventPublisher {
 
     private void partition(final List<BatchItem> batch, final EventType eventType)
             throws PartitioningException {
+        final PartitionKeyExtractor partitionKeyExtractor =
+                eventTypeCache.getPartitionKeyExtractor(eventType.getName());
         for (final BatchItem item : batch) {
-            item.setStep(EventPublishingStep.PARTITIONING);
-            try {
-                final String partitionId = partitionResolver.resolvePartition(eventType, item.getEvent());
-                item.setPartition(partitionId);
-            } catch (final PartitioningException e) {
-                item.updateStatusAndDetail(EventPublishingStatus.FAILED, e.getMessage());
-                throw e;
+            partitionItem(item, eventType, partitionKeyExtractor);
+        }
+    }
+
+    private void partitionItem(final BatchItem item, final EventType eventType,
+                               final PartitionKeyExtractor partitionKeyExtractor) throws PartitioningException {
+        item.setStep(EventPublishingStep.PARTITIONING);
+        try {
+            if (!partitionKeyExtractor.isEmpty()) {
+                item.setPartitionKeys(partitionKeyExtractor.extract(item));
             }
+            final String partitionId = partitionResolver.resolvePartition(eventType, item);
+            item.setPartition(partitionId);
+        } catch (final PartitioningException e) {
+            item.updateStatusAndDetail(EventPublishingStatus.FAILED, e.getMessage());
+            throw e;
         }
     }
 
     private void setEventKey(final List<BatchItem> batch, final EventType eventType) {
+        final PartitionKeyExtractor partitionKeyExtractor =
+                eventTypeCache.getPartitionKeyExtractor(eventType.getName());
+        for (final BatchItem item : batch) {
+            setEventKey(item, eventType, partitionKeyExtractor);
+        }
+    }
+
+    private void setEventKey(final BatchItem item, final EventType eventType,
+                             final PartitionKeyExtractor partitionKeyExtractor) {
         if (eventType.getCleanupPolicy() == CleanupPolicy.COMPACT ||
-                 eventType.getCleanupPolicy() == CleanupPolicy.COMPACT_AND_DELETE) {
-            for (final BatchItem item : batch) {
-                final String compactionKey = item.getEvent()
-                        .getJSONObject("metadata")
-                        .getString("partition_compaction_key");
-                item.setEventKey(compactionKey);
-            }
-        } else if (PartitionStrategy.HASH_STRATEGY.equals(eventType.getPartitionStrategy())) {
-            final List<String> partitionKeyFields = eventType.getPartitionKeyFields();
-            // we will set event key only if there is exactly one partition key field,
-            // in other case it's not clear what should be set as event key
-            if (partitionKeyFields.size() == 1) {
-                String partitionKeyField = partitionKeyFields.get(0);
-                if (EventCategory.DATA.equals(eventType.getCategory())) {
-                    partitionKeyField = DATA_PATH_PREFIX + partitionKeyField;
-                }
-                for (final BatchItem item : batch) {
-                    final JsonPathAccess jsonPath = new JsonPathAccess(item.getEvent());
-                    try {
-                        final String eventKey = jsonPath.get(partitionKeyField).toString();
-                        item.setEventKey(eventKey);
-                    } catch (final JsonPathAccessException e) {
-                        throw new InvalidPartitionKeyFieldsException(e.getMessage());
-                    }
-                }
+                eventType.getCleanupPolicy() == CleanupPolicy.COMPACT_AND_DELETE) {
+            final Object compactionKey = item.getField("metadata", "partition_compaction_key");
+            if (!(compactionKey instanceof String)) {
+                throw new JSONException("partition_compaction_key is not a string");
             }
+            item.setEventKey((String) compactionKey);
+        } else if (partitionKeyExtractor.hasEventKey()) {
+            final List<String> partitionKeys = null != item.getPartitionKeys() ?
+                    item.getPartitionKeys() : partitionKeyExtractor.extract(item);
+            item.setEventKey(partitionKeys.get(0));
         }
     }
 
@@ -247,44 +694,36 @@ public class EventPublisher {
             return;
         }
         for (final BatchItem item : batchItems) {
-            item.setStep(EventPublishingStep.VALIDATING);
-            try {
-                final EventOwnerHeader owner = extractor.apply(item.getEvent());
-                item.setOwner(owner);
-                authValidator.authorizeEventWrite(item);
-            } catch (AccessDeniedException e) {
-                item.updateStatusAndDetail(EventPublishingStatus.FAILED, e.explain());
-                throw new PublishEventOwnershipException(e.explain(), e);
-            }
+            validateEventOwnership(extractor, item);
+        }
+    }
+
+    private void validateEventOwnership(final Function<JSONObject, EventOwnerHeader> extractor,
+                                        final BatchItem item) {
+        item.setStep(EventPublishingStep.VALIDATING);
+        try {
+            final EventOwnerHeader owner = extractor.apply(item.getEvent());
+            item.setOwner(owner);
+            authValidator.authorizeEventWrite(item);
+        } catch (AccessDeniedException e) {
+            item.updateStatusAndDetail(EventPublishingStatus.FAILED, e.explain());
+            throw new PublishEventOwnershipException(e.explain(), e);
         }
     }
 
     private void validate(final List<BatchItem> batch, final EventType eventType, final Span parentSpan,
                           final boolean delete)
             throws EventValidationException, InternalNakadiException, NoSuchEventTypeException {
-        final Span validationSpan = TracingService.getNewSpanWithParent("validation", System.currentTimeMillis(),
-                parentSpan);
-        validationSpan.setTag("event_type", eventType.getName());
+        final Span validationSpan = createValidationSpan(eventType, parentSpan);
         if (delete && eventType.getCleanupPolicy() == CleanupPolicy.DELETE) {
             throw new EventValidationException("It is not allowed to delete events from non compacted event type");
         }
         try {
-            for (final BatchItem item : batch) {
-                item.setStep(EventPublishingStep.VALIDATING);
-                try {
-                    if (!delete) {
-                        validateSchema(item.getEvent(), eventType);
-                    }
-                    validateEventSize(item);
-                } catch (final EventValidationException e) {
-                    item.updateStatusAndDetail(EventPublishingStatus.FAILED, e.getMessage());
-                    if (eventType.getCategory() != EventCategory.UNDEFINED) {
-                        validationSpan.log(ImmutableMap.of(
-                                "event.id", item.getEvent().getJSONObject("metadata").getString("eid"),
-                                "error", e.getMessage()));
-                    }
-
-                    throw e;
+            if (validationExecutor.isParallel(batch.size())) {
+                validateInParallel(batch, eventType, validationSpan, delete);
+            } else {
+                for (final BatchItem item : batch) {
+                    validateItem(item, eventType, validationSpan, delete);
                 }
             }
         } finally {
@@ -292,6 +731,52 @@ public class EventPublisher {
         }
     }
 
+    private void validateInParallel(final List<BatchItem> batch, final EventType eventType,
+                                    final Span validationSpan, final boolean delete)
+            throws EventValidationException, InternalNakadiException, NoSuchEventTypeException {
+        final EventTypeValidator validator = delete ? null : eventTypeCache.getValidator(eventType.getName());
+        final boolean skipSchema = null == validator || validator.acceptsAnyEvent();
+        final int firstInvalid = validationExecutor.findFirstInvalid(batch, item ->
+                skipSchema || !validator.validate(item.getEvent()).isPresent());
+
+        final int validItems = firstInvalid == -1 ? batch.size() : firstInvalid;
+        for (int i = 0; i < validItems; ++i) {
+            batch.get(i).setStep(EventPublishingStep.VALIDATING);
+        }
+        // the invalid item is validated once again in order to report the failure exactly as sequential
+        // validation does
+        for (int i = validItems; i < batch.size(); ++i) {
+            validateItem(batch.get(i), eventType, validationSpan, delete);
+        }
+    }
+
+    private static Span createValidationSpan(final EventType eventType, final Span parentSpan) {
+        final Span validationSpan = TracingService.getNewSpanWithParent("validation", System.currentTimeMillis(),
+                parentSpan);
+        validationSpan.setTag("event_type", eventType.getName());
+        return validationSpan;
+    }
+
+    private void validateItem(final BatchItem item, final EventType eventType, final Span validationSpan,
+                              final boolean delete)
+            throws EventValidationException, InternalNakadiException, NoSuchEventTypeException {
+        item.setStep(EventPublishingStep.VALIDATING);
+        try {
+            if (!delete) {
+                validateSchema(item, eventType);
+            }
+        } catch (final EventValidationException e) {
+            item.updateStatusAndDetail(EventPublishingStatus.FAILED, e.getMessage());
+            if (eventType.getCategory() != EventCategory.UNDEFINED) {
+                validationSpan.log(ImmutableMap.of(
+                        "event.id", item.getEvent().getJSONObject("metadata").getString("eid"),
+                        "error", e.getMessage()));
+            }
+
+            throw e;
+        }
+    }
+
     private void submit(
             final List<BatchItem> batch, final EventType eventType, final Span parentSpan, final boolean delete)
             throws EventPublishingException {
@@ -299,31 +784,88 @@ public class EventPublisher {
         final String topic = activeTimeline.getTopic();
         final Span publishSpan = TracingService.getNewSpanWithParent(parentSpan, "publishing_to_kafka")
                 .setTag(Tags.MESSAGE_BUS_DESTINATION.getKey(), topic);
+        final long publishingStart = System.nanoTime();
         try {
-            timelineService.getTopicRepository(eventType).syncPostBatch(topic, batch, eventType.getName(), delete);
+            publishingCoalescer.syncPostBatch(timelineService.getTopicRepository(eventType),
+                    topic, batch, eventType.getName(), PublishingOptions.of(eventType.getOptions()), delete);
         } catch (final EventPublishingException epe) {
             publishSpan.log(epe.getMessage());
             throw epe;
         } finally {
             publishSpan.finish();
+            eventTypeMetricRegistry.latencyFor(eventType.getName()).updateStepTiming(
+                    EventPublishingStep.PUBLISHING, System.nanoTime() - publishingStart);
+        }
+    }
+
+    private CompletableFuture<Void> submitAsync(
+            final List<BatchItem> batch, final EventType eventType, final Span parentSpan, final boolean delete)
+            throws EventPublishingException {
+        final Timeline activeTimeline = timelineService.getActiveTimeline(eventType);
+        final String topic = activeTimeline.getTopic();
+        final Span publishSpan = TracingService.getNewSpanWithParent(parentSpan, "publishing_to_kafka")
+                .setTag(Tags.MESSAGE_BUS_DESTINATION.getKey(), topic);
+        final long publishingStart = System.nanoTime();
+        final CompletableFuture<Void> published;
+        try {
+            published = publishingCoalescer.postBatch(timelineService.getTopicRepository(eventType),
+                    topic, batch, eventType.getName(), PublishingOptions.of(eventType.getOptions()), delete);
+        } catch (final EventPublishingException epe) {
+            publishSpan.log(epe.getMessage());
+            publishSpan.finish();
+            throw epe;
+        } catch (final RuntimeException e) {
+            publishSpan.finish();
+            throw e;
         }
+        return published.whenComplete((ignore, ex) -> {
+            if (null != ex) {
+                publishSpan.log(ex.getMessage());
+            }
+            publishSpan.finish();
+            eventTypeMetricRegistry.latencyFor(eventType.getName()).updateStepTiming(
+                    EventPublishingStep.PUBLISHING, System.nanoTime() - publishingStart);
+        });
     }
 
-    private void validateSchema(final JSONObject event, final EventType eventType)
+    private void validateSchema(final BatchItem item, final EventType eventType)
             throws EventValidationException, InternalNakadiException, NoSuchEventTypeException {
 
         final EventTypeValidator validator = eventTypeCache.getValidator(eventType.getName());
-        final Optional<ValidationError> validationError = validator.validate(event);
+        if (validator.acceptsAnyEvent()) {
+            return;
+        }
+        final Optional<ValidationError> validationError = validator.validate(item.getEvent());
         if (validationError.isPresent()) {
             throw new EventValidationException(validationError.get().getMessage());
         }
     }
 
-    private void validateEventSize(final BatchItem item) throws EventValidationException {
-        if (item.getEventSize() > nakadiSettings.getEventMaxBytes()) {
-            throw new EventValidationException("Event too large: " + item.getEventSize()
-                    + " bytes, max size is " + nakadiSettings.getEventMaxBytes() + " bytes");
+    /**
+     * Reports the batch as aborted at validation, the oversized event being the failed one. Events that were not
+     * turned into batch items (the oversized event and the ones after it) have only their status reported.
+     */
+    private EventPublishResult eventTooLarge(final String eventTypeName, final List<BatchItemResponse> itemResponses,
+                                             final EventSizeExceededException e) {
+        LOG.info("Event type {} validation error: {}", eventTypeName, e.getMessage());
+        final List<BatchItemResponse> responses = new ArrayList<>(e.getEventsCount());
+        for (int i = 0; i < e.getEventsCount(); ++i) {
+            final BatchItemResponse response;
+            if (i < itemResponses.size()) {
+                response = itemResponses.get(i);
+            } else {
+                response = new BatchItemResponse();
+                if (i <= e.getEventIndex()) {
+                    response.setStep(EventPublishingStep.VALIDATING);
+                }
+            }
+            if (i == e.getEventIndex()) {
+                response.setPublishingStatus(EventPublishingStatus.FAILED);
+                response.setDetail(e.getMessage());
+            }
+            responses.add(response);
         }
+        return new EventPublishResult(EventPublishingStatus.ABORTED, EventPublishingStep.VALIDATING, responses);
     }
 
     private EventPublishResult failed(final List<BatchItem> batch) {
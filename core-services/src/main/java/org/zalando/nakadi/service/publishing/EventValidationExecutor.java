@@ -0,0 +1,189 @@
+package org.zalando.nakadi.service.publishing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zalando.nakadi.exceptions.runtime.ServiceTemporarilyUnavailableException;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Shared pool used to validate large batches in parallel. Batch is split into at most
+ * {@code maxTasksPerRequest} contiguous chunks of at least {@code chunkSize} items, first chunk is always validated
+ * by the calling thread. In case if the pool is overloaded chunks are validated by the calling thread as well.
+ */
+@Component
+public class EventValidationExecutor {
+
+    private static final int NO_FAILURE = Integer.MAX_VALUE;
+    // makes the chunks to stop as soon as possible, as no item is placed before it
+    private static final int STOPPED = -1;
+
+    @Nullable
+    private final ExecutorService executorService;
+    private final int chunkSize;
+    private final int maxTasksPerRequest;
+
+    @Autowired
+    public EventValidationExecutor(
+            @Value("${nakadi.publishing.validation.threads:4}") final int threads,
+            @Value("${nakadi.publishing.validation.queue-size:1000}") final int queueSize,
+            @Value("${nakadi.publishing.validation.chunk-size:250}") final int chunkSize,
+            @Value("${nakadi.publishing.validation.max-tasks-per-request:4}") final int maxTasksPerRequest) {
+        this.chunkSize = chunkSize;
+        this.maxTasksPerRequest = maxTasksPerRequest;
+        if (threads > 0 && maxTasksPerRequest > 1) {
+            this.executorService = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueSize),
+                    new NamedThreadFactory("event-validator-"));
+        } else {
+            this.executorService = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (null != executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    public boolean isParallel(final int batchSize) {
+        return null != executorService && batchSize >= 2 * chunkSize;
+    }
+
+    /**
+     * Checks items in parallel and returns position of the first item (in batch order) that is not valid. Items
+     * that are placed after already found invalid item are not checked at all, as it is done with sequential
+     * validation. If check has thrown an exception for the item that is placed before the first invalid one, the
+     * exception is rethrown. All the chunks are finished by the time the method returns or throws.
+     *
+     * @return position of the first invalid item or -1 if all the items are valid
+     * @throws ServiceTemporarilyUnavailableException if the calling thread is interrupted while waiting for chunks
+     */
+    public <T> int findFirstInvalid(final List<T> items, final Predicate<T> isValid) {
+        if (null == executorService) {
+            throw new IllegalStateException("Parallel validation is disabled");
+        }
+        final int tasks = Math.min(maxTasksPerRequest, (items.size() + chunkSize - 1) / chunkSize);
+        final int itemsPerTask = (items.size() + tasks - 1) / tasks;
+        final AtomicInteger firstFailure = new AtomicInteger(NO_FAILURE);
+
+        final List<Chunk<T>> chunks = new ArrayList<>(tasks);
+        for (int from = 0; from < items.size(); from += itemsPerTask) {
+            chunks.add(new Chunk<>(items, from, Math.min(from + itemsPerTask, items.size()), isValid, firstFailure));
+        }
+        final List<Future<?>> futures = new ArrayList<>(chunks.size() - 1);
+        Error error = null;
+        try {
+            for (final Chunk<T> chunk : chunks.subList(1, chunks.size())) {
+                try {
+                    futures.add(executorService.submit(chunk));
+                } catch (final RejectedExecutionException e) {
+                    chunk.run();
+                }
+            }
+            chunks.get(0).run();
+        } catch (final Error e) {
+            // exceptions of checks are kept by chunks, only errors get here
+            firstFailure.set(STOPPED);
+            error = e;
+        }
+        awaitAll(futures, firstFailure, error);
+
+        final int failedPosition = firstFailure.get();
+        if (failedPosition == NO_FAILURE) {
+            return -1;
+        }
+        for (final Chunk<T> chunk : chunks) {
+            if (chunk.failedPosition == failedPosition && null != chunk.error) {
+                throw chunk.error;
+            }
+        }
+        return failedPosition;
+    }
+
+    private static void awaitAll(final List<Future<?>> futures, final AtomicInteger firstFailure,
+                                 @Nullable final Error error) {
+        Throwable failure = error;
+        boolean interrupted = false;
+        for (final Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (final InterruptedException e) {
+                    // the rest of the chunks are still using the items, so they are waited for anyway
+                    interrupted = true;
+                    firstFailure.set(STOPPED);
+                } catch (final ExecutionException e) {
+                    firstFailure.set(STOPPED);
+                    if (null == failure) {
+                        failure = e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (null != failure) {
+            throw new ServiceTemporarilyUnavailableException("Failed to validate events", failure);
+        } else if (interrupted) {
+            throw new ServiceTemporarilyUnavailableException("Interrupted while validating events");
+        }
+    }
+
+    private static class Chunk<T> implements Runnable {
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final Predicate<T> isValid;
+        private final AtomicInteger firstFailure;
+        private volatile int failedPosition = NO_FAILURE;
+        private volatile RuntimeException error;
+
+        private Chunk(final List<T> items, final int from, final int to, final Predicate<T> isValid,
+                      final AtomicInteger firstFailure) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.isValid = isValid;
+            this.firstFailure = firstFailure;
+        }
+
+        @Override
+        public void run() {
+            for (int i = from; i < to && i < firstFailure.get(); ++i) {
+                try {
+                    if (isValid.test(items.get(i))) {
+                        continue;
+                    }
+                } catch (final RuntimeException e) {
+                    error = e;
+                }
+                failedPosition = i;
+                firstFailure.accumulateAndGet(i, Math::min);
+                return;
+            }
+        }
+    }
+}
@@ -1,33 +1,49 @@
 package org.zalando.nakadi.service.publishing;
 
-import org.json.JSONArray;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.zalando.nakadi.domain.EventPublishResult;
+import org.zalando.nakadi.domain.EventPublishingStatus;
+import org.zalando.nakadi.metrics.MetricUtils;
 import org.zalando.nakadi.util.FlowIdUtils;
+import org.zalando.nakadi.util.MpscRingBuffer;
 import org.zalando.nakadi.util.UUIDGenerator;
 
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Collects events generated by nakadi itself into batches per event type and publishes them in background. Events
+ * are passed to the single dispatcher thread through {@link MpscRingBuffer}, so that request threads reporting
+ * events never block or contend on a lock. Events that do not fit into the buffer or into the queue of batches
+ * being published are dropped and counted.
+ */
 @Component
 public class EventsProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(EventsProcessor.class);
+    private static final String METRIC_PREFIX = MetricUtils.NAKADI_PREFIX + "internal_events.";
 
     private final EventPublisher eventPublisher;
     private final ExecutorService executorService;
@@ -36,16 +52,21 @@ public class EventsProcessor {
     private final long batchCollectionTimeout;
     private final int maxBatchSize;
 
-    private final BlockingQueue<EventToPublish> eventsQueue;
+    private final MpscRingBuffer<EventToPublish> eventsQueue;
     private final Thread dispatcherThread;
+    private volatile boolean dispatcherParked;
+    private final Meter droppedEvents;
+    private final Timer publishingLatency;
 
     private static class EventToPublish {
         private final String eventType;
         private final JSONObject object;
+        private final long submittedAtNanos;
 
         private EventToPublish(final String eventType, final JSONObject object) {
             this.eventType = eventType;
             this.object = object;
+            this.submittedAtNanos = System.nanoTime();
         }
     }
 
@@ -56,16 +77,18 @@ public class EventsProcessor {
                            @Value("${nakadi.kpi.config.batch-size}") final int maxBatchSize,
                            @Value("${nakadi.kpi.config.workers}") final int workers,
                            @Value("${nakadi.kpi.config.batch-queue:100}") final int maxBatchQueue,
-                           @Value("${nakadi.kpi.config.events-queue-size}") final int eventsQueueSize) {
+                           @Value("${nakadi.kpi.config.events-queue-size}") final int eventsQueueSize,
+                           final MetricRegistry metricRegistry) {
         this.eventPublisher = eventPublisher;
         this.uuidGenerator = uuidGenerator;
         this.batchCollectionTimeout = batchCollectionTimeout;
         this.maxBatchSize = maxBatchSize;
+        this.droppedEvents = metricRegistry.meter(METRIC_PREFIX + "dropped");
 
         // The following lines will create executor service of {@code workers} threads with burst up to workers * 2
         // threads, unused thread death timeout of 10 seconds,
-        // maximum batch publishers in queue of {@code maxBatchQueue} and only logging rejection policy in case of
-        // queue overflow.
+        // maximum batch publishers in queue of {@code maxBatchQueue} and only logging and counting rejection policy
+        // in case of queue overflow.
         this.executorService = new ThreadPoolExecutor(
                 workers,
                 workers * 2,
@@ -75,10 +98,15 @@ public class EventsProcessor {
                 (runnable, threadPoolExecutor) -> {
                     LOG.warn("Failed publish batch {}, as batch publishing queue of size {} is full",
                             runnable, maxBatchQueue);
+                    if (runnable instanceof BatchSender) {
+                        droppedEvents.mark(((BatchSender) runnable).request.events.size());
+                    }
                 }
         );
-        this.eventsQueue = new ArrayBlockingQueue<>(eventsQueueSize);
+        this.eventsQueue = new MpscRingBuffer<>(eventsQueueSize);
         this.dispatcherThread = new Thread(this::dispatch, "processor-dispatch");
+        this.publishingLatency = metricRegistry.timer(METRIC_PREFIX + "latency");
+        metricRegistry.register(METRIC_PREFIX + "queue_depth", (Gauge<Integer>) eventsQueue::size);
     }
 
     @PostConstruct
@@ -96,43 +124,59 @@ public class EventsProcessor {
     private static class BatchedRequest {
         private final String eventType;
         private final long finishCollectionAt;
-        private final JSONArray data;
-        private int size = 0;
+        private final List<EventToPublish> events;
 
         private BatchedRequest(final String eventType, final long finishCollectionAt) {
             this.eventType = eventType;
             this.finishCollectionAt = finishCollectionAt;
-            this.data = new JSONArray();
+            this.events = new ArrayList<>();
         }
 
-        public int add(final JSONObject obj) {
-            this.data.put(obj);
-            return ++size;
+        public int add(final EventToPublish event) {
+            this.events.add(event);
+            return events.size();
         }
 
         @Override
         public String toString() {
-            return "Batch{et=" + eventType + ",size:" + size + "}";
+            return "Batch{et=" + eventType + ",size:" + events.size() + "}";
         }
     }
 
     private void scheduleSendBatchedRequest(final BatchedRequest req) {
-        final Runnable r = new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    eventPublisher.processInternal(req.data.toString(), req.eventType, false, null, false);
-                } catch (final RuntimeException ex) {
-                    LOG.info("Failed to send single batch for unknown reason", ex);
+        executorService.execute(new BatchSender(req));
+    }
+
+    private class BatchSender implements Runnable {
+        private final BatchedRequest request;
+
+        private BatchSender(final BatchedRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            final List<JSONObject> data = new ArrayList<>(request.events.size());
+            request.events.forEach(event -> data.add(event.object));
+            try {
+                final EventPublishResult result = eventPublisher.publishInternal(data, request.eventType);
+                if (result.getStatus() != EventPublishingStatus.SUBMITTED) {
+                    droppedEvents.mark(data.size());
+                    return;
                 }
+                final long now = System.nanoTime();
+                request.events.forEach(
+                        event -> publishingLatency.update(now - event.submittedAtNanos, TimeUnit.NANOSECONDS));
+            } catch (final RuntimeException ex) {
+                droppedEvents.mark(data.size());
+                LOG.info("Failed to send single batch for unknown reason", ex);
             }
+        }
 
-            @Override
-            public String toString() {
-                return "Batch to " + req.eventType + " of size " + req.data.length();
-            }
-        };
-        executorService.submit(r);
+        @Override
+        public String toString() {
+            return "Batch to " + request.eventType + " of size " + request.events.size();
+        }
     }
 
     /**
@@ -149,8 +193,7 @@ public class EventsProcessor {
             long nextTimeCheck = System.currentTimeMillis() + batchCollectionTimeout;
             while (true) {
                 long currentTime = System.currentTimeMillis();
-                final EventToPublish data = eventsQueue.poll(
-                        Math.max(nextTimeCheck - currentTime, 1), TimeUnit.MILLISECONDS);
+                final EventToPublish data = poll(Math.max(nextTimeCheck - currentTime, 1));
                 currentTime = System.currentTimeMillis();
                 boolean batchWasSent = false;
                 // In case if data was taken - add it.
@@ -161,7 +204,7 @@ public class EventsProcessor {
                         batchesBeingAssembled.put(data.eventType, batch);
                     }
                     // In case if batch size is crossing maxBatchSize - send batch
-                    if (batch.add(data.object) >= maxBatchSize) {
+                    if (batch.add(data) >= maxBatchSize) {
                         scheduleSendBatchedRequest(batch);
                         batchesBeingAssembled.remove(batch.eventType);
                         currentTime = System.currentTimeMillis();
@@ -196,6 +239,41 @@ public class EventsProcessor {
         sendLeftovesOnShutdown(batchesBeingAssembled);
     }
 
+    /**
+     * Waits for the next event for at most {@code timeoutMs}. While the buffer is empty the dispatcher parks until
+     * the timeout, producers unpark it when they see it parked, so that submission of events stays free of locks.
+     * The wake-up could be missed by a producer racing with the dispatcher going to park, in this case the event
+     * waits for at most {@code timeoutMs}, that is never longer than {@link #batchCollectionTimeout}.
+     */
+    @Nullable
+    private EventToPublish poll(final long timeoutMs) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            EventToPublish event = eventsQueue.poll();
+            if (null != event) {
+                return event;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            dispatcherParked = true;
+            try {
+                // the event could be offered before the producer was able to see the dispatcher parked
+                event = eventsQueue.poll();
+                if (null != event) {
+                    return event;
+                }
+                LockSupport.parkNanos(this, remaining);
+            } finally {
+                dispatcherParked = false;
+            }
+        }
+    }
+
     private void sendLeftovesOnShutdown(final Map<String, BatchedRequest> batchesBeingAssembled) {
         EventToPublish taken;
         while (null != (taken = eventsQueue.poll())) {
@@ -204,7 +282,7 @@ public class EventsProcessor {
                 batchedRequest = new BatchedRequest(taken.eventType, System.currentTimeMillis());
                 batchesBeingAssembled.put(taken.eventType, batchedRequest);
             }
-            if (batchedRequest.add(taken.object) >= maxBatchSize) {
+            if (batchedRequest.add(taken) >= maxBatchSize) {
                 scheduleSendBatchedRequest(batchedRequest);
                 batchesBeingAssembled.remove(batchedRequest.eventType);
             }
@@ -223,7 +301,10 @@ public class EventsProcessor {
         event.put("metadata", metadata);
 
         if (!eventsQueue.offer(new EventToPublish(etName, event))) {
+            droppedEvents.mark();
             LOG.warn("Rejecting events to be queued for {} due to queue overload", etName);
+        } else if (dispatcherParked) {
+            LockSupport.unpark(dispatcherThread);
         }
     }
 
@@ -0,0 +1,254 @@
+package org.zalando.nakadi.service.publishing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zalando.nakadi.domain.BatchItem;
+import org.zalando.nakadi.domain.EventPublishingStatus;
+import org.zalando.nakadi.domain.PublishingOptions;
+import org.zalando.nakadi.exceptions.runtime.EventPublishingException;
+import org.zalando.nakadi.repository.TopicRepository;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges small batches, that are published concurrently to the same topic, into one submission to storage, so that
+ * producers publishing events one by one don't pay for a separate round trip to kafka each. Merged batch is kept
+ * open for at most {@code windowMs} after the first batch was added to it, or until it has {@code maxEvents}
+ * events. Each request is completed according to the statuses of its own events, so failure of a partition only
+ * fails the requests that had events in it.
+ *
+ * <p>Batches of different topics are merged independently of each other. Batches that are full are submitted by
+ * the thread that filled them, batches that are kept open for the whole window are submitted by one of
+ * {@code threads} flushing threads, so that the timer is never blocked by storage.
+ *
+ * <p>Coalescing is disabled when {@code windowMs} or {@code threads} is 0, in this case batches are posted to
+ * storage directly.
+ */
+@Component
+public class PublishingCoalescer {
+
+    @Nullable
+    private final ScheduledExecutorService scheduler;
+    @Nullable
+    private final ExecutorService flushExecutor;
+    private final long windowMs;
+    private final int maxRequestEvents;
+    private final int maxEvents;
+    private final ConcurrentMap<Key, PendingBatch> pendingBatches = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PublishingCoalescer(
+            @Value("${nakadi.publishing.coalescing.threads:2}") final int threads,
+            @Value("${nakadi.publishing.coalescing.window-ms:0}") final long windowMs,
+            @Value("${nakadi.publishing.coalescing.max-request-events:10}") final int maxRequestEvents,
+            @Value("${nakadi.publishing.coalescing.max-events:500}") final int maxEvents) {
+        this.windowMs = windowMs;
+        this.maxRequestEvents = maxRequestEvents;
+        this.maxEvents = maxEvents;
+        if (threads > 0 && windowMs > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                    new NamedThreadFactory("publishing-coalescer-timer-"));
+            this.flushExecutor = Executors.newFixedThreadPool(threads,
+                    new NamedThreadFactory("publishing-coalescer-flush-"));
+        } else {
+            this.scheduler = null;
+            this.flushExecutor = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (null == scheduler) {
+            return;
+        }
+        scheduler.shutdownNow();
+        new ArrayList<>(pendingBatches.values()).forEach(this::flushIfPending);
+        flushExecutor.shutdown();
+    }
+
+    public boolean isCoalesced(final int batchSize) {
+        return null != scheduler && batchSize <= maxRequestEvents;
+    }
+
+    public void syncPostBatch(final TopicRepository topicRepository, final String topicId,
+                              final List<BatchItem> batch, final String eventType,
+                              final PublishingOptions options, final boolean delete)
+            throws EventPublishingException {
+        if (!isCoalesced(batch.size())) {
+            topicRepository.syncPostBatch(topicId, batch, eventType, options, delete);
+            return;
+        }
+        final CompletableFuture<Void> published =
+                postBatch(topicRepository, topicId, batch, eventType, options, delete);
+        try {
+            published.get();
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof EventPublishingException) {
+                throw (EventPublishingException) ex.getCause();
+            }
+            throw new EventPublishingException("Internal error publishing message to kafka", ex);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new EventPublishingException("Interrupted publishing message to kafka", ex);
+        }
+    }
+
+    /**
+     * @return future that is completed once all the events of the batch are acknowledged by storage, or
+     * exceptionally with {@link EventPublishingException} if at least one of them was not published
+     */
+    public CompletableFuture<Void> postBatch(final TopicRepository topicRepository, final String topicId,
+                                             final List<BatchItem> batch, final String eventType,
+                                             final PublishingOptions options, final boolean delete)
+            throws EventPublishingException {
+        if (!isCoalesced(batch.size())) {
+            return topicRepository.postBatch(topicId, batch, eventType, options, delete);
+        }
+        final Key key = new Key(topicRepository, topicId, options, delete);
+        final PendingRequest request = new PendingRequest(batch);
+        while (true) {
+            final PendingBatch pendingBatch = pendingBatches.computeIfAbsent(key, k -> openBatch(k, eventType));
+            final int events = pendingBatch.add(request);
+            if (events < 0) {
+                // the batch was closed by another thread, that is about to flush it
+                pendingBatches.remove(key, pendingBatch);
+                continue;
+            }
+            if (events >= maxEvents) {
+                flushIfPending(pendingBatch);
+            }
+            return request.future;
+        }
+    }
+
+    private PendingBatch openBatch(final Key key, final String eventType) {
+        final PendingBatch batch = new PendingBatch(key, eventType);
+        scheduler.schedule(() -> flushExecutor.execute(() -> flushIfPending(batch)), windowMs, TimeUnit.MILLISECONDS);
+        return batch;
+    }
+
+    private void flushIfPending(final PendingBatch batch) {
+        // the batch could be already flushed because it was full
+        if (!batch.close()) {
+            return;
+        }
+        pendingBatches.remove(batch.key, batch);
+        batch.flush();
+    }
+
+    private static class Key {
+        private final TopicRepository topicRepository;
+        private final String topicId;
+        private final PublishingOptions options;
+        private final boolean delete;
+
+        private Key(final TopicRepository topicRepository, final String topicId, final PublishingOptions options,
+                    final boolean delete) {
+            this.topicRepository = topicRepository;
+            this.topicId = topicId;
+            this.options = options;
+            this.delete = delete;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key that = (Key) o;
+            return delete == that.delete && topicRepository == that.topicRepository
+                    && topicId.equals(that.topicId) && options.equals(that.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(topicId, options, delete);
+        }
+    }
+
+    private static class PendingRequest {
+        private final List<BatchItem> batch;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingRequest(final List<BatchItem> batch) {
+            this.batch = batch;
+        }
+
+        private void complete(@Nullable final Throwable failure) {
+            final boolean published = batch.stream()
+                    .allMatch(item -> item.getResponse().getPublishingStatus() == EventPublishingStatus.SUBMITTED);
+            if (null == failure || published) {
+                future.complete(null);
+                return;
+            }
+            final Throwable cause = failure instanceof CompletionException && null != failure.getCause() ?
+                    failure.getCause() : failure;
+            future.completeExceptionally(cause instanceof EventPublishingException ? cause :
+                    new EventPublishingException("Internal error publishing message to kafka", cause));
+        }
+    }
+
+    private static class PendingBatch {
+        private final Key key;
+        private final String eventType;
+        private final List<BatchItem> items = new ArrayList<>();
+        private final List<PendingRequest> requests = new ArrayList<>();
+        private boolean closed;
+
+        private PendingBatch(final Key key, final String eventType) {
+            this.key = key;
+            this.eventType = eventType;
+        }
+
+        /**
+         * @return number of events in the batch with the request added, or -1 if the batch is already closed
+         */
+        private synchronized int add(final PendingRequest request) {
+            if (closed) {
+                return -1;
+            }
+            items.addAll(request.batch);
+            requests.add(request);
+            return items.size();
+        }
+
+        /**
+         * @return true if the batch is closed by this call, so that the caller is the one to flush it
+         */
+        private synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+
+        private void flush() {
+            final CompletableFuture<Void> published;
+            try {
+                published = key.topicRepository.postBatch(key.topicId, items, eventType, key.options, key.delete);
+            } catch (final RuntimeException e) {
+                requests.forEach(request -> request.complete(e));
+                return;
+            }
+            published.whenComplete((ignore, ex) -> requests.forEach(request -> request.complete(ex)));
+        }
+    }
+}
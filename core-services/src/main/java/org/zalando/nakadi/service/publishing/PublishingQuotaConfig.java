@@ -0,0 +1,80 @@
+package org.zalando.nakadi.service.publishing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Publishing limits, set for the whole cluster. Limits of applications and event types override the default ones,
+ * names with dots should be written in brackets, e.g. {@code applications.[stups_my-app].events-per-second}.
+ */
+@Component
+@ConfigurationProperties(prefix = "nakadi.publishing.quota")
+public class PublishingQuotaConfig {
+    private long eventsPerSecond;
+    private long bytesPerSecond;
+    private double burstSeconds = 1;
+    private final Map<String, Limits> applications = new HashMap<>();
+    private final Map<String, Limits> eventTypes = new HashMap<>();
+
+    public long getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    public void setEventsPerSecond(final long eventsPerSecond) {
+        this.eventsPerSecond = eventsPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void setBytesPerSecond(final long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public double getBurstSeconds() {
+        return burstSeconds;
+    }
+
+    public void setBurstSeconds(final double burstSeconds) {
+        this.burstSeconds = burstSeconds;
+    }
+
+    public Map<String, Limits> getApplications() {
+        return applications;
+    }
+
+    public Map<String, Limits> getEventTypes() {
+        return eventTypes;
+    }
+
+    /**
+     * Limits that are not set are taken from the default ones, 0 disables the limit.
+     */
+    public static class Limits {
+        private Long eventsPerSecond;
+        private Long bytesPerSecond;
+
+        @Nullable
+        public Long getEventsPerSecond() {
+            return eventsPerSecond;
+        }
+
+        public void setEventsPerSecond(@Nullable final Long eventsPerSecond) {
+            this.eventsPerSecond = eventsPerSecond;
+        }
+
+        @Nullable
+        public Long getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        public void setBytesPerSecond(@Nullable final Long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package org.zalando.nakadi.service.publishing;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.curator.framework.recipes.cache.PathChildrenCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.zalando.nakadi.exceptions.runtime.PublishingQuotaExceededException;
+import org.zalando.nakadi.repository.zookeeper.ZooKeeperHolder;
+import org.zalando.nakadi.service.timeline.TimelinesZookeeper;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Limits the rate of publishing of every application to every event type, in events and in bytes per second. The
+ * limits are set for the whole cluster and are split evenly between the nodes, that are counted by their
+ * registrations in zookeeper, so every node enforces its share in memory without coordination.
+ *
+ * <p>Every (application, event type) pair has a token bucket, holding at most {@code burstSeconds} worth of its
+ * rate. Size of a batch is not known before it is read, so the batch is charged once it is processed, and the
+ * bucket is allowed to go into debt. Requests are rejected while the bucket is in debt, with the time needed to
+ * pay it off as a retry hint.
+ *
+ * <p>Limits of the pair are the ones configured for the application or for the event type, the stricter of them if
+ * both are configured, or the default ones. Each limit is disabled when set to 0. Buckets that are full again are
+ * removed periodically, as they are no different from the new ones, so that applications that stopped publishing
+ * do not hold memory.
+ */
+@Component
+public class PublishingQuotaService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PublishingQuotaService.class);
+
+    private final PublishingQuotaConfig config;
+    private final boolean enabled;
+    private final double burstSeconds;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<Key, TokenBucket> buckets = new ConcurrentHashMap<>();
+    @Nullable
+    private final ZooKeeperHolder zooKeeperHolder;
+    private volatile IntSupplier clusterSize;
+    private PathChildrenCache nodesCache;
+
+    @Autowired
+    public PublishingQuotaService(final ZooKeeperHolder zooKeeperHolder, final PublishingQuotaConfig config) {
+        this(zooKeeperHolder, config, System::nanoTime, () -> 1);
+    }
+
+    @VisibleForTesting
+    PublishingQuotaService(@Nullable final ZooKeeperHolder zooKeeperHolder, final PublishingQuotaConfig config,
+                           final LongSupplier nanoClock, final IntSupplier clusterSize) {
+        this.zooKeeperHolder = zooKeeperHolder;
+        this.config = config;
+        this.burstSeconds = config.getBurstSeconds();
+        this.nanoClock = nanoClock;
+        this.clusterSize = clusterSize;
+        this.enabled = new Rates(config.getEventsPerSecond(), config.getBytesPerSecond()).isLimited()
+                || Stream.concat(config.getApplications().values().stream(), config.getEventTypes().values().stream())
+                .anyMatch(limits -> isLimited(limits.getEventsPerSecond()) || isLimited(limits.getBytesPerSecond()));
+    }
+
+    @PostConstruct
+    public void initIt() {
+        if (!isEnabled() || null == zooKeeperHolder) {
+            return;
+        }
+        try {
+            nodesCache = new PathChildrenCache(zooKeeperHolder.get(), TimelinesZookeeper.NODES_PATH, false);
+            nodesCache.start();
+            clusterSize = () -> Math.max(1, nodesCache.getCurrentData().size());
+        } catch (final Exception e) {
+            LOG.error("Failed to watch nakadi nodes, quotas are not split between nodes", e);
+        }
+    }
+
+    @PreDestroy
+    public void cleanUp() {
+        if (null == nodesCache) {
+            return;
+        }
+        try {
+            nodesCache.close();
+        } catch (final IOException e) {
+            LOG.error("Could not close nakadi nodes cache", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Checks that the application is allowed to publish to the event type right now.
+     *
+     * @throws PublishingQuotaExceededException if previously published batches used up the quota
+     */
+    public void checkQuota(final String application, final String eventType)
+            throws PublishingQuotaExceededException {
+        if (!isEnabled()) {
+            return;
+        }
+        final TokenBucket bucket = buckets.get(new Key(application, eventType));
+        if (null == bucket) {
+            return;
+        }
+        final long waitNanos = bucket.nanosUntilPaidOff(nanoClock.getAsLong(), clusterSize.getAsInt());
+        if (waitNanos > 0) {
+            throw new PublishingQuotaExceededException("Publishing quota of application " + application
+                    + " for event type " + eventType + " is exceeded",
+                    (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Charges the quota of the application for the batch published to the event type.
+     */
+    public void charge(final String application, final String eventType, final int events, final long bytes) {
+        if (!isEnabled()) {
+            return;
+        }
+        final Key key = new Key(application, eventType);
+        final long nowNanos = nanoClock.getAsLong();
+        final int nodes = clusterSize.getAsInt();
+        TokenBucket bucket = buckets.get(key);
+        if (null == bucket) {
+            final Rates rates = ratesFor(application, eventType);
+            if (!rates.isLimited()) {
+                return;
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(rates));
+        }
+        while (!bucket.take(nowNanos, nodes, events, bytes)) {
+            // the bucket was expired right before it was charged
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(ratesFor(application, eventType)));
+        }
+    }
+
+    /**
+     * Removes buckets that are full, so that they are recreated on the next charge.
+     */
+    @Scheduled(fixedDelayString = "${nakadi.publishing.quota.expiry-interval-ms:60000}")
+    public void expireIdleBuckets() {
+        final long nowNanos = nanoClock.getAsLong();
+        final int nodes = clusterSize.getAsInt();
+        buckets.values().removeIf(bucket -> bucket.expireIfFull(nowNanos, nodes));
+    }
+
+    @VisibleForTesting
+    int getBucketsCount() {
+        return buckets.size();
+    }
+
+    private Rates ratesFor(final String application, final String eventType) {
+        final PublishingQuotaConfig.Limits applicationLimits = config.getApplications().get(application);
+        final PublishingQuotaConfig.Limits eventTypeLimits = config.getEventTypes().get(eventType);
+        return new Rates(
+                rate(applicationLimits, eventTypeLimits, PublishingQuotaConfig.Limits::getEventsPerSecond,
+                        config.getEventsPerSecond()),
+                rate(applicationLimits, eventTypeLimits, PublishingQuotaConfig.Limits::getBytesPerSecond,
+                        config.getBytesPerSecond()));
+    }
+
+    private static long rate(@Nullable final PublishingQuotaConfig.Limits applicationLimits,
+                             @Nullable final PublishingQuotaConfig.Limits eventTypeLimits,
+                             final Function<PublishingQuotaConfig.Limits, Long> limit, final long defaultRate) {
+        final Long applicationRate = null == applicationLimits ? null : limit.apply(applicationLimits);
+        final Long eventTypeRate = null == eventTypeLimits ? null : limit.apply(eventTypeLimits);
+        if (null == applicationRate && null == eventTypeRate) {
+            return defaultRate;
+        } else if (null == applicationRate || null == eventTypeRate) {
+            return null == applicationRate ? eventTypeRate : applicationRate;
+        } else if (!isLimited(applicationRate) || !isLimited(eventTypeRate)) {
+            // 0 is no limit, so the other one is the stricter
+            return Math.max(applicationRate, eventTypeRate);
+        }
+        return Math.min(applicationRate, eventTypeRate);
+    }
+
+    private static boolean isLimited(@Nullable final Long rate) {
+        return null != rate && rate > 0;
+    }
+
+    private static class Rates {
+        private final long eventsPerSecond;
+        private final long bytesPerSecond;
+
+        private Rates(final long eventsPerSecond, final long bytesPerSecond) {
+            this.eventsPerSecond = eventsPerSecond;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        private boolean isLimited() {
+            return eventsPerSecond > 0 || bytesPerSecond > 0;
+        }
+    }
+
+    private class TokenBucket {
+        private final Rates rates;
+        private double events = Double.NaN;
+        private double bytes = Double.NaN;
+        private long refilledAtNanos;
+        private boolean expired;
+
+        private TokenBucket(final Rates rates) {
+            this.rates = rates;
+        }
+
+        /**
+         * @return false if the bucket is expired and was not charged
+         */
+        private synchronized boolean take(final long nowNanos, final int nodes, final int takenEvents,
+                                          final long takenBytes) {
+            if (expired) {
+                return false;
+            }
+            refill(nowNanos, nodes);
+            if (rates.eventsPerSecond > 0) {
+                events -= takenEvents;
+            }
+            if (rates.bytesPerSecond > 0) {
+                bytes -= takenBytes;
+            }
+            return true;
+        }
+
+        private synchronized long nanosUntilPaidOff(final long nowNanos, final int nodes) {
+            refill(nowNanos, nodes);
+            return Math.max(
+                    nanosToPayOff(events, rates.eventsPerSecond, nodes),
+                    nanosToPayOff(bytes, rates.bytesPerSecond, nodes));
+        }
+
+        private synchronized boolean expireIfFull(final long nowNanos, final int nodes) {
+            refill(nowNanos, nodes);
+            expired = events >= maxEvents(nodes) && bytes >= maxBytes(nodes);
+            return expired;
+        }
+
+        private double maxEvents(final int nodes) {
+            return (double) rates.eventsPerSecond / nodes * burstSeconds;
+        }
+
+        private double maxBytes(final int nodes) {
+            return (double) rates.bytesPerSecond / nodes * burstSeconds;
+        }
+
+        private void refill(final long nowNanos, final int nodes) {
+            if (Double.isNaN(events)) {
+                // new bucket starts full
+                events = maxEvents(nodes);
+                bytes = maxBytes(nodes);
+            } else {
+                final double elapsedSeconds = (nowNanos - refilledAtNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+                events = Math.min(maxEvents(nodes), events + elapsedSeconds * rates.eventsPerSecond / nodes);
+                bytes = Math.min(maxBytes(nodes), bytes + elapsedSeconds * rates.bytesPerSecond / nodes);
+            }
+            refilledAtNanos = nowNanos;
+        }
+    }
+
+    private static long nanosToPayOff(final double tokens, final long clusterRate, final int nodes) {
+        if (clusterRate <= 0 || tokens >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-tokens * nodes / clusterRate * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static class Key {
+        private final String application;
+        private final String eventType;
+
+        private Key(final String application, final String eventType) {
+            this.application = application;
+            this.eventType = eventType;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return application.equals(key.application) && eventType.equals(key.eventType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(application, eventType);
+        }
+    }
+}
@@ -4,64 +4,99 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * Tracks usage of event types on this node and blocks it while event types are locked for timeline switch.
+ *
+ * <p>Usage is counted per event type with atomic counters, so that publishing threads do not contend with each
+ * other, unless they publish to the same event type. Taking usage of not locked event type increments the counter
+ * and checks the flag, while locking sets the flag and then checks the counter, so at least one of the sides sees
+ * the other one. Monitor of {@link #lock} is only used when an event type is (or is being) locked: to change locked
+ * event types, to wait for them to unlock and to wait for their usage to finish.
+ *
+ * <p>Counters are never removed, as removing an idle counter would race with threads that are about to take it.
+ * Publishing, that is called with any name clients send, only takes usage of existing event types, so that the
+ * number of counters stays bounded by the number of event types.
+ */
 public class LocalLocking {
     private static final Logger LOG = LoggerFactory.getLogger(LocalLocking.class);
-    private final Set<String> lockedEventTypes = new HashSet<>();
-    private final Map<String, Integer> eventTypesBeingPublished = new HashMap<>();
+    private final ConcurrentMap<String, Usage> usages = new ConcurrentHashMap<>();
+    private volatile Set<String> lockedEventTypes = Collections.emptySet();
     private final Object lock = new Object();
 
+    private static class Usage {
+        private final AtomicInteger count = new AtomicInteger();
+        // only changed while holding the lock
+        private volatile boolean locked;
+    }
+
     public Closeable workWithEventType(final String eventType, final long timeoutMs)
             throws InterruptedException, TimeoutException {
+        final Usage usage = getUsage(eventType);
+        usage.count.incrementAndGet();
+        if (!usage.locked) {
+            return () -> release(usage);
+        }
+        release(usage);
+
         final long finishAt = System.currentTimeMillis() + timeoutMs;
         synchronized (lock) {
             long now = System.currentTimeMillis();
-            while (now < finishAt && lockedEventTypes.contains(eventType)) {
+            while (now < finishAt && usage.locked) {
                 lock.wait(finishAt - now);
                 now = System.currentTimeMillis();
             }
-            if (lockedEventTypes.contains(eventType)) {
+            if (usage.locked) {
                 throw new TimeoutException("Timed out while waiting for event type " + eventType +
                         " to unlock within " + timeoutMs + " ms");
             }
-            eventTypesBeingPublished.put(eventType, eventTypesBeingPublished.getOrDefault(eventType, 0) + 1);
+            // the flag can not change while the lock is held
+            usage.count.incrementAndGet();
         }
-        return () -> {
+        return () -> release(usage);
+    }
+
+    private void release(final Usage usage) {
+        if (0 == usage.count.decrementAndGet() && usage.locked) {
             synchronized (lock) {
-                final int currentCount = eventTypesBeingPublished.get(eventType);
-                if (1 == currentCount) {
-                    eventTypesBeingPublished.remove(eventType);
-                    lock.notifyAll();
-                } else {
-                    eventTypesBeingPublished.put(eventType, currentCount - 1);
-                }
+                lock.notifyAll();
             }
-        };
+        }
+    }
+
+    private Usage getUsage(final String eventType) {
+        final Usage usage = usages.get(eventType);
+        return null != usage ? usage : usages.computeIfAbsent(eventType, et -> new Usage());
     }
 
     public Set<String> getUnlockedEventTypes(final Set<String> lockedEventTypesUpdated) {
-        synchronized (lock) {
-            return this.lockedEventTypes.stream()
-                    .filter(v -> !lockedEventTypesUpdated.contains(v))
-                    .collect(Collectors.toSet());
-        }
+        return this.lockedEventTypes.stream()
+                .filter(v -> !lockedEventTypesUpdated.contains(v))
+                .collect(Collectors.toSet());
     }
 
     public void updateLockedEventTypes(final Set<String> lockedEventTypes) throws InterruptedException {
         synchronized (lock) {
-            this.lockedEventTypes.clear();
-            this.lockedEventTypes.addAll(lockedEventTypes);
+            this.lockedEventTypes.stream()
+                    .filter(v -> !lockedEventTypes.contains(v))
+                    .forEach(v -> getUsage(v).locked = false);
+            lockedEventTypes.forEach(v -> getUsage(v).locked = true);
+            this.lockedEventTypes = Collections.unmodifiableSet(new HashSet<>(lockedEventTypes));
+            // wakes up usages of unlocked event types
+            lock.notifyAll();
             boolean haveUsage = true;
             while (haveUsage) {
                 final List<String> stillLocked = this.lockedEventTypes.stream()
-                        .filter(eventTypesBeingPublished::containsKey).collect(Collectors.toList());
+                        .filter(v -> getUsage(v).count.get() > 0).collect(Collectors.toList());
                 haveUsage = !stillLocked.isEmpty();
                 if (haveUsage) {
                     LOG.info("Event types are still locked: {}", stillLocked);
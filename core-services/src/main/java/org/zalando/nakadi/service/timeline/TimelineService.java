@@ -106,6 +106,21 @@ public class TimelineService {
         this.featureToggleService = featureToggleService;
         this.compactedStorageName = compactedStorageName;
         this.auditLogPublisher = auditLogPublisher;
+        this.eventTypeCache.addInvalidationListener(this::invalidatePartitionsMetadata);
+    }
+
+    // Partitions of topics could be changed by repartitioning, and the topic itself could be changed by timeline
+    // switch, both of them are followed by invalidation of event type on every instance.
+    private void invalidatePartitionsMetadata(final String eventTypeName) {
+        try {
+            for (final Timeline timeline : getActiveTimelinesOrdered(eventTypeName)) {
+                getTopicRepository(timeline).invalidatePartitionsMetadata(timeline.getTopic());
+            }
+        } catch (final NoSuchEventTypeException e) {
+            LOG.debug("Event type {} was deleted, partitions metadata will expire on its own", eventTypeName);
+        } catch (final RuntimeException e) {
+            LOG.warn("Failed to invalidate partitions metadata for event type {}", eventTypeName, e);
+        }
     }
 
     public void createTimeline(final String eventTypeName, final String storageId)
@@ -30,7 +30,7 @@ import java.util.concurrent.Callable;
 public class TimelinesZookeeper {
     private static final String ROOT_PATH = "/nakadi/timelines";
     public static final String STATE_PATH = ROOT_PATH + "/state";
-    private static final String NODES_PATH = ROOT_PATH + "/nodes";
+    public static final String NODES_PATH = ROOT_PATH + "/nodes";
 
     private final ZooKeeperHolder zkHolder;
     private final UUID nodeId;
@@ -0,0 +1,503 @@
+package org.zalando.nakadi.validation;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.re2j.Pattern;
+import com.google.re2j.PatternSyntaxException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Validates events against JSON schema, that was compiled once to a tree of specialized checks, instead of walking
+ * the schema for every event. Only the subset of JSON schema (draft 4) used by event types is supported: type,
+ * properties, required, additionalProperties, enum, date-time format, pattern and size and range constraints.
+ * Schemas using anything else (references, combinations, etc.) are not compiled and should be validated with
+ * everit. Unlike everit, validation stops at the first violation found.
+ */
+public final class CompiledSchemaValidator {
+
+    private static final int TYPE_STRING = 1;
+    private static final int TYPE_INTEGER = 1 << 1;
+    private static final int TYPE_NUMBER = 1 << 2;
+    private static final int TYPE_BOOLEAN = 1 << 3;
+    private static final int TYPE_OBJECT = 1 << 4;
+    private static final int TYPE_ARRAY = 1 << 5;
+    private static final int TYPE_NULL = 1 << 6;
+
+    private static final Set<String> UNSUPPORTED_KEYWORDS = ImmutableSet.of(
+            "$ref", "allOf", "anyOf", "oneOf", "not", "dependencies", "patternProperties", "multipleOf",
+            "uniqueItems", "const", "contains", "propertyNames", "if", "then", "else");
+
+    private static final RFC3339DateTimeValidator DATE_TIME_VALIDATOR = new RFC3339DateTimeValidator();
+
+    private final Node root;
+
+    private CompiledSchemaValidator(final Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles schema to validator.
+     *
+     * @param schema Effective schema of event type.
+     * @return compiled validator or empty optional if schema uses features that are not supported.
+     */
+    public static Optional<CompiledSchemaValidator> compile(final JSONObject schema) {
+        try {
+            return Optional.of(new CompiledSchemaValidator(compileNode(schema)));
+        } catch (final UnsupportedSchemaException | PatternSyntaxException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Optional<ValidationError> validate(final JSONObject event) {
+        final Violation violation = root.check(event);
+        if (null == violation) {
+            return Optional.empty();
+        }
+        return Optional.of(new ValidationError(violation.toString()));
+    }
+
+    /**
+     * @return true if schema doesn't put any constraints on json objects.
+     */
+    public boolean acceptsAnyObject() {
+        return root.acceptsAnyObject();
+    }
+
+    private static Node compileNode(final JSONObject schema) throws UnsupportedSchemaException {
+        final Node node = new Node();
+        for (final String keyword : schema.keySet()) {
+            if (UNSUPPORTED_KEYWORDS.contains(keyword)) {
+                throw new UnsupportedSchemaException();
+            }
+            final Object value = schema.get(keyword);
+            switch (keyword) {
+                case "$schema":
+                    if (!value.toString().contains("draft-04")) {
+                        throw new UnsupportedSchemaException();
+                    }
+                    break;
+                case "type":
+                    node.types = compileTypes(value);
+                    break;
+                case "properties":
+                    final JSONObject properties = asObject(value);
+                    node.propertyNames = properties.keySet().toArray(new String[0]);
+                    node.propertySchemas = new Node[node.propertyNames.length];
+                    node.properties = new HashMap<>();
+                    for (int i = 0; i < node.propertyNames.length; ++i) {
+                        node.propertySchemas[i] = compileNode(asObject(properties.get(node.propertyNames[i])));
+                        node.properties.put(node.propertyNames[i], node.propertySchemas[i]);
+                    }
+                    break;
+                case "required":
+                    final JSONArray required = asArray(value);
+                    node.required = new String[required.length()];
+                    for (int i = 0; i < required.length(); ++i) {
+                        node.required[i] = required.getString(i);
+                    }
+                    break;
+                case "additionalProperties":
+                    if (value instanceof Boolean) {
+                        node.additionalPropertiesAllowed = (Boolean) value;
+                    } else {
+                        node.additionalProperties = compileNode(asObject(value));
+                    }
+                    break;
+                case "minProperties":
+                    node.minProperties = asInt(value);
+                    break;
+                case "maxProperties":
+                    node.maxProperties = asInt(value);
+                    break;
+                case "enum":
+                    final JSONArray values = asArray(value);
+                    node.enumValues = new Object[values.length()];
+                    for (int i = 0; i < values.length(); ++i) {
+                        node.enumValues[i] = values.get(i);
+                    }
+                    break;
+                case "format":
+                    if (!"date-time".equals(value)) {
+                        throw new UnsupportedSchemaException();
+                    }
+                    node.dateTime = true;
+                    break;
+                case "pattern":
+                    node.patternSource = value.toString();
+                    node.pattern = Pattern.compile(node.patternSource);
+                    break;
+                case "minLength":
+                    node.minLength = asInt(value);
+                    break;
+                case "maxLength":
+                    node.maxLength = asInt(value);
+                    break;
+                case "minimum":
+                    node.minimum = asNumber(value);
+                    break;
+                case "maximum":
+                    node.maximum = asNumber(value);
+                    break;
+                case "exclusiveMinimum":
+                    node.exclusiveMinimum = asBoolean(value);
+                    break;
+                case "exclusiveMaximum":
+                    node.exclusiveMaximum = asBoolean(value);
+                    break;
+                case "items":
+                    node.items = compileNode(asObject(value));
+                    break;
+                case "additionalItems":
+                    if (!Boolean.TRUE.equals(value) && !(schema.opt("items") instanceof JSONObject)) {
+                        throw new UnsupportedSchemaException();
+                    }
+                    break;
+                case "minItems":
+                    node.minItems = asInt(value);
+                    break;
+                case "maxItems":
+                    node.maxItems = asInt(value);
+                    break;
+                default:
+                    // annotations (title, description, definitions, etc.) and unknown keywords do not affect
+                    // validation
+                    break;
+            }
+        }
+        return node;
+    }
+
+    private static int compileTypes(final Object value) throws UnsupportedSchemaException {
+        if (value instanceof JSONArray) {
+            int types = 0;
+            for (final Object type : (JSONArray) value) {
+                types |= compileType(type);
+            }
+            return types;
+        }
+        return compileType(value);
+    }
+
+    private static int compileType(final Object type) throws UnsupportedSchemaException {
+        if ("string".equals(type)) {
+            return TYPE_STRING;
+        } else if ("integer".equals(type)) {
+            return TYPE_INTEGER;
+        } else if ("number".equals(type)) {
+            return TYPE_NUMBER | TYPE_INTEGER;
+        } else if ("boolean".equals(type)) {
+            return TYPE_BOOLEAN;
+        } else if ("object".equals(type)) {
+            return TYPE_OBJECT;
+        } else if ("array".equals(type)) {
+            return TYPE_ARRAY;
+        } else if ("null".equals(type)) {
+            return TYPE_NULL;
+        }
+        throw new UnsupportedSchemaException();
+    }
+
+    private static JSONObject asObject(final Object value) throws UnsupportedSchemaException {
+        if (value instanceof JSONObject) {
+            return (JSONObject) value;
+        }
+        throw new UnsupportedSchemaException();
+    }
+
+    private static JSONArray asArray(final Object value) throws UnsupportedSchemaException {
+        if (value instanceof JSONArray) {
+            return (JSONArray) value;
+        }
+        throw new UnsupportedSchemaException();
+    }
+
+    private static int asInt(final Object value) throws UnsupportedSchemaException {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        throw new UnsupportedSchemaException();
+    }
+
+    private static Number asNumber(final Object value) throws UnsupportedSchemaException {
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        throw new UnsupportedSchemaException();
+    }
+
+    private static boolean asBoolean(final Object value) throws UnsupportedSchemaException {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new UnsupportedSchemaException();
+    }
+
+    private static int typeOf(final Object value) {
+        if (value instanceof String) {
+            return TYPE_STRING;
+        } else if (value instanceof Integer || value instanceof Long) {
+            return TYPE_INTEGER;
+        } else if (value instanceof Number) {
+            return TYPE_NUMBER;
+        } else if (value instanceof Boolean) {
+            return TYPE_BOOLEAN;
+        } else if (value instanceof JSONObject) {
+            return TYPE_OBJECT;
+        } else if (value instanceof JSONArray) {
+            return TYPE_ARRAY;
+        } else if (JSONObject.NULL.equals(value)) {
+            return TYPE_NULL;
+        }
+        return 0;
+    }
+
+    private static String typeName(final int type) {
+        switch (type) {
+            case TYPE_STRING:
+                return "String";
+            case TYPE_INTEGER:
+                return "Integer";
+            case TYPE_NUMBER:
+            case TYPE_NUMBER | TYPE_INTEGER:
+                return "Number";
+            case TYPE_BOOLEAN:
+                return "Boolean";
+            case TYPE_OBJECT:
+                return "JSONObject";
+            case TYPE_ARRAY:
+                return "JSONArray";
+            case TYPE_NULL:
+                return "Null";
+            default:
+                final List<String> names = new ArrayList<>();
+                for (int single = TYPE_STRING; single <= TYPE_NULL; single <<= 1) {
+                    if ((type & single) != 0 && !(single == TYPE_INTEGER && (type & TYPE_NUMBER) != 0)) {
+                        names.add(typeName(single));
+                    }
+                }
+                return "one of " + names;
+        }
+    }
+
+    private static boolean deepEquals(final Object expected, final Object actual) {
+        if (expected instanceof JSONObject) {
+            return actual instanceof JSONObject && ((JSONObject) expected).similar(actual);
+        } else if (expected instanceof JSONArray) {
+            return actual instanceof JSONArray && ((JSONArray) expected).similar(actual);
+        }
+        return Objects.equals(expected, actual);
+    }
+
+    private static final class Node {
+        private int types;
+        private String[] propertyNames;
+        private Node[] propertySchemas;
+        private Map<String, Node> properties;
+        private String[] required;
+        private boolean additionalPropertiesAllowed = true;
+        private Node additionalProperties;
+        private int minProperties = -1;
+        private int maxProperties = -1;
+        private Object[] enumValues;
+        private boolean dateTime;
+        private String patternSource;
+        private Pattern pattern;
+        private int minLength = -1;
+        private int maxLength = -1;
+        private Number minimum;
+        private Number maximum;
+        private boolean exclusiveMinimum;
+        private boolean exclusiveMaximum;
+        private Node items;
+        private int minItems = -1;
+        private int maxItems = -1;
+
+        private boolean acceptsAnyObject() {
+            return (types == 0 || (types & TYPE_OBJECT) != 0)
+                    && null == enumValues
+                    && minProperties < 0 && maxProperties < 0
+                    && null == required
+                    && null == propertyNames
+                    && additionalPropertiesAllowed && null == additionalProperties;
+        }
+
+        @Nullable
+        private Violation check(final Object value) {
+            final int type = typeOf(value);
+            if (types != 0 && (types & type) == 0) {
+                return new Violation("expected type: " + typeName(types) + ", found: " + typeName(type));
+            }
+            if (null != enumValues && !matchesEnum(value)) {
+                return new Violation(value + " is not a valid enum value");
+            }
+            switch (type) {
+                case TYPE_STRING:
+                    return checkString((String) value);
+                case TYPE_INTEGER:
+                case TYPE_NUMBER:
+                    return checkNumber((Number) value);
+                case TYPE_OBJECT:
+                    return checkObject((JSONObject) value);
+                case TYPE_ARRAY:
+                    return checkArray((JSONArray) value);
+                default:
+                    return null;
+            }
+        }
+
+        private boolean matchesEnum(final Object value) {
+            for (final Object enumValue : enumValues) {
+                if (deepEquals(enumValue, value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Nullable
+        private Violation checkString(final String value) {
+            if (minLength >= 0 || maxLength >= 0) {
+                final int length = value.codePointCount(0, value.length());
+                if (minLength >= 0 && length < minLength) {
+                    return new Violation("expected minLength: " + minLength + ", actual: " + length);
+                }
+                if (maxLength >= 0 && length > maxLength) {
+                    return new Violation("expected maxLength: " + maxLength + ", actual: " + length);
+                }
+            }
+            if (null != pattern && !pattern.matcher(value).find()) {
+                return new Violation("string [" + value + "] does not match pattern " + patternSource);
+            }
+            if (dateTime) {
+                final Optional<String> error = DATE_TIME_VALIDATOR.validate(value);
+                if (error.isPresent()) {
+                    return new Violation(error.get());
+                }
+            }
+            return null;
+        }
+
+        @Nullable
+        private Violation checkNumber(final Number value) {
+            final double number = value.doubleValue();
+            if (null != minimum) {
+                final double limit = minimum.doubleValue();
+                if (exclusiveMinimum ? number <= limit : number < limit) {
+                    return new Violation(value + (exclusiveMinimum ? " is not greater than " :
+                            " is not greater or equal to ") + minimum);
+                }
+            }
+            if (null != maximum) {
+                final double limit = maximum.doubleValue();
+                if (exclusiveMaximum ? number >= limit : number > limit) {
+                    return new Violation(value + (exclusiveMaximum ? " is not less than " :
+                            " is not less or equal to ") + maximum);
+                }
+            }
+            return null;
+        }
+
+        @Nullable
+        private Violation checkObject(final JSONObject value) {
+            if (minProperties >= 0 && value.length() < minProperties) {
+                return new Violation("minimum size: [" + minProperties + "], found: [" + value.length() + "]");
+            }
+            if (maxProperties >= 0 && value.length() > maxProperties) {
+                return new Violation("maximum size: [" + maxProperties + "], found: [" + value.length() + "]");
+            }
+            if (null != required) {
+                for (final String key : required) {
+                    if (!value.has(key)) {
+                        return new Violation("required key [" + key + "] not found");
+                    }
+                }
+            }
+            if (null != propertyNames) {
+                for (int i = 0; i < propertyNames.length; ++i) {
+                    final Object property = value.opt(propertyNames[i]);
+                    if (null != property) {
+                        final Violation violation = propertySchemas[i].check(property);
+                        if (null != violation) {
+                            return violation.under(propertyNames[i]);
+                        }
+                    }
+                }
+            }
+            if (!additionalPropertiesAllowed || null != additionalProperties) {
+                for (final String key : value.keySet()) {
+                    if (null != properties && properties.containsKey(key)) {
+                        continue;
+                    }
+                    if (null == additionalProperties) {
+                        return new Violation("extraneous key [" + key + "] is not permitted");
+                    }
+                    final Violation violation = additionalProperties.check(value.get(key));
+                    if (null != violation) {
+                        return violation.under(key);
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Nullable
+        private Violation checkArray(final JSONArray value) {
+            final int length = value.length();
+            if (minItems >= 0 && length < minItems) {
+                return new Violation("expected minimum item count: " + minItems + ", found: " + length);
+            }
+            if (maxItems >= 0 && length > maxItems) {
+                return new Violation("expected maximum item count: " + maxItems + ", found: " + length);
+            }
+            if (null != items) {
+                for (int i = 0; i < length; ++i) {
+                    final Violation violation = items.check(value.get(i));
+                    if (null != violation) {
+                        return violation.under(String.valueOf(i));
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Violation found during validation. The path to the violating value is collected while returning from the
+     * nested checks, so nothing is allocated for valid events.
+     */
+    private static final class Violation {
+        private final String message;
+        private final List<String> reversedPath = new ArrayList<>();
+
+        private Violation(final String message) {
+            this.message = message;
+        }
+
+        private Violation under(final String key) {
+            reversedPath.add(key.replace("~", "~0").replace("/", "~1"));
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder result = new StringBuilder("#");
+            for (int i = reversedPath.size() - 1; i >= 0; --i) {
+                result.append('/').append(reversedPath.get(i));
+            }
+            return result.append(": ").append(message).toString();
+        }
+    }
+
+    private static class UnsupportedSchemaException extends Exception {
+    }
+}
@@ -7,4 +7,11 @@ import java.util.Optional;
 public interface EventTypeValidator {
 
     Optional<ValidationError> validate(JSONObject event);
+
+    /**
+     * Tells that every json object is valid, so validation may be skipped and the event doesn't have to be parsed.
+     */
+    default boolean acceptsAnyEvent() {
+        return false;
+    }
 }
@@ -4,10 +4,13 @@ import org.everit.json.schema.Schema;
 import org.everit.json.schema.ValidationException;
 import org.everit.json.schema.loader.SchemaLoader;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.zalando.nakadi.domain.EventCategory;
 import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.ValidationEngine;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -17,6 +20,20 @@ import java.util.function.Function;
 @Component
 public class EventValidatorBuilder {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EventValidatorBuilder.class);
+
+    private static final EventTypeValidator ANY_EVENT_VALIDATOR = new EventTypeValidator() {
+        @Override
+        public Optional<ValidationError> validate(final JSONObject event) {
+            return Optional.empty();
+        }
+
+        @Override
+        public boolean acceptsAnyEvent() {
+            return true;
+        }
+    };
+
     private final RFC3339DateTimeValidator dateTimeValidator = new RFC3339DateTimeValidator();
     private final JsonSchemaEnrichment loader;
 
@@ -30,13 +47,28 @@ public class EventValidatorBuilder {
         final List<Function<JSONObject, Optional<ValidationError>>> validators = new ArrayList<>(2);
 
         // 1. We always validate schema.
-        final Schema schema = SchemaLoader.builder()
-                .schemaJson(loader.effectiveSchema(eventType))
-                .addFormatValidator(new RFC3339DateTimeValidator())
-                .build()
-                .load()
-                .build();
-        validators.add((evt) -> validateSchemaConformance(schema, evt));
+        final JSONObject effectiveSchema = loader.effectiveSchema(eventType);
+        if (eventType.getCategory() == EventCategory.UNDEFINED && CompiledSchemaValidator.compile(effectiveSchema)
+                .map(CompiledSchemaValidator::acceptsAnyObject).orElse(false)) {
+            return ANY_EVENT_VALIDATOR;
+        }
+        final Optional<CompiledSchemaValidator> compiledValidator = isCompiledValidationRequested(eventType) ?
+                CompiledSchemaValidator.compile(effectiveSchema) : Optional.empty();
+        if (compiledValidator.isPresent()) {
+            validators.add(compiledValidator.get()::validate);
+        } else {
+            if (isCompiledValidationRequested(eventType)) {
+                LOG.info("Schema of event type {} can not be compiled, falling back to standard validation",
+                        eventType.getName());
+            }
+            final Schema schema = SchemaLoader.builder()
+                    .schemaJson(effectiveSchema)
+                    .addFormatValidator(new RFC3339DateTimeValidator())
+                    .build()
+                    .load()
+                    .build();
+            validators.add((evt) -> validateSchemaConformance(schema, evt));
+        }
 
         // 2. in case of data or business event type we validate occurred_at
         if (eventType.getCategory() == EventCategory.DATA || eventType.getCategory() == EventCategory.BUSINESS) {
@@ -51,6 +83,11 @@ public class EventValidatorBuilder {
                 .orElse(Optional.empty());
     }
 
+    private static boolean isCompiledValidationRequested(final EventType eventType) {
+        return null != eventType.getOptions()
+                && eventType.getOptions().getValidationEngine() == ValidationEngine.COMPILED;
+    }
+
     private Optional<ValidationError> validateOccurredAt(final JSONObject event) {
         return Optional
                 .ofNullable(event.optJSONObject("metadata"))
@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
+import org.zalando.nakadi.avro.AvroSchemaConverter;
 import org.zalando.nakadi.domain.CleanupPolicy;
 import org.zalando.nakadi.domain.CompatibilityMode;
 import org.zalando.nakadi.domain.EventTypeBase;
@@ -57,7 +58,7 @@ public class JsonSchemaEnrichment {
     }
 
     public JSONObject effectiveSchema(final EventTypeBase eventType) throws JSONException {
-        final JSONObject schema = new JSONObject(eventType.getSchema().getSchema());
+        final JSONObject schema = AvroSchemaConverter.toJsonSchema(eventType.getSchema());
 
         if (eventType.getCompatibilityMode().equals(CompatibilityMode.COMPATIBLE)) {
             this.enforceStrictValidation(schema);
@@ -0,0 +1,87 @@
+package org.zalando.nakadi.cache;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.zalando.nakadi.avro.AvroEventCodec;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeSchema;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+import org.zalando.nakadi.exceptions.runtime.NoSuchSchemaException;
+import org.zalando.nakadi.exceptions.runtime.UnprocessableEntityException;
+import org.zalando.nakadi.repository.db.SchemaRepository;
+import org.zalando.nakadi.utils.EventTypeTestBuilder;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AvroEventCodecCacheTest {
+
+    private static final String SCHEMA = "{\"type\":\"record\",\"name\":\"Order\",\"fields\":[" +
+            "{\"name\":\"id\",\"type\":\"string\"}]}";
+
+    private final EventTypeCache eventTypeCache = mock(EventTypeCache.class);
+    private final SchemaRepository schemaRepository = mock(SchemaRepository.class);
+    private final AvroEventCodecCache avroEventCodecCache =
+            new AvroEventCodecCache(eventTypeCache, schemaRepository);
+    private EventType eventType;
+    private AvroEventCodec current;
+
+    @Before
+    public void setUp() {
+        eventType = EventTypeTestBuilder.builder()
+                .name("orders")
+                .category(EventCategory.BUSINESS)
+                .schema(avroSchema("1.1.0"))
+                .build();
+        current = AvroEventCodec.create(eventType);
+        when(eventTypeCache.getEventType("orders")).thenReturn(eventType);
+        when(eventTypeCache.getAvroEventCodec("orders")).thenReturn(current);
+    }
+
+    @Test
+    public void whenCurrentVersionIsRequestedThenItIsNotLoaded() {
+        assertThat(avroEventCodecCache.get("orders", "1.1.0"), sameInstance(current));
+        assertThat(avroEventCodecCache.getCurrent("orders"), sameInstance(current));
+        verify(schemaRepository, never()).getSchemaVersion(any(), any());
+    }
+
+    @Test
+    public void whenPreviousVersionIsRequestedThenItIsLoadedOnce() {
+        when(schemaRepository.getSchemaVersion("orders", "1.0.0")).thenReturn(avroSchema("1.0.0"));
+
+        final AvroEventCodec previous = avroEventCodecCache.get("orders", "1.0.0");
+
+        assertThat(previous.getVersion(), equalTo("1.0.0"));
+        assertThat(avroEventCodecCache.get("orders", "1.0.0"), sameInstance(previous));
+        verify(schemaRepository, times(1)).getSchemaVersion("orders", "1.0.0");
+    }
+
+    @Test(expected = NoSuchSchemaException.class)
+    public void whenVersionDoesNotExistThenExceptionIsThrown() {
+        when(schemaRepository.getSchemaVersion("orders", "0.1.0"))
+                .thenThrow(new NoSuchSchemaException("No schema with version 0.1.0"));
+
+        avroEventCodecCache.get("orders", "0.1.0");
+    }
+
+    @Test(expected = UnprocessableEntityException.class)
+    public void whenEventTypeDoesNotHaveAvroSchemaThenThereIsNoCurrentCodec() {
+        when(eventTypeCache.getAvroEventCodec("orders")).thenReturn(null);
+
+        avroEventCodecCache.getCurrent("orders");
+    }
+
+    private static EventTypeSchema avroSchema(final String version) {
+        return new EventTypeSchema(new EventTypeSchemaBase(EventTypeSchemaBase.Type.AVRO_SCHEMA, SCHEMA), version,
+                new DateTime());
+    }
+}
@@ -15,6 +15,7 @@ import java.util.Optional;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.isEmptyString;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.when;
 import static org.zalando.nakadi.utils.TestUtils.buildBusinessEvent;
@@ -166,4 +167,41 @@ public class MetadataEnrichmentStrategyTest {
         assertEquals("test-user-123", batch.getEvent().getJSONObject("metadata").getString("published_by"));
     }
 
+    @Test
+    public void whenEnrichedThenOriginalMetadataIsKeptWithoutWhitespaces() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        final BatchItem batch = createBatchItem("{\n  \"metadata\": {\n" +
+                "    \"eid\": \"329ed3d2-8366-11e8-adc0-fa7ae01bbebc\",\n" +
+                "    \"occurred_at\" : \"2024-01-01T00:00:00Z\",\n    \"span_ctx\": { \"a b\": [1, 2] },\n" +
+                "    \"event_type\": \"wrong\"\n  },\n  \"foo\": \"bar\"\n}");
+        batch.setPartition("3");
+
+        strategy.enrich(batch, eventType);
+
+        final String dumped = batch.dumpEventToString();
+        assertFalse(dumped.contains("\n"));
+        final JSONObject parsed = new JSONObject(dumped).getJSONObject("metadata");
+        assertEquals("329ed3d2-8366-11e8-adc0-fa7ae01bbebc", parsed.getString("eid"));
+        assertEquals("2024-01-01T00:00:00Z", parsed.getString("occurred_at"));
+        assertEquals("{\"a b\":[1,2]}", parsed.getJSONObject("span_ctx").toString());
+        assertEquals(eventType.getName(), parsed.getString("event_type"));
+        assertEquals("3", parsed.getString("partition"));
+        assertEquals("bar", batch.getEvent().getString("foo"));
+    }
+
+    @Test
+    public void whenSeveralEventsEnrichedThenFieldsAreSetForEveryEvent() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        final BatchItem first = createBatchItem(buildBusinessEvent());
+        final BatchItem second = createBatchItem(buildBusinessEvent());
+        first.setPartition("0");
+        second.setPartition("1");
+
+        strategy.enrich(first, eventType);
+        strategy.enrich(second, eventType);
+
+        assertEquals("0", first.getEvent().getJSONObject("metadata").getString("partition"));
+        assertEquals("1", second.getEvent().getJSONObject("metadata").getString("partition"));
+        assertEquals(eventType.getName(), second.getEvent().getJSONObject("metadata").getString("event_type"));
+    }
 }
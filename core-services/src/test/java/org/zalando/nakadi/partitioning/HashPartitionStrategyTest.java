@@ -36,6 +36,7 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.zalando.nakadi.partitioning.PartitionStrategy.HASH_STRATEGY;
+import static org.zalando.nakadi.utils.TestUtils.createBatchItem;
 import static org.zalando.nakadi.utils.TestUtils.loadEventType;
 import static org.zalando.nakadi.utils.TestUtils.readFile;
 import static org.zalando.nakadi.utils.TestUtils.resourceAsString;
@@ -99,7 +100,7 @@ public class HashPartitionStrategyTest {
         final EventType eventType = new EventType();
         eventType.setPartitionKeyFields(asList("sku", "brand", "category_id", "details.detail_a.detail_a_a"));
 
-        final String partition = strategy.calculatePartition(eventType, event, asList(PARTITIONS));
+        final String partition = strategy.calculatePartition(eventType, createBatchItem(event), asList(PARTITIONS));
 
         assertThat(partition, isIn(PARTITIONS));
     }
@@ -110,7 +111,8 @@ public class HashPartitionStrategyTest {
                 "org/zalando/nakadi/domain/event-type.with.partition-key-fields.json");
         eventType.setPartitionStrategy(HASH_STRATEGY);
         final JSONObject event = new JSONObject(readFile("sample-data-event.json"));
-        assertThat(strategy.calculatePartition(eventType, event, ImmutableList.of("p0")), equalTo("p0"));
+        assertThat(strategy.calculatePartition(eventType, createBatchItem(event), ImmutableList.of("p0")),
+                equalTo("p0"));
     }
 
     private double calculateVarianceOfUniformDistribution(final double[] samples) {
@@ -179,7 +181,8 @@ public class HashPartitionStrategyTest {
                                           final List<JSONObject> events) {
         events.stream()
                 .map(Try.<JSONObject, Void>wrap(event -> {
-                    final String partition = strategy.calculatePartition(eventType, event, asList(PARTITIONS));
+                    final String partition = strategy.calculatePartition(
+                            eventType, createBatchItem(event), asList(PARTITIONS));
                     final int partitionNo = parseInt(partition);
                     partitions.get(partitionNo).add(event);
                     return null;
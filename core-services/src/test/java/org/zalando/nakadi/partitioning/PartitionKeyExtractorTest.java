@@ -0,0 +1,95 @@
+package org.zalando.nakadi.partitioning;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.zalando.nakadi.domain.BatchItem;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.exceptions.runtime.InvalidPartitionKeyFieldsException;
+import org.zalando.nakadi.utils.EventTypeTestBuilder;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.zalando.nakadi.partitioning.PartitionStrategy.HASH_STRATEGY;
+import static org.zalando.nakadi.partitioning.PartitionStrategy.RANDOM_STRATEGY;
+import static org.zalando.nakadi.utils.TestUtils.createBatchItem;
+
+public class PartitionKeyExtractorTest {
+
+    private static final String EVENT = "{\"metadata\":{\"eid\":\"329ed3d2-8366-11e8-adc0-fa7ae01bbebc\"}," +
+            "\"order\":{\"id\":\"A-1\",\"items\":[{\"sku\":\"X\"}],\"count\":3},\"name\":\"abc\"}";
+
+    @Test
+    public void whenSingleFieldThenValueIsExtractedAndUsedAsEventKey() {
+        final PartitionKeyExtractor extractor = PartitionKeyExtractor.create(
+                hashEventType(EventCategory.BUSINESS, "order.id"));
+
+        assertTrue(extractor.hasEventKey());
+        assertThat(extractor.extract(createBatchItem(EVENT)), equalTo(ImmutableList.of("A-1")));
+    }
+
+    @Test
+    public void whenSeveralFieldsThenValuesAreExtractedInOrderOfFields() {
+        final PartitionKeyExtractor extractor = PartitionKeyExtractor.create(
+                hashEventType(EventCategory.BUSINESS, "name", "order.count", "order.id", "name"));
+
+        assertFalse(extractor.hasEventKey());
+        assertThat(extractor.extract(createBatchItem(EVENT)), equalTo(ImmutableList.of("abc", "3", "A-1", "abc")));
+    }
+
+    @Test
+    public void whenDataEventTypeThenFieldsAreReadFromData() {
+        final PartitionKeyExtractor extractor = PartitionKeyExtractor.create(
+                hashEventType(EventCategory.DATA, "order.id"));
+        final String event = "{\"metadata\":{},\"data_op\":\"C\",\"data_type\":\"order\"," +
+                "\"data\":{\"order\":{\"id\":\"B-2\"}}}";
+
+        assertThat(extractor.extract(createBatchItem(event)), equalTo(ImmutableList.of("B-2")));
+    }
+
+    @Test
+    public void whenEventIsParsedThenSameValuesAreExtracted() {
+        final PartitionKeyExtractor extractor = PartitionKeyExtractor.create(
+                hashEventType(EventCategory.BUSINESS, "order.items", "order.id", "name"));
+        final BatchItem parsed = createBatchItem(EVENT);
+        parsed.getEvent();
+
+        assertThat(extractor.extract(parsed), equalTo(extractor.extract(createBatchItem(EVENT))));
+    }
+
+    @Test
+    public void whenFieldIsMissingThenExceptionIsThrown() {
+        final PartitionKeyExtractor extractor = PartitionKeyExtractor.create(
+                hashEventType(EventCategory.BUSINESS, "order.id", "order.missing"));
+        try {
+            extractor.extract(createBatchItem(EVENT));
+            fail("InvalidPartitionKeyFieldsException expected");
+        } catch (final InvalidPartitionKeyFieldsException e) {
+            assertThat(e.getMessage(), equalTo("field missing doesn't exist."));
+        }
+    }
+
+    @Test
+    public void whenNotHashPartitionedThenNothingIsExtracted() {
+        final EventType eventType = EventTypeTestBuilder.builder()
+                .partitionStrategy(RANDOM_STRATEGY)
+                .partitionKeyFields(Collections.emptyList())
+                .build();
+
+        assertTrue(PartitionKeyExtractor.create(eventType).isEmpty());
+        assertFalse(PartitionKeyExtractor.create(eventType).hasEventKey());
+    }
+
+    private static EventType hashEventType(final EventCategory category, final String... fields) {
+        return EventTypeTestBuilder.builder()
+                .category(category)
+                .partitionStrategy(HASH_STRATEGY)
+                .partitionKeyFields(ImmutableList.copyOf(fields))
+                .build();
+    }
+}
@@ -1,11 +1,12 @@
 package org.zalando.nakadi.partitioning;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.PartitionsMetadata;
 import org.zalando.nakadi.domain.Timeline;
 import org.zalando.nakadi.exceptions.runtime.InvalidEventTypeException;
 import org.zalando.nakadi.exceptions.runtime.NoSuchPartitionStrategyException;
@@ -24,6 +25,7 @@ import static org.zalando.nakadi.partitioning.PartitionStrategy.HASH_STRATEGY;
 import static org.zalando.nakadi.partitioning.PartitionStrategy.RANDOM_STRATEGY;
 import static org.zalando.nakadi.partitioning.PartitionStrategy.USER_DEFINED_STRATEGY;
 import static org.zalando.nakadi.utils.TestUtils.buildDefaultEventType;
+import static org.zalando.nakadi.utils.TestUtils.createBatchItem;
 
 public class PartitionResolverTest {
 
@@ -33,7 +35,8 @@ public class PartitionResolverTest {
     @Before
     public void before() {
         final TopicRepository topicRepository = Mockito.mock(TopicRepository.class);
-        when(topicRepository.listPartitionNames(any(String.class))).thenReturn(ImmutableList.of("0"));
+        when(topicRepository.getPartitionsMetadata(any(String.class)))
+                .thenReturn(new PartitionsMetadata(ImmutableMap.of("0", "1_localhost")));
         timelineService = Mockito.mock(TimelineService.class);
         when(timelineService.getTopicRepository((Timeline) any())).thenReturn(topicRepository);
         when(timelineService.getTopicRepository((EventType) any())).thenReturn(topicRepository);
@@ -53,7 +56,7 @@ public class PartitionResolverTest {
         final JSONObject event = new JSONObject();
         event.put("abc", "blah");
 
-        final String partition = partitionResolver.resolvePartition(eventType, event);
+        final String partition = partitionResolver.resolvePartition(eventType, createBatchItem(event));
         assertThat(partition, notNullValue());
     }
 
@@ -9,6 +9,7 @@ import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.zalando.nakadi.utils.TestUtils.createBatchItem;
 
 public class UserDefinedPartitionStrategyTest {
 
@@ -18,20 +19,20 @@ public class UserDefinedPartitionStrategyTest {
     @Test
     public void whenCorrectPartitionThenOk() throws PartitioningException {
         final JSONObject event = new JSONObject("{\"metadata\":{\"partition\":\"b\"}}");
-        final String partition = STRATEGY.calculatePartition(null, event, PARTITIONS);
+        final String partition = STRATEGY.calculatePartition(null, createBatchItem(event), PARTITIONS);
         assertThat(partition, equalTo("b"));
     }
 
     @Test(expected = PartitioningException.class)
     public void whenIncorrectJsonThenPartitioningException() throws PartitioningException {
         final JSONObject event = new JSONObject("{\"metadata\":{\"partition_id\":\"b\"}}");
-        STRATEGY.calculatePartition(null, event, PARTITIONS);
+        STRATEGY.calculatePartition(null, createBatchItem(event), PARTITIONS);
     }
 
     @Test(expected = PartitioningException.class)
     public void whenUnknownPartitionThenPartitioningException() throws PartitioningException {
         final JSONObject event = new JSONObject("{\"metadata\":{\"partition\":\"z\"}}");
-        STRATEGY.calculatePartition(null, event, PARTITIONS);
+        STRATEGY.calculatePartition(null, createBatchItem(event), PARTITIONS);
     }
 
 }
@@ -311,11 +311,14 @@ public class CursorOperationsServiceTest {
         }
         Mockito.when(timeline.isActive()).thenReturn(null == latestOffset);
 
+        final KafkaSettings kafkaSettings = Mockito.mock(KafkaSettings.class);
+        Mockito.when(kafkaSettings.getCompletionThreads()).thenReturn(1);
+        Mockito.when(kafkaSettings.getCompletionQueueSize()).thenReturn(1);
         final TopicRepository repository = new KafkaTopicRepository.Builder()
                 .setKafkaZookeeper(Mockito.mock(KafkaZookeeper.class))
                 .setKafkaFactory(Mockito.mock(KafkaFactory.class))
                 .setNakadiSettings(Mockito.mock(NakadiSettings.class))
-                .setKafkaSettings(Mockito.mock(KafkaSettings.class))
+                .setKafkaSettings(kafkaSettings)
                 .setZookeeperSettings(Mockito.mock(ZookeeperSettings.class))
                 .setKafkaTopicConfigFactory(Mockito.mock(KafkaTopicConfigFactory.class))
                 .setKafkaLocationManager(Mockito.mock(KafkaLocationManager.class))
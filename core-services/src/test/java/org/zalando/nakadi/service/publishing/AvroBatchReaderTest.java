@@ -0,0 +1,142 @@
+package org.zalando.nakadi.service.publishing;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.joda.time.DateTime;
+import org.json.JSONArray;
+import org.junit.Test;
+import org.zalando.nakadi.avro.AvroEventCodec;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeSchema;
+import org.zalando.nakadi.domain.EventTypeSchemaBase;
+import org.zalando.nakadi.exceptions.runtime.InvalidAvroBatchException;
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
+import org.zalando.nakadi.utils.EventTypeTestBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertNull;
+
+public class AvroBatchReaderTest {
+
+    private static final String ORDER_SCHEMA = "{\"type\":\"record\",\"name\":\"Order\",\"fields\":[" +
+            "{\"name\":\"id\",\"type\":\"string\"}," +
+            "{\"name\":\"comment\",\"type\":[\"null\",\"string\"],\"default\":null}," +
+            "{\"name\":\"price\",\"type\":\"double\"}]}";
+    private static final long MAX_JSON_BYTES = 1000;
+
+    @Test
+    public void whenBusinessEventsThenEventFieldsAreWrittenNextToMetadata() throws IOException {
+        final AvroBatchReader reader = AvroBatchReader.create(avroEventType(EventCategory.BUSINESS));
+        final Schema itemSchema = reader.getBatchSchema().getElementType();
+        final GenericRecord item = new GenericData.Record(itemSchema);
+        item.put("metadata", metadata("329ed3d2-8366-11e8-adc0-fa7ae01bbebc"));
+        item.put("event", order(itemSchema.getField("event").schema(), "A-1", "fragile"));
+
+        final byte[] json = reader.toJson(encode(reader.getBatchSchema(), Arrays.asList(item, item)),
+                MAX_JSON_BYTES);
+
+        final JSONArray expected = new JSONArray("[" +
+                "{\"metadata\":{\"eid\":\"329ed3d2-8366-11e8-adc0-fa7ae01bbebc\"," +
+                "\"occurred_at\":\"1996-12-19T16:39:57-08:00\"},\"id\":\"A-1\",\"comment\":\"fragile\"," +
+                "\"price\":9.5}," +
+                "{\"metadata\":{\"eid\":\"329ed3d2-8366-11e8-adc0-fa7ae01bbebc\"," +
+                "\"occurred_at\":\"1996-12-19T16:39:57-08:00\"},\"id\":\"A-1\",\"comment\":\"fragile\"," +
+                "\"price\":9.5}]");
+        assertThat(new JSONArray(new String(json, StandardCharsets.UTF_8)).similar(expected), equalTo(true));
+    }
+
+    @Test
+    public void whenUndefinedEventsThenNullFieldsAreOmitted() throws IOException {
+        final AvroBatchReader reader = AvroBatchReader.create(avroEventType(EventCategory.UNDEFINED));
+        final GenericRecord item = order(reader.getBatchSchema().getElementType(), "A-2", null);
+
+        final byte[] json = reader.toJson(encode(reader.getBatchSchema(), Collections.singletonList(item)),
+                MAX_JSON_BYTES);
+
+        assertThat(new String(json, StandardCharsets.UTF_8), equalTo("[{\"id\":\"A-2\",\"price\":9.5}]"));
+    }
+
+    @Test(expected = InvalidAvroBatchException.class)
+    public void whenBatchHasTrailingBytesThenItIsRejected() throws IOException {
+        final AvroBatchReader reader = AvroBatchReader.create(avroEventType(EventCategory.UNDEFINED));
+        final byte[] batch = encode(reader.getBatchSchema(),
+                Collections.singletonList(order(reader.getBatchSchema().getElementType(), "A-3", null)));
+
+        reader.toJson(Arrays.copyOf(batch, batch.length + 1), MAX_JSON_BYTES);
+    }
+
+    @Test(expected = InvalidAvroBatchException.class)
+    public void whenBatchIsTruncatedThenItIsRejected() throws IOException {
+        final AvroBatchReader reader = AvroBatchReader.create(avroEventType(EventCategory.UNDEFINED));
+        final byte[] batch = encode(reader.getBatchSchema(),
+                Collections.singletonList(order(reader.getBatchSchema().getElementType(), "A-4", null)));
+
+        reader.toJson(Arrays.copyOf(batch, batch.length - 3), MAX_JSON_BYTES);
+    }
+
+    @Test(expected = PayloadTooLargeException.class)
+    public void whenJsonBatchIsLargerThanLimitThenItIsRejected() throws IOException {
+        final AvroBatchReader reader = AvroBatchReader.create(avroEventType(EventCategory.UNDEFINED));
+        final GenericRecord item = order(reader.getBatchSchema().getElementType(), "A-5", null);
+        // 50 events make 1251 bytes of json
+        final byte[] batch = encode(reader.getBatchSchema(), Collections.nCopies(50, item));
+
+        reader.toJson(batch, MAX_JSON_BYTES);
+    }
+
+    @Test
+    public void whenJsonSchemaThenThereIsNoReader() {
+        assertNull(AvroBatchReader.create(EventTypeTestBuilder.builder().build()));
+    }
+
+    @Test
+    public void whenNoSchemaThenThereIsNoReader() {
+        final EventType eventType = EventTypeTestBuilder.builder().build();
+        eventType.setSchema(null);
+        assertNull(AvroBatchReader.create(eventType));
+    }
+
+    private static EventType avroEventType(final EventCategory category) {
+        return EventTypeTestBuilder.builder()
+                .category(category)
+                .schema(new EventTypeSchema(new EventTypeSchemaBase(EventTypeSchemaBase.Type.AVRO_SCHEMA,
+                        ORDER_SCHEMA), "1.0.0", new DateTime()))
+                .build();
+    }
+
+    private static GenericRecord metadata(final String eid) {
+        final GenericRecord metadata = new GenericData.Record(AvroEventCodec.METADATA_SCHEMA);
+        metadata.put("eid", eid);
+        metadata.put("occurred_at", "1996-12-19T16:39:57-08:00");
+        return metadata;
+    }
+
+    private static GenericRecord order(final Schema schema, final String id, final String comment) {
+        final GenericRecord order = new GenericData.Record(schema);
+        order.put("id", id);
+        order.put("comment", comment);
+        order.put("price", 9.5);
+        return order;
+    }
+
+    private static byte[] encode(final Schema schema, final List<GenericRecord> items) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<List<GenericRecord>>(schema).write(items, encoder);
+        encoder.flush();
+        return out.toByteArray();
+    }
+}
@@ -1,13 +1,18 @@
 package org.zalando.nakadi.service.publishing;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
+import org.apache.avro.AvroTypeException;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
+import org.zalando.nakadi.avro.AvroEventCodec;
 import org.zalando.nakadi.cache.EventTypeCache;
 import org.zalando.nakadi.config.NakadiSettings;
 import org.zalando.nakadi.domain.BatchItem;
@@ -17,13 +22,20 @@ import org.zalando.nakadi.domain.EventPublishingStatus;
 import org.zalando.nakadi.domain.EventPublishingStep;
 import org.zalando.nakadi.domain.EventType;
 import org.zalando.nakadi.domain.EventTypeBase;
+import org.zalando.nakadi.domain.PublishingCompression;
+import org.zalando.nakadi.domain.PublishingOptions;
+import org.zalando.nakadi.domain.PublishingProfile;
 import org.zalando.nakadi.domain.Timeline;
 import org.zalando.nakadi.enrichment.Enrichment;
 import org.zalando.nakadi.exceptions.runtime.AccessDeniedException;
 import org.zalando.nakadi.exceptions.runtime.EnrichmentException;
 import org.zalando.nakadi.exceptions.runtime.EventPublishingException;
 import org.zalando.nakadi.exceptions.runtime.EventTypeTimeoutException;
+import org.zalando.nakadi.exceptions.runtime.NoSuchEventTypeException;
 import org.zalando.nakadi.exceptions.runtime.PartitioningException;
+import org.zalando.nakadi.exceptions.runtime.PayloadTooLargeException;
+import org.zalando.nakadi.metrics.EventTypeMetricRegistry;
+import org.zalando.nakadi.partitioning.PartitionKeyExtractor;
 import org.zalando.nakadi.partitioning.PartitionResolver;
 import org.zalando.nakadi.partitioning.PartitionStrategy;
 import org.zalando.nakadi.plugin.api.authz.Resource;
@@ -31,31 +43,42 @@ import org.zalando.nakadi.repository.TopicRepository;
 import org.zalando.nakadi.service.AuthorizationValidator;
 import org.zalando.nakadi.service.timeline.TimelineService;
 import org.zalando.nakadi.service.timeline.TimelineSync;
+import org.zalando.nakadi.util.SizeLimitingInputStream;
 import org.zalando.nakadi.utils.EventTypeTestBuilder;
 import org.zalando.nakadi.validation.EventTypeValidator;
 import org.zalando.nakadi.validation.ValidationError;
 import org.zalando.nakadi.view.EventOwnerSelector;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.isEmptyString;
 import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.zalando.nakadi.metrics.MetricUtils.metricNameFor;
 import static org.zalando.nakadi.utils.TestUtils.buildBusinessEvent;
 import static org.zalando.nakadi.utils.TestUtils.buildDefaultEventType;
 import static org.zalando.nakadi.utils.TestUtils.createBatchItem;
@@ -71,6 +94,7 @@ public class EventPublisherTest {
     private static final long TOPIC_RETENTION_TIME_MS = 150;
     private static final long TIMELINE_WAIT_TIMEOUT_MS = 1000;
     private static final int NAKADI_SUBSCRIPTION_MAX_PARTITIONS = 8;
+    private static final long MAX_BODY_BYTES = 10000;
 
     private final TopicRepository topicRepository = mock(TopicRepository.class);
     private final EventTypeCache cache = mock(EventTypeCache.class);
@@ -82,6 +106,8 @@ public class EventPublisherTest {
             NAKADI_POLL_TIMEOUT, NAKADI_SEND_TIMEOUT, TIMELINE_WAIT_TIMEOUT_MS, NAKADI_EVENT_MAX_BYTES,
             NAKADI_SUBSCRIPTION_MAX_PARTITIONS, "service", "org/zalando/nakadi", "", "",
             "nakadi_archiver", "nakadi_to_s3", 100, 10000);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final EventTypeMetricRegistry eventTypeMetricRegistry = new EventTypeMetricRegistry(metricRegistry);
     private EventOwnerExtractorFactory eventOwnerExtractorFactory;
     private EventPublisher publisher;
 
@@ -96,7 +122,8 @@ public class EventPublisherTest {
 
         eventOwnerExtractorFactory = mock(EventOwnerExtractorFactory.class);
         publisher = new EventPublisher(ts, cache, partitionResolver, enrichment, nakadiSettings, timelineSync,
-                authzValidator, eventOwnerExtractorFactory);
+                authzValidator, eventOwnerExtractorFactory, new EventValidationExecutor(0, 0, 1, 1),
+                new PublishingCoalescer(0, 0, 0, 0), eventTypeMetricRegistry, MAX_BODY_BYTES);
     }
 
     @Test
@@ -106,10 +133,57 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.SUBMITTED));
-        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), eq(false));
+        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), any(), eq(false));
+    }
+
+    @Test
+    public void whenPublishIsSuccessfulThenLatencyOfEveryStepIsRecorded() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        mockSuccessfulValidation(eventType);
+
+        publisher.publish(asBytes(buildDefaultBatch(3)), eventType.getName(), null);
+
+        for (final String step : new String[]{"validating", "partitioning", "enriching", "publishing",
+                "timeline_wait"}) {
+            assertThat(step, metricRegistry.getTimers()
+                    .get(metricNameFor(eventType.getName(), "publishing.step." + step)).getCount(), equalTo(1L));
+        }
+    }
+
+    @Test
+    public void whenPublishInternalThenEventsAreNotValidated() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        mockSuccessfulValidation(eventType);
+        final List<JSONObject> events = new ArrayList<>();
+        buildDefaultBatch(2).forEach(event -> events.add((JSONObject) event));
+
+        final EventPublishResult result = publisher.publishInternal(events, eventType.getName());
+
+        assertThat(result.getStatus(), equalTo(EventPublishingStatus.SUBMITTED));
+        verify(cache, never()).getValidator(any());
+        verify(enrichment, times(2)).enrich(any(), eq(eventType));
+        verify(topicRepository, times(1)).syncPostBatch(any(), argThat(batch -> batch.size() == 2),
+                any(), any(), eq(false));
+    }
+
+    @Test
+    public void whenPublishThenPublishingOptionsOfEventTypeAreUsed() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        final JSONArray batch = buildDefaultBatch(1);
+        mockSuccessfulValidation(eventType);
+
+        publisher.publish(asBytes(batch), eventType.getName(), null);
+        verify(topicRepository, times(1))
+                .syncPostBatch(any(), any(), any(), eq(PublishingOptions.DEFAULT), eq(false));
+
+        eventType.getOptions().setPublishingProfile(PublishingProfile.LOW_LATENCY);
+        eventType.getOptions().setCompression(PublishingCompression.NONE);
+        publisher.publish(asBytes(batch), eventType.getName(), null);
+        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(),
+                eq(new PublishingOptions(PublishingProfile.LOW_LATENCY, PublishingCompression.NONE)), eq(false));
     }
 
     @Test
@@ -119,7 +193,7 @@ public class EventPublisherTest {
         mockSuccessfulValidation(eventType);
 
         Mockito.when(eventOwnerExtractorFactory.createExtractor(eq(eventType))).thenReturn(null);
-        publisher.publish(batch.toString(), eventType.getName(), null);
+        publisher.publish(asBytes(batch), eventType.getName(), null);
 
         // invoked once for a batch
         Mockito.verify(eventOwnerExtractorFactory, Mockito.times(1)).createExtractor(eq(eventType));
@@ -136,7 +210,7 @@ public class EventPublisherTest {
                 EventOwnerExtractorFactory.createStaticExtractor(
                         new EventOwnerSelector(EventOwnerSelector.Type.STATIC, "retailer", "nakadi")));
 
-        publisher.publish(batch.toString(), eventType.getName(), null);
+        publisher.publish(asBytes(batch), eventType.getName(), null);
         Mockito.verify(authzValidator, Mockito.times(3)).authorizeEventWrite(any());
     }
 
@@ -150,7 +224,66 @@ public class EventPublisherTest {
                 .when(authzValidator)
                 .authorizeEventTypeWrite(Mockito.eq(et));
 
-        publisher.publish(buildDefaultBatch(1).toString(), et.getName(), null);
+        publisher.publish(asBytes(buildDefaultBatch(1)), et.getName(), null);
+    }
+
+    @Test(expected = AccessDeniedException.class)
+    public void whenEventIsTooLargeAndPublishingIsNotAuthorizedThenAccessIsDenied() throws Exception {
+        final EventType et = buildDefaultEventType();
+
+        mockSuccessfulValidation(et);
+
+        Mockito.doThrow(new AccessDeniedException(null, null))
+                .when(authzValidator)
+                .authorizeEventTypeWrite(Mockito.eq(et));
+
+        publisher.publish(asBytes(buildLargeBatch(1)), et.getName(), null);
+    }
+
+    @Test(expected = AccessDeniedException.class)
+    public void whenEventIsTooLargeAndAsyncPublishingIsNotAuthorizedThenAccessIsDenied() throws Exception {
+        final EventType et = buildDefaultEventType();
+
+        mockSuccessfulValidation(et);
+
+        Mockito.doThrow(new AccessDeniedException(null, null))
+                .when(authzValidator)
+                .authorizeEventTypeWrite(Mockito.eq(et));
+
+        publisher.publishAsync(asBytes(buildLargeBatch(1)), et.getName(), null);
+    }
+
+    @Test
+    public void whenAvroBatchIsPublishedThenItIsConvertedAfterAuthorization() throws Exception {
+        final EventType et = buildDefaultEventType();
+        mockSuccessfulValidation(et);
+        final AvroBatchReader reader = mock(AvroBatchReader.class);
+        Mockito.doReturn(reader).when(cache).getAvroBatchReader(et.getName());
+        final byte[] avroBatch = new byte[]{2, 0};
+        Mockito.when(reader.toJson(avroBatch, MAX_BODY_BYTES)).thenReturn(asBytes(buildDefaultBatch(1)));
+
+        final EventPublishResult result = publisher.publishAvro(avroBatch, et.getName(), null);
+
+        assertThat(result.getStatus(), equalTo(EventPublishingStatus.SUBMITTED));
+        final InOrder inOrder = Mockito.inOrder(authzValidator, reader);
+        inOrder.verify(authzValidator).authorizeEventTypeWrite(et);
+        inOrder.verify(reader).toJson(avroBatch, MAX_BODY_BYTES);
+    }
+
+    @Test
+    public void whenAvroPublishingIsNotAuthorizedThenBatchIsNotConverted() throws Exception {
+        final EventType et = buildDefaultEventType();
+        mockSuccessfulValidation(et);
+        Mockito.doThrow(new AccessDeniedException(null, null))
+                .when(authzValidator)
+                .authorizeEventTypeWrite(Mockito.eq(et));
+
+        try {
+            publisher.publishAvroAsync(new byte[]{2, 0}, et.getName(), null);
+            fail("AccessDeniedException expected");
+        } catch (final AccessDeniedException e) {
+            verify(cache, never()).getAvroBatchReader(any());
+        }
     }
 
     @Test
@@ -161,10 +294,10 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getResponses().get(0).getEid(), equalTo(event.getJSONObject("metadata").optString("eid")));
-        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), eq(false));
+        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), any(), eq(false));
     }
 
     @Test
@@ -176,7 +309,7 @@ public class EventPublisherTest {
         final Closeable etCloser = mock(Closeable.class);
         Mockito.when(timelineSync.workWithEventType(any(String.class), anyLong())).thenReturn(etCloser);
 
-        publisher.publish(batch.toString(), eventType.getName(), null);
+        publisher.publish(asBytes(batch), eventType.getName(), null);
 
         verify(timelineSync, times(1)).workWithEventType(eq(eventType.getName()), eq(TIMELINE_WAIT_TIMEOUT_MS));
         verify(etCloser, times(1)).close();
@@ -185,7 +318,18 @@ public class EventPublisherTest {
     @Test(expected = EventTypeTimeoutException.class)
     public void whenPublishAndTimelineLockTimedOutThenException() throws Exception {
         Mockito.when(timelineSync.workWithEventType(any(String.class), anyLong())).thenThrow(new TimeoutException());
-        publisher.publish(buildDefaultBatch(0).toString(), "blahET", null);
+        publisher.publish(asBytes(buildDefaultBatch(0)), "blahET", null);
+    }
+
+    @Test
+    public void whenEventTypeDoesNotExistThenItsUsageIsNotTaken() throws Exception {
+        Mockito.when(cache.getEventType("blahET")).thenThrow(new NoSuchEventTypeException("not found"));
+        try {
+            publisher.publish(asBytes(buildDefaultBatch(1)), "blahET", null);
+            fail("NoSuchEventTypeException expected");
+        } catch (final NoSuchEventTypeException e) {
+            verify(timelineSync, never()).workWithEventType(any(String.class), anyLong());
+        }
     }
 
     @Test
@@ -196,12 +340,12 @@ public class EventPublisherTest {
 
         mockFaultValidation(eventType, "error");
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
         verify(enrichment, times(0)).enrich(createBatchItem(event), eventType);
-        verify(partitionResolver, times(0)).resolvePartition(eventType, event);
-        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), anyBoolean());
+        verify(partitionResolver, times(0)).resolvePartition(eventType, createBatchItem(event));
+        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), any(), anyBoolean());
     }
 
     @Test
@@ -212,7 +356,7 @@ public class EventPublisherTest {
 
         mockFaultValidation(eventType, "error");
 
-        EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
 
@@ -230,7 +374,7 @@ public class EventPublisherTest {
 
         // test with event header being set
         mockSuccessfulOwnerExtraction(eventType);
-        result = publisher.publish(batch.toString(), eventType.getName(), null);
+        result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
         second = result.getResponses().get(1);
@@ -238,6 +382,46 @@ public class EventPublisherTest {
         assertThat(second.getStep(), equalTo(EventPublishingStep.VALIDATING));
     }
 
+    @Test
+    public void whenParallelValidationFailsThenOnlyFirstInvalidItemIsFailed() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        final JSONArray batch = buildDefaultBatch(10);
+        final Object invalidValue = batch.getJSONObject(6).get("foo");
+        final Object otherInvalidValue = batch.getJSONObject(8).get("foo");
+        final EventTypeValidator validator = mock(EventTypeValidator.class);
+        Mockito.when(validator.validate(any())).thenAnswer(invocation -> {
+            final JSONObject event = invocation.getArgument(0);
+            final Object value = event.get("foo");
+            return value.equals(invalidValue) || value.equals(otherInvalidValue) ?
+                    Optional.of(new ValidationError("error")) : Optional.empty();
+        });
+        Mockito.doReturn(eventType).when(cache).getEventType(eventType.getName());
+        Mockito.doReturn(validator).when(cache).getValidator(eventType.getName());
+        Mockito.doReturn(PartitionKeyExtractor.create(eventType)).when(cache)
+                .getPartitionKeyExtractor(eventType.getName());
+
+        final EventValidationExecutor validationExecutor = new EventValidationExecutor(2, 10, 2, 3);
+        try {
+            publisher = new EventPublisher(Mockito.mock(TimelineService.class), cache, partitionResolver,
+                    enrichment, nakadiSettings, timelineSync, authzValidator, eventOwnerExtractorFactory,
+                    validationExecutor, new PublishingCoalescer(0, 0, 0, 0), eventTypeMetricRegistry, MAX_BODY_BYTES);
+            final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
+
+            assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
+            for (int i = 0; i < 10; ++i) {
+                final BatchItemResponse response = result.getResponses().get(i);
+                assertThat(response.getPublishingStatus(),
+                        equalTo(i == 6 ? EventPublishingStatus.FAILED : EventPublishingStatus.ABORTED));
+                assertThat(response.getStep(),
+                        equalTo(i <= 6 ? EventPublishingStep.VALIDATING : EventPublishingStep.NONE));
+            }
+            assertThat(result.getResponses().get(6).getDetail(), equalTo("error"));
+            verify(partitionResolver, times(0)).resolvePartition(any(), any());
+        } finally {
+            validationExecutor.stop();
+        }
+    }
+
     @Test
     public void whenEventIsTooLargeThenResultIsAborted() throws Exception {
         final EventType eventType = buildDefaultEventType();
@@ -245,12 +429,12 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
         verify(enrichment, times(0)).enrich(any(), any());
         verify(partitionResolver, times(0)).resolvePartition(any(), any());
-        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), anyBoolean());
+        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), any(), anyBoolean());
     }
 
     @Test
@@ -266,7 +450,7 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
 
@@ -299,7 +483,7 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
 
@@ -326,12 +510,12 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.SUBMITTED));
         verify(enrichment, times(1)).enrich(any(), any());
         verify(partitionResolver, times(1)).resolvePartition(any(), any());
-        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), eq(false));
+        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), any(), eq(false));
     }
 
     @Test
@@ -341,12 +525,12 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
         verify(enrichment, times(0)).enrich(any(), any());
         verify(partitionResolver, times(0)).resolvePartition(any(), any());
-        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), anyBoolean());
+        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), any(), anyBoolean());
     }
 
     @Test
@@ -356,12 +540,12 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
         verify(enrichment, times(0)).enrich(any(), any());
         verify(partitionResolver, times(0)).resolvePartition(any(), any());
-        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), anyBoolean());
+        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), any(), anyBoolean());
     }
 
     @Test
@@ -371,12 +555,12 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.SUBMITTED));
         verify(enrichment, times(1)).enrich(any(), any());
         verify(partitionResolver, times(1)).resolvePartition(any(), any());
-        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), eq(false));
+        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), any(), eq(false));
     }
 
     @Test
@@ -389,7 +573,7 @@ public class EventPublisherTest {
         mockSuccessfulValidation(eventType);
         mockFaultPartition();
 
-        final EventPublishResult result = publisher.publish(createStringFromBatchItems(batch),
+        final EventPublishResult result = publisher.publish(asBytes(createStringFromBatchItems(batch)),
                 eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
@@ -406,7 +590,7 @@ public class EventPublisherTest {
         mockSuccessfulValidation(eventType);
         mockFaultPartition();
 
-        final EventPublishResult result = publisher.publish(createStringFromBatchItems(batch),
+        final EventPublishResult result = publisher.publish(asBytes(createStringFromBatchItems(batch)),
                 eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
@@ -433,10 +617,47 @@ public class EventPublisherTest {
         mockSuccessfulValidation(eventType);
         mockFailedPublishing();
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.FAILED));
-        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), eq(false));
+        verify(topicRepository, times(1)).syncPostBatch(any(), any(), any(), any(), eq(false));
+    }
+
+    @Test
+    public void whenPublishAsyncThenEventTypeIsReleasedAfterBatchIsPublished() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        mockSuccessfulValidation(eventType);
+        final Closeable etCloser = mock(Closeable.class);
+        Mockito.when(timelineSync.workWithEventType(any(String.class), anyLong())).thenReturn(etCloser);
+        final CompletableFuture<Void> published = new CompletableFuture<>();
+        Mockito.when(topicRepository.postBatch(any(), any(), any(), any(), anyBoolean())).thenReturn(published);
+
+        final CompletableFuture<EventPublishResult> result =
+                publisher.publishAsync(asBytes(buildDefaultBatch(1)), eventType.getName(), null);
+
+        Assert.assertFalse(result.isDone());
+        verify(etCloser, times(0)).close();
+
+        published.complete(null);
+
+        assertThat(result.get().getStatus(), equalTo(EventPublishingStatus.SUBMITTED));
+        verify(etCloser, times(1)).close();
+        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void whenPublishAsyncFailsThenResultIsFailed() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        mockSuccessfulValidation(eventType);
+        final CompletableFuture<Void> published = new CompletableFuture<>();
+        Mockito.when(topicRepository.postBatch(any(), any(), any(), any(), anyBoolean())).thenReturn(published);
+
+        final CompletableFuture<EventPublishResult> result =
+                publisher.publishAsync(asBytes(buildDefaultBatch(1)), eventType.getName(), null);
+        published.completeExceptionally(new EventPublishingException("Timeout publishing message to kafka"));
+
+        assertThat(result.get().getStatus(), equalTo(EventPublishingStatus.FAILED));
+        assertThat(result.get().getStep(), equalTo(EventPublishingStep.PUBLISHING));
     }
 
     @Test
@@ -448,13 +669,52 @@ public class EventPublisherTest {
         mockSuccessfulValidation(eventType);
         mockFaultEnrichment();
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
         verify(cache, times(1)).getValidator(eventType.getName());
         verify(partitionResolver, times(1)).resolvePartition(any(), any());
         verify(enrichment, times(1)).enrich(any(), any());
-        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), anyBoolean());
+        verify(topicRepository, times(0)).syncPostBatch(any(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void whenEventTypeHasAvroSchemaThenEnrichedEventsAreEncodedInAvro() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        final JSONArray batch = buildDefaultBatch(2);
+        mockSuccessfulValidation(eventType);
+        final AvroEventCodec codec = mockAvroEventCodec(eventType);
+        Mockito.when(codec.toAvro(any())).thenReturn(new byte[]{1, 2, 3});
+
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
+
+        assertThat(result.getStatus(), equalTo(EventPublishingStatus.SUBMITTED));
+        final InOrder inOrder = Mockito.inOrder(enrichment, codec);
+        inOrder.verify(enrichment).enrich(any(), eq(eventType));
+        inOrder.verify(codec).toAvro(any());
+        for (final BatchItem item : capturePublishedBatch()) {
+            assertThat(item.getAvroEvent(), equalTo(new byte[]{1, 2, 3}));
+            assertThat(item.getAvroSchemaVersion(), equalTo(eventType.getSchema().getVersion().toString()));
+        }
+    }
+
+    @Test
+    public void whenEventCanNotBeEncodedInAvroThenResultIsAborted() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        final JSONArray batch = buildDefaultBatch(2);
+        mockSuccessfulValidation(eventType);
+        final AvroEventCodec codec = mockAvroEventCodec(eventType);
+        Mockito.when(codec.toAvro(any())).thenThrow(new AvroTypeException("Field id of Order is missing"));
+
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
+
+        assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
+        final BatchItemResponse first = result.getResponses().get(0);
+        assertThat(first.getPublishingStatus(), equalTo(EventPublishingStatus.FAILED));
+        assertThat(first.getStep(), equalTo(EventPublishingStep.ENRICHING));
+        assertThat(first.getDetail(), equalTo("failed to encode event in avro: Field id of Order is missing"));
+        assertThat(result.getResponses().get(1).getPublishingStatus(), equalTo(EventPublishingStatus.ABORTED));
+        verify(topicRepository, never()).syncPostBatch(any(), any(), any(), any(), anyBoolean());
     }
 
     @Test
@@ -469,7 +729,7 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        publisher.publish(batch.toString(), eventType.getName(), null);
+        publisher.publish(asBytes(batch), eventType.getName(), null);
 
         final List<BatchItem> publishedBatch = capturePublishedBatch();
         assertThat(publishedBatch.get(0).getEventKey(), equalTo("my_key"));
@@ -489,7 +749,7 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        publisher.publish(batch.toString(), eventType.getName(), null);
+        publisher.publish(asBytes(batch), eventType.getName(), null);
 
         final List<BatchItem> publishedBatch = capturePublishedBatch();
         assertThat(publishedBatch.get(0).getEventKey(), equalTo(null));
@@ -504,7 +764,7 @@ public class EventPublisherTest {
 
         mockSuccessfulValidation(eventType);
 
-        publisher.publish(batch.toString(), eventType.getName(), null);
+        publisher.publish(asBytes(batch), eventType.getName(), null);
 
         final List<BatchItem> publishedBatch = capturePublishedBatch();
         assertThat(publishedBatch.get(0).getEventKey(), equalTo(null));
@@ -513,7 +773,7 @@ public class EventPublisherTest {
     @SuppressWarnings("unchecked")
     private List<BatchItem> capturePublishedBatch() {
         final ArgumentCaptor<List> batchCaptor = ArgumentCaptor.forClass(List.class);
-        verify(topicRepository, atLeastOnce()).syncPostBatch(any(), batchCaptor.capture(), any(), eq(false));
+        verify(topicRepository, atLeastOnce()).syncPostBatch(any(), batchCaptor.capture(), any(), any(), eq(false));
         return (List<BatchItem>) batchCaptor.getValue();
     }
 
@@ -525,7 +785,7 @@ public class EventPublisherTest {
         mockSuccessfulValidation(eventType);
         mockFaultEnrichment();
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
 
@@ -554,7 +814,7 @@ public class EventPublisherTest {
                 .when(authzValidator)
                 .authorizeEventWrite(any());
 
-        final EventPublishResult result = publisher.publish(batch.toString(), eventType.getName(), null);
+        final EventPublishResult result = publisher.publish(asBytes(batch), eventType.getName(), null);
 
         assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
 
@@ -571,12 +831,142 @@ public class EventPublisherTest {
         verify(authzValidator, times(1)).authorizeEventWrite(any());
     }
 
+    @Test
+    public void whenStreamIsPublishedThenBatchIsSubmittedOnce() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        mockSuccessfulValidation(eventType);
+        final Closeable etCloser = mock(Closeable.class);
+        Mockito.when(timelineSync.workWithEventType(any(String.class), anyLong())).thenReturn(etCloser);
+
+        final EventPublishResult result = publisher.publishStream(
+                asStream(buildDefaultBatch(5)), eventType.getName(), null);
+
+        assertThat(result.getStatus(), equalTo(EventPublishingStatus.SUBMITTED));
+        assertThat(result.getResponses().size(), equalTo(5));
+        verify(topicRepository, times(1)).syncPostBatch(any(), argThat(batch -> batch.size() == 5),
+                any(), any(), eq(false));
+        verify(timelineSync, times(1)).workWithEventType(eq(eventType.getName()), eq(TIMELINE_WAIT_TIMEOUT_MS));
+        verify(etCloser, times(1)).close();
+    }
+
+    @Test
+    public void whenStreamIsReadThenEventTypeIsNotInUse() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        mockSuccessfulValidation(eventType);
+        final AtomicInteger usages = new AtomicInteger();
+        Mockito.when(timelineSync.workWithEventType(any(String.class), anyLong())).thenAnswer(invocation -> {
+            usages.incrementAndGet();
+            return (Closeable) usages::decrementAndGet;
+        });
+        final InputStream events = new ByteArrayInputStream(asBytes(buildDefaultBatch(10))) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+                assertThat(usages.get(), equalTo(0));
+                return super.read(b, off, Math.min(len, 10));
+            }
+        };
+
+        final EventPublishResult result = publisher.publishStream(events, eventType.getName(), null);
+
+        assertThat(result.getStatus(), equalTo(EventPublishingStatus.SUBMITTED));
+        verify(timelineSync, times(1)).workWithEventType(any(String.class), anyLong());
+    }
+
+    @Test
+    public void whenStreamedEventIsInvalidThenNothingIsSubmitted() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        final JSONArray batch = buildDefaultBatch(5);
+        final Object invalidValue = batch.getJSONObject(3).get("foo");
+        mockSuccessfulValidation(eventType);
+        final EventTypeValidator validator = mock(EventTypeValidator.class);
+        Mockito.when(validator.validate(any())).thenAnswer(invocation ->
+                ((JSONObject) invocation.getArgument(0)).get("foo").equals(invalidValue) ?
+                        Optional.of(new ValidationError("error")) : Optional.empty());
+        Mockito.doReturn(validator).when(cache).getValidator(eventType.getName());
+
+        final EventPublishResult result = publisher.publishStream(asStream(batch), eventType.getName(), null);
+
+        assertThat(result.getStatus(), equalTo(EventPublishingStatus.ABORTED));
+        assertThat(result.getStep(), equalTo(EventPublishingStep.VALIDATING));
+        assertThat(result.getResponses().size(), equalTo(5));
+        for (int i = 0; i < 5; ++i) {
+            assertThat(result.getResponses().get(i).getPublishingStatus(),
+                    equalTo(i == 3 ? EventPublishingStatus.FAILED : EventPublishingStatus.ABORTED));
+        }
+        assertThat(result.getResponses().get(3).getDetail(), equalTo("error"));
+        verify(topicRepository, never()).syncPostBatch(any(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void whenReadingOfStreamFailsAfterEventsAreProcessedThenNothingIsSubmitted() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        mockSuccessfulValidation(eventType);
+        final byte[] events = asBytes(buildDefaultBatch(10));
+        final InputStream halfOfEvents = new ByteArrayInputStream(events, 0, events.length / 2);
+        final InputStream brokenStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                final int read = halfOfEvents.read();
+                if (read == -1) {
+                    throw new IOException("Connection reset by peer");
+                }
+                return read;
+            }
+        };
+
+        try {
+            publisher.publishStream(brokenStream, eventType.getName(), null);
+            fail("IOException expected");
+        } catch (final IOException e) {
+            verify(enrichment, atLeastOnce()).enrich(any(), any());
+            verifyNothingIsSubmitted();
+        }
+    }
+
+    @Test
+    public void whenStreamIsMalformedAfterEventsAreProcessedThenNothingIsSubmitted() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        mockSuccessfulValidation(eventType);
+        final String events = new String(asBytes(buildDefaultBatch(10)), StandardCharsets.UTF_8);
+        final String malformedEvents = events.substring(0, events.length() - 1) + ",{\"foo\":]";
+
+        try {
+            publisher.publishStream(asStream(malformedEvents), eventType.getName(), null);
+            fail("JSONException expected");
+        } catch (final JSONException e) {
+            verify(enrichment, times(10)).enrich(any(), any());
+            verifyNothingIsSubmitted();
+        }
+    }
+
+    @Test
+    public void whenStreamExceedsSizeLimitAfterEventsAreProcessedThenNothingIsSubmitted() throws Exception {
+        final EventType eventType = buildDefaultEventType();
+        mockSuccessfulValidation(eventType);
+        final byte[] events = asBytes(buildDefaultBatch(10));
+        final InputStream slowEvents = new ByteArrayInputStream(events) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+                return super.read(b, off, Math.min(len, 10));
+            }
+        };
+
+        try {
+            publisher.publishStream(new SizeLimitingInputStream(slowEvents, events.length - 1),
+                    eventType.getName(), null);
+            fail("PayloadTooLargeException expected");
+        } catch (final PayloadTooLargeException e) {
+            verify(enrichment, atLeastOnce()).enrich(any(), any());
+            verifyNothingIsSubmitted();
+        }
+    }
+
     @Test
     public void testWrite() throws Exception {
         final EventType eventType = EventTypeTestBuilder.builder().build();
         Mockito.when(cache.getEventType(eventType.getName())).thenReturn(eventType);
         mockSuccessfulValidation(eventType);
-        final EventPublishResult result = publisher.publish(buildDefaultBatch(0).toString(),
+        final EventPublishResult result = publisher.publish(asBytes(buildDefaultBatch(0)),
                 eventType.getName(), null);
 
         Assert.assertEquals(result.getStatus(), EventPublishingStatus.SUBMITTED);
@@ -586,7 +976,7 @@ public class EventPublisherTest {
         Mockito
                 .doThrow(EventPublishingException.class)
                 .when(topicRepository)
-                .syncPostBatch(any(), any(), any(), anyBoolean());
+                .syncPostBatch(any(), any(), any(), any(), anyBoolean());
     }
 
     private void mockFaultPartition() throws PartitioningException {
@@ -596,6 +986,13 @@ public class EventPublisherTest {
                 .resolvePartition(any(), any());
     }
 
+    private AvroEventCodec mockAvroEventCodec(final EventType eventType) {
+        final AvroEventCodec codec = mock(AvroEventCodec.class);
+        Mockito.when(codec.getVersion()).thenReturn(eventType.getSchema().getVersion().toString());
+        Mockito.doReturn(codec).when(cache).getAvroEventCodec(eventType.getName());
+        return codec;
+    }
+
     private void mockFaultEnrichment() throws EnrichmentException {
         Mockito
                 .doThrow(new EnrichmentException("enrichment error"))
@@ -611,6 +1008,11 @@ public class EventPublisherTest {
                 .when(cache)
                 .getEventType(eventType.getName());
 
+        Mockito
+                .doReturn(PartitionKeyExtractor.create(eventType))
+                .when(cache)
+                .getPartitionKeyExtractor(eventType.getName());
+
         Mockito
                 .doReturn(faultyValidator)
                 .when(cache)
@@ -630,6 +1032,11 @@ public class EventPublisherTest {
                 .when(cache)
                 .getEventType(eventType.getName());
 
+        Mockito
+                .doReturn(PartitionKeyExtractor.create(eventType))
+                .when(cache)
+                .getPartitionKeyExtractor(eventType.getName());
+
         Mockito
                 .doReturn(Optional.empty())
                 .when(truthyValidator)
@@ -649,6 +1056,11 @@ public class EventPublisherTest {
                 .when(cache)
                 .getEventType(eventType.getName());
 
+        Mockito
+                .doReturn(PartitionKeyExtractor.create(eventType))
+                .when(cache)
+                .getPartitionKeyExtractor(eventType.getName());
+
         Mockito
                 .doReturn(Optional.empty())
                 .when(truthyValidator)
@@ -716,6 +1128,19 @@ public class EventPublisherTest {
         return new JSONArray(events);
     }
 
+    private static byte[] asBytes(final Object batch) {
+        return batch.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static InputStream asStream(final Object batch) {
+        return new ByteArrayInputStream(asBytes(batch));
+    }
+
+    private void verifyNothingIsSubmitted() throws Exception {
+        verify(timelineSync, never()).workWithEventType(any(String.class), anyLong());
+        verify(topicRepository, never()).syncPostBatch(any(), any(), any(), any(), anyBoolean());
+    }
+
     private String createStringFromBatchItems(final List<BatchItem> batch) {
         final StringBuilder sb = new StringBuilder();
         sb.append("[");
@@ -0,0 +1,172 @@
+package org.zalando.nakadi.service.publishing;
+
+import org.junit.After;
+import org.junit.Test;
+import org.zalando.nakadi.exceptions.runtime.ServiceTemporarilyUnavailableException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EventValidationExecutorTest {
+
+    // 100 items are split into 4 chunks of 25 items, the first one is validated by the calling thread
+    private static final List<Integer> ITEMS = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+    private EventValidationExecutor executor;
+
+    @After
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Test(timeout = 10000)
+    public void whenSeveralChunksHaveInvalidItemsThenFirstOneInBatchOrderIsReturned() {
+        executor = new EventValidationExecutor(4, 10, 10, 4);
+        final CountDownLatch laterFailureFound = new CountDownLatch(1);
+
+        final int firstInvalid = executor.findFirstInvalid(ITEMS, item -> {
+            if (item == 60) {
+                laterFailureFound.countDown();
+                return false;
+            }
+            if (item == 10) {
+                await(laterFailureFound);
+                return false;
+            }
+            return true;
+        });
+
+        assertThat(firstInvalid, equalTo(10));
+    }
+
+    @Test(timeout = 10000)
+    public void whenPoolIsFullThenChunksAreValidatedByCallingThread() {
+        executor = new EventValidationExecutor(1, 1, 10, 4);
+        final Thread callingThread = Thread.currentThread();
+        final Set<Integer> checkedByCallingThread = ConcurrentHashMap.newKeySet();
+        final CountDownLatch rejectedChunkChecked = new CountDownLatch(1);
+
+        final int firstInvalid = executor.findFirstInvalid(ITEMS, item -> {
+            if (Thread.currentThread() == callingThread) {
+                checkedByCallingThread.add(item);
+                if (item >= 75) {
+                    rejectedChunkChecked.countDown();
+                }
+            } else {
+                // keeps the only thread of the pool busy, so that the last chunk does not fit the queue
+                await(rejectedChunkChecked);
+            }
+            return true;
+        });
+
+        assertThat(firstInvalid, equalTo(-1));
+        assertThat(checkedByCallingThread, hasItems(0, 24, 75, 99));
+    }
+
+    @Test(timeout = 10000, expected = IllegalArgumentException.class)
+    public void whenCheckFailsBeforeFirstInvalidItemThenExceptionIsRethrown() {
+        executor = new EventValidationExecutor(4, 10, 10, 4);
+
+        executor.findFirstInvalid(ITEMS, item -> {
+            if (item == 30) {
+                throw new IllegalArgumentException("failed to check");
+            }
+            return item != 60;
+        });
+    }
+
+    @Test(timeout = 10000)
+    public void whenCheckFailsAfterFirstInvalidItemThenPositionIsReturned() {
+        executor = new EventValidationExecutor(4, 10, 10, 4);
+
+        final int firstInvalid = executor.findFirstInvalid(ITEMS, item -> {
+            if (item == 80) {
+                throw new IllegalArgumentException("failed to check");
+            }
+            return item != 30;
+        });
+
+        assertThat(firstInvalid, equalTo(30));
+    }
+
+    @Test(timeout = 10000)
+    public void whenErrorIsThrownThenItIsRethrownOnceAllChunksAreFinished() {
+        executor = new EventValidationExecutor(4, 10, 10, 4);
+        final AtomicInteger running = new AtomicInteger();
+
+        try {
+            executor.findFirstInvalid(ITEMS, item -> {
+                running.incrementAndGet();
+                try {
+                    if (item == 50) {
+                        throw new AssertionError("broken validator");
+                    }
+                    sleep();
+                    return true;
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+            fail("AssertionError expected");
+        } catch (final AssertionError e) {
+            assertThat(e.getMessage(), equalTo("broken validator"));
+            assertThat(running.get(), equalTo(0));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void whenInterruptedThenChunksAreStoppedAndValidationFails() {
+        executor = new EventValidationExecutor(4, 10, 10, 4);
+        final Thread callingThread = Thread.currentThread();
+        final AtomicInteger checked = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+
+        try {
+            executor.findFirstInvalid(ITEMS, item -> {
+                checked.incrementAndGet();
+                if (Thread.currentThread() == callingThread) {
+                    callingThread.interrupt();
+                    return true;
+                }
+                running.incrementAndGet();
+                sleep();
+                running.decrementAndGet();
+                return true;
+            });
+            fail("ServiceTemporarilyUnavailableException expected");
+        } catch (final ServiceTemporarilyUnavailableException e) {
+            assertTrue(Thread.interrupted());
+            assertThat(running.get(), equalTo(0));
+            assertThat(checked.get(), lessThan(ITEMS.size()));
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (final InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(20);
+        } catch (final InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
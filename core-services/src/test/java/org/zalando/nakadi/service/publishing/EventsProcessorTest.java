@@ -1,11 +1,18 @@
 package org.zalando.nakadi.service.publishing;
 
+import com.codahale.metrics.MetricRegistry;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.zalando.nakadi.domain.EventPublishResult;
+import org.zalando.nakadi.domain.EventPublishingStatus;
+import org.zalando.nakadi.domain.EventPublishingStep;
 import org.zalando.nakadi.util.UUIDGenerator;
 import org.zalando.nakadi.utils.TestUtils;
 
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 
@@ -13,10 +20,14 @@ public class EventsProcessorTest {
 
     private final EventPublisher eventPublisher = Mockito.mock(EventPublisher.class);
     private final UUIDGenerator uuidGenerator = Mockito.mock(UUIDGenerator.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
 
     @Test
     public void shouldSendEventWhenSubmitted() throws InterruptedException {
-        final EventsProcessor eventsProcessor = new EventsProcessor(eventPublisher, uuidGenerator, 100, 1, 1, 10, 10);
+        Mockito.when(eventPublisher.publishInternal(any(), any())).thenReturn(new EventPublishResult(
+                EventPublishingStatus.SUBMITTED, EventPublishingStep.NONE, Collections.emptyList()));
+        final EventsProcessor eventsProcessor = new EventsProcessor(
+                eventPublisher, uuidGenerator, 100, 1, 1, 10, 10, metricRegistry);
         eventsProcessor.start();
         try {
             final JSONObject event = new JSONObject().put("path", "/path/to/event").put("user", "adyachkov");
@@ -24,7 +35,9 @@ public class EventsProcessorTest {
             eventsProcessor.enrichAndSubmit("test_et_name", event);
             TestUtils.waitFor(() -> {
                 try {
-                    Mockito.verify(eventPublisher).processInternal(any(), any(), eq(false), any(), eq(false));
+                    Mockito.verify(eventPublisher).publishInternal(
+                            eq(Collections.singletonList(event)), eq("test_et_name"));
+                    assertEquals(1, metricRegistry.timer("nakadi.internal_events.latency").getCount());
                 } catch (final Exception e) {
                     throw new AssertionError(e);
                 }
@@ -34,4 +47,33 @@ public class EventsProcessorTest {
         }
     }
 
+    @Test
+    public void shouldWakeUpIdleDispatcherWhenEventIsSubmitted() throws InterruptedException {
+        Mockito.when(eventPublisher.publishInternal(any(), any())).thenReturn(new EventPublishResult(
+                EventPublishingStatus.SUBMITTED, EventPublishingStep.NONE, Collections.emptyList()));
+        // the dispatcher would otherwise stay parked for the whole collection timeout
+        final EventsProcessor eventsProcessor = new EventsProcessor(
+                eventPublisher, uuidGenerator, 60_000, 1, 1, 10, 10, metricRegistry);
+        eventsProcessor.start();
+        try {
+            Thread.sleep(100);
+            eventsProcessor.enrichAndSubmit("test_et_name", new JSONObject());
+            TestUtils.waitFor(() -> Mockito.verify(eventPublisher).publishInternal(any(), eq("test_et_name")), 1000);
+        } finally {
+            eventsProcessor.stop();
+        }
+    }
+
+    @Test
+    public void shouldCountEventsDroppedWhenQueueIsFull() {
+        final EventsProcessor eventsProcessor = new EventsProcessor(
+                eventPublisher, uuidGenerator, 100, 1, 1, 10, 2, metricRegistry);
+
+        for (int i = 0; i < 5; ++i) {
+            eventsProcessor.enrichAndSubmit("test_et_name", new JSONObject());
+        }
+
+        assertEquals(3, metricRegistry.meter("nakadi.internal_events.dropped").getCount());
+        assertEquals(2, metricRegistry.getGauges().get("nakadi.internal_events.queue_depth").getValue());
+    }
 }
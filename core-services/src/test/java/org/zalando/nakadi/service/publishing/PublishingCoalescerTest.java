@@ -0,0 +1,160 @@
+package org.zalando.nakadi.service.publishing;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.zalando.nakadi.domain.BatchItem;
+import org.zalando.nakadi.domain.EventPublishingStatus;
+import org.zalando.nakadi.domain.PublishingOptions;
+import org.zalando.nakadi.exceptions.runtime.EventPublishingException;
+import org.zalando.nakadi.repository.TopicRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.zalando.nakadi.utils.TestUtils.createBatchItem;
+
+public class PublishingCoalescerTest {
+
+    private static final String TOPIC = "topic";
+    private static final String EVENT_TYPE = "et";
+
+    private final TopicRepository topicRepository = mock(TopicRepository.class);
+    private PublishingCoalescer coalescer;
+
+    @After
+    public void after() {
+        if (null != coalescer) {
+            coalescer.stop();
+        }
+    }
+
+    @Test
+    public void whenSmallBatchesArePublishedThenTheyAreSubmittedTogether() throws Exception {
+        coalescer = new PublishingCoalescer(1, TimeUnit.MINUTES.toMillis(1), 1, 2);
+        when(topicRepository.postBatch(anyString(), any(), anyString(), any(), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    invocation.<List<BatchItem>>getArgument(1)
+                            .forEach(item -> item.updateStatusAndDetail(EventPublishingStatus.SUBMITTED, ""));
+                    return CompletableFuture.completedFuture(null);
+                });
+        final BatchItem first = createBatchItem("{}");
+        final BatchItem second = createBatchItem("{}");
+
+        final CompletableFuture<Void> firstPublished = post(first);
+        assertFalse(firstPublished.isDone());
+        final CompletableFuture<Void> secondPublished = post(second);
+
+        firstPublished.get(1, TimeUnit.SECONDS);
+        secondPublished.get(1, TimeUnit.SECONDS);
+        final ArgumentCaptor<List<BatchItem>> captor = ArgumentCaptor.forClass(List.class);
+        verify(topicRepository, times(1)).postBatch(eq(TOPIC), captor.capture(), eq(EVENT_TYPE),
+                eq(PublishingOptions.DEFAULT), eq(false));
+        assertThat(captor.getValue(), contains(first, second));
+    }
+
+    @Test
+    public void whenSomeEventsFailedThenOnlyTheirRequestsFail() throws Exception {
+        coalescer = new PublishingCoalescer(1, TimeUnit.MINUTES.toMillis(1), 1, 2);
+        final BatchItem published = createBatchItem("{}");
+        final BatchItem failed = createBatchItem("{}");
+        when(topicRepository.postBatch(anyString(), any(), anyString(), any(), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    published.updateStatusAndDetail(EventPublishingStatus.SUBMITTED, "");
+                    failed.updateStatusAndDetail(EventPublishingStatus.FAILED, "internal error");
+                    return CompletableFuture.failedFuture(new EventPublishingException("failed"));
+                });
+
+        final CompletableFuture<Void> publishedFuture = post(published);
+        final CompletableFuture<Void> failedFuture = post(failed);
+
+        publishedFuture.get(1, TimeUnit.SECONDS);
+        try {
+            failedFuture.get(1, TimeUnit.SECONDS);
+            fail("EventPublishingException expected");
+        } catch (final ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(EventPublishingException.class));
+        }
+    }
+
+    @Test
+    public void whenWindowIsOverThenBatchIsSubmittedByFlushingThread() throws Exception {
+        coalescer = new PublishingCoalescer(1, 10, 1, 100);
+        final AtomicReference<String> flushingThread = new AtomicReference<>();
+        when(topicRepository.postBatch(anyString(), any(), anyString(), any(), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    flushingThread.set(Thread.currentThread().getName());
+                    return CompletableFuture.completedFuture(null);
+                });
+
+        post(createBatchItem("{}")).get(1, TimeUnit.SECONDS);
+        assertThat(flushingThread.get(), startsWith("publishing-coalescer-flush-"));
+    }
+
+    @Test
+    public void whenBatchesArePublishedConcurrentlyThenEveryEventIsSubmittedOnce() throws Exception {
+        coalescer = new PublishingCoalescer(2, 5, 1, 7);
+        final AtomicInteger submittedEvents = new AtomicInteger();
+        when(topicRepository.postBatch(anyString(), any(), anyString(), any(), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    submittedEvents.addAndGet(invocation.<List<BatchItem>>getArgument(1).size());
+                    return CompletableFuture.completedFuture(null);
+                });
+        final ExecutorService publishers = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<CompletableFuture<Void>>> published = new ArrayList<>();
+            for (int i = 0; i < 1000; ++i) {
+                published.add(publishers.submit(() -> post(createBatchItem("{}"))));
+            }
+            for (final Future<CompletableFuture<Void>> future : published) {
+                future.get(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS);
+            }
+        } finally {
+            publishers.shutdown();
+        }
+        assertEquals(1000, submittedEvents.get());
+    }
+
+    @Test
+    public void whenBatchIsLargeOrCoalescingIsDisabledThenItIsPostedDirectly() {
+        final List<BatchItem> batch = ImmutableList.of(createBatchItem("{}"), createBatchItem("{}"));
+        final CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+        when(topicRepository.postBatch(TOPIC, batch, EVENT_TYPE, PublishingOptions.DEFAULT, false))
+                .thenReturn(future);
+
+        coalescer = new PublishingCoalescer(1, TimeUnit.MINUTES.toMillis(1), 1, 100);
+        assertThat(coalescer.postBatch(topicRepository, TOPIC, batch, EVENT_TYPE, PublishingOptions.DEFAULT, false),
+                sameInstance(future));
+        assertFalse(new PublishingCoalescer(0, 0, 10, 100).isCoalesced(1));
+    }
+
+    private CompletableFuture<Void> post(final BatchItem item) {
+        return coalescer.postBatch(topicRepository, TOPIC, ImmutableList.of(item), EVENT_TYPE,
+                PublishingOptions.DEFAULT, false);
+    }
+}
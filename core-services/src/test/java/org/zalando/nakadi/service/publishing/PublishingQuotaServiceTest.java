@@ -0,0 +1,177 @@
+package org.zalando.nakadi.service.publishing;
+
+import org.junit.Test;
+import org.zalando.nakadi.exceptions.runtime.PublishingQuotaExceededException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PublishingQuotaServiceTest {
+
+    private static final String APP = "app";
+    private static final String EVENT_TYPE = "et";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger nodes = new AtomicInteger(1);
+
+    private final PublishingQuotaConfig config = new PublishingQuotaConfig();
+
+    private PublishingQuotaService createService(final long eventsPerSecond, final long bytesPerSecond) {
+        config.setEventsPerSecond(eventsPerSecond);
+        config.setBytesPerSecond(bytesPerSecond);
+        return new PublishingQuotaService(null, config, nanos::get, nodes::get);
+    }
+
+    @Test
+    public void whenQuotaIsDisabledThenPublishingIsNotLimited() {
+        final PublishingQuotaService service = createService(0, 0);
+        assertFalse(service.isEnabled());
+        service.charge(APP, EVENT_TYPE, 1000, 1000000);
+        service.checkQuota(APP, EVENT_TYPE);
+    }
+
+    @Test
+    public void whenEventsQuotaIsUsedUpThenRetryAfterIsTimeToPayOffDebt() {
+        final PublishingQuotaService service = createService(100, 0);
+        service.checkQuota(APP, EVENT_TYPE);
+        service.charge(APP, EVENT_TYPE, 100, 1000000);
+        service.checkQuota(APP, EVENT_TYPE);
+        service.charge(APP, EVENT_TYPE, 250, 1000000);
+
+        assertRetryAfter(service, 3);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(2500));
+        service.checkQuota(APP, EVENT_TYPE);
+    }
+
+    @Test
+    public void whenBytesQuotaIsUsedUpThenPublishingIsRejected() {
+        final PublishingQuotaService service = createService(0, 1000);
+        service.charge(APP, EVENT_TYPE, 1, 1500);
+
+        assertRetryAfter(service, 1);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        service.checkQuota(APP, EVENT_TYPE);
+    }
+
+    @Test
+    public void quotaIsTrackedPerApplicationAndEventType() {
+        final PublishingQuotaService service = createService(10, 0);
+        service.charge(APP, EVENT_TYPE, 20, 0);
+
+        assertRetryAfter(service, 1);
+        service.checkQuota("other-app", EVENT_TYPE);
+        service.checkQuota(APP, "other-et");
+    }
+
+    @Test
+    public void quotaIsSplitBetweenNodes() {
+        nodes.set(4);
+        final PublishingQuotaService service = createService(100, 0);
+        service.charge(APP, EVENT_TYPE, 75, 0);
+
+        // each of 4 nodes has 25 events per second, 50 events are paid off in 2 seconds
+        assertRetryAfter(service, 2);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        service.checkQuota(APP, EVENT_TYPE);
+    }
+
+    @Test
+    public void unusedQuotaIsNotAccumulatedOverBurst() {
+        final PublishingQuotaService service = createService(10, 0);
+        service.charge(APP, EVENT_TYPE, 1, 0);
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        service.charge(APP, EVENT_TYPE, 20, 0);
+
+        assertRetryAfter(service, 1);
+    }
+
+    @Test
+    public void applicationLimitsOverrideDefaultOnes() {
+        config.getApplications().put(APP, limits(10L, null));
+        final PublishingQuotaService service = createService(100, 0);
+        service.charge(APP, EVENT_TYPE, 30, 0);
+        service.charge("other-app", EVENT_TYPE, 30, 0);
+
+        assertRetryAfter(service, 2);
+        service.checkQuota("other-app", EVENT_TYPE);
+    }
+
+    @Test
+    public void whenOnlyOverridesAreSetThenOnlyTheyAreLimited() {
+        config.getEventTypes().put(EVENT_TYPE, limits(null, 1000L));
+        final PublishingQuotaService service = createService(0, 0);
+        assertTrue(service.isEnabled());
+        service.charge(APP, EVENT_TYPE, 1, 1500);
+        service.charge(APP, "other-et", 1, 1000000);
+
+        assertRetryAfter(service, 1);
+        service.checkQuota(APP, "other-et");
+        assertEquals(1, service.getBucketsCount());
+    }
+
+    @Test
+    public void whenApplicationAndEventTypeAreOverriddenThenStricterLimitIsUsed() {
+        config.getApplications().put(APP, limits(50L, 0L));
+        config.getEventTypes().put(EVENT_TYPE, limits(10L, 1000L));
+        final PublishingQuotaService service = createService(100, 0);
+        service.charge(APP, EVENT_TYPE, 20, 1500);
+
+        // 10 events per second and 1000 bytes per second, as application does not limit bytes
+        assertRetryAfter(service, 1);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertRetryAfter(service, 1);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        service.checkQuota(APP, EVENT_TYPE);
+    }
+
+    @Test
+    public void whenOverrideIsZeroThenPublishingIsNotLimited() {
+        config.getApplications().put(APP, limits(0L, null));
+        final PublishingQuotaService service = createService(10, 0);
+        service.charge(APP, EVENT_TYPE, 1000, 0);
+
+        service.checkQuota(APP, EVENT_TYPE);
+        assertEquals(0, service.getBucketsCount());
+    }
+
+    @Test
+    public void whenBucketIsFullAgainThenItIsExpired() {
+        final PublishingQuotaService service = createService(10, 0);
+        service.charge(APP, EVENT_TYPE, 20, 0);
+        service.charge(APP, "other-et", 5, 0);
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        service.expireIdleBuckets();
+        // the bucket in debt is kept, so that its quota is still enforced
+        assertEquals(1, service.getBucketsCount());
+        assertRetryAfter(service, 1);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        service.expireIdleBuckets();
+        assertEquals(0, service.getBucketsCount());
+        service.charge(APP, EVENT_TYPE, 20, 0);
+        assertRetryAfter(service, 1);
+    }
+
+    private static PublishingQuotaConfig.Limits limits(final Long eventsPerSecond, final Long bytesPerSecond) {
+        final PublishingQuotaConfig.Limits limits = new PublishingQuotaConfig.Limits();
+        limits.setEventsPerSecond(eventsPerSecond);
+        limits.setBytesPerSecond(bytesPerSecond);
+        return limits;
+    }
+
+    private static void assertRetryAfter(final PublishingQuotaService service, final long retryAfterSeconds) {
+        try {
+            service.checkQuota(APP, EVENT_TYPE);
+            fail("Quota should be exceeded");
+        } catch (final PublishingQuotaExceededException e) {
+            assertEquals(retryAfterSeconds, e.getRetryAfterSeconds());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.zalando.nakadi.service.timeline;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class LocalLockingTest {
+
+    private final LocalLocking localLocking = new LocalLocking();
+
+    @Test(timeout = 5_000)
+    public void whenEventTypeIsUsedThenLockingWaitsForUsageToFinish() throws Exception {
+        final Closeable usage = localLocking.workWithEventType("et", 1000);
+        final CompletableFuture<Void> locked = CompletableFuture.runAsync(() -> {
+            try {
+                localLocking.updateLockedEventTypes(ImmutableSet.of("et", "other"));
+            } catch (final InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        Assert.assertFalse(locked.isDone());
+        usage.close();
+        locked.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test(timeout = 5_000, expected = TimeoutException.class)
+    public void whenEventTypeIsLockedThenUsageTimesOut() throws Exception {
+        localLocking.updateLockedEventTypes(ImmutableSet.of("et"));
+        localLocking.workWithEventType("et", 50);
+    }
+
+    @Test(timeout = 5_000)
+    public void whenEventTypeIsUnlockedThenWaitingUsageContinues() throws Exception {
+        localLocking.updateLockedEventTypes(ImmutableSet.of("et"));
+        localLocking.workWithEventType("other", 1000).close();
+        final CompletableFuture<Closeable> usage = CompletableFuture.supplyAsync(() -> {
+            try {
+                return localLocking.workWithEventType("et", 3000);
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        Assert.assertFalse(usage.isDone());
+        Assert.assertEquals(ImmutableSet.of("et"), localLocking.getUnlockedEventTypes(Collections.emptySet()));
+        localLocking.updateLockedEventTypes(Collections.emptySet());
+        usage.get(1, TimeUnit.SECONDS).close();
+    }
+}
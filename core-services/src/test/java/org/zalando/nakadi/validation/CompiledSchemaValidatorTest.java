@@ -0,0 +1,151 @@
+package org.zalando.nakadi.validation;
+
+import org.hamcrest.CoreMatchers;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.zalando.nakadi.domain.CompatibilityMode;
+import org.zalando.nakadi.domain.EventCategory;
+import org.zalando.nakadi.domain.EventType;
+import org.zalando.nakadi.domain.EventTypeOptions;
+import org.zalando.nakadi.domain.ValidationEngine;
+import org.zalando.nakadi.utils.EventTypeTestBuilder;
+import org.zalando.nakadi.utils.IsOptional;
+import org.zalando.nakadi.utils.TestUtils;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public class CompiledSchemaValidatorTest {
+
+    private JsonSchemaEnrichment enrichment;
+    private EventValidatorBuilder eventValidatorBuilder;
+
+    @Before
+    public void before() throws IOException {
+        enrichment = new JsonSchemaEnrichment(new DefaultResourceLoader(), "classpath:schema_metadata.json");
+        eventValidatorBuilder = new EventValidatorBuilder(enrichment);
+    }
+
+    @Test
+    public void validEventsPassBothEngines() {
+        final EventType et = businessEventType();
+        final JSONObject event = businessEvent();
+
+        Assert.assertThat(validate(et, event, ValidationEngine.STANDARD), IsOptional.isAbsent());
+        Assert.assertThat(validate(et, event, ValidationEngine.COMPILED), IsOptional.isAbsent());
+    }
+
+    @Test
+    public void singleViolationsAreReportedLikeStandardEngine() {
+        final EventType et = businessEventType();
+
+        final JSONObject missingRequired = businessEvent();
+        missingRequired.remove("name");
+        assertSameError(et, missingRequired, "#: required key [name] not found");
+
+        final JSONObject wrongType = businessEvent();
+        wrongType.put("name", 42);
+        assertSameError(et, wrongType, "#/name: expected type: String, found: Integer");
+
+        final JSONObject extraneous = businessEvent();
+        extraneous.put("unknown", "value");
+        assertSameError(et, extraneous, "#: extraneous key [unknown] is not permitted");
+
+        final JSONObject notInEnum = businessEvent();
+        notInEnum.put("color", "purple");
+        assertSameError(et, notInEnum, "#/color: purple is not a valid enum value");
+
+        final JSONObject tooLong = businessEvent();
+        tooLong.put("name", "abcdefghijk");
+        assertSameError(et, tooLong, "#/name: expected maxLength: 10, actual: 11");
+
+        final JSONObject wrongItem = businessEvent();
+        wrongItem.put("sizes", new JSONArray("[1, -1]"));
+        assertSameError(et, wrongItem, "#/sizes/1: -1 is not greater or equal to 0");
+
+        final JSONObject wrongEid = businessEvent();
+        wrongEid.getJSONObject("metadata").put("eid", "x");
+        assertSameError(et, wrongEid, "#/metadata/eid: string [x] does not match pattern " +
+                "^[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}$");
+    }
+
+    @Test
+    public void dateTimeFormatIsValidated() {
+        final JSONObject schema = new JSONObject("{\"type\": \"object\", \"properties\": " +
+                "{\"at\": {\"type\": \"string\", \"format\": \"date-time\"}}}");
+        final CompiledSchemaValidator validator = CompiledSchemaValidator.compile(schema).get();
+
+        Assert.assertThat(validator.validate(new JSONObject("{\"at\": \"1992-08-03T10:00:00Z\"}")),
+                IsOptional.isAbsent());
+        Assert.assertThat(validator.validate(new JSONObject("{\"at\": \"1992-08-03T10:00:00+01:00:00\"}"))
+                .get().getMessage(), CoreMatchers.equalTo("#/at: must be a valid date-time"));
+    }
+
+    @Test
+    public void integerTypeDoesNotAcceptFractions() {
+        final JSONObject schema = new JSONObject("{\"properties\": {\"count\": {\"type\": \"integer\"}, " +
+                "\"ratio\": {\"type\": \"number\"}}}");
+        final CompiledSchemaValidator validator = CompiledSchemaValidator.compile(schema).get();
+
+        Assert.assertThat(validator.validate(new JSONObject("{\"count\": 1, \"ratio\": 1}")), IsOptional.isAbsent());
+        Assert.assertThat(validator.validate(new JSONObject("{\"count\": 1.5}")).get().getMessage(),
+                CoreMatchers.equalTo("#/count: expected type: Integer, found: Number"));
+    }
+
+    @Test
+    public void schemasWithUnsupportedFeaturesAreNotCompiled() throws Exception {
+        Assert.assertFalse(CompiledSchemaValidator.compile(
+                new JSONObject("{\"anyOf\": [{\"type\": \"string\"}, {\"type\": \"integer\"}]}")).isPresent());
+        Assert.assertFalse(CompiledSchemaValidator.compile(
+                new JSONObject("{\"properties\": {\"mail\": {\"type\": \"string\", \"format\": \"email\"}}}"))
+                .isPresent());
+
+        final JSONObject schema = new JSONObject(TestUtils.readFile("product-json-schema.json"));
+        final EventType et = EventTypeTestBuilder.builder().name("some-event-type").schema(schema).build();
+        et.setCategory(EventCategory.DATA);
+        Assert.assertFalse(CompiledSchemaValidator.compile(enrichment.effectiveSchema(et)).isPresent());
+
+        // falls back to standard engine
+        final JSONObject event = new JSONObject(TestUtils.readFile("product-event.json"));
+        Assert.assertThat(validate(et, event, ValidationEngine.COMPILED), IsOptional.isAbsent());
+    }
+
+    private void assertSameError(final EventType et, final JSONObject event, final String expectedError) {
+        Assert.assertThat(validate(et, event, ValidationEngine.STANDARD).get().getMessage(),
+                CoreMatchers.equalTo(expectedError));
+        Assert.assertThat(validate(et, event, ValidationEngine.COMPILED).get().getMessage(),
+                CoreMatchers.equalTo(expectedError));
+    }
+
+    private Optional<ValidationError> validate(final EventType et, final JSONObject event,
+                                               final ValidationEngine engine) {
+        et.getOptions().setValidationEngine(engine);
+        return eventValidatorBuilder.build(et).validate(event);
+    }
+
+    private static EventType businessEventType() {
+        final JSONObject schema = new JSONObject("{" +
+                "\"type\": \"object\"," +
+                "\"required\": [\"name\"]," +
+                "\"properties\": {" +
+                "  \"name\": {\"type\": \"string\", \"maxLength\": 10}," +
+                "  \"color\": {\"type\": \"string\", \"enum\": [\"red\", \"green\"]}," +
+                "  \"sizes\": {\"type\": \"array\", \"items\": {\"type\": \"integer\", \"minimum\": 0}}" +
+                "}}");
+        final EventTypeOptions options = new EventTypeOptions();
+        final EventType et = EventTypeTestBuilder.builder().name("some-event-type").schema(schema)
+                .compatibilityMode(CompatibilityMode.COMPATIBLE).options(options).build();
+        et.setCategory(EventCategory.BUSINESS);
+        return et;
+    }
+
+    private static JSONObject businessEvent() {
+        return new JSONObject("{\"name\": \"shirt\", \"color\": \"red\", \"sizes\": [1, 2], \"metadata\": {" +
+                "\"occurred_at\": \"1992-08-03T10:00:00Z\"," +
+                "\"eid\": \"329ed3d2-8366-11e8-adc0-fa7ae01bbebc\"}}");
+    }
+}
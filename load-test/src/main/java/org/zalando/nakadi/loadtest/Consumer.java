@@ -0,0 +1,189 @@
+package org.zalando.nakadi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads one stream of the subscription and commits cursors every {@link Scenario#getCommitEveryBatches()} batches
+ * with events. Commits are made either by the reading thread, so that reading waits for the commit, or, with
+ * {@link Scenario#isAsyncCommits()}, by a separate thread, while reading goes on.
+ */
+class Consumer implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Consumer.class);
+
+    private final NakadiClient client;
+    private final ObjectMapper objectMapper;
+    private final String subscriptionId;
+    private final Scenario scenario;
+    private final Latencies endToEndLatencies;
+    private final Latencies commitLatencies;
+    private final LongAdder events;
+    private final LongAdder totalEvents;
+    private final LongAdder failedCommits;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final ExecutorService committer;
+    private final Map<String, JsonNode> uncommittedCursors = new HashMap<>();
+    private int uncommittedBatches;
+    private volatile boolean running = true;
+    private volatile Exception failure;
+
+    Consumer(final NakadiClient client, final ObjectMapper objectMapper, final String subscriptionId,
+             final Scenario scenario, final ConsumerStats stats) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.subscriptionId = subscriptionId;
+        this.scenario = scenario;
+        this.endToEndLatencies = stats.endToEndLatencies;
+        this.commitLatencies = stats.commitLatencies;
+        this.events = stats.events;
+        this.totalEvents = stats.totalEvents;
+        this.failedCommits = stats.failedCommits;
+        this.committer = scenario.isAsyncCommits() ? Executors.newSingleThreadExecutor() : null;
+    }
+
+    @Override
+    public void run() {
+        try {
+            final HttpResponse<InputStream> response = client.stream(subscriptionId, scenario);
+            final String streamId = response.headers().firstValue("X-Nakadi-StreamId")
+                    .orElseThrow(() -> new IllegalStateException("Stream of " + subscriptionId + " has no id"));
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                String line;
+                while (running && null != (line = reader.readLine())) {
+                    // the first batch, even keep alive one, means that partitions are assigned to the stream
+                    started.countDown();
+                    onBatch(streamId, objectMapper.readTree(line));
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final Exception e) {
+            if (running) {
+                LOG.error("Stream of subscription {} failed", subscriptionId, e);
+                failure = e;
+            }
+        } finally {
+            started.countDown();
+            if (null != committer) {
+                committer.shutdown();
+            }
+        }
+    }
+
+    private void onBatch(final String streamId, final JsonNode batch) throws InterruptedException {
+        final JsonNode batchEvents = batch.get("events");
+        if (null == batchEvents || batchEvents.size() == 0) {
+            return;
+        }
+        final long now = System.nanoTime();
+        for (final JsonNode event : batchEvents) {
+            endToEndLatencies.record(now - event.get("sent_nanos").asLong());
+        }
+        events.add(batchEvents.size());
+        totalEvents.add(batchEvents.size());
+
+        final JsonNode cursor = batch.get("cursor");
+        uncommittedCursors.put(cursor.get("partition").asText(), cursor);
+        if (++uncommittedBatches < scenario.getCommitEveryBatches()) {
+            return;
+        }
+        final List<JsonNode> cursors = new ArrayList<>(uncommittedCursors.values());
+        uncommittedCursors.clear();
+        uncommittedBatches = 0;
+        if (null == committer) {
+            commit(streamId, cursors);
+        } else {
+            committer.execute(() -> {
+                try {
+                    commit(streamId, cursors);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    private void commit(final String streamId, final List<JsonNode> cursors) throws InterruptedException {
+        final long start = System.nanoTime();
+        try {
+            final int status = client.commit(subscriptionId, streamId, cursors);
+            commitLatencies.record(System.nanoTime() - start);
+            if (status != 200 && status != 204) {
+                failedCommits.increment();
+            }
+        } catch (final InterruptedException e) {
+            throw e;
+        } catch (final Exception e) {
+            LOG.debug("Failed to commit cursors of subscription {}", subscriptionId, e);
+            failedCommits.increment();
+        }
+    }
+
+    boolean awaitStarted(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return started.await(timeout, unit) && null == failure;
+    }
+
+    /**
+     * Stops reading, the stream is closed by the reading thread with the next batch, that comes at least every
+     * second.
+     */
+    void stop() {
+        running = false;
+    }
+
+    Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * Statistics shared by all streams of the same subscription.
+     */
+    static class ConsumerStats {
+        private final Latencies endToEndLatencies;
+        private final Latencies commitLatencies;
+        private final LongAdder events = new LongAdder();
+        private final LongAdder totalEvents = new LongAdder();
+        private final LongAdder failedCommits = new LongAdder();
+
+        ConsumerStats(final Latencies endToEndLatencies, final Latencies commitLatencies) {
+            this.endToEndLatencies = endToEndLatencies;
+            this.commitLatencies = commitLatencies;
+        }
+
+        void reset() {
+            events.reset();
+            failedCommits.reset();
+        }
+
+        long getEvents() {
+            return events.sum();
+        }
+
+        long getTotalEvents() {
+            return totalEvents.sum();
+        }
+
+        long getFailedCommits() {
+            return failedCommits.sum();
+        }
+    }
+}
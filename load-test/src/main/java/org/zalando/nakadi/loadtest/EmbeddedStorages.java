@@ -0,0 +1,161 @@
+package org.zalando.nakadi.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import kafka.server.KafkaServerStartable;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * ZooKeeper, single Kafka broker and Postgres started locally for nakadi, so that load can be generated without any
+ * external infrastructure. Postgres is initialized with the same scripts, that are used by docker-compose.
+ */
+public class EmbeddedStorages implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddedStorages.class);
+    private static final String HOST = "127.0.0.1";
+    private static final int ZOOKEEPER_TICK_TIME_MS = 500;
+    private static final int ZOOKEEPER_MAX_CONNECTIONS = 1000;
+    static final String DATABASE = "local_nakadi_db";
+    static final String DATABASE_USER = "nakadi";
+    static final String DATABASE_PASSWORD = "nakadi";
+
+    private final Path dataDir;
+    private ServerCnxnFactory zooKeeperConnections;
+    private ZooKeeperServer zooKeeper;
+    private KafkaServerStartable kafka;
+    private EmbeddedPostgres postgres;
+
+    private EmbeddedStorages(final Path dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public static EmbeddedStorages start(final Path databaseScripts) throws IOException {
+        final EmbeddedStorages storages = new EmbeddedStorages(Files.createTempDirectory("nakadi-load-test"));
+        try {
+            storages.startZooKeeper();
+            storages.startKafka();
+            storages.startPostgres(databaseScripts);
+            return storages;
+        } catch (final IOException | RuntimeException e) {
+            storages.close();
+            throw e;
+        }
+    }
+
+    private void startZooKeeper() throws IOException {
+        final Path dir = Files.createDirectories(dataDir.resolve("zookeeper"));
+        zooKeeper = new ZooKeeperServer(dir.toFile(), dir.toFile(), ZOOKEEPER_TICK_TIME_MS);
+        zooKeeperConnections = ServerCnxnFactory.createFactory(
+                new InetSocketAddress(HOST, 0), ZOOKEEPER_MAX_CONNECTIONS);
+        try {
+            zooKeeperConnections.startup(zooKeeper);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting zookeeper", e);
+        }
+        LOG.info("Started zookeeper on {}", getZooKeeperAddress());
+    }
+
+    private void startKafka() throws IOException {
+        final int port = freePort();
+        final Properties properties = new Properties();
+        properties.setProperty("broker.id", "0");
+        properties.setProperty("zookeeper.connect", getZooKeeperAddress());
+        properties.setProperty("listeners", "PLAINTEXT://" + HOST + ":" + port);
+        properties.setProperty("log.dirs", Files.createDirectories(dataDir.resolve("kafka")).toString());
+        properties.setProperty("auto.create.topics.enable", "false");
+        properties.setProperty("delete.topic.enable", "true");
+        properties.setProperty("offsets.topic.num.partitions", "1");
+        properties.setProperty("offsets.topic.replication.factor", "1");
+        properties.setProperty("transaction.state.log.replication.factor", "1");
+        properties.setProperty("transaction.state.log.min.isr", "1");
+        properties.setProperty("group.initial.rebalance.delay.ms", "0");
+        kafka = KafkaServerStartable.fromProps(properties);
+        kafka.startup();
+        LOG.info("Started kafka broker on {}:{}", HOST, port);
+    }
+
+    private void startPostgres(final Path databaseScripts) throws IOException {
+        postgres = EmbeddedPostgres.builder()
+                .setDataDirectory(dataDir.resolve("postgres"))
+                .setCleanDataDirectory(true)
+                .start();
+        try {
+            try (Connection connection = postgres.getPostgresDatabase().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE ROLE " + DATABASE_USER + " SUPERUSER LOGIN PASSWORD '" +
+                        DATABASE_PASSWORD + "'");
+                statement.execute("CREATE DATABASE " + DATABASE + " OWNER " + DATABASE_USER);
+            }
+            // every script is executed in its own session, in the same order as in the postgres container
+            final List<Path> scripts;
+            try (Stream<Path> files = Files.walk(databaseScripts)) {
+                scripts = files.filter(file -> file.toString().endsWith(".sql")).sorted().collect(Collectors.toList());
+            }
+            for (final Path script : scripts) {
+                try (Connection connection = DriverManager.getConnection(
+                        getDatabaseUrl(), DATABASE_USER, DATABASE_PASSWORD);
+                     Statement statement = connection.createStatement()) {
+                    statement.execute(new String(Files.readAllBytes(script), StandardCharsets.UTF_8));
+                }
+            }
+        } catch (final SQLException e) {
+            throw new IllegalStateException("Failed to initialize nakadi database", e);
+        }
+        LOG.info("Started postgres on {}", getDatabaseUrl());
+    }
+
+    public String getZooKeeperAddress() {
+        return HOST + ":" + zooKeeperConnections.getLocalPort();
+    }
+
+    public String getDatabaseUrl() {
+        return "jdbc:postgresql://" + HOST + ":" + postgres.getPort() + "/" + DATABASE + "?preferQueryMode=simple";
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (null != postgres) {
+                postgres.close();
+            }
+        } finally {
+            if (null != kafka) {
+                kafka.shutdown();
+                kafka.awaitShutdown();
+            }
+            if (null != zooKeeperConnections) {
+                zooKeeperConnections.shutdown();
+            }
+            if (null != zooKeeper) {
+                zooKeeper.shutdown();
+            }
+            FileSystemUtils.deleteRecursively(dataDir);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
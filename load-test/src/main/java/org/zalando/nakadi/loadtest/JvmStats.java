@@ -0,0 +1,64 @@
+package org.zalando.nakadi.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Garbage collections and allocations of the JVM at some moment. Nakadi, the storages and the load run in the same
+ * JVM, so the numbers are the cost of the whole setup rather than of nakadi alone, and are meant to be compared
+ * between runs of the same scenario.
+ *
+ * <p>Allocations are summed over the threads alive at the moment, so bytes allocated by threads, that were both
+ * started and finished between two moments, are missed.
+ */
+class JvmStats {
+
+    private static final double BYTES_IN_MB = 1024.0 * 1024.0;
+
+    private final long gcCount;
+    private final long gcTimeMs;
+    private final Map<Long, Long> allocatedBytes;
+
+    private JvmStats(final long gcCount, final long gcTimeMs, final Map<Long, Long> allocatedBytes) {
+        this.gcCount = gcCount;
+        this.gcTimeMs = gcTimeMs;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    static JvmStats take() {
+        long gcCount = 0;
+        long gcTimeMs = 0;
+        for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(collector.getCollectionCount(), 0);
+            gcTimeMs += Math.max(collector.getCollectionTime(), 0);
+        }
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long[] ids = threads.getAllThreadIds();
+        final long[] bytes = threads.getThreadAllocatedBytes(ids);
+        final Map<Long, Long> allocatedBytes = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; ++i) {
+            if (bytes[i] >= 0) {
+                allocatedBytes.put(ids[i], bytes[i]);
+            }
+        }
+        return new JvmStats(gcCount, gcTimeMs, allocatedBytes);
+    }
+
+    Map<String, Number> since(final JvmStats start, final double seconds) {
+        long allocated = 0;
+        for (final Map.Entry<Long, Long> thread : allocatedBytes.entrySet()) {
+            allocated += thread.getValue() - start.allocatedBytes.getOrDefault(thread.getKey(), 0L);
+        }
+        final Map<String, Number> report = new LinkedHashMap<>();
+        report.put("gc_count", gcCount - start.gcCount);
+        report.put("gc_time_ms", gcTimeMs - start.gcTimeMs);
+        report.put("gc_time_percent", 100.0 * (gcTimeMs - start.gcTimeMs) / (seconds * 1000.0));
+        report.put("allocated_mb", allocated / BYTES_IN_MB);
+        report.put("allocation_rate_mb_per_second", allocated / BYTES_IN_MB / seconds);
+        return report;
+    }
+}
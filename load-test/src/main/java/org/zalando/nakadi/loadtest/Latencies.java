@@ -0,0 +1,46 @@
+package org.zalando.nakadi.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies recorded by many threads and reported in milliseconds, values above one hour are clamped.
+ */
+class Latencies {
+
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final double MICROS_IN_MILLI = 1000.0;
+
+    private final Recorder recorder = new Recorder(MAX_MICROS, 3);
+
+    void record(final long nanos) {
+        recorder.recordValue(Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), MAX_MICROS));
+    }
+
+    void reset() {
+        recorder.reset();
+    }
+
+    /**
+     * Returns percentiles of latencies, recorded since the last reset.
+     */
+    Map<String, Number> report() {
+        return report(recorder.getIntervalHistogram());
+    }
+
+    private static Map<String, Number> report(final Histogram histogram) {
+        final Map<String, Number> report = new LinkedHashMap<>();
+        report.put("count", histogram.getTotalCount());
+        report.put("mean_ms", histogram.getMean() / MICROS_IN_MILLI);
+        report.put("p50_ms", histogram.getValueAtPercentile(50) / MICROS_IN_MILLI);
+        report.put("p90_ms", histogram.getValueAtPercentile(90) / MICROS_IN_MILLI);
+        report.put("p99_ms", histogram.getValueAtPercentile(99) / MICROS_IN_MILLI);
+        report.put("p999_ms", histogram.getValueAtPercentile(99.9) / MICROS_IN_MILLI);
+        report.put("max_ms", histogram.getMaxValue() / MICROS_IN_MILLI);
+        return report;
+    }
+}
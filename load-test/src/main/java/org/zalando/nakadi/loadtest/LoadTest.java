@@ -0,0 +1,119 @@
+package org.zalando.nakadi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.zalando.nakadi.Application;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts nakadi together with embedded zookeeper, kafka and postgres in the same JVM and runs load scenarios
+ * against it one after another. Scenarios are read from the file given as the only argument or from
+ * {@code scenarios.json} on the classpath, report of every scenario is written as JSON to the directory from the
+ * {@code loadtest.reportDir} system property.
+ *
+ * <p>The file has the list of {@link Scenario}s and the properties, that override nakadi configuration for the
+ * whole run, e.g. feature toggles or publishing settings, that should be compared under load.
+ */
+public class LoadTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+    public static void main(final String[] args) {
+        int status = 0;
+        try {
+            run(args);
+        } catch (final Exception e) {
+            LOG.error("Load test failed", e);
+            status = 1;
+        }
+        // threads of nakadi and kafka, that are not stopped with them, should not keep the JVM running
+        System.exit(status);
+    }
+
+    private static void run(final String[] args) throws Exception {
+        final ObjectMapper objectMapper = new ObjectMapper()
+                .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        final Config config;
+        try (InputStream in = args.length > 0 ?
+                Files.newInputStream(Paths.get(args[0])) :
+                LoadTest.class.getResourceAsStream("/scenarios.json")) {
+            config = objectMapper.readValue(in, Config.class);
+        }
+        config.getScenarios().forEach(Scenario::validate);
+        final Path reportDir = Files.createDirectories(Paths.get(System.getProperty("loadtest.reportDir", ".")));
+
+        try (EmbeddedStorages storages = EmbeddedStorages.start(
+                Paths.get(System.getProperty("loadtest.databaseScripts", "database/nakadi")));
+             ConfigurableApplicationContext nakadi = startNakadi(storages, config.getProperties())) {
+            final NakadiClient client = new NakadiClient(
+                    URI.create("http://127.0.0.1:" + nakadi.getEnvironment().getProperty("local.server.port")),
+                    objectMapper);
+            for (final Scenario scenario : config.getScenarios()) {
+                LOG.info("Running scenario {}", scenario.getName());
+                final Map<String, Object> report = new ScenarioRunner(client, objectMapper, scenario).run();
+                final Path reportFile = reportDir.resolve(scenario.getName() + ".json");
+                objectMapper.writeValue(reportFile.toFile(), report);
+                LOG.info("Report of scenario {} is written to {}", scenario.getName(), reportFile);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startNakadi(
+            final EmbeddedStorages storages, final Map<String, String> overrides) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("management.port", 0);
+        properties.put("spring.datasource.url", storages.getDatabaseUrl());
+        properties.put("spring.datasource.username", EmbeddedStorages.DATABASE_USER);
+        properties.put("spring.datasource.password", EmbeddedStorages.DATABASE_PASSWORD);
+        properties.put("nakadi.zookeeper.connectionString", "zookeeper://" + storages.getZooKeeperAddress());
+        properties.put("nakadi.oauth2.mode", "OFF");
+        properties.put("nakadi.features.defaultFeatures.DISABLE_EVENT_TYPE_CREATION", false);
+        properties.put("nakadi.features.defaultFeatures.DISABLE_SUBSCRIPTION_CREATION", false);
+        // nakadi's own event types would be published to by every request and take part in the load
+        properties.put("nakadi.features.defaultFeatures.KPI_COLLECTION", false);
+        properties.put("nakadi.features.defaultFeatures.AUDIT_LOG_COLLECTION", false);
+        properties.put("nakadi.features.defaultFeatures.ACCESS_LOG_ENABLED", false);
+        properties.putAll(overrides);
+        LOG.info("Starting nakadi");
+        return new SpringApplicationBuilder(Application.class)
+                .properties(properties)
+                .run();
+    }
+
+    public static class Config {
+        private Map<String, String> properties = new HashMap<>();
+        private List<Scenario> scenarios = new ArrayList<>();
+
+        public Map<String, String> getProperties() {
+            return properties;
+        }
+
+        public void setProperties(final Map<String, String> properties) {
+            this.properties = properties;
+        }
+
+        public List<Scenario> getScenarios() {
+            return scenarios;
+        }
+
+        public void setScenarios(final List<Scenario> scenarios) {
+            this.scenarios = scenarios;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.zalando.nakadi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Minimal client of nakadi API, that covers the calls made by the load: creation of event types and subscriptions,
+ * publishing, streaming and committing of cursors.
+ */
+class NakadiClient {
+
+    static final String OWNING_APPLICATION = "nakadi_load_test";
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    NakadiClient(final URI baseUri, final ObjectMapper objectMapper) {
+        this.baseUri = baseUri;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .build();
+    }
+
+    void createEventType(final String name, final int partitions) {
+        final ObjectNode statistic = objectMapper.createObjectNode()
+                .put("messages_per_minute", 1)
+                .put("message_size", 1)
+                .put("read_parallelism", partitions)
+                .put("write_parallelism", partitions);
+        final ObjectNode schema = objectMapper.createObjectNode()
+                .put("type", "json_schema")
+                .put("schema", "{\"type\":\"object\",\"required\":[\"id\",\"sent_nanos\"],\"properties\":{" +
+                        "\"id\":{\"type\":\"string\"},\"sent_nanos\":{\"type\":\"integer\"}," +
+                        "\"data\":{\"type\":\"string\"}}}");
+        final ObjectNode eventType = objectMapper.createObjectNode()
+                .put("name", name)
+                .put("owning_application", OWNING_APPLICATION)
+                .put("category", "business")
+                .put("partition_strategy", "hash")
+                .set("schema", schema);
+        eventType.putArray("partition_key_fields").add("id");
+        eventType.putArray("enrichment_strategies").add("metadata_enrichment");
+        eventType.set("default_statistic", statistic);
+        expect(201, post("/event-types", eventType));
+    }
+
+    String createSubscription(final String eventType, final String consumerGroup) {
+        final ObjectNode subscription = objectMapper.createObjectNode()
+                .put("owning_application", OWNING_APPLICATION)
+                .put("consumer_group", consumerGroup)
+                .put("read_from", "end");
+        subscription.putArray("event_types").add(eventType);
+        final HttpResponse<String> response = expect(201, post("/subscriptions", subscription));
+        try {
+            return objectMapper.readTree(response.body()).get("id").asText();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int publish(final String eventType, final byte[] batch) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/event-types/" + eventType + "/events"))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(batch))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Opens stream of the subscription, batches are flushed at least every second, so that reader of the stream
+     * regularly gets either events or keep alive batches.
+     */
+    HttpResponse<InputStream> stream(final String subscriptionId, final Scenario scenario)
+            throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/subscriptions/" + subscriptionId +
+                "/events?batch_limit=" + scenario.getBatchLimit() +
+                "&max_uncommitted_events=" + scenario.getMaxUncommittedEvents() +
+                "&batch_flush_timeout=1"))
+                .GET()
+                .build();
+        final HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() != 200) {
+            try (InputStream body = response.body()) {
+                throw new IllegalStateException("Failed to open stream of subscription " + subscriptionId + ": " +
+                        response.statusCode() + " " + new String(body.readAllBytes()));
+            }
+        }
+        return response;
+    }
+
+    int commit(final String subscriptionId, final String streamId, final Collection<JsonNode> cursors)
+            throws IOException, InterruptedException {
+        final ObjectNode body = objectMapper.createObjectNode();
+        body.putArray("items").addAll(cursors);
+        final HttpRequest request = HttpRequest.newBuilder(
+                baseUri.resolve("/subscriptions/" + subscriptionId + "/cursors"))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("X-Nakadi-StreamId", streamId)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpResponse<String> post(final String path, final JsonNode body) {
+        try {
+            final HttpRequest request = HttpRequest.newBuilder(baseUri.resolve(path))
+                    .timeout(TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling " + path, e);
+        }
+    }
+
+    private static HttpResponse<String> expect(final int status, final HttpResponse<String> response) {
+        if (response.statusCode() != status) {
+            throw new IllegalStateException(response.request().method() + " " + response.uri() + " failed: " +
+                    response.statusCode() + " " + response.body());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,147 @@
+package org.zalando.nakadi.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes batches of the scenario with the fixed rate. Latency of a batch is measured from the moment it was
+ * scheduled to be sent, not from the moment it was actually sent, so when nakadi slows down, the time batches spend
+ * waiting for the previous ones is counted too, instead of being hidden by the lower rate of publishing.
+ *
+ * <p>Every event carries {@code sent_nanos}, the moment the batch was scheduled to be sent, so that consumers in the
+ * same JVM can measure end-to-end latency of events.
+ */
+class Publisher implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Publisher.class);
+    private static final int PARTITION_KEYS = 1024;
+
+    private final NakadiClient client;
+    private final String eventType;
+    private final Scenario scenario;
+    private final long intervalNanos;
+    private final Latencies latencies;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder totalEvents = new LongAdder();
+    private final String padding;
+    private volatile boolean running = true;
+
+    Publisher(final NakadiClient client, final String eventType, final Scenario scenario,
+              final double batchesPerSecond, final Latencies latencies) {
+        this.client = client;
+        this.eventType = eventType;
+        this.scenario = scenario;
+        this.intervalNanos = batchesPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / batchesPerSecond) : 0;
+        this.latencies = latencies;
+        final char[] chars = new char[scenario.getEventSize()];
+        Arrays.fill(chars, 'x');
+        this.padding = new String(chars);
+    }
+
+    @Override
+    public void run() {
+        long scheduledAt = System.nanoTime();
+        while (running) {
+            if (intervalNanos > 0) {
+                for (long now = System.nanoTime(); now < scheduledAt; now = System.nanoTime()) {
+                    LockSupport.parkNanos(scheduledAt - now);
+                }
+            } else {
+                scheduledAt = System.nanoTime();
+            }
+            final byte[] batch = batch(scheduledAt);
+            try {
+                final int status = client.publish(eventType, batch);
+                latencies.record(System.nanoTime() - scheduledAt);
+                if (status == 200) {
+                    batches.increment();
+                    events.add(scenario.getBatchSize());
+                    bytes.add(batch.length);
+                    totalEvents.add(scenario.getBatchSize());
+                } else {
+                    failedBatches.increment();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final Exception e) {
+                LOG.debug("Failed to publish batch to {}", eventType, e);
+                failedBatches.increment();
+            }
+            scheduledAt += intervalNanos;
+        }
+    }
+
+    private byte[] batch(final long sentNanos) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String occurredAt = Instant.now().toString();
+        final StringBuilder batch = new StringBuilder(scenario.getBatchSize() * (scenario.getEventSize() + 1) + 2)
+                .append('[');
+        for (int i = 0; i < scenario.getBatchSize(); ++i) {
+            if (i > 0) {
+                batch.append(',');
+            }
+            final int start = batch.length();
+            batch.append("{\"metadata\":{\"eid\":\"").append(eid(random))
+                    .append("\",\"occurred_at\":\"").append(occurredAt)
+                    .append("\"},\"id\":\"").append(random.nextInt(PARTITION_KEYS))
+                    .append("\",\"sent_nanos\":").append(sentNanos)
+                    .append(",\"data\":\"");
+            final int paddingLength = scenario.getEventSize() - (batch.length() - start) - 2;
+            batch.append(padding, 0, Math.max(paddingLength, 0)).append("\"}");
+        }
+        return batch.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static UUID eid(final ThreadLocalRandom random) {
+        // random version 4 uuid, without the cost of SecureRandom of UUID.randomUUID()
+        return new UUID((random.nextLong() & ~0xF000L) | 0x4000L,
+                (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    void reset() {
+        batches.reset();
+        events.reset();
+        bytes.reset();
+        failedBatches.reset();
+    }
+
+    long getBatches() {
+        return batches.sum();
+    }
+
+    long getEvents() {
+        return events.sum();
+    }
+
+    long getBytes() {
+        return bytes.sum();
+    }
+
+    long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    /**
+     * Returns number of events published since the start, including warmup, to be compared with consumed events.
+     */
+    long getTotalEvents() {
+        return totalEvents.sum();
+    }
+}
@@ -0,0 +1,171 @@
+package org.zalando.nakadi.loadtest;
+
+/**
+ * Load of one scenario: how events are published to the event type of the scenario and how they are consumed from
+ * it by subscriptions. Every subscription gets all events, so the number of subscriptions is the fan-out of the
+ * published traffic, while streams of the same subscription share its partitions.
+ */
+public class Scenario {
+
+    private String name;
+    private int warmupSeconds = 10;
+    private int durationSeconds = 60;
+    // publishing
+    private int publishers = 4;
+    private int batchesPerSecond = 100; // 0 publishes as fast as nakadi accepts batches
+    private int batchSize = 10;
+    private int eventSize = 512;
+    private int partitions = 4;
+    // consumption
+    private int subscriptions = 1;
+    private int streamsPerSubscription = 1;
+    private int batchLimit = 100;
+    private int maxUncommittedEvents = 10_000;
+    private int commitEveryBatches = 1;
+    private boolean asyncCommits = false;
+
+    public void validate() {
+        if (null == name || !name.matches("[a-z0-9][-a-z0-9_]*")) {
+            throw new IllegalArgumentException("Scenario name should match [a-z0-9][-a-z0-9_]*, but is " + name);
+        }
+        requirePositive("duration_seconds", durationSeconds);
+        requirePositive("publishers", publishers);
+        requirePositive("batch_size", batchSize);
+        requirePositive("event_size", eventSize);
+        requirePositive("partitions", partitions);
+        requirePositive("streams_per_subscription", streamsPerSubscription);
+        requirePositive("batch_limit", batchLimit);
+        requirePositive("max_uncommitted_events", maxUncommittedEvents);
+        requirePositive("commit_every_batches", commitEveryBatches);
+        if (warmupSeconds < 0 || batchesPerSecond < 0 || subscriptions < 0) {
+            throw new IllegalArgumentException("warmup_seconds, batches_per_second and subscriptions of scenario " +
+                    name + " can not be negative");
+        }
+        if (streamsPerSubscription > partitions) {
+            throw new IllegalArgumentException("Scenario " + name + " has more streams per subscription than " +
+                    "partitions, streams without partitions would be rejected");
+        }
+        if (commitEveryBatches * batchLimit > maxUncommittedEvents) {
+            throw new IllegalArgumentException("Scenario " + name + " commits less often than max_uncommitted_events " +
+                    "allows, streams would stall");
+        }
+    }
+
+    private void requirePositive(final String field, final int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(field + " of scenario " + name + " should be positive");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(final int warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(final int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public int getPublishers() {
+        return publishers;
+    }
+
+    public void setPublishers(final int publishers) {
+        this.publishers = publishers;
+    }
+
+    public int getBatchesPerSecond() {
+        return batchesPerSecond;
+    }
+
+    public void setBatchesPerSecond(final int batchesPerSecond) {
+        this.batchesPerSecond = batchesPerSecond;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getEventSize() {
+        return eventSize;
+    }
+
+    public void setEventSize(final int eventSize) {
+        this.eventSize = eventSize;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(final int partitions) {
+        this.partitions = partitions;
+    }
+
+    public int getSubscriptions() {
+        return subscriptions;
+    }
+
+    public void setSubscriptions(final int subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    public int getStreamsPerSubscription() {
+        return streamsPerSubscription;
+    }
+
+    public void setStreamsPerSubscription(final int streamsPerSubscription) {
+        this.streamsPerSubscription = streamsPerSubscription;
+    }
+
+    public int getBatchLimit() {
+        return batchLimit;
+    }
+
+    public void setBatchLimit(final int batchLimit) {
+        this.batchLimit = batchLimit;
+    }
+
+    public int getMaxUncommittedEvents() {
+        return maxUncommittedEvents;
+    }
+
+    public void setMaxUncommittedEvents(final int maxUncommittedEvents) {
+        this.maxUncommittedEvents = maxUncommittedEvents;
+    }
+
+    public int getCommitEveryBatches() {
+        return commitEveryBatches;
+    }
+
+    public void setCommitEveryBatches(final int commitEveryBatches) {
+        this.commitEveryBatches = commitEveryBatches;
+    }
+
+    public boolean isAsyncCommits() {
+        return asyncCommits;
+    }
+
+    public void setAsyncCommits(final boolean asyncCommits) {
+        this.asyncCommits = asyncCommits;
+    }
+}
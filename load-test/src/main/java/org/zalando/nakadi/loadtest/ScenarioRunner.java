@@ -0,0 +1,204 @@
+package org.zalando.nakadi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs one scenario against a fresh event type: starts streams of all subscriptions, publishes during warmup and
+ * measurement, waits until subscriptions consume everything, that was published, and reports what was measured
+ * after warmup.
+ */
+class ScenarioRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScenarioRunner.class);
+    private static final long STREAM_START_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(60);
+    private static final long DRAIN_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(60);
+    private static final long THREAD_STOP_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(35);
+
+    private final NakadiClient client;
+    private final ObjectMapper objectMapper;
+    private final Scenario scenario;
+    private final Latencies publishingLatencies = new Latencies();
+    private final Latencies endToEndLatencies = new Latencies();
+    private final Latencies commitLatencies = new Latencies();
+    private final List<Publisher> publishers = new ArrayList<>();
+    private final List<Consumer.ConsumerStats> subscriptions = new ArrayList<>();
+    private final List<Consumer> consumers = new ArrayList<>();
+    private final List<Thread> publisherThreads = new ArrayList<>();
+    private final List<Thread> consumerThreads = new ArrayList<>();
+
+    ScenarioRunner(final NakadiClient client, final ObjectMapper objectMapper, final Scenario scenario) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.scenario = scenario;
+    }
+
+    Map<String, Object> run() throws InterruptedException {
+        final String eventType = "load-test." + scenario.getName() + "." + System.currentTimeMillis();
+        client.createEventType(eventType, scenario.getPartitions());
+        try {
+            startConsumers(eventType);
+            startPublishers(eventType);
+
+            TimeUnit.SECONDS.sleep(scenario.getWarmupSeconds());
+            publishingLatencies.reset();
+            endToEndLatencies.reset();
+            commitLatencies.reset();
+            publishers.forEach(Publisher::reset);
+            subscriptions.forEach(Consumer.ConsumerStats::reset);
+            final JvmStats jvmStart = JvmStats.take();
+            final long start = System.nanoTime();
+
+            TimeUnit.SECONDS.sleep(scenario.getDurationSeconds());
+            stopPublishers();
+            final double publishingSeconds = secondsSince(start);
+            final Map<String, Object> publishing = publishingReport(publishingSeconds);
+            final Map<String, Number> jvm = JvmStats.take().since(jvmStart, publishingSeconds);
+
+            final long undeliveredEvents = drain();
+            final Map<String, Object> consumption = consumptionReport(secondsSince(start), undeliveredEvents);
+
+            final Map<String, Object> report = new LinkedHashMap<>();
+            report.put("scenario", scenario);
+            report.put("event_type", eventType);
+            report.put("duration_seconds", publishingSeconds);
+            report.put("publishing", publishing);
+            report.put("consumption", consumption);
+            report.put("jvm", jvm);
+            logSummary(publishing, consumption, jvm);
+            return report;
+        } finally {
+            stopPublishers();
+            stopConsumers();
+        }
+    }
+
+    private void startConsumers(final String eventType) throws InterruptedException {
+        for (int i = 0; i < scenario.getSubscriptions(); ++i) {
+            final String subscriptionId = client.createSubscription(eventType, "load-test-" + i);
+            final Consumer.ConsumerStats stats = new Consumer.ConsumerStats(endToEndLatencies, commitLatencies);
+            subscriptions.add(stats);
+            for (int j = 0; j < scenario.getStreamsPerSubscription(); ++j) {
+                final Consumer consumer = new Consumer(client, objectMapper, subscriptionId, scenario, stats);
+                consumers.add(consumer);
+                consumerThreads.add(start(consumer, "load-test-consumer-" + i + "-" + j));
+            }
+        }
+        // subscriptions start from the end of partitions, so events published before streams start are not counted
+        for (final Consumer consumer : consumers) {
+            if (!consumer.awaitStarted(STREAM_START_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Stream of scenario " + scenario.getName() + " did not start",
+                        consumer.getFailure());
+            }
+        }
+    }
+
+    private void startPublishers(final String eventType) {
+        final double batchesPerSecond = (double) scenario.getBatchesPerSecond() / scenario.getPublishers();
+        for (int i = 0; i < scenario.getPublishers(); ++i) {
+            final Publisher publisher = new Publisher(client, eventType, scenario, batchesPerSecond,
+                    publishingLatencies);
+            publishers.add(publisher);
+            publisherThreads.add(start(publisher, "load-test-publisher-" + i));
+        }
+    }
+
+    private long drain() throws InterruptedException {
+        final long published = publishers.stream().mapToLong(Publisher::getTotalEvents).sum();
+        final long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        long undelivered;
+        do {
+            undelivered = subscriptions.stream()
+                    .mapToLong(subscription -> Math.max(published - subscription.getTotalEvents(), 0))
+                    .sum();
+            if (undelivered > 0) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+        } while (undelivered > 0 && System.currentTimeMillis() < deadline);
+        if (undelivered > 0) {
+            LOG.warn("{} events of scenario {} were not consumed in {} ms", undelivered, scenario.getName(),
+                    DRAIN_TIMEOUT_MS);
+        }
+        return undelivered;
+    }
+
+    private Map<String, Object> publishingReport(final double seconds) {
+        final long batches = publishers.stream().mapToLong(Publisher::getBatches).sum();
+        final long events = publishers.stream().mapToLong(Publisher::getEvents).sum();
+        final long bytes = publishers.stream().mapToLong(Publisher::getBytes).sum();
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("batches", batches);
+        report.put("events", events);
+        report.put("failed_batches", publishers.stream().mapToLong(Publisher::getFailedBatches).sum());
+        report.put("batches_per_second", batches / seconds);
+        report.put("events_per_second", events / seconds);
+        report.put("mb_per_second", bytes / seconds / (1024.0 * 1024.0));
+        report.put("latency", publishingLatencies.report());
+        return report;
+    }
+
+    private Map<String, Object> consumptionReport(final double seconds, final long undeliveredEvents) {
+        final long events = subscriptions.stream().mapToLong(Consumer.ConsumerStats::getEvents).sum();
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("events", events);
+        report.put("undelivered_events", undeliveredEvents);
+        report.put("failed_commits", subscriptions.stream().mapToLong(Consumer.ConsumerStats::getFailedCommits).sum());
+        report.put("events_per_second", events / seconds);
+        report.put("end_to_end_latency", endToEndLatencies.report());
+        report.put("commit_latency", commitLatencies.report());
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void logSummary(final Map<String, Object> publishing, final Map<String, Object> consumption,
+                            final Map<String, Number> jvm) {
+        final Map<String, Number> publishingLatency = (Map<String, Number>) publishing.get("latency");
+        final Map<String, Number> endToEndLatency = (Map<String, Number>) consumption.get("end_to_end_latency");
+        LOG.info(String.format("Scenario %s: published %.0f events/s (p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, " +
+                        "%d failed batches), consumed %.0f events/s (end-to-end p99 %.2f ms, %d undelivered), " +
+                        "%d gc (%d ms), allocated %.1f MB/s",
+                scenario.getName(),
+                publishing.get("events_per_second"),
+                publishingLatency.get("p50_ms"), publishingLatency.get("p99_ms"), publishingLatency.get("p999_ms"),
+                publishing.get("failed_batches"),
+                consumption.get("events_per_second"),
+                endToEndLatency.get("p99_ms"),
+                consumption.get("undelivered_events"),
+                jvm.get("gc_count"), jvm.get("gc_time_ms"),
+                jvm.get("allocation_rate_mb_per_second")));
+    }
+
+    private void stopPublishers() throws InterruptedException {
+        publishers.forEach(Publisher::stop);
+        join(publisherThreads);
+    }
+
+    private void stopConsumers() throws InterruptedException {
+        consumers.forEach(Consumer::stop);
+        join(consumerThreads);
+    }
+
+    private static void join(final List<Thread> threads) throws InterruptedException {
+        for (final Thread thread : threads) {
+            thread.join(THREAD_STOP_TIMEOUT_MS);
+        }
+    }
+
+    private static Thread start(final Runnable runnable, final String name) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static double secondsSince(final long startNanos) {
+        return (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}